@@ -0,0 +1,152 @@
+package com.microsoft.appcenter.analytics;
+
+import android.os.Debug;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.microsoft.appcenter.analytics.ingestion.models.EventLog;
+import com.microsoft.appcenter.analytics.ingestion.models.json.EventLogFactory;
+import com.microsoft.appcenter.analytics.ingestion.models.one.CommonSchemaEventLog;
+import com.microsoft.appcenter.analytics.ingestion.models.one.json.CommonSchemaEventLogFactory;
+import com.microsoft.appcenter.ingestion.models.Device;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
+import com.microsoft.appcenter.utils.UUIDUtils;
+
+import org.json.JSONException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures CPU time and bytes on the wire of each compression level on typical upload batches,
+ * to choose the level and threshold given to ingestion setCompression.
+ * Results are printed in logcat with the tag of this class.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class CompressionBenchmarkAndroidTest {
+
+    /**
+     * Log tag.
+     */
+    private static final String TAG = "CompressionBenchmark";
+
+    /**
+     * Number of repetitions of each measured compression.
+     */
+    private static final int REPETITIONS = 10;
+
+    /**
+     * Levels to compare.
+     */
+    private static final int[] LEVELS = {Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, 3, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION};
+
+    private static List<Log> generateEventLogs(int count) {
+        Device device = new Device();
+        device.setSdkName("appcenter.android");
+        device.setSdkVersion("1.2.3");
+        device.setModel("S5");
+        device.setOemName("HTC");
+        device.setOsName("Android");
+        device.setOsVersion("4.0.3");
+        device.setOsBuild("LMY47X");
+        device.setOsApiLevel(15);
+        device.setLocale("en_US");
+        device.setTimeZoneOffset(120);
+        device.setScreenSize("800x600");
+        device.setAppVersion("3.2.1");
+        device.setAppBuild("42");
+        device.setAppNamespace("com.contoso.app");
+        UUID sid = UUIDUtils.randomUUID();
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            EventLog eventLog = new EventLog();
+            eventLog.setTimestamp(new Date());
+            eventLog.setId(UUIDUtils.randomUUID());
+            eventLog.setSid(sid);
+            eventLog.setDevice(device);
+            eventLog.setName("event_" + (i % 20));
+            Map<String, String> properties = new HashMap<>();
+            properties.put("screen", "screen_" + (i % 7));
+            properties.put("index", String.valueOf(i));
+            properties.put("session", sid.toString());
+            eventLog.setProperties(properties);
+            eventLog.addTransmissionTarget("1dd2ab6b7a9e4a9a9b6a5b7b8c9d0e1f-00000000-0000-0000-0000-000000000000-1234");
+            logs.add(eventLog);
+        }
+        return logs;
+    }
+
+    private static byte[] appCenterBatch(LogSerializer serializer, List<Log> logs) throws JSONException {
+        LogContainer container = new LogContainer();
+        container.setLogs(logs);
+        return serializer.serializeContainer(container).getBytes();
+    }
+
+    private static byte[] commonSchemaBatch(LogSerializer serializer, List<Log> logs) throws JSONException {
+        EventLogFactory factory = new EventLogFactory();
+        StringBuilder builder = new StringBuilder();
+        for (Log log : logs) {
+            for (CommonSchemaLog commonSchemaLog : factory.toCommonSchemaLogs(log)) {
+                builder.append(serializer.serializeLog(commonSchemaLog)).append('\n');
+            }
+        }
+        return builder.toString().getBytes();
+    }
+
+    private static void benchmark(String name, byte[] payload) throws IOException {
+        for (int level : LEVELS) {
+            Deflater deflater = new Deflater(level, true);
+            int compressedLength = 0;
+            long start = Debug.threadCpuTimeNanos();
+            for (int i = 0; i < REPETITIONS; i++) {
+                deflater.reset();
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length);
+                DeflaterOutputStream out = new DeflaterOutputStream(buffer, deflater, 512);
+                out.write(payload);
+                out.finish();
+                compressedLength = buffer.size();
+            }
+            double cpuTime = (Debug.threadCpuTimeNanos() - start) / 1e6 / REPETITIONS;
+            deflater.end();
+            android.util.Log.i(TAG, name + " " + payload.length + " bytes, level " + level + ": " + cpuTime + "ms CPU, " + compressedLength + " bytes on the wire (" + 100 * compressedLength / payload.length + "%)");
+            if (level == Deflater.BEST_COMPRESSION) {
+                assertTrue(compressedLength < payload.length);
+            }
+        }
+    }
+
+    @Test
+    public void eventLogBatches() throws JSONException, IOException {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(EventLog.TYPE, new EventLogFactory());
+        for (int count : new int[]{1, 10, 50, 500}) {
+            benchmark("EventLog x" + count, appCenterBatch(serializer, generateEventLogs(count)));
+        }
+    }
+
+    @Test
+    public void commonSchemaBatches() throws JSONException, IOException {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(CommonSchemaEventLog.TYPE, new CommonSchemaEventLogFactory());
+        for (int count : new int[]{1, 10, 50, 500}) {
+            benchmark("CommonSchemaEventLog x" + count, commonSchemaBatch(serializer, generateEventLogs(count)));
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.microsoft.appcenter.analytics.ingestion.models;
 
+import android.util.JsonReader;
+
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
+import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
+
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.UUID;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.ID;
@@ -51,7 +56,22 @@ public class EventLog extends LogWithNameAndProperties {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        super.read(reader);
+        JSONUtils.checkRequired(ID, getId());
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        if (ID.equals(name)) {
+            setId(UUID.fromString(reader.nextString()));
+            return true;
+        }
+        return super.readField(name, reader);
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         writer.key(ID).value(getId());
     }
@@ -1,10 +1,15 @@
 package com.microsoft.appcenter.analytics.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.LogWithProperties;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
+import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.NAME;
 
@@ -40,7 +45,22 @@ public abstract class LogWithNameAndProperties extends LogWithProperties {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        super.read(reader);
+        JSONUtils.checkRequired(NAME, getName());
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        if (NAME.equals(name)) {
+            setName(reader.nextString());
+            return true;
+        }
+        return super.readField(name, reader);
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         writer.key(NAME).value(getName());
     }
@@ -5,11 +5,11 @@ import com.microsoft.appcenter.crashes.ingestion.models.json.HandledErrorLogFact
 import com.microsoft.appcenter.crashes.ingestion.models.json.ManagedErrorLogFactory;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -599,7 +599,7 @@ public class ErrorModelTest {
         log.setErrorId(UUID.randomUUID());
         log.setData(new byte[0]);
         log.setContentType("text/plain");
-        JSONStringer jsonWriter = new JSONStringer();
+        JSONStreamWriter jsonWriter = new JSONStreamWriter();
         jsonWriter.object();
         log.write(jsonWriter);
         jsonWriter.endObject();
@@ -1,13 +1,16 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.AbstractLog;
 import com.microsoft.appcenter.ingestion.models.json.JSONDateUtils;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.UUID;
 
@@ -284,7 +287,62 @@ public abstract class AbstractErrorLog extends AbstractLog {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        super.read(reader);
+        JSONUtils.checkRequired(ID, getId());
+        JSONUtils.checkRequired(APP_LAUNCH_TIMESTAMP, getAppLaunchTimestamp());
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case ID:
+                setId(UUID.fromString(reader.nextString()));
+                return true;
+
+            case PROCESS_ID:
+                setProcessId(JSONUtils.readInteger(reader));
+                return true;
+
+            case PROCESS_NAME:
+                setProcessName(JSONUtils.readString(reader));
+                return true;
+
+            case PARENT_PROCESS_ID:
+                setParentProcessId(JSONUtils.readInteger(reader));
+                return true;
+
+            case PARENT_PROCESS_NAME:
+                setParentProcessName(JSONUtils.readString(reader));
+                return true;
+
+            case ERROR_THREAD_ID:
+                setErrorThreadId(JSONUtils.readLong(reader));
+                return true;
+
+            case ERROR_THREAD_NAME:
+                setErrorThreadName(JSONUtils.readString(reader));
+                return true;
+
+            case FATAL:
+                setFatal(JSONUtils.readBoolean(reader));
+                return true;
+
+            case APP_LAUNCH_TIMESTAMP:
+                setAppLaunchTimestamp(JSONDateUtils.toDate(reader.nextString()));
+                return true;
+
+            case ARCHITECTURE:
+                setArchitecture(JSONUtils.readString(reader));
+                return true;
+
+            default:
+                return super.readField(name, reader);
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         JSONUtils.write(writer, ID, getId());
         JSONUtils.write(writer, PROCESS_ID, getProcessId());
@@ -294,7 +352,7 @@ public abstract class AbstractErrorLog extends AbstractLog {
         JSONUtils.write(writer, ERROR_THREAD_ID, getErrorThreadId());
         JSONUtils.write(writer, ERROR_THREAD_NAME, getErrorThreadName());
         JSONUtils.write(writer, FATAL, getFatal());
-        JSONUtils.write(writer, APP_LAUNCH_TIMESTAMP, JSONDateUtils.toString(getAppLaunchTimestamp()));
+        writer.key(APP_LAUNCH_TIMESTAMP).value(getAppLaunchTimestamp());
         JSONUtils.write(writer, ARCHITECTURE, getArchitecture());
     }
 
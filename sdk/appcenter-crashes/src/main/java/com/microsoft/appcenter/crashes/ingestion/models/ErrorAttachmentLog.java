@@ -2,14 +2,16 @@ package com.microsoft.appcenter.crashes.ingestion.models;
 
 import android.support.annotation.VisibleForTesting;
 import android.util.Base64;
+import android.util.JsonReader;
 
 import com.microsoft.appcenter.ingestion.models.AbstractLog;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.UUID;
@@ -214,7 +216,48 @@ public class ErrorAttachmentLog extends AbstractLog {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        super.read(reader);
+        JSONUtils.checkRequired(ID, getId());
+        JSONUtils.checkRequired(ERROR_ID, getErrorId());
+        JSONUtils.checkRequired(CONTENT_TYPE, getContentType());
+        JSONUtils.checkRequired(DATA, getData());
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case ID:
+                setId(UUID.fromString(reader.nextString()));
+                return true;
+
+            case ERROR_ID:
+                setErrorId(UUID.fromString(reader.nextString()));
+                return true;
+
+            case CONTENT_TYPE:
+                setContentType(reader.nextString());
+                return true;
+
+            case FILE_NAME:
+                setFileName(JSONUtils.readString(reader));
+                return true;
+
+            case DATA:
+                try {
+                    setData(Base64.decode(reader.nextString(), Base64.DEFAULT));
+                } catch (IllegalArgumentException e) {
+                    throw new JSONException(e.getMessage());
+                }
+                return true;
+
+            default:
+                return super.readField(name, reader);
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         JSONUtils.write(writer, ID, getId());
         JSONUtils.write(writer, ERROR_ID, getErrorId());
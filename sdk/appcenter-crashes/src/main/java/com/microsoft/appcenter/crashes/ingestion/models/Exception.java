@@ -1,14 +1,17 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.crashes.ingestion.models.json.ExceptionFactory;
 import com.microsoft.appcenter.crashes.ingestion.models.json.StackFrameFactory;
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.FRAMES;
@@ -178,7 +181,42 @@ public class Exception implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case TYPE:
+                    setType(JSONUtils.readString(reader));
+                    break;
+
+                case MESSAGE:
+                    setMessage(JSONUtils.readString(reader));
+                    break;
+
+                case STACK_TRACE:
+                    setStackTrace(JSONUtils.readString(reader));
+                    break;
+
+                case FRAMES:
+                    setFrames(JSONUtils.readArray(reader, StackFrameFactory.getInstance()));
+                    break;
+
+                case INNER_EXCEPTIONS:
+                    setInnerExceptions(JSONUtils.readArray(reader, ExceptionFactory.getInstance()));
+                    break;
+
+                case WRAPPER_SDK_NAME:
+                    setWrapperSdkName(JSONUtils.readString(reader));
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.write(writer, TYPE, getType());
         JSONUtils.write(writer, MESSAGE, getMessage());
         JSONUtils.write(writer, STACK_TRACE, getStackTrace());
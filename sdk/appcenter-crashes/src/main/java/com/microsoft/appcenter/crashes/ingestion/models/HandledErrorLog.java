@@ -1,11 +1,15 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.LogWithProperties;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
+import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.UUID;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.ID;
@@ -90,7 +94,29 @@ public class HandledErrorLog extends LogWithProperties {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        super.read(reader);
+        JSONUtils.checkRequired(ID, getId());
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case ID:
+                setId(UUID.fromString(reader.nextString()));
+                return true;
+
+            case EXCEPTION:
+                setException(JSONUtils.readModel(reader, new Exception()));
+                return true;
+
+            default:
+                return super.readField(name, reader);
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         writer.key(ID).value(getId());
         if (getException() != null) {
@@ -1,12 +1,15 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.crashes.ingestion.models.json.ThreadFactory;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -87,7 +90,23 @@ public class ManagedErrorLog extends AbstractErrorLog {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case EXCEPTION:
+                setException(JSONUtils.readModel(reader, new Exception()));
+                return true;
+
+            case THREADS:
+                setThreads(JSONUtils.readArray(reader, ThreadFactory.getInstance()));
+                return true;
+
+            default:
+                return super.readField(name, reader);
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         if (getException() != null) {
             writer.key(EXCEPTION).object();
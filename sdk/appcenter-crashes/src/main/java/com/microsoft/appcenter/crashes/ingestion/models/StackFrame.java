@@ -1,11 +1,15 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 /**
  * The StackFrame model.
@@ -125,7 +129,34 @@ public class StackFrame implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException {
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case CLASS_NAME:
+                    setClassName(JSONUtils.readString(reader));
+                    break;
+
+                case METHOD_NAME:
+                    setMethodName(JSONUtils.readString(reader));
+                    break;
+
+                case LINE_NUMBER:
+                    setLineNumber(JSONUtils.readInteger(reader));
+                    break;
+
+                case FILE_NAME:
+                    setFileName(JSONUtils.readString(reader));
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.write(writer, CLASS_NAME, getClassName());
         JSONUtils.write(writer, METHOD_NAME, getMethodName());
         JSONUtils.write(writer, LINE_NUMBER, getLineNumber());
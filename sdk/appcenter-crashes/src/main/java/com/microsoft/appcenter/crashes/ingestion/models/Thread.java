@@ -1,13 +1,16 @@
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.crashes.ingestion.models.json.StackFrameFactory;
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.FRAMES;
@@ -96,7 +99,35 @@ public class Thread implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        boolean hasId = false;
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case ID:
+                    setId(reader.nextLong());
+                    hasId = true;
+                    break;
+
+                case NAME:
+                    setName(JSONUtils.readString(reader));
+                    break;
+
+                case FRAMES:
+                    setFrames(JSONUtils.readArray(reader, StackFrameFactory.getInstance()));
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+        if (!hasId) {
+            throw new JSONException("No value for " + ID);
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.write(writer, ID, getId());
         JSONUtils.write(writer, NAME, getName());
         JSONUtils.writeArray(writer, FRAMES, getFrames());
@@ -992,7 +992,7 @@ public class Distribute extends AbstractAppCenterService {
             @Override
             public void onCallSucceeded(final String payload) {
 
-                /* onPostExecute is not always called on UI thread due to an old Android bug. */
+                /* Callbacks are invoked from the SDK network thread. */
                 HandlerUtils.runOnUiThread(new Runnable() {
 
                     @Override
@@ -1000,15 +1000,23 @@ public class Distribute extends AbstractAppCenterService {
                         try {
                             handleApiCallSuccess(releaseCallId, payload, ReleaseDetails.parse(payload));
                         } catch (JSONException e) {
-                            onCallFailed(e);
+                            handleApiCallFailure(releaseCallId, e);
                         }
                     }
                 });
             }
 
             @Override
-            public void onCallFailed(Exception e) {
-                handleApiCallFailure(releaseCallId, e);
+            public void onCallFailed(final Exception e) {
+
+                /* Failure handling can dismiss the progress dialog, switch to UI thread. */
+                HandlerUtils.runOnUiThread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        handleApiCallFailure(releaseCallId, e);
+                    }
+                });
             }
         });
     }
@@ -0,0 +1,197 @@
+package com.microsoft.appcenter.http2;
+
+import android.os.SystemClock;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.microsoft.appcenter.http.DefaultHttpClient;
+import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.ServiceCallback;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the default client with the HTTP/2 client when sending parallel batches over TLS
+ * to a local server with simulated latency, counting connections and wall time.
+ * Results are printed in logcat with the tag of this class.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class Http2BenchmarkAndroidTest {
+
+    /**
+     * Log tag.
+     */
+    private static final String TAG = "Http2Benchmark";
+
+    /**
+     * Concurrent batches, maximum of the App Center and One Collector groups together.
+     */
+    private static final int PARALLEL_BATCHES = 5;
+
+    /**
+     * Rounds of parallel batches.
+     */
+    private static final int ROUNDS = 10;
+
+    /**
+     * Simulated server latency in milliseconds.
+     */
+    private static final long LATENCY = 100;
+
+    /**
+     * Size of a batch body.
+     */
+    private static final int BATCH_SIZE = 20 * 1024;
+
+    private MockWebServer mServer;
+
+    private HandshakeCertificates mClientCertificates;
+
+    private SSLSocketFactory mDefaultSocketFactory;
+
+    private HostnameVerifier mDefaultHostnameVerifier;
+
+    @Before
+    public void setUp() throws Exception {
+        String host = InetAddress.getByName("localhost").getCanonicalHostName();
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(host)
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        mClientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+        mServer = new MockWebServer();
+        mServer.useHttps(serverCertificates.sslSocketFactory(), false);
+        mServer.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        mServer.start();
+
+        /* Make the default client trust the local server. */
+        mDefaultSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        mDefaultHostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+        HttpsURLConnection.setDefaultSSLSocketFactory(mClientCertificates.sslSocketFactory());
+        HttpsURLConnection.setDefaultHostnameVerifier(new HostnameVerifier() {
+
+            @Override
+            public boolean verify(String hostname, SSLSession session) {
+                return true;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HttpsURLConnection.setDefaultSSLSocketFactory(mDefaultSocketFactory);
+        HttpsURLConnection.setDefaultHostnameVerifier(mDefaultHostnameVerifier);
+        mServer.shutdown();
+    }
+
+    private long benchmark(String name, HttpClient httpClient) throws Exception {
+        final String payload = new String(new char[BATCH_SIZE]).replace('\0', 'a');
+        HttpClient.CallTemplate callTemplate = new HttpClient.ResponseBodyIgnoredCallTemplate() {
+
+            @Override
+            public String buildRequestBody() {
+                return payload;
+            }
+
+            @Override
+            public void onBeforeCalling(URL url, Map<String, String> headers) {
+            }
+        };
+        int requestCountBefore = mServer.getRequestCount();
+        final AtomicInteger failures = new AtomicInteger();
+        long start = SystemClock.elapsedRealtime();
+        for (int round = 0; round < ROUNDS; round++) {
+            final CountDownLatch latch = new CountDownLatch(PARALLEL_BATCHES);
+            for (int i = 0; i < PARALLEL_BATCHES; i++) {
+                mServer.enqueue(new MockResponse().setHeadersDelay(LATENCY, TimeUnit.MILLISECONDS));
+                httpClient.callAsync(mServer.url("/logs").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, new ServiceCallback() {
+
+                    @Override
+                    public void onCallSucceeded(String payload) {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onCallFailed(Exception e) {
+                        android.util.Log.e(TAG, "Call failed", e);
+                        failures.incrementAndGet();
+                        latch.countDown();
+                    }
+                });
+            }
+            assertTrue(latch.await(60, TimeUnit.SECONDS));
+        }
+        long duration = SystemClock.elapsedRealtime() - start;
+        assertEquals(0, failures.get());
+
+        /* A new connection starts its sequence numbers at 0. */
+        int requestCount = mServer.getRequestCount() - requestCountBefore;
+        int connections = 0;
+        Set<String> protocols = new HashSet<>();
+        for (int i = 0; i < requestCount; i++) {
+            RecordedRequest request = mServer.takeRequest();
+            if (request.getSequenceNumber() == 0) {
+                connections++;
+            }
+            protocols.add(request.getRequestLine().substring(request.getRequestLine().lastIndexOf(' ') + 1));
+        }
+        android.util.Log.i(TAG, name + ": " + requestCount + " batches in " + duration + "ms, " + connections + " connections, protocols " + protocols);
+        return duration;
+    }
+
+    @Test
+    public void parallelBatches() throws Exception {
+
+        /* Keep alive as the ingestions do, so that only multiplexing differs. */
+        DefaultHttpClient defaultHttpClient = new DefaultHttpClient(true);
+        OkHttpClient okHttpClient = Http2HttpClient.newDefaultOkHttpClient().newBuilder()
+                .sslSocketFactory(mClientCertificates.sslSocketFactory(), mClientCertificates.trustManager())
+                .build();
+        Http2HttpClient http2HttpClient = new Http2HttpClient(okHttpClient);
+
+        /* Warm up both clients. */
+        benchmark("Warm up default", defaultHttpClient);
+        benchmark("Warm up HTTP/2", http2HttpClient);
+
+        /* Measure. */
+        long defaultDuration = benchmark("DefaultHttpClient", defaultHttpClient);
+        long http2Duration = benchmark("Http2HttpClient", http2HttpClient);
+        android.util.Log.i(TAG, "HTTP/2 to default time ratio: " + 100 * http2Duration / defaultDuration + "%");
+    }
+}
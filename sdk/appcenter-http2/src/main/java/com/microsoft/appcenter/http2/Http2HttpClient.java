@@ -0,0 +1,369 @@
+package com.microsoft.appcenter.http2;
+
+import android.net.TrafficStats;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpException;
+import com.microsoft.appcenter.http.ServiceCall;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_TYPE_KEY;
+import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
+import static com.microsoft.appcenter.utils.AppCenterLog.LOG_TAG;
+
+/**
+ * HTTP client multiplexing calls to the same host on a single HTTP/2 connection.
+ * Parallel batches then share one TLS session instead of opening one connection each.
+ * Devices or servers without HTTP/2 fall back to HTTP/1.1 with a connection pool.
+ * <p>
+ * Use it with {@code AppCenter.setHttpClient(new Http2HttpClient())} before starting App Center.
+ */
+public class Http2HttpClient implements HttpClient {
+
+    /**
+     * Thread stats tag for App Center HTTP calls, same as the default client.
+     */
+    private static final int THREAD_STATS_TAG = 0xD83DDC19;
+
+    /**
+     * Default content type.
+     */
+    private static final MediaType CONTENT_TYPE_VALUE = MediaType.parse("application/json");
+
+    /**
+     * Content encoding header key.
+     */
+    private static final String CONTENT_ENCODING_KEY = "Content-Encoding";
+
+    /**
+     * Content encoding header value.
+     */
+    private static final String CONTENT_ENCODING_VALUE = "gzip";
+
+    /**
+     * Retry after header key.
+     */
+    private static final String RETRY_AFTER_KEY = "Retry-After";
+
+    /**
+     * HTTP connect timeout.
+     */
+    private static final int CONNECT_TIMEOUT = 60000;
+
+    /**
+     * HTTP read timeout.
+     */
+    private static final int READ_TIMEOUT = 20000;
+
+    /**
+     * Maximum number of concurrent calls, all groups of all ingestions included.
+     */
+    private static final int MAX_REQUESTS = 8;
+
+    /**
+     * Idle connections kept per host, a single one is needed with HTTP/2.
+     */
+    private static final int MAX_IDLE_CONNECTIONS = 2;
+
+    /**
+     * Duration an idle connection is kept open, in milliseconds.
+     */
+    private static final long KEEP_ALIVE_DURATION = 5 * 60 * 1000;
+
+    /**
+     * OkHttp client, sharing connections between calls.
+     */
+    private final OkHttpClient mOkHttpClient;
+
+    /**
+     * Init.
+     */
+    public Http2HttpClient() {
+        this(newDefaultOkHttpClient());
+    }
+
+    /**
+     * Init with an OkHttp client, for example to share its connection pool with the application.
+     *
+     * @param okHttpClient OkHttp client, HTTP/2 is used only if it is in its protocols.
+     */
+    public Http2HttpClient(@NonNull OkHttpClient okHttpClient) {
+        mOkHttpClient = okHttpClient;
+    }
+
+    /**
+     * Build the default OkHttp client. TLS 1.2 is enabled by OkHttp on the devices supporting it,
+     * including the ones where it is disabled by default.
+     *
+     * @return OkHttp client.
+     */
+    @VisibleForTesting
+    static OkHttpClient newDefaultOkHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS);
+        return new OkHttpClient.Builder()
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)
+                .readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION, TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+
+                /* Retries are handled by the App Center retry policy. */
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    /**
+     * Get the OkHttp client.
+     *
+     * @return OkHttp client.
+     */
+    public OkHttpClient getOkHttpClient() {
+        return mOkHttpClient;
+    }
+
+    @Override
+    public ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
+
+        /* Build request, the body is serialized when OkHttp writes it from its own thread. */
+        Request.Builder builder = new Request.Builder();
+        RequestBody body = null;
+        try {
+            builder.url(url);
+            if (METHOD_POST.equals(method) && callTemplate != null) {
+                String contentType = headers.get(CONTENT_TYPE_KEY);
+                body = new CallTemplateRequestBody(contentType != null ? MediaType.parse(contentType) : CONTENT_TYPE_VALUE, callTemplate);
+                headers.put(CONTENT_ENCODING_KEY, CONTENT_ENCODING_VALUE);
+            }
+            builder.method(method, body);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                builder.header(header.getKey(), header.getValue());
+            }
+            if (callTemplate != null) {
+                callTemplate.onBeforeCalling(new URL(url), headers);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+
+            /* Fail like the default client: from the callback, not from this method. */
+            return enqueueFailure(serviceCallback, e);
+        }
+        Call call = mOkHttpClient.newCall(builder.build());
+        OkHttpServiceCall serviceCall = new OkHttpServiceCall(call, callTemplate, serviceCallback);
+        call.enqueue(serviceCall);
+        return serviceCall;
+    }
+
+    /**
+     * Report an invalid request from a dispatcher thread.
+     *
+     * @param serviceCallback callback to notify.
+     * @param e               error.
+     * @return call that can be cancelled before the callback is invoked.
+     */
+    private ServiceCall enqueueFailure(ServiceCallback serviceCallback, Exception e) {
+        FailedServiceCall serviceCall = new FailedServiceCall(serviceCallback, e);
+        mOkHttpClient.dispatcher().executorService().execute(serviceCall);
+        return serviceCall;
+    }
+
+    @Override
+    public void close() {
+
+        /* No-op. A decorator can take care of tracking calls to cancel. */
+    }
+
+    @Override
+    public void reopen() {
+
+        /* Nothing to do. */
+    }
+
+    /**
+     * Request body written by the call template, always compressed.
+     */
+    @VisibleForTesting
+    static class CallTemplateRequestBody extends RequestBody {
+
+        private final MediaType mContentType;
+
+        private final CallTemplate mCallTemplate;
+
+        CallTemplateRequestBody(MediaType contentType, CallTemplate callTemplate) {
+            mContentType = contentType;
+            mCallTemplate = callTemplate;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return mContentType;
+        }
+
+        @Override
+        public long contentLength() {
+
+            /* Compressed size is not known before writing, HTTP/2 does not need it. */
+            return -1;
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            TrafficStats.setThreadStatsTag(THREAD_STATS_TAG);
+            BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+            try {
+                if (mCallTemplate instanceof StreamingCallTemplate) {
+                    ((StreamingCallTemplate) mCallTemplate).writeRequestBody(gzipSink.outputStream());
+                } else {
+                    gzipSink.writeUtf8(mCallTemplate.buildRequestBody());
+                }
+                gzipSink.close();
+            } catch (JSONException e) {
+                throw new BodyException(e);
+            } finally {
+                TrafficStats.clearThreadStatsTag();
+            }
+        }
+    }
+
+    /**
+     * Carries a serialization error through OkHttp, which only reports I/O errors.
+     */
+    @VisibleForTesting
+    static class BodyException extends IOException {
+
+        BodyException(JSONException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Call failing before reaching OkHttp, the failure is reported from a dispatcher thread.
+     */
+    @VisibleForTesting
+    static class FailedServiceCall implements ServiceCall, Runnable {
+
+        private final ServiceCallback mServiceCallback;
+
+        private final Exception mException;
+
+        /**
+         * Set by the caller thread, read by the dispatcher thread.
+         */
+        private volatile boolean mCancelled;
+
+        FailedServiceCall(ServiceCallback serviceCallback, Exception e) {
+            mServiceCallback = serviceCallback;
+            mException = e;
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public void run() {
+            if (!mCancelled) {
+                mServiceCallback.onCallFailed(mException);
+            }
+        }
+    }
+
+    /**
+     * Link between an OkHttp call and App Center callbacks.
+     */
+    @VisibleForTesting
+    static class OkHttpServiceCall implements ServiceCall, Callback {
+
+        private final Call mCall;
+
+        private final CallTemplate mCallTemplate;
+
+        private final ServiceCallback mServiceCallback;
+
+        OkHttpServiceCall(Call call, CallTemplate callTemplate, ServiceCallback serviceCallback) {
+            mCall = call;
+            mCallTemplate = callTemplate;
+            mServiceCallback = serviceCallback;
+        }
+
+        @Override
+        public void cancel() {
+
+            /* The callback is not invoked once cancelled. */
+            mCall.cancel();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            if (call.isCanceled()) {
+                return;
+            }
+            if (e instanceof BodyException) {
+                mServiceCallback.onCallFailed((Exception) e.getCause());
+            } else {
+                mServiceCallback.onCallFailed(e);
+            }
+        }
+
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) {
+            String payload;
+            ResponseBody body = response.body();
+            int status = response.code();
+            try {
+
+                /* Read the body until the end so that an HTTP/1.1 connection can be reused. */
+                boolean success = response.isSuccessful();
+                if (body == null) {
+                    payload = "";
+                } else if (success && mCallTemplate instanceof HttpClient.ResponseBodyIgnoredCallTemplate) {
+                    body.source().readAll(Okio.blackhole());
+                    payload = "";
+                } else {
+                    payload = body.string();
+                }
+                AppCenterLog.verbose(LOG_TAG, "HTTP response status=" + status + " protocol=" + response.protocol());
+            } catch (IOException e) {
+                onFailure(call, e);
+                return;
+            } finally {
+                response.close();
+            }
+            if (call.isCanceled()) {
+                return;
+            }
+            if (response.isSuccessful()) {
+                mServiceCallback.onCallSucceeded(payload);
+            } else {
+                mServiceCallback.onCallFailed(new HttpException(status, payload, response.header(RETRY_AFTER_KEY)));
+            }
+        }
+    }
+}
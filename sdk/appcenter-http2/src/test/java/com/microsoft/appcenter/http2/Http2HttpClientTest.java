@@ -0,0 +1,243 @@
+package com.microsoft.appcenter.http2;
+
+import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpException;
+import com.microsoft.appcenter.http.ServiceCall;
+import com.microsoft.appcenter.http.ServiceCallback;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.GzipSource;
+
+import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_GET;
+import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class Http2HttpClientTest {
+
+    private MockWebServer mServer;
+
+    private Http2HttpClient mHttpClient;
+
+    private static String gunzip(Buffer body) throws IOException {
+        Buffer buffer = new Buffer();
+        GzipSource source = new GzipSource(body);
+        while (source.read(buffer, Long.MAX_VALUE) != -1) {
+            /* Read everything. */
+        }
+        return buffer.readUtf8();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mHttpClient = new Http2HttpClient();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void defaultProtocols() {
+        OkHttpClient okHttpClient = mHttpClient.getOkHttpClient();
+        assertTrue(okHttpClient.protocols().contains(Protocol.HTTP_2));
+        assertTrue(okHttpClient.protocols().contains(Protocol.HTTP_1_1));
+        assertFalse(okHttpClient.retryOnConnectionFailure());
+    }
+
+    @Test
+    public void postSuccess() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("mockResponse"));
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn("{\"a\":\"b\"}");
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Install-ID", "42");
+        LatchCallback callback = new LatchCallback();
+        String url = mServer.url("/logs").toString();
+        mHttpClient.callAsync(url, METHOD_POST, headers, callTemplate, callback);
+        callback.await();
+        assertEquals("mockResponse", callback.mPayload);
+        assertNull(callback.mException);
+        verify(callTemplate).onBeforeCalling(eq(new URL(url)), anyMapOf(String.class, String.class));
+
+        /* Verify request was compressed with the headers. */
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals(METHOD_POST, request.getMethod());
+        assertEquals("/logs", request.getPath());
+        assertEquals("42", request.getHeader("Install-ID"));
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        assertTrue(request.getHeader("Content-Type").startsWith("application/json"));
+        assertEquals("{\"a\":\"b\"}", gunzip(request.getBody()));
+    }
+
+    @Test
+    public void postStreamingAndIgnoreResponseBody() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("ignored"));
+        HttpClient.StreamingCallTemplate callTemplate = mock(HttpClient.StreamingCallTemplate.class, withSettings().extraInterfaces(HttpClient.ResponseBodyIgnoredCallTemplate.class));
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((OutputStream) invocation.getArguments()[0]).write("streamed".getBytes("UTF-8"));
+                return null;
+            }
+        }).when(callTemplate).writeRequestBody(any(OutputStream.class));
+        LatchCallback callback = new LatchCallback();
+        mHttpClient.callAsync(mServer.url("/").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+        callback.await();
+        assertEquals("", callback.mPayload);
+        assertEquals("streamed", gunzip(mServer.takeRequest().getBody()));
+    }
+
+    @Test
+    public void get() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("config"));
+        LatchCallback callback = new LatchCallback();
+        mHttpClient.callAsync(mServer.url("/").toString(), METHOD_GET, new HashMap<String, String>(), null, callback);
+        callback.await();
+        assertEquals("config", callback.mPayload);
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals(METHOD_GET, request.getMethod());
+        assertNull(request.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void httpError() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "10").setBody("busy"));
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.ResponseBodyIgnoredCallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn("{}");
+        LatchCallback callback = new LatchCallback();
+        mHttpClient.callAsync(mServer.url("/").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+        callback.await();
+        assertTrue(callback.mException instanceof HttpException);
+        HttpException exception = (HttpException) callback.mException;
+        assertEquals(503, exception.getStatusCode());
+        assertEquals("busy", exception.getPayload());
+        assertEquals("10", exception.getRetryAfter());
+    }
+
+    @Test
+    public void networkError() throws Exception {
+        mServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        LatchCallback callback = new LatchCallback();
+        mHttpClient.callAsync(mServer.url("/").toString(), METHOD_GET, new HashMap<String, String>(), null, callback);
+        callback.await();
+        assertTrue(callback.mException instanceof IOException);
+    }
+
+    @Test
+    public void serializationError() throws Exception {
+        mServer.enqueue(new MockResponse());
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        JSONException jsonException = new JSONException("mock");
+        when(callTemplate.buildRequestBody()).thenThrow(jsonException);
+        LatchCallback callback = new LatchCallback();
+        mHttpClient.callAsync(mServer.url("/").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+        callback.await();
+        assertEquals(jsonException, callback.mException);
+    }
+
+    @Test
+    public void invalidUrl() throws Exception {
+        LatchCallback callback = new LatchCallback();
+        mHttpClient.callAsync("not an url", METHOD_GET, new HashMap<String, String>(), null, callback);
+        callback.await();
+        assertTrue(callback.mException instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("late").setBodyDelay(1, TimeUnit.SECONDS));
+        LatchCallback callback = new LatchCallback();
+        ServiceCall call = mHttpClient.callAsync(mServer.url("/").toString(), METHOD_GET, new HashMap<String, String>(), null, callback);
+        call.cancel();
+        assertFalse(callback.mLatch.await(2, TimeUnit.SECONDS));
+        assertNull(callback.mPayload);
+        assertNull(callback.mException);
+    }
+
+    @Test
+    public void cancelInvalidRequest() {
+        ServiceCallback callback = mock(ServiceCallback.class);
+        Exception exception = new IllegalArgumentException();
+
+        /* The failure is reported from another thread unless cancelled meanwhile. */
+        Http2HttpClient.FailedServiceCall call = new Http2HttpClient.FailedServiceCall(callback, exception);
+        call.run();
+        verify(callback).onCallFailed(exception);
+        call = new Http2HttpClient.FailedServiceCall(callback, exception);
+        call.cancel();
+        call.run();
+        verify(callback).onCallFailed(exception);
+    }
+
+    @Test
+    public void closeAndReopenAreNoOp() throws Exception {
+        mHttpClient.close();
+        mHttpClient.reopen();
+        mServer.enqueue(new MockResponse().setBody("ok"));
+        LatchCallback callback = new LatchCallback();
+        mHttpClient.callAsync(mServer.url("/").toString(), METHOD_GET, new HashMap<String, String>(), null, callback);
+        callback.await();
+        assertEquals("ok", callback.mPayload);
+    }
+
+    private static class LatchCallback implements ServiceCallback {
+
+        private final CountDownLatch mLatch = new CountDownLatch(1);
+
+        private volatile String mPayload;
+
+        private volatile Exception mException;
+
+        @Override
+        public void onCallSucceeded(String payload) {
+            mPayload = payload;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onCallFailed(Exception e) {
+            mException = e;
+            mLatch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(mLatch.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
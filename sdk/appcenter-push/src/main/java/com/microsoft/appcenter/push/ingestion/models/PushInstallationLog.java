@@ -1,10 +1,15 @@
 package com.microsoft.appcenter.push.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.AbstractLog;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
+import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 /**
  * Push installation log.
@@ -51,7 +56,22 @@ public class PushInstallationLog extends AbstractLog {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        super.read(reader);
+        JSONUtils.checkRequired(PUSH_TOKEN, getPushToken());
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        if (PUSH_TOKEN.equals(name)) {
+            setPushToken(reader.nextString());
+            return true;
+        }
+        return super.readField(name, reader);
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         writer.key(PUSH_TOKEN).value(getPushToken());
     }
@@ -0,0 +1,320 @@
+package com.microsoft.appcenter.channel;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.microsoft.appcenter.AndroidTestUtils;
+import com.microsoft.appcenter.Constants;
+import com.microsoft.appcenter.ingestion.AppCenterIngestion;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.MockLog;
+import com.microsoft.appcenter.ingestion.models.json.MockLogFactory;
+import com.microsoft.appcenter.persistence.DatabasePersistence;
+import com.microsoft.appcenter.test.server.IngestionStandIn;
+import com.microsoft.appcenter.utils.UUIDUtils;
+import com.microsoft.appcenter.utils.storage.StorageHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.tls.HandshakeCertificates;
+
+import static com.microsoft.appcenter.ingestion.models.json.MockLog.MOCK_LOG_TYPE;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the whole upload pipeline (channel, database persistence and App Center ingestion)
+ * against a local stand-in server at a controlled event rate, then reports throughput,
+ * enqueue to acknowledgement latency percentiles, bytes on the wire and heap churn.
+ * Results are printed in logcat with the tag of this class.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ChannelThroughputBenchmarkAndroidTest {
+
+    /**
+     * Log tag.
+     */
+    private static final String TAG = "ChannelBenchmark";
+
+    /**
+     * Database file of {@link DatabasePersistence}.
+     */
+    private static final String DATABASE = "com.microsoft.appcenter.persistence";
+
+    /**
+     * Group name.
+     */
+    private static final String GROUP = "group_benchmark";
+
+    /**
+     * Batch settings of the analytics group.
+     */
+    private static final int MAX_LOGS_PER_BATCH = 50;
+
+    private static final long BATCH_TIME_INTERVAL = 3000;
+
+    private static final int MAX_PARALLEL_BATCHES = 3;
+
+    /**
+     * Interval between two enqueue rounds in milliseconds.
+     */
+    private static final long TICK = 10;
+
+    /**
+     * Maximum time to wait for all logs to be acknowledged after the last enqueue,
+     * retries of failed calls are delayed by at least a minute when throttled.
+     */
+    private static final long DRAIN_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Context instance.
+     */
+    @SuppressLint("StaticFieldLeak")
+    private static Context sContext;
+
+    private IngestionStandIn mServer;
+
+    private SSLSocketFactory mDefaultSocketFactory;
+
+    private HostnameVerifier mDefaultHostnameVerifier;
+
+    @BeforeClass
+    public static void setUpClass() {
+        sContext = InstrumentationRegistry.getTargetContext();
+        StorageHelper.initialize(sContext);
+        Constants.loadFromContext(sContext);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        sContext.deleteDatabase(DATABASE);
+        mServer = new IngestionStandIn(42);
+        HandshakeCertificates certificates = mServer.startHttps();
+
+        /* Make the default client trust the stand-in. */
+        mDefaultSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        mDefaultHostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+        HttpsURLConnection.setDefaultSSLSocketFactory(certificates.sslSocketFactory());
+        HttpsURLConnection.setDefaultHostnameVerifier(new HostnameVerifier() {
+
+            @Override
+            public boolean verify(String hostname, SSLSession session) {
+                return true;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        HttpsURLConnection.setDefaultSSLSocketFactory(mDefaultSocketFactory);
+        HttpsURLConnection.setDefaultHostnameVerifier(mDefaultHostnameVerifier);
+        mServer.shutdown();
+        sContext.deleteDatabase(DATABASE);
+    }
+
+    private static Log generateLog(int index) {
+        MockLog log = AndroidTestUtils.generateMockLog();
+        Map<String, String> properties = new HashMap<>();
+        properties.put("screen", "screen_" + (index % 7));
+        properties.put("index", String.valueOf(index));
+        properties.put("item", UUIDUtils.randomUUID().toString());
+        log.setProperties(properties);
+        return log;
+    }
+
+    private static long percentile(List<Long> sortedValues, int percentile) {
+        if (sortedValues.isEmpty()) {
+            return -1;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1;
+        return sortedValues.get(Math.max(0, index));
+    }
+
+    /**
+     * Get bytes allocated by the process so far, -1 if the runtime does not report it.
+     */
+    private static long getAllocatedBytes() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return Long.parseLong(Debug.getRuntimeStat("art.gc.bytes-allocated"));
+        }
+        return -1;
+    }
+
+    /**
+     * Get the number of garbage collections so far, -1 if the runtime does not report it.
+     */
+    private static long getGcCount() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return Long.parseLong(Debug.getRuntimeStat("art.gc.gc-count"));
+        }
+        return -1;
+    }
+
+    private void benchmark(String name, int logsPerSecond, long duration) throws Exception {
+
+        /* Build the pipeline like the SDK does. */
+        HandlerThread handlerThread = new HandlerThread("AppCenter.Benchmark");
+        handlerThread.start();
+        Handler handler = new Handler(handlerThread.getLooper());
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        persistence.setLogSerializer(logSerializer);
+        AppCenterIngestion ingestion = new AppCenterIngestion(sContext, logSerializer);
+        ingestion.setLogUrl(mServer.getAppCenterLogUrl());
+        final DefaultChannel channel = new DefaultChannel(sContext, UUIDUtils.randomUUID().toString(), persistence, ingestion, handler);
+        channel.setCircuitBreaker(true);
+
+        /* Record acknowledgements, logs are read back from storage so the enqueue time is carried by the timestamp. */
+        final int logCount = (int) (logsPerSecond * duration / 1000);
+        final CountDownLatch doneLatch = new CountDownLatch(logCount);
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>(logCount));
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong lastAckTime = new AtomicLong();
+        channel.addGroup(GROUP, MAX_LOGS_PER_BATCH, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, new Channel.GroupListener() {
+
+            @Override
+            public void onBeforeSending(Log log) {
+            }
+
+            @Override
+            public void onSuccess(Log log) {
+                long now = System.currentTimeMillis();
+                latencies.add(now - log.getTimestamp().getTime());
+                lastAckTime.set(SystemClock.elapsedRealtime());
+                doneLatch.countDown();
+            }
+
+            @Override
+            public void onFailure(Log log, Exception e) {
+                failures.incrementAndGet();
+                doneLatch.countDown();
+            }
+        });
+
+        /* Enqueue at the requested rate from the App Center thread. */
+        mServer.resetCounters();
+        long allocatedBefore = getAllocatedBytes();
+        long gcCountBefore = getGcCount();
+        long start = SystemClock.elapsedRealtime();
+        int enqueued = 0;
+        for (int tick = 1; enqueued < logCount; tick++) {
+            final int target = Math.min(logCount, (int) (logsPerSecond * tick * TICK / 1000));
+            final int from = enqueued;
+            handler.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int i = from; i < target; i++) {
+                        Log log = generateLog(i);
+                        log.setTimestamp(new Date());
+                        channel.enqueue(log, GROUP);
+                    }
+                }
+            });
+            enqueued = target;
+            long nextTick = start + tick * TICK;
+            long sleep = nextTick - SystemClock.elapsedRealtime();
+            if (sleep > 0) {
+                SystemClock.sleep(sleep);
+            }
+        }
+        long enqueueEnd = SystemClock.elapsedRealtime();
+
+        /* Wait for all logs to be acknowledged. */
+        boolean drained = doneLatch.await(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+        long allocated = getAllocatedBytes() - allocatedBefore;
+        long gcCount = getGcCount() - gcCountBefore;
+        List<Long> sortedLatencies;
+        synchronized (latencies) {
+            sortedLatencies = new ArrayList<>(latencies);
+        }
+        Collections.sort(sortedLatencies);
+
+        /* Release resources before asserting. */
+        final CountDownLatch shutdownLatch = new CountDownLatch(1);
+        handler.post(new Runnable() {
+
+            @Override
+            public void run() {
+                channel.shutdown();
+                shutdownLatch.countDown();
+            }
+        });
+        shutdownLatch.await();
+        handlerThread.quit();
+        persistence.close();
+
+        /* Report. */
+        int acknowledged = sortedLatencies.size();
+        long ackDuration = Math.max(1, lastAckTime.get() - start);
+        long bytes = mServer.getBytesReceived();
+        android.util.Log.i(TAG, name + ": " + acknowledged + "/" + logCount + " logs acknowledged, " + failures.get() + " failed, enqueued in " + (enqueueEnd - start) + "ms");
+        android.util.Log.i(TAG, name + ": " + acknowledged * 1000L / ackDuration + " logs/s, latency p50=" + percentile(sortedLatencies, 50) + "ms p90=" + percentile(sortedLatencies, 90) + "ms p99=" + percentile(sortedLatencies, 99) + "ms max=" + percentile(sortedLatencies, 100) + "ms");
+        android.util.Log.i(TAG, name + ": " + mServer.getAppCenterRequestCount() + " calls, " + mServer.getErrorCount() + " server errors, " + mServer.getThrottledCount() + " throttled, " + bytes + " bytes on the wire (" + (acknowledged > 0 ? bytes / acknowledged : 0) + " per log)");
+        android.util.Log.i(TAG, name + ": " + (allocated >= 0 ? allocated / 1024 + "KiB allocated (" + (acknowledged > 0 ? allocated / acknowledged : 0) + " bytes per log), " + gcCount + " GCs" : "heap churn not reported before API level 23"));
+        assertTrue(drained);
+    }
+
+    @Test
+    public void steadyRate() throws Exception {
+        mServer.setLatency(50);
+        benchmark("Steady 100/s", 100, 10000);
+    }
+
+    @Test
+    public void burst() throws Exception {
+        mServer.setLatency(50);
+        benchmark("Burst 1000/s", 1000, 5000);
+    }
+
+    @Test
+    public void highLatency() throws Exception {
+        mServer.setLatency(1000);
+        benchmark("Latency 1s 100/s", 100, 10000);
+    }
+
+    @Test
+    public void serverErrors() throws Exception {
+        mServer.setLatency(50);
+        mServer.setErrorRate(0.05);
+        benchmark("5% server errors 100/s", 100, 10000);
+    }
+
+    @Test
+    public void throttling() throws Exception {
+        mServer.setLatency(50);
+        mServer.setThrottleRate(0.02, 1);
+        benchmark("2% throttled 100/s", 100, 10000);
+    }
+}
@@ -3,7 +3,12 @@ package com.microsoft.appcenter.ingestion.models.json;
 import org.json.JSONException;
 import org.junit.Test;
 
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
 
@@ -25,6 +30,27 @@ public class JSONDateUtilsAndroidTest {
         assertEquals(date, dateParsed);
     }
 
+    @Test
+    public void formatLikeSimpleDateFormat() throws JSONException {
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        /* Range limits, leap days, epoch and random dates around them. */
+        long[] times = {
+                -12212553600001L, -12212553600000L, -1L, 0L, 951782400000L, 4107542399999L,
+                253402300799999L, 253402300800000L, Long.MIN_VALUE / 2, Long.MAX_VALUE / 2
+        };
+        for (long time : times) {
+            Date date = new Date(time);
+            assertEquals(dateFormat.format(date), JSONDateUtils.toString(date));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            Date date = new Date((long) (random.nextDouble() * 260000000000000L) - 13000000000000L);
+            assertEquals(dateFormat.format(date), JSONDateUtils.toString(date));
+        }
+    }
+
     @SuppressWarnings("ResultOfMethodCallIgnored")
     @Test(expected = JSONException.class)
     public void formatNullDate() throws JSONException {
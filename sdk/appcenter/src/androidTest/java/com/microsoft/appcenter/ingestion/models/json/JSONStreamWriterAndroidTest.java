@@ -0,0 +1,190 @@
+package com.microsoft.appcenter.ingestion.models.json;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings("unused")
+public class JSONStreamWriterAndroidTest {
+
+    private static final String[] STRINGS = {
+            "",
+            "plain ascii",
+            "quote \" backslash \\ slash /",
+            "\t\b\n\r\f",
+            "\u0000\u0001\u001f\u007f",
+            "café € 中文",
+            "emoji 😀",
+            "unpaired \ud83d high",
+            "unpaired \ude00 low",
+            "  "
+    };
+
+    @Test
+    public void sameOutputAsJSONStringer() throws JSONException, IOException {
+        JSONStringer stringer = new JSONStringer();
+        JSONStreamWriter writer = new JSONStreamWriter();
+        stringer.object();
+        writer.object();
+        for (int i = 0; i < STRINGS.length; i++) {
+            stringer.key("string" + i).value(STRINGS[i]);
+            writer.key("string" + i).value(STRINGS[i]);
+            stringer.key(STRINGS[i]).value(i);
+            writer.key(STRINGS[i]).value(i);
+        }
+        Object[] values = {
+                0, -1, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, (short) 3, (byte) -4,
+                0d, -0d, 1.5d, -2.25e-10, 1e20, 3d, Double.MAX_VALUE, Double.MIN_VALUE, 1.1f,
+                true, false, null, JSONObject.NULL, UUID.randomUUID()
+        };
+        stringer.key("values").array();
+        writer.key("values").array();
+        for (Object value : values) {
+            stringer.value(value);
+            writer.value(value);
+        }
+        stringer.value(42L).value(2.5d).value(true);
+        writer.value(42L).value(2.5d).value(true);
+        stringer.endArray();
+        writer.endArray();
+        stringer.key("empty").object().endObject();
+        writer.key("empty").object().endObject();
+        stringer.endObject();
+        writer.endObject();
+
+        /* Compare encoded bytes, unpaired surrogates can only be compared once encoded. */
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.flushTo(out);
+        assertArrayEquals(stringer.toString().getBytes("UTF-8"), out.toByteArray());
+    }
+
+    @Test
+    public void writeJSONTree() throws JSONException {
+        JSONObject object = new JSONObject();
+        object.put("a", 1);
+        object.put("b", "\"x\"");
+        object.put("c", new JSONArray().put(1.5).put(JSONObject.NULL).put(new JSONObject().put("d", false)));
+        object.put("e", new JSONArray());
+        JSONStringer stringer = new JSONStringer();
+        stringer.object().key("tree").value(object).endObject();
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.object().key("tree").value(object).endObject();
+        assertEquals(stringer.toString(), writer.toString());
+    }
+
+    @Test
+    public void writeDate() throws JSONException {
+        Date date = new Date();
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.array().value(date).value(new Date(Long.MIN_VALUE / 2)).endArray();
+        JSONArray array = new JSONArray(writer.toString());
+        assertEquals(JSONDateUtils.toString(date), array.getString(0));
+        assertEquals(JSONDateUtils.toString(new Date(Long.MIN_VALUE / 2)), array.getString(1));
+    }
+
+    @Test(expected = JSONException.class)
+    public void writeNullDate() throws JSONException {
+        new JSONStreamWriter().array().value((Date) null);
+    }
+
+    @Test
+    public void rawValue() throws JSONException {
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.object().key("raw").rawValue("{\"café\":[1,2]}").endObject();
+        assertEquals("{\"raw\":{\"café\":[1,2]}}", writer.toString());
+    }
+
+    @Test
+    public void nonFiniteNumbers() {
+        for (double value : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            try {
+                new JSONStreamWriter().array().value(value);
+                fail("Expected json exception here");
+            } catch (JSONException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void nestingProblems() throws JSONException {
+        assertNull(new JSONStreamWriter().toString());
+        expectNestingProblem(new JSONStreamWriter(), "value");
+        expectNestingProblem(new JSONStreamWriter().object(), "value");
+        expectNestingProblem(new JSONStreamWriter().array(), "key");
+        expectNestingProblem(new JSONStreamWriter().array(), "endObject");
+        expectNestingProblem(new JSONStreamWriter().object(), "endArray");
+        expectNestingProblem(new JSONStreamWriter().object().endObject(), "object");
+        expectNestingProblem(new JSONStreamWriter().object().endObject(), "endObject");
+        try {
+            new JSONStreamWriter().object().key(null);
+            fail("Expected json exception here");
+        } catch (JSONException ignored) {
+        }
+    }
+
+    private static void expectNestingProblem(JSONStreamWriter writer, String operation) {
+        try {
+            switch (operation) {
+                case "value":
+                    writer.value("a");
+                    break;
+                case "key":
+                    writer.key("a");
+                    break;
+                case "object":
+                    writer.object();
+                    break;
+                case "endObject":
+                    writer.endObject();
+                    break;
+                case "endArray":
+                    writer.endArray();
+                    break;
+            }
+            fail("Expected json exception on " + operation);
+        } catch (JSONException e) {
+            assertTrue(e.getMessage().startsWith("Nesting problem"));
+        }
+    }
+
+    @Test
+    public void flushWhileWriting() throws JSONException, IOException {
+        StringBuilder largeValue = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            largeValue.append((char) ('a' + i % 26)).append(i % 1000 == 0 ? "é" : "");
+        }
+        JSONStringer stringer = new JSONStringer();
+        stringer.array();
+        JSONStreamWriter writer = new JSONStreamWriter();
+        writer.array();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 10; i++) {
+            stringer.value(largeValue.toString());
+            writer.value(largeValue.toString());
+            writer.flushTo(out);
+            assertEquals(0, writer.size());
+        }
+        stringer.endArray();
+        writer.endArray();
+        writer.flushTo(out);
+        assertEquals(stringer.toString(), out.toString("UTF-8"));
+
+        /* Reset allows writing a new document, releasing the grown buffer. */
+        writer.reset();
+        writer.object().key("a").value(1).endObject();
+        assertEquals("{\"a\":1}", writer.toString());
+    }
+}
@@ -1,5 +1,6 @@
 package com.microsoft.appcenter.ingestion.models.json;
 
+import android.util.JsonReader;
 import android.util.Log;
 
 import com.microsoft.appcenter.AndroidTestUtils;
@@ -8,11 +9,13 @@ import com.microsoft.appcenter.utils.AppCenterLog;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -33,7 +36,7 @@ public class JSONUtilsAndroidTest {
     public void writeReadObject() throws JSONException {
 
         /* Write to JSON object. */
-        JSONStringer writer = new JSONStringer();
+        JSONStreamWriter writer = new JSONStreamWriter();
         writer.object();
         JSONUtils.write(writer, "int", 1);
         JSONUtils.write(writer, "long", 1000000000L);
@@ -59,7 +62,7 @@ public class JSONUtilsAndroidTest {
         map.put("key", "value");
 
         /* Write to JSON object. */
-        JSONStringer writer = new JSONStringer();
+        JSONStreamWriter writer = new JSONStreamWriter();
         writer.object();
         JSONUtils.writeMap(writer, "map", map);
         writer.endObject();
@@ -86,7 +89,7 @@ public class JSONUtilsAndroidTest {
         list.add(secondLog);
 
         /* Write to JSON object. */
-        JSONStringer writer = new JSONStringer();
+        JSONStreamWriter writer = new JSONStreamWriter();
         writer.object();
         JSONUtils.writeArray(writer, "list", list);
         writer.endObject();
@@ -100,7 +103,7 @@ public class JSONUtilsAndroidTest {
         assertEquals(list, JSONUtils.readArray(object, "list", new MockLogFactory()));
 
         /* Test null value. */
-        writer = new JSONStringer();
+        writer = new JSONStreamWriter();
         JSONUtils.writeArray(writer, "null", null);
         assertNull(writer.toString());
     }
@@ -114,7 +117,7 @@ public class JSONUtilsAndroidTest {
         list.add("SECOND");
 
         /* Write to JSON object. */
-        JSONStringer writer = new JSONStringer();
+        JSONStreamWriter writer = new JSONStreamWriter();
         writer.object();
         JSONUtils.writeStringArray(writer, "list", list);
         writer.endObject();
@@ -129,7 +132,7 @@ public class JSONUtilsAndroidTest {
         assertNull(JSONUtils.readStringArray(object, "missing"));
 
         /* Test null value. */
-        writer = new JSONStringer();
+        writer = new JSONStreamWriter();
         JSONUtils.writeStringArray(writer, "null", null);
         assertNull(writer.toString());
     }
@@ -148,6 +151,22 @@ public class JSONUtilsAndroidTest {
         assertNull(JSONUtils.readArray(object, "key", new MockLogFactory()));
     }
 
+    @Test
+    public void readValue() throws JSONException, IOException {
+        String json = "{\"int\":1,\"long\":10000000000,\"double\":1.5,\"exponent\":1e3,\"string\":\"a\"," +
+                "\"boolean\":true,\"null\":null,\"array\":[1,\"b\"],\"object\":{\"c\":false}}";
+
+        /* Values have the same types as when parsed by a JSON object. */
+        JSONObject expected = new JSONObject(json);
+        JSONObject actual = (JSONObject) JSONUtils.readValue(new JsonReader(new StringReader(json)));
+        assertEquals(expected.toString(), actual.toString());
+        Iterator<String> keys = expected.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            assertEquals(expected.get(key).getClass(), actual.get(key).getClass());
+        }
+    }
+
     @Test
     public void serializeContainerWithDefaultWriter() throws JSONException {
 
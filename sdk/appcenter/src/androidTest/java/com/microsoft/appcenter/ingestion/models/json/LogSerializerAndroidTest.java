@@ -11,6 +11,8 @@ import org.json.JSONException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -50,6 +52,55 @@ public class LogSerializerAndroidTest {
         Assert.assertEquals(expectedContainer.hashCode(), actualContainer.hashCode());
     }
 
+    @Test
+    public void serializedLogs() throws JSONException {
+        LogContainer expectedContainer = AndroidTestUtils.generateMockLogContainer();
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+
+        /* Wrapping stored payloads gives the same result as serializing logs. */
+        List<String> serializedLogs = new ArrayList<>();
+        for (Log log : expectedContainer.getLogs()) {
+            serializedLogs.add(serializer.serializeLog(log));
+        }
+        LogContainer serializedContainer = new LogContainer();
+        serializedContainer.setSerializedLogs(serializedLogs);
+        String payload = serializer.serializeContainer(serializedContainer);
+        Assert.assertEquals(serializer.serializeContainer(expectedContainer), payload);
+        Assert.assertEquals(expectedContainer, serializer.deserializeContainer(payload, null));
+    }
+
+    @Test
+    public void writeContainer() throws JSONException, IOException {
+        LogContainer container = AndroidTestUtils.generateMockLogContainer();
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+
+        /* Streaming gives the same JSON, with logs or stored payloads. */
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeContainer(container, out);
+        Assert.assertEquals(serializer.serializeContainer(container), out.toString("UTF-8"));
+        List<String> serializedLogs = new ArrayList<>();
+        for (Log log : container.getLogs()) {
+            serializedLogs.add(serializer.serializeLog(log));
+        }
+        LogContainer serializedContainer = new LogContainer();
+        serializedContainer.setSerializedLogs(serializedLogs);
+        out = new ByteArrayOutputStream();
+        serializer.writeContainer(serializedContainer, out);
+        Assert.assertEquals(serializer.serializeContainer(container), out.toString("UTF-8"));
+    }
+
+    @Test
+    public void writeLog() throws JSONException, IOException {
+        MockLog log = AndroidTestUtils.generateMockLog();
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeLog(log, out);
+        Assert.assertEquals(serializer.serializeLog(log), out.toString("UTF-8"));
+    }
+
     @Test(expected = JSONException.class)
     public void deserializeUnknownType() throws JSONException {
         MockLog log = AndroidTestUtils.generateMockLog();
@@ -60,6 +111,59 @@ public class LogSerializerAndroidTest {
         new DefaultLogSerializer().deserializeLog(payload, null);
     }
 
+    @Test
+    public void deserializeWithTypeNotFirst() throws JSONException {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
+        String payload = "{" +
+                "\"timestamp\": \"2017-07-08T00:32:58.123Z\"," +
+                "\"services\": [\"FIRST\"]," +
+                "\"type\": \"startService\"" +
+                "}";
+
+        /* The type is needed before reading other properties, so this is read as a JSON object. */
+        Log log = serializer.deserializeLog(payload, null);
+        Assert.assertEquals(serializer.deserializeLog(payload, StartServiceLog.TYPE), log);
+        LogContainer container = serializer.deserializeContainer("{\"logs\":[" + payload + "]}", null);
+        Assert.assertEquals(Collections.singletonList(log), container.getLogs());
+    }
+
+    @Test
+    public void deserializeSkipsUnknownProperties() throws JSONException {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
+        StartServiceLog log = (StartServiceLog) serializer.deserializeLog("{" +
+                "\"type\": \"startService\"," +
+                "\"unknown\": {\"a\": [1, {\"b\": null}]}," +
+                "\"timestamp\": \"2017-07-08T00:32:58.123Z\"," +
+                "\"services\": [\"FIRST\"]" +
+                "}", null);
+        Assert.assertEquals(Collections.singletonList("FIRST"), log.getServices());
+    }
+
+    @Test(expected = JSONException.class)
+    public void deserializeMalformed() throws JSONException {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
+        serializer.deserializeLog("{\"type\": \"startService\", \"timestamp\": ", null);
+    }
+
+    @Test(expected = JSONException.class)
+    public void deserializeUnexpectedValueType() throws JSONException {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
+        serializer.deserializeLog("{" +
+                "\"type\": \"startService\"," +
+                "\"timestamp\": \"2017-07-08T00:32:58.123Z\"," +
+                "\"services\": \"FIRST\"" +
+                "}", null);
+    }
+
+    @Test(expected = JSONException.class)
+    public void deserializeContainerWithoutLogs() throws JSONException {
+        new DefaultLogSerializer().deserializeContainer("{}", null);
+    }
+
     @Test
     public void startServiceLog() throws JSONException {
         StartServiceLog log = new StartServiceLog();
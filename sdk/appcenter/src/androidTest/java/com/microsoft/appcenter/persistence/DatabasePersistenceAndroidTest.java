@@ -11,6 +11,7 @@ import android.support.test.runner.AndroidJUnit4;
 import com.microsoft.appcenter.AndroidTestUtils;
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.Constants;
+import com.microsoft.appcenter.Flags;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogWithProperties;
 import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
@@ -135,6 +136,205 @@ public class DatabasePersistenceAndroidTest {
         }
     }
 
+    @Test
+    public void putLogs() {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Generate logs and persist them in one transaction. */
+            List<Log> logs = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                logs.add(AndroidTestUtils.generateMockLog());
+            }
+            List<Long> ids = persistence.putLogs("test-p1", logs);
+            assertEquals(10, ids.size());
+            assertEquals(10, persistence.countLogs("test-p1"));
+
+            /* Get logs back in the same order. */
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test-p1", 10, outputLogs);
+            assertEquals(logs, outputLogs);
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void getSerializedLogs() throws PersistenceException, JSONException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Persist 2 logs. */
+            Log log1 = AndroidTestUtils.generateMockLog();
+            Log log2 = AndroidTestUtils.generateMockLog();
+            persistence.putLog("test-p1", log1);
+            persistence.putLog("test-p1", log2);
+
+            /* Get only payloads. */
+            List<String> payloads = new ArrayList<>();
+            assertNotNull(persistence.getLogs("test-p1", 1, null, payloads));
+            assertEquals(1, payloads.size());
+            assertEquals(logSerializer.serializeLog(log1), payloads.get(0));
+
+            /* Get both logs and payloads. */
+            List<Log> outputLogs = new ArrayList<>();
+            payloads.clear();
+            assertNotNull(persistence.getLogs("test-p1", 1, outputLogs, payloads));
+            assertEquals(1, outputLogs.size());
+            assertEquals(log2, outputLogs.get(0));
+            assertEquals(logSerializer.serializeLog(log2), payloads.get(0));
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void getLogsByteLimit() throws PersistenceException, JSONException, IOException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Persist 3 logs. */
+            Log log1 = AndroidTestUtils.generateMockLog();
+            Log log2 = AndroidTestUtils.generateMockLog();
+            Log log3 = AndroidTestUtils.generateMockLog();
+            persistence.putLog("test-p1", log1);
+            persistence.putLog("test-p1", log2);
+            persistence.putLog("test-p1", log3);
+            int length1 = logSerializer.serializeLog(log1).getBytes("UTF-8").length;
+            int length2 = logSerializer.serializeLog(log2).getBytes("UTF-8").length;
+
+            /* Get the first 2 logs within the byte limit. */
+            List<Log> outputLogs = new ArrayList<>();
+            String id = persistence.getLogs("test-p1", 10, length1 + length2, outputLogs, null);
+            assertNotNull(id);
+            assertEquals(2, outputLogs.size());
+            assertEquals(log1, outputLogs.get(0));
+            assertEquals(log2, outputLogs.get(1));
+
+            /* The batch size is the one measured when storing, until the batch is deleted. */
+            assertEquals(length1 + length2, persistence.getBatchByteCount("test-p1", id));
+            assertEquals(0, persistence.getBatchCriticalByteCount("test-p1", id));
+            persistence.deleteLogs("test-p1", id);
+            assertEquals(0, persistence.getBatchByteCount("test-p1", id));
+
+            /* A log larger than the limit is still returned alone. */
+            outputLogs.clear();
+            assertNotNull(persistence.getLogs("test-p1", 10, 1, outputLogs, null));
+            assertEquals(1, outputLogs.size());
+            assertEquals(log3, outputLogs.get(0));
+            outputLogs.clear();
+            assertNull(persistence.getLogs("test-p1", 10, 1, outputLogs, null));
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void getCriticalLogsFirst() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Persist a normal log then 2 critical logs. */
+            Log log1 = AndroidTestUtils.generateMockLog();
+            Log log2 = AndroidTestUtils.generateMockLog();
+            Log log3 = AndroidTestUtils.generateMockLog();
+            persistence.putLog("test-p1", log1);
+            persistence.putLog("test-p1", log2, Flags.CRITICAL);
+            persistence.putLog("test-p1", log3, Flags.CRITICAL);
+            assertEquals(2, persistence.countLogs("test-p1", Flags.CRITICAL));
+            assertEquals(1, persistence.countLogs("test-p1", Flags.NORMAL));
+
+            /* Critical logs come first, then the batch is completed with normal logs. */
+            List<Log> outputLogs = new ArrayList<>();
+            String id = persistence.getLogs("test-p1", 2, outputLogs);
+            assertNotNull(id);
+            assertEquals(2, outputLogs.size());
+            assertEquals(log2, outputLogs.get(0));
+            assertEquals(log3, outputLogs.get(1));
+            assertTrue(persistence.getBatchCriticalByteCount("test-p1", id) > 0);
+            assertEquals(persistence.getBatchByteCount("test-p1", id), persistence.getBatchCriticalByteCount("test-p1", id));
+            outputLogs.clear();
+            assertNotNull(persistence.getLogs("test-p1", 2, outputLogs));
+            assertEquals(1, outputLogs.size());
+            assertEquals(log1, outputLogs.get(0));
+            assertEquals(3, persistence.countLogs("test-p1"));
+
+            /* Logs of pending batches are not counted by priority until released. */
+            assertEquals(0, persistence.countLogs("test-p1", Flags.CRITICAL));
+            persistence.clearPendingLogState();
+            assertEquals(2, persistence.countLogs("test-p1", Flags.CRITICAL));
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void getLowPriorityLogsLast() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Persist 2 low priority logs then a normal log. */
+            Log log1 = AndroidTestUtils.generateMockLog();
+            Log log2 = AndroidTestUtils.generateMockLog();
+            Log log3 = AndroidTestUtils.generateMockLog();
+            List<Log> lowLogs = new ArrayList<>();
+            lowLogs.add(log1);
+            lowLogs.add(log2);
+            assertEquals(2, persistence.putLogs("test-p1", lowLogs, Flags.LOW).size());
+            persistence.putLog("test-p1", log3);
+            assertEquals(2, persistence.countLogs("test-p1", Flags.LOW));
+
+            /* The normal log comes first, then the batch is completed with low priority logs. */
+            List<Log> outputLogs = new ArrayList<>();
+            assertNotNull(persistence.getLogs("test-p1", 2, outputLogs));
+            assertEquals(2, outputLogs.size());
+            assertEquals(log3, outputLogs.get(0));
+            assertEquals(log1, outputLogs.get(1));
+            outputLogs.clear();
+            assertNotNull(persistence.getLogs("test-p1", 2, outputLogs));
+            assertEquals(1, outputLogs.size());
+            assertEquals(log2, outputLogs.get(0));
+            assertEquals(0, persistence.countLogs("test-p1", Flags.LOW));
+        } finally {
+            persistence.close();
+        }
+    }
+
     @Test
     public void putLargeLogAndDeleteAll() throws PersistenceException {
 
@@ -699,6 +899,10 @@ public class DatabasePersistenceAndroidTest {
         oldSchema.remove(DatabasePersistence.COLUMN_DATA_TYPE);
         StorageHelper.DatabaseStorage databaseStorage = StorageHelper.DatabaseStorage.getDatabaseStorage(DatabasePersistence.DATABASE, DatabasePersistence.TABLE, 1, oldSchema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 return false;
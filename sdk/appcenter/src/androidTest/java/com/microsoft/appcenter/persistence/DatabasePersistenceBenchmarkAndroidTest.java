@@ -0,0 +1,215 @@
+package com.microsoft.appcenter.persistence;
+
+import android.annotation.SuppressLint;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.microsoft.appcenter.AndroidTestUtils;
+import com.microsoft.appcenter.Constants;
+import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.MockLogFactory;
+import com.microsoft.appcenter.utils.storage.DatabaseManager;
+import com.microsoft.appcenter.utils.storage.StorageHelper;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.microsoft.appcenter.ingestion.models.json.MockLog.MOCK_LOG_TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures group queries on the logs table with and without the group index.
+ * Results are printed in logcat with the tag of this class.
+ */
+@SuppressWarnings("TryFinallyCanBeTryWithResources")
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class DatabasePersistenceBenchmarkAndroidTest {
+
+    /**
+     * Log tag.
+     */
+    private static final String TAG = "PersistenceBenchmark";
+
+    /**
+     * Groups used by the services, logs are spread evenly across them.
+     */
+    private static final String[] GROUPS = {
+            "group_analytics", "group_analytics/one", "group_crashes", "group_crashes/one",
+            "group_distribute", "group_push", "group_errors", "group_core"
+    };
+
+    /**
+     * Number of rows inserted per transaction when filling the table.
+     */
+    private static final int INSERT_CHUNK_SIZE = 1000;
+
+    /**
+     * Number of repetitions of each measured operation.
+     */
+    private static final int REPETITIONS = 10;
+
+    /**
+     * Context instance.
+     */
+    @SuppressLint("StaticFieldLeak")
+    private static Context sContext;
+
+    @BeforeClass
+    public static void setUpClass() {
+        sContext = InstrumentationRegistry.getTargetContext();
+        StorageHelper.initialize(sContext);
+        Constants.loadFromContext(sContext);
+    }
+
+    @Before
+    @After
+    public void cleanUp() {
+        sContext.deleteDatabase(DatabasePersistence.DATABASE);
+    }
+
+    private static SQLiteDatabase openDatabase() {
+        return SQLiteDatabase.openDatabase(sContext.getDatabasePath(DatabasePersistence.DATABASE).getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+    }
+
+    private static String explainQueryPlan(SQLiteDatabase db, String sql) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, new String[]{GROUPS[0]});
+        try {
+            int detailIndex = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detailIndex)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan.toString();
+    }
+
+    private static void fill(DatabasePersistence persistence, String payload, int rowCount) {
+        List<ContentValues> valuesList = new ArrayList<>(INSERT_CHUNK_SIZE);
+        for (int i = 0; i < rowCount; i++) {
+            ContentValues values = new ContentValues();
+            values.put(DatabasePersistence.COLUMN_GROUP, GROUPS[i % GROUPS.length]);
+            values.put(DatabasePersistence.COLUMN_LOG, payload);
+            values.put(DatabasePersistence.COLUMN_DATA_TYPE, MOCK_LOG_TYPE);
+            values.put(DatabasePersistence.COLUMN_PRIORITY, Flags.NORMAL);
+            valuesList.add(values);
+            if (valuesList.size() == INSERT_CHUNK_SIZE) {
+                persistence.mDatabaseStorage.put(valuesList);
+                valuesList.clear();
+            }
+        }
+        persistence.mDatabaseStorage.put(valuesList);
+    }
+
+    private static double measureCount(DatabasePersistence persistence, int expected) {
+        long start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            assertEquals(expected, persistence.countLogs(GROUPS[i % GROUPS.length]));
+        }
+        return (System.nanoTime() - start) / 1e6 / REPETITIONS;
+    }
+
+    private static double measureGetLogs(DatabasePersistence persistence) {
+        long start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            List<Log> logs = new ArrayList<>();
+            persistence.getLogs(GROUPS[i % GROUPS.length], 50, logs);
+            assertEquals(50, logs.size());
+            persistence.clearPendingLogState();
+        }
+        return (System.nanoTime() - start) / 1e6 / REPETITIONS;
+    }
+
+    private static double measureDeleteLogs(DatabasePersistence persistence, String group) {
+        long start = System.nanoTime();
+        persistence.deleteLogs(group);
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private void benchmark(int rowCount) throws JSONException {
+
+        /* Fill the table. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        String payload = logSerializer.serializeLog(AndroidTestUtils.generateMockLog());
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        persistence.setLogSerializer(logSerializer);
+        try {
+            assertTrue(persistence.setMaxStorageSize(256 * 1024 * 1024));
+            fill(persistence, payload, rowCount);
+            int groupCount = rowCount / GROUPS.length;
+
+            /* Check the index is the planned access path. */
+            SQLiteDatabase db = openDatabase();
+            try {
+                String selectSql = "SELECT * FROM " + DatabasePersistence.TABLE + " WHERE " + DatabasePersistence.COLUMN_GROUP + " = ? AND " + DatabasePersistence.COLUMN_PRIORITY + " = ? AND " + DatabaseManager.PRIMARY_KEY + " > ? ORDER BY " + DatabaseManager.PRIMARY_KEY;
+                String countSql = "SELECT " + DatabaseManager.PRIMARY_KEY + " FROM " + DatabasePersistence.TABLE + " WHERE " + DatabasePersistence.COLUMN_GROUP + " = ? ORDER BY " + DatabaseManager.PRIMARY_KEY;
+                String deleteSql = "DELETE FROM " + DatabasePersistence.TABLE + " WHERE " + DatabasePersistence.COLUMN_GROUP + " = ?";
+                assertTrue(explainQueryPlan(db, selectSql).contains(DatabasePersistence.GROUP_INDEX));
+                assertTrue(explainQueryPlan(db, countSql).contains("COVERING INDEX " + DatabasePersistence.GROUP_INDEX));
+                assertTrue(explainQueryPlan(db, deleteSql).contains(DatabasePersistence.GROUP_INDEX));
+            } finally {
+                db.close();
+            }
+
+            /* Measure with index. */
+            double indexedCount = measureCount(persistence, groupCount);
+            double indexedGetLogs = measureGetLogs(persistence);
+
+            /* Drop the index and measure again. */
+            db = openDatabase();
+            try {
+                db.execSQL("DROP INDEX " + DatabasePersistence.GROUP_INDEX);
+            } finally {
+                db.close();
+            }
+            double scanCount = measureCount(persistence, groupCount);
+            double scanGetLogs = measureGetLogs(persistence);
+            double scanDeleteLogs = measureDeleteLogs(persistence, GROUPS[0]);
+
+            /* Restore the index and measure delete of another group. */
+            db = openDatabase();
+            try {
+                db.execSQL("CREATE INDEX " + DatabasePersistence.GROUP_INDEX + " ON " + DatabasePersistence.TABLE + " (" + DatabasePersistence.COLUMN_GROUP + ", " + DatabasePersistence.COLUMN_PRIORITY + ", " + DatabaseManager.PRIMARY_KEY + ")");
+            } finally {
+                db.close();
+            }
+            double indexedDeleteLogs = measureDeleteLogs(persistence, GROUPS[1]);
+
+            /* Report. */
+            android.util.Log.i(TAG, rowCount + " rows, countLogs: " + scanCount + "ms without index, " + indexedCount + "ms with index");
+            android.util.Log.i(TAG, rowCount + " rows, getLogs(50): " + scanGetLogs + "ms without index, " + indexedGetLogs + "ms with index");
+            android.util.Log.i(TAG, rowCount + " rows, deleteLogs(group): " + scanDeleteLogs + "ms without index, " + indexedDeleteLogs + "ms with index");
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void groupQueries10k() throws JSONException {
+        benchmark(10000);
+    }
+
+    @Test
+    public void groupQueries100k() throws JSONException {
+        benchmark(100000);
+    }
+}
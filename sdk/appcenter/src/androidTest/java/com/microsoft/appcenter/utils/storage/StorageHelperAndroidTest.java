@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Set;
@@ -285,6 +286,22 @@ public class StorageHelperAndroidTest {
         assertEquals(0, databaseStorage.getScanner("COL_STRING", null).getCount());
         assertEquals(2, databaseStorage.getScanner("COL_STRING_NULL", null).getCount());
 
+        /* Identifier lower bound and limit. */
+        assertEquals(1, databaseStorage.getScanner(null, null, false, value1Id, DatabaseManager.NO_LIMIT).getCount());
+        assertEquals(1, databaseStorage.getScanner("COL_STRING_NULL", null, false, DatabaseManager.NO_ID_LOWER_BOUND, 1).getCount());
+        iterator = databaseStorage.getScanner("COL_STRING_NULL", null, false, value1Id, 1).iterator();
+        assertContentValuesEquals(value2, iterator.next());
+        assertFalse(iterator.hasNext());
+        assertEquals(0, databaseStorage.getScanner(null, null, true, value2Id, DatabaseManager.NO_LIMIT).getCount());
+
+        /* Count grouped by column. */
+        Map<String, Integer> counts = databaseStorage.getCountsGroupedBy("COL_STRING_NULL");
+        assertEquals(1, counts.size());
+        assertEquals(Integer.valueOf(2), counts.get(null));
+        counts = databaseStorage.getCountsGroupedBy("COL_STRING");
+        assertEquals(2, counts.size());
+        assertEquals(Integer.valueOf(1), counts.get(value1.getAsString("COL_STRING")));
+
         /* Delete. */
         databaseStorage.delete(value1Id);
         assertNull(databaseStorage.get(value1Id));
@@ -514,6 +531,10 @@ public class StorageHelperAndroidTest {
         /* Get instance to access database. */
         DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-databaseStorage", "databaseStorage", 1, mSchema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 return false;
@@ -551,6 +572,10 @@ public class StorageHelperAndroidTest {
         /* Get instance to access database. */
         DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-databaseStorageUpgrade", "databaseStorageUpgrade", 1, schema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 return false;
@@ -581,6 +606,10 @@ public class StorageHelperAndroidTest {
         /* Get instance to access database with a newer schema without handling upgrade. */
         databaseStorage = DatabaseStorage.getDatabaseStorage("test-databaseStorageUpgrade", "databaseStorageUpgrade", 2, mSchema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 return false;
@@ -618,6 +647,10 @@ public class StorageHelperAndroidTest {
         /* Get instance to access database. */
         DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-databaseStorageUpgrade", "databaseStorageUpgrade", 1, schema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 return false;
@@ -649,6 +682,10 @@ public class StorageHelperAndroidTest {
         /* Get instance to access database with a newer schema without handling upgrade. */
         databaseStorage = DatabaseStorage.getDatabaseStorage("test-databaseStorageUpgrade", "databaseStorageUpgrade", 2, schema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 db.execSQL("ALTER TABLE databaseStorageUpgrade ADD COLUMN COL_INT INTEGER");
@@ -691,6 +728,10 @@ public class StorageHelperAndroidTest {
         /* Get instance to access database. */
         DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-databaseStorageScannerRemove", "databaseStorageScannerRemove", 1, mSchema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 return false;
@@ -720,6 +761,10 @@ public class StorageHelperAndroidTest {
         /* Get instance to access database. */
         DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-databaseStorageScannerNext", "databaseStorageScannerNext", 1, mSchema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 return false;
@@ -753,6 +798,10 @@ public class StorageHelperAndroidTest {
         /* Get instance to access database. */
         DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-databaseStorageInMemoryDB", "test.databaseStorageInMemoryDB", 1, mSchema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 return false;
@@ -781,6 +830,10 @@ public class StorageHelperAndroidTest {
         /* Get instance to access database. */
         DatabaseStorage databaseStorage = DatabaseStorage.getDatabaseStorage("test-setMaximumSize", "test.setMaximumSize", 1, mSchema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
                 return false;
@@ -14,6 +14,7 @@ import android.util.Log;
 import com.microsoft.appcenter.channel.Channel;
 import com.microsoft.appcenter.channel.DefaultChannel;
 import com.microsoft.appcenter.channel.OneCollectorChannelListener;
+import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.ingestion.models.CustomPropertiesLog;
 import com.microsoft.appcenter.ingestion.models.StartServiceLog;
 import com.microsoft.appcenter.ingestion.models.WrapperSdk;
@@ -112,6 +113,31 @@ public class AppCenter {
      */
     private String mLogUrl;
 
+    /**
+     * Network policy if set before configuring.
+     */
+    private NetworkPolicy mNetworkPolicy;
+
+    /**
+     * Custom HTTP client to send logs, null to use the default one.
+     */
+    private HttpClient mHttpClient;
+
+    /**
+     * Send stored JSON payloads without reading them back as logs.
+     */
+    private boolean mSerializedLogsPassthrough;
+
+    /**
+     * Send the logs of all groups using the same ingestion in a single request.
+     */
+    private boolean mGroupCoalescing;
+
+    /**
+     * Stop sending only to the failing ingestion instead of suspending the whole channel.
+     */
+    private boolean mCircuitBreaker;
+
     /**
      * Application context.
      */
@@ -251,6 +277,64 @@ public class AppCenter {
         getInstance().setInstanceLogUrl(logUrl);
     }
 
+    /**
+     * Choose what to upload depending on the network type, for users on capped data plans.
+     * By default everything is sent on any network. With another policy, crash reports are still
+     * sent right away on metered networks but other logs, like analytics events and crash attachments,
+     * are sent within the policy byte budget and otherwise wait for an unmetered network such as Wi-Fi.
+     *
+     * @param networkPolicy network policy.
+     */
+    public static void setNetworkPolicy(NetworkPolicy networkPolicy) {
+        getInstance().setInstanceNetworkPolicy(networkPolicy);
+    }
+
+    /**
+     * Send logs with a custom HTTP client, for example the HTTP/2 client of the appcenter-http2 module
+     * so that parallel batches share a single connection. Calls are still retried and paused
+     * while network is down. Must be called before App Center is configured.
+     *
+     * @param httpClient HTTP client.
+     */
+    public static void setHttpClient(HttpClient httpClient) {
+        getInstance().setInstanceHttpClient(httpClient);
+    }
+
+    /**
+     * Send the JSON payloads stored on disk as is instead of reading them back as logs and serializing
+     * them again, which saves a JSON parse and a JSON write per log on each upload.
+     * Stored logs are then no longer validated before being sent. Disabled by default,
+     * must be called before App Center is configured.
+     *
+     * @param enabled true to send stored payloads as is.
+     */
+    public static void setSerializedLogsPassthrough(boolean enabled) {
+        getInstance().setInstanceSerializedLogsPassthrough(enabled);
+    }
+
+    /**
+     * Send the logs of all the services using the same ingestion in a single request when one of
+     * them triggers sending, instead of one request per service. Logs of a service may then be sent
+     * before its batch interval. Disabled by default, must be called before App Center is configured.
+     *
+     * @param enabled true to merge the logs of services in requests.
+     */
+    public static void setGroupCoalescing(boolean enabled) {
+        getInstance().setInstanceGroupCoalescing(enabled);
+    }
+
+    /**
+     * Use a circuit breaker per ingestion: on a recoverable error, only the services using the
+     * failing ingestion wait and a single probe request is sent periodically until it works again,
+     * instead of suspending all sending. Non-recoverable errors still disable sending and delete logs.
+     * Disabled by default, must be called before App Center is configured.
+     *
+     * @param enabled true to use a circuit breaker per ingestion.
+     */
+    public static void setCircuitBreaker(boolean enabled) {
+        getInstance().setInstanceCircuitBreaker(enabled);
+    }
+
     /**
      * Get the current version of App Center SDK.
      *
@@ -474,6 +558,84 @@ public class AppCenter {
         }
     }
 
+    /**
+     * {@link #setNetworkPolicy(NetworkPolicy)} implementation at instance level.
+     *
+     * @param networkPolicy network policy.
+     */
+    private synchronized void setInstanceNetworkPolicy(final NetworkPolicy networkPolicy) {
+        if (networkPolicy == null) {
+            AppCenterLog.error(LOG_TAG, "Network policy may not be null.");
+            return;
+        }
+        mNetworkPolicy = networkPolicy;
+
+        /* If SDK already configured, apply policy. */
+        if (mHandler != null) {
+
+            /* Every channel operation must be in background since it uses locks and accesses disks. */
+            mHandler.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    mChannel.setNetworkPolicy(networkPolicy);
+                }
+            });
+        }
+    }
+
+    /**
+     * {@link #setHttpClient(HttpClient)} implementation at instance level.
+     *
+     * @param httpClient HTTP client.
+     */
+    private synchronized void setInstanceHttpClient(HttpClient httpClient) {
+        if (mHandler != null) {
+            AppCenterLog.error(LOG_TAG, "setHttpClient may not be called after App Center has been configured.");
+            return;
+        }
+        mHttpClient = httpClient;
+    }
+
+    /**
+     * {@link #setSerializedLogsPassthrough(boolean)} implementation at instance level.
+     *
+     * @param enabled true to send stored payloads as is.
+     */
+    private synchronized void setInstanceSerializedLogsPassthrough(boolean enabled) {
+        if (mHandler != null) {
+            AppCenterLog.error(LOG_TAG, "setSerializedLogsPassthrough may not be called after App Center has been configured.");
+            return;
+        }
+        mSerializedLogsPassthrough = enabled;
+    }
+
+    /**
+     * {@link #setGroupCoalescing(boolean)} implementation at instance level.
+     *
+     * @param enabled true to merge the logs of services in requests.
+     */
+    private synchronized void setInstanceGroupCoalescing(boolean enabled) {
+        if (mHandler != null) {
+            AppCenterLog.error(LOG_TAG, "setGroupCoalescing may not be called after App Center has been configured.");
+            return;
+        }
+        mGroupCoalescing = enabled;
+    }
+
+    /**
+     * {@link #setCircuitBreaker(boolean)} implementation at instance level.
+     *
+     * @param enabled true to use a circuit breaker per ingestion.
+     */
+    private synchronized void setInstanceCircuitBreaker(boolean enabled) {
+        if (mHandler != null) {
+            AppCenterLog.error(LOG_TAG, "setCircuitBreaker may not be called after App Center has been configured.");
+            return;
+        }
+        mCircuitBreaker = enabled;
+    }
+
     /**
      * {@link #setCustomProperties(CustomProperties)} implementation at instance level.
      *
@@ -717,7 +879,13 @@ public class AppCenter {
         mLogSerializer = new DefaultLogSerializer();
         mLogSerializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
         mLogSerializer.addLogFactory(CustomPropertiesLog.TYPE, new CustomPropertiesLogFactory());
-        mChannel = new DefaultChannel(mApplication, mAppSecret, mLogSerializer, mHandler);
+        mChannel = new DefaultChannel(mApplication, mAppSecret, mLogSerializer, mHttpClient, mHandler);
+        mChannel.setSerializedLogsPassthrough(mSerializedLogsPassthrough);
+        mChannel.setGroupCoalescing(mGroupCoalescing);
+        mChannel.setCircuitBreaker(mCircuitBreaker);
+        if (mNetworkPolicy != null) {
+            mChannel.setNetworkPolicy(mNetworkPolicy);
+        }
 
         /* Complete set maximum storage size future if starting from app. */
         if (configureFromApp) {
@@ -732,7 +900,7 @@ public class AppCenter {
         if (mLogUrl != null) {
             mChannel.setLogUrl(mLogUrl);
         }
-        mChannel.addListener(new OneCollectorChannelListener(mApplication, mChannel, mLogSerializer, IdHelper.getInstallId()));
+        mChannel.addListener(new OneCollectorChannelListener(mApplication, mChannel, mLogSerializer, IdHelper.getInstallId(), mHttpClient));
 
         /* Disable listening network if we start while being disabled. */
         if (!enabled) {
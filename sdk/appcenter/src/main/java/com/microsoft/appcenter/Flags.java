@@ -0,0 +1,47 @@
+package com.microsoft.appcenter;
+
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * Flags to use when enqueuing logs in the channel.
+ */
+public final class Flags {
+
+    /**
+     * Log is sent in a batch once the group reaches its batch size or its batch interval.
+     */
+    public static final int NORMAL = 0x01;
+
+    /**
+     * Log is sent right away, ahead of the normal logs of its group.
+     */
+    public static final int CRITICAL = 0x02;
+
+    /**
+     * Log is batched with a longer interval and sent after the other logs of its group.
+     */
+    public static final int LOW = 0x04;
+
+    /**
+     * Default flags.
+     */
+    public static final int DEFAULTS = NORMAL;
+
+    @VisibleForTesting
+    Flags() {
+    }
+
+    /**
+     * Get the priority lane of a log from its flags.
+     *
+     * @param flags log flags.
+     * @return {@link #CRITICAL} if the flags contain it, {@link #LOW} if they contain it,
+     * {@link #NORMAL} otherwise.
+     */
+    public static int getPriority(int flags) {
+        if ((flags & CRITICAL) != 0) {
+            return CRITICAL;
+        }
+        return (flags & LOW) != 0 ? LOW : NORMAL;
+    }
+}
@@ -0,0 +1,105 @@
+package com.microsoft.appcenter;
+
+/**
+ * Upload policy depending on the network type, to use with {@link AppCenter#setNetworkPolicy}.
+ * Logs are always sent right away on unmetered networks such as Wi-Fi.
+ * On metered networks such as mobile data, critical logs like crash reports are always sent
+ * while the other logs (analytics, crash attachments...) are sent within a byte budget
+ * and otherwise kept in storage until an unmetered network is available or the budget renews.
+ */
+public class NetworkPolicy {
+
+    /**
+     * Budget value to send everything on metered networks.
+     */
+    public static final long UNLIMITED = -1;
+
+    /**
+     * Default budget period: a day in milliseconds.
+     */
+    public static final long DEFAULT_BUDGET_PERIOD = 24 * 60 * 60 * 1000;
+
+    /**
+     * Bytes that can be sent on metered networks per period.
+     */
+    private final long mMeteredByteBudget;
+
+    /**
+     * Period after which the budget renews, in milliseconds.
+     */
+    private final long mBudgetPeriod;
+
+    /**
+     * Init.
+     *
+     * @param meteredByteBudget bytes of non critical logs that can be sent on metered networks per period,
+     *                          0 to wait for an unmetered network, {@link #UNLIMITED} to send everything.
+     * @param budgetPeriod      period after which the budget renews, in milliseconds.
+     * @throws IllegalArgumentException if the budget is negative but not {@link #UNLIMITED} or period is not positive.
+     */
+    public NetworkPolicy(long meteredByteBudget, long budgetPeriod) {
+        if (meteredByteBudget < 0 && meteredByteBudget != UNLIMITED) {
+            throw new IllegalArgumentException("Invalid metered byte budget: " + meteredByteBudget);
+        }
+        if (budgetPeriod <= 0) {
+            throw new IllegalArgumentException("Invalid budget period: " + budgetPeriod);
+        }
+        mMeteredByteBudget = meteredByteBudget;
+        mBudgetPeriod = budgetPeriod;
+    }
+
+    /**
+     * Send everything right away on any network, this is the default policy.
+     *
+     * @return policy.
+     */
+    public static NetworkPolicy eager() {
+        return new NetworkPolicy(UNLIMITED, DEFAULT_BUDGET_PERIOD);
+    }
+
+    /**
+     * Send only critical logs on metered networks.
+     *
+     * @return policy.
+     */
+    public static NetworkPolicy unmeteredOnly() {
+        return new NetworkPolicy(0, DEFAULT_BUDGET_PERIOD);
+    }
+
+    /**
+     * Send non critical logs on metered networks up to a number of bytes per day.
+     *
+     * @param meteredByteBudget bytes that can be sent on metered networks per day.
+     * @return policy.
+     */
+    public static NetworkPolicy meteredBudget(long meteredByteBudget) {
+        return new NetworkPolicy(meteredByteBudget, DEFAULT_BUDGET_PERIOD);
+    }
+
+    /**
+     * Get the bytes of non critical logs that can be sent on metered networks per period.
+     *
+     * @return byte budget, 0 to wait for an unmetered network, {@link #UNLIMITED} to send everything.
+     */
+    public long getMeteredByteBudget() {
+        return mMeteredByteBudget;
+    }
+
+    /**
+     * Get the period after which the budget renews.
+     *
+     * @return period in milliseconds.
+     */
+    public long getBudgetPeriod() {
+        return mBudgetPeriod;
+    }
+
+    /**
+     * Check if this policy sends everything right away on any network.
+     *
+     * @return true if the budget is unlimited.
+     */
+    public boolean isEager() {
+        return mMeteredByteBudget == UNLIMITED;
+    }
+}
@@ -0,0 +1,148 @@
+package com.microsoft.appcenter.channel;
+
+import android.support.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import static com.microsoft.appcenter.AppCenter.LOG_TAG;
+
+/**
+ * Adjusts batch size, batch interval and parallelism of a group from observed upload latency.
+ * Uses additive increase while uploads are fast and multiplicative decrease when they are slow or fail.
+ * Slow uploads reduce parallelism and space requests, so that fewer but fuller batches are sent.
+ */
+public class AdaptiveBatchController {
+
+    /**
+     * Round trip time under which an upload is considered fast, in milliseconds.
+     */
+    @VisibleForTesting
+    static final long TARGET_LATENCY = 2000;
+
+    /**
+     * Maximum factor applied to the initial group settings in either direction.
+     */
+    @VisibleForTesting
+    static final int MAX_FACTOR = 8;
+
+    /**
+     * Initial and minimum log count per batch.
+     */
+    private final int mMinLogsPerBatch;
+
+    /**
+     * Maximum log count per batch.
+     */
+    private final int mMaxLogsPerBatchLimit;
+
+    /**
+     * Minimum time to wait before 2 batches, in ms.
+     */
+    private final long mMinBatchTimeInterval;
+
+    /**
+     * Maximum time to wait before 2 batches, in ms.
+     */
+    private final long mMaxBatchTimeInterval;
+
+    /**
+     * Maximum number of batches in parallel.
+     */
+    private final int mMaxParallelBatchesLimit;
+
+    /**
+     * Current log count per batch.
+     */
+    private int mMaxLogsPerBatch;
+
+    /**
+     * Current time to wait before 2 batches, in ms.
+     */
+    private long mBatchTimeInterval;
+
+    /**
+     * Current number of batches in parallel.
+     */
+    private int mMaxParallelBatches;
+
+    /**
+     * Init with the group settings as starting point.
+     *
+     * @param maxLogsPerBatch    initial max batch size, also the additive increase step.
+     * @param batchTimeInterval  initial batch interval in ms.
+     * @param maxParallelBatches initial max number of parallel batches.
+     */
+    AdaptiveBatchController(int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches) {
+        mMinLogsPerBatch = maxLogsPerBatch;
+        mMaxLogsPerBatchLimit = maxLogsPerBatch * MAX_FACTOR;
+        mMinBatchTimeInterval = Math.max(1, batchTimeInterval / MAX_FACTOR);
+        mMaxBatchTimeInterval = batchTimeInterval * MAX_FACTOR;
+        mMaxParallelBatchesLimit = maxParallelBatches * 2;
+        mMaxLogsPerBatch = maxLogsPerBatch;
+        mBatchTimeInterval = batchTimeInterval;
+        mMaxParallelBatches = maxParallelBatches;
+    }
+
+    /**
+     * Get the current log count per batch.
+     *
+     * @return log count per batch.
+     */
+    public synchronized int getMaxLogsPerBatch() {
+        return mMaxLogsPerBatch;
+    }
+
+    /**
+     * Get the current time to wait before 2 batches.
+     *
+     * @return batch interval in ms.
+     */
+    public synchronized long getBatchTimeInterval() {
+        return mBatchTimeInterval;
+    }
+
+    /**
+     * Get the current number of batches in parallel.
+     *
+     * @return max number of parallel batches.
+     */
+    public synchronized int getMaxParallelBatches() {
+        return mMaxParallelBatches;
+    }
+
+    /**
+     * Update settings after a batch was sent successfully.
+     *
+     * @param latency round trip time of the upload in ms.
+     */
+    synchronized void onSuccess(long latency) {
+        if (latency <= TARGET_LATENCY) {
+
+            /* Fast: grow batches and parallelism, send more often. */
+            mMaxLogsPerBatch = Math.min(mMaxLogsPerBatch + mMinLogsPerBatch, mMaxLogsPerBatchLimit);
+            mMaxParallelBatches = Math.min(mMaxParallelBatches + 1, mMaxParallelBatchesLimit);
+            mBatchTimeInterval = Math.max(mBatchTimeInterval / 2, mMinBatchTimeInterval);
+        } else {
+
+            /* Slow: fewer requests in flight and more time to fill each batch. */
+            mMaxParallelBatches = Math.max(mMaxParallelBatches / 2, 1);
+            mBatchTimeInterval = Math.min(mBatchTimeInterval * 2, mMaxBatchTimeInterval);
+        }
+        AppCenterLog.verbose(LOG_TAG, "Adaptive batching after " + latency + "ms upload: " + this);
+    }
+
+    /**
+     * Back off after a recoverable failure.
+     */
+    synchronized void onFailure() {
+        mMaxLogsPerBatch = Math.max(mMaxLogsPerBatch / 2, mMinLogsPerBatch);
+        mMaxParallelBatches = Math.max(mMaxParallelBatches / 2, 1);
+        mBatchTimeInterval = Math.min(mBatchTimeInterval * 2, mMaxBatchTimeInterval);
+        AppCenterLog.verbose(LOG_TAG, "Adaptive batching after failure: " + this);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "maxLogsPerBatch=" + mMaxLogsPerBatch + " batchTimeInterval=" + mBatchTimeInterval + " maxParallelBatches=" + mMaxParallelBatches;
+    }
+}
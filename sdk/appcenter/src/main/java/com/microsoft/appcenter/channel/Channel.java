@@ -2,6 +2,8 @@ package com.microsoft.appcenter.channel;
 
 import android.support.annotation.NonNull;
 
+import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.NetworkPolicy;
 import com.microsoft.appcenter.ingestion.Ingestion;
 import com.microsoft.appcenter.ingestion.models.Log;
 
@@ -26,6 +28,77 @@ public interface Channel {
      */
     boolean setMaxStorageSize(long maxStorageSizeInBytes);
 
+    /**
+     * Set the time window during which enqueued logs are held in memory to be persisted together
+     * in a single database transaction.
+     *
+     * @param enqueueWindow window in milliseconds. 0 means logs are persisted as soon as the logs
+     *                      already queued on the background thread are enqueued.
+     */
+    void setEnqueueWindow(long enqueueWindow);
+
+    /**
+     * Send logs using the JSON payloads stored in persistence instead of serializing them again.
+     * Logs are then deserialized only if they are needed, by a group listener or by the ingestion.
+     *
+     * @param enabled true to send stored payloads, false to serialize logs when sending.
+     */
+    void setSerializedLogsPassthrough(boolean enabled);
+
+    /**
+     * Adapt batch size, batch interval and parallelism of each group to the observed upload latency.
+     * The values passed to {@link #addGroup} are used as starting point.
+     *
+     * @param enabled true to adapt batching, false to use the group settings as is.
+     */
+    void setAdaptiveBatching(boolean enabled);
+
+    /**
+     * Send the logs of all groups using the same ingestion in a single request when one of these
+     * groups triggers sending, instead of one request per group.
+     * Each group is still notified and cleaned up for its own logs.
+     *
+     * @param enabled true to merge groups in requests, false to send each group separately.
+     */
+    void setGroupCoalescing(boolean enabled);
+
+    /**
+     * Stop sending to an ingestion that fails instead of suspending the whole channel.
+     * Only the groups of the failing ingestion wait, the logs of the failed batch are kept when the
+     * error is recoverable, and a single probe request is sent periodically until the ingestion
+     * works again.
+     *
+     * @param enabled true to use a circuit breaker per ingestion, false to suspend the channel on failure.
+     */
+    void setCircuitBreaker(boolean enabled);
+
+    /**
+     * Choose what to send depending on the network type. On metered networks, critical logs are
+     * always sent while the other logs are sent within the byte budget of the policy and otherwise
+     * kept in storage until an unmetered network is available or the budget renews.
+     *
+     * @param networkPolicy the policy, {@link NetworkPolicy#eager()} (default) sends everything on any network.
+     */
+    void setNetworkPolicy(@NonNull NetworkPolicy networkPolicy);
+
+    /**
+     * Set what happens when logs are enqueued while the in memory buffer of their group is full,
+     * which can happen if logs are enqueued faster than they can be persisted. The policy applies to
+     * logs enqueued from other threads, logs enqueued from the App Center thread are never dropped:
+     * the buffer is persisted right away when it is full.
+     *
+     * @param overflowPolicy {@link OverflowPolicy#DROP_OLDEST} (default), {@link OverflowPolicy#DROP_NEWEST} or {@link OverflowPolicy#BLOCK}.
+     */
+    void setOverflowPolicy(@OverflowPolicy int overflowPolicy);
+
+    /**
+     * Get the number of logs of a group dropped because its in memory buffer was full.
+     *
+     * @param groupName the group name.
+     * @return number of dropped logs since the group was added, 0 if the group does not exist.
+     */
+    long getDroppedLogCount(String groupName);
+
     /**
      * Add a group for logs to be persisted and sent.
      *
@@ -38,6 +111,20 @@ public interface Channel {
      */
     void addGroup(String groupName, int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener);
 
+    /**
+     * Add a group for logs to be persisted and sent, with batches also cut by size.
+     *
+     * @param groupName          the name of a group.
+     * @param maxLogsPerBatch    maximum log count per batch.
+     * @param maxBatchBytes      target size of a batch in bytes of stored payloads, 0 to cut batches by log count only.
+     *                           A single log larger than that is still sent in its own batch.
+     * @param batchTimeInterval  time interval for a next batch.
+     * @param maxParallelBatches maximum number of batches in parallel.
+     * @param ingestion          ingestion for the channel. If null then the default ingestion will be used.
+     * @param groupListener      a listener for a service.
+     */
+    void addGroup(String groupName, int maxLogsPerBatch, long maxBatchBytes, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener);
+
     /**
      * Remove a group for logs.
      *
@@ -61,12 +148,34 @@ public interface Channel {
 
     /**
      * Add Log to queue to be persisted and sent.
+     * Flags are the ones set for the log type by {@link #setLogTypeFlags}, or {@link Flags#DEFAULTS}.
      *
      * @param log       the Log to be enqueued.
      * @param groupName the group to use.
      */
     void enqueue(@NonNull Log log, @NonNull String groupName);
 
+    /**
+     * Add Log to queue to be persisted and sent.
+     * A {@link Flags#CRITICAL} log is persisted right away and sent without waiting for the batch
+     * interval, ahead of normal logs of the same group. Normal logs are held and batched.
+     * {@link Flags#LOW} logs are sent after the normal logs and, when no other log is pending,
+     * wait for a longer interval than the group batch interval.
+     *
+     * @param log       the Log to be enqueued.
+     * @param groupName the group to use.
+     * @param flags     log flags such as {@link Flags#CRITICAL}.
+     */
+    void enqueue(@NonNull Log log, @NonNull String groupName, int flags);
+
+    /**
+     * Set the flags used for logs of a type when they are enqueued without explicit flags.
+     *
+     * @param logType log type.
+     * @param flags   flags such as {@link Flags#CRITICAL}.
+     */
+    void setLogTypeFlags(@NonNull String logType, int flags);
+
     /**
      * Check whether channel is enabled or disabled.
      *
@@ -0,0 +1,155 @@
+package com.microsoft.appcenter.channel;
+
+import android.support.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.microsoft.appcenter.AppCenter.LOG_TAG;
+
+/**
+ * Stops sending to an ingestion that keeps failing, without affecting the other ingestions.
+ * Once open, the circuit lets a single probe request through after a delay that doubles each
+ * time the probe fails, and closes again when a request succeeds.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Requests are sent normally.
+     */
+    public static final int CLOSED = 0;
+
+    /**
+     * Requests are blocked until the open duration elapses.
+     */
+    public static final int OPEN = 1;
+
+    /**
+     * A probe request is being sent, others are blocked until its result.
+     */
+    public static final int HALF_OPEN = 2;
+
+    /**
+     * Time before the first probe, in milliseconds.
+     */
+    @VisibleForTesting
+    static final long MIN_OPEN_DURATION = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Maximum time between 2 probes, in milliseconds.
+     */
+    @VisibleForTesting
+    static final long MAX_OPEN_DURATION = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Name used in logs.
+     */
+    private final String mName;
+
+    /**
+     * Current state.
+     */
+    private int mState = CLOSED;
+
+    /**
+     * Current time to wait before probing.
+     */
+    private long mOpenDuration = MIN_OPEN_DURATION;
+
+    /**
+     * Time when a probe can be sent, when open.
+     */
+    private long mProbeTime;
+
+    /**
+     * Number of times the circuit opened.
+     */
+    private int mOpenCount;
+
+    /**
+     * Init.
+     *
+     * @param name name used in logs.
+     */
+    CircuitBreaker(String name) {
+        mName = name;
+    }
+
+    /**
+     * Get the current state.
+     *
+     * @return {@link #CLOSED}, {@link #OPEN} or {@link #HALF_OPEN}.
+     */
+    public synchronized int getState() {
+        return mState;
+    }
+
+    /**
+     * Get the number of times the circuit opened.
+     *
+     * @return number of times the circuit opened.
+     */
+    public synchronized int getOpenCount() {
+        return mOpenCount;
+    }
+
+    /**
+     * Check if a request can be sent.
+     *
+     * @param now current time in ms.
+     * @return true if closed or if a probe can be sent.
+     */
+    synchronized boolean isRequestAllowed(long now) {
+        return mState == CLOSED || (mState == OPEN && now >= mProbeTime);
+    }
+
+    /**
+     * Get the time to wait before a probe can be sent.
+     *
+     * @param now current time in ms.
+     * @return time in ms, 0 if not open.
+     */
+    synchronized long getRemainingOpenTime(long now) {
+        return mState == OPEN ? Math.max(0, mProbeTime - now) : 0;
+    }
+
+    /**
+     * Record a request sent after {@link #isRequestAllowed} returned true.
+     */
+    synchronized void onRequestSent() {
+        if (mState == OPEN) {
+            mState = HALF_OPEN;
+            AppCenterLog.debug(LOG_TAG, "Circuit of " + mName + " is half open, sending probe.");
+        }
+    }
+
+    /**
+     * Close the circuit after a request succeeded.
+     */
+    synchronized void onSuccess() {
+        if (mState != CLOSED) {
+            AppCenterLog.info(LOG_TAG, "Circuit of " + mName + " is closed.");
+        }
+        mState = CLOSED;
+        mOpenDuration = MIN_OPEN_DURATION;
+    }
+
+    /**
+     * Open the circuit after a request failed. The open duration doubles if the probe failed.
+     *
+     * @param now current time in ms.
+     */
+    synchronized void onFailure(long now) {
+        if (mState == OPEN) {
+            return;
+        }
+        if (mState == HALF_OPEN) {
+            mOpenDuration = Math.min(mOpenDuration * 2, MAX_OPEN_DURATION);
+        }
+        mState = OPEN;
+        mProbeTime = now + mOpenDuration;
+        mOpenCount++;
+        AppCenterLog.warn(LOG_TAG, "Circuit of " + mName + " is open for " + mOpenDuration + "ms.");
+    }
+}
@@ -2,11 +2,16 @@ package com.microsoft.appcenter.channel;
 
 import android.content.Context;
 import android.os.Handler;
-import android.support.annotation.MainThread;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.CancellationException;
+import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.NetworkPolicy;
+import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.http.HttpUtils;
 import com.microsoft.appcenter.http.ServiceCallback;
 import com.microsoft.appcenter.ingestion.AppCenterIngestion;
@@ -19,8 +24,8 @@ import com.microsoft.appcenter.persistence.DatabasePersistence;
 import com.microsoft.appcenter.persistence.Persistence;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.DeviceInfoHelper;
-import com.microsoft.appcenter.utils.HandlerUtils;
 import com.microsoft.appcenter.utils.IdHelper;
+import com.microsoft.appcenter.utils.NetworkStateHelper;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -29,11 +34,14 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 
@@ -45,6 +53,24 @@ public class DefaultChannel implements Channel {
     @VisibleForTesting
     static final int CLEAR_BATCH_SIZE = 100;
 
+    /**
+     * Number of logs a group can hold in memory before they are persisted.
+     */
+    @VisibleForTesting
+    static final int INGRESS_CAPACITY = 1024;
+
+    /**
+     * Maximum time to wait for a group buffer to be drained before checking it again,
+     * when using {@link OverflowPolicy#BLOCK}.
+     */
+    private static final long OVERFLOW_WAIT_TIME = 100;
+
+    /**
+     * Factor applied to the batch interval when only {@link Flags#LOW} logs are pending.
+     */
+    @VisibleForTesting
+    static final int LOW_PRIORITY_INTERVAL_FACTOR = 5;
+
     /**
      * Application context.
      */
@@ -53,7 +79,7 @@ public class DefaultChannel implements Channel {
     /**
      * The application secret for the ingestion service.
      */
-    private String mAppSecret;
+    private volatile String mAppSecret;
 
     /**
      * The installId that's required for forwarding to ingestion.
@@ -62,11 +88,12 @@ public class DefaultChannel implements Channel {
 
     /**
      * Channel state per log group.
+     * Enqueuing reads it without holding the channel lock.
      */
     private final Map<String, GroupState> mGroupStates;
 
     /**
-     * Global listeners.
+     * Global listeners, iterated without holding the channel lock while enqueuing.
      */
     private final Collection<Listener> mListeners;
 
@@ -99,12 +126,12 @@ public class DefaultChannel implements Channel {
      * Is channel disabled due to connectivity issues or was the problem fatal?
      * In that case we stop accepting new logs in database.
      */
-    private boolean mDiscardLogs;
+    private volatile boolean mDiscardLogs;
 
     /**
      * Device properties.
      */
-    private Device mDevice;
+    private volatile Device mDevice;
 
     /**
      * State checker. If this counter changes during an async call, we have to ignore the result in the callback.
@@ -112,6 +139,71 @@ public class DefaultChannel implements Channel {
      */
     private int mCurrentState;
 
+    /**
+     * Time window in milliseconds during which enqueued logs are held in memory to be persisted
+     * together in a single database transaction.
+     */
+    private volatile long mEnqueueWindow;
+
+    /**
+     * Send stored JSON payloads instead of serializing logs again.
+     */
+    private boolean mSerializedLogsPassthrough;
+
+    /**
+     * Adapt batching of each group to upload latency.
+     */
+    private boolean mAdaptiveBatching;
+
+    /**
+     * Send logs of groups sharing an ingestion in the same request.
+     */
+    private boolean mGroupCoalescing;
+
+    /**
+     * Circuit breakers by ingestion, null if a failure suspends the channel.
+     */
+    private Map<Ingestion, CircuitBreaker> mCircuitBreakers;
+
+    /**
+     * Budget of non critical logs on metered networks, null to send everything on any network.
+     */
+    private MeteredBudget mMeteredBudget;
+
+    /**
+     * Network state helper, only used with a metered budget.
+     */
+    private NetworkStateHelper mNetworkStateHelper;
+
+    /**
+     * Checks held logs again when network changes, for example from mobile data to Wi-Fi.
+     */
+    private final NetworkStateHelper.Listener mNetworkStateListener = new NetworkStateHelper.Listener() {
+
+        @Override
+        public void onNetworkStateUpdated(final boolean connected) {
+            mAppCenterHandler.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (connected) {
+                        checkAllPendingLogs();
+                    }
+                }
+            });
+        }
+    };
+
+    /**
+     * Flags of logs enqueued without explicit flags, per log type.
+     */
+    private final Map<String, Integer> mLogTypeFlags;
+
+    /**
+     * What to do when a group buffer is full.
+     */
+    private volatile int mOverflowPolicy = OverflowPolicy.DROP_OLDEST;
+
     /**
      * Creates and initializes a new instance.
      *
@@ -121,7 +213,20 @@ public class DefaultChannel implements Channel {
      * @param appCenterHandler App Center looper thread handler.
      */
     public DefaultChannel(@NonNull Context context, String appSecret, @NonNull LogSerializer logSerializer, @NonNull Handler appCenterHandler) {
-        this(context, appSecret, buildDefaultPersistence(context, logSerializer), new AppCenterIngestion(context, logSerializer), appCenterHandler);
+        this(context, appSecret, logSerializer, null, appCenterHandler);
+    }
+
+    /**
+     * Creates and initializes a new instance with a custom HTTP client for the default ingestion.
+     *
+     * @param context          The context.
+     * @param appSecret        The application secret.
+     * @param logSerializer    The log serializer.
+     * @param httpClient       The HTTP client, null to use the default one.
+     * @param appCenterHandler App Center looper thread handler.
+     */
+    public DefaultChannel(@NonNull Context context, String appSecret, @NonNull LogSerializer logSerializer, @Nullable HttpClient httpClient, @NonNull Handler appCenterHandler) {
+        this(context, appSecret, buildDefaultPersistence(context, logSerializer), new AppCenterIngestion(context, logSerializer, httpClient), appCenterHandler);
     }
 
     /**
@@ -138,13 +243,14 @@ public class DefaultChannel implements Channel {
         mContext = context;
         mAppSecret = appSecret;
         mInstallId = IdHelper.getInstallId();
-        mGroupStates = new HashMap<>();
-        mListeners = new LinkedHashSet<>();
+        mGroupStates = new ConcurrentHashMap<>();
+        mListeners = new CopyOnWriteArraySet<>();
         mPersistence = persistence;
         mIngestion = ingestion;
         mIngestions = new HashSet<>();
         mIngestions.add(mIngestion);
         mAppCenterHandler = appCenterHandler;
+        mLogTypeFlags = new ConcurrentHashMap<>();
         mEnabled = true;
     }
 
@@ -162,6 +268,117 @@ public class DefaultChannel implements Channel {
         return mPersistence.setMaxStorageSize(maxStorageSizeInBytes);
     }
 
+    @Override
+    public synchronized void setEnqueueWindow(long enqueueWindow) {
+        mEnqueueWindow = enqueueWindow;
+    }
+
+    @Override
+    public synchronized void setSerializedLogsPassthrough(boolean enabled) {
+        mSerializedLogsPassthrough = enabled;
+    }
+
+    @Override
+    public void setLogTypeFlags(@NonNull String logType, int flags) {
+        mLogTypeFlags.put(logType, flags);
+    }
+
+    @Override
+    public synchronized void setAdaptiveBatching(boolean enabled) {
+        mAdaptiveBatching = enabled;
+        for (GroupState groupState : mGroupStates.values()) {
+            groupState.mAdaptiveBatchController = enabled ? groupState.newAdaptiveBatchController() : null;
+        }
+    }
+
+    /**
+     * Get the adaptive batching state of a group.
+     *
+     * @param groupName the group name.
+     * @return the controller, or null if adaptive batching is disabled or the group does not exist.
+     */
+    @Nullable
+    public synchronized AdaptiveBatchController getAdaptiveBatchController(String groupName) {
+        GroupState groupState = mGroupStates.get(groupName);
+        return groupState == null ? null : groupState.mAdaptiveBatchController;
+    }
+
+    @Override
+    public synchronized void setGroupCoalescing(boolean enabled) {
+        mGroupCoalescing = enabled;
+    }
+
+    @Override
+    public synchronized void setCircuitBreaker(boolean enabled) {
+        mCircuitBreakers = enabled ? new HashMap<Ingestion, CircuitBreaker>() : null;
+    }
+
+    /**
+     * Get the circuit breaker of the ingestion used by a group.
+     *
+     * @param groupName the group name.
+     * @return the circuit breaker, or null if circuit breakers are disabled or the group does not exist.
+     */
+    @Nullable
+    public synchronized CircuitBreaker getCircuitBreaker(String groupName) {
+        GroupState groupState = mGroupStates.get(groupName);
+        return groupState == null ? null : getCircuitBreaker(groupState.mIngestion);
+    }
+
+    @Nullable
+    private CircuitBreaker getCircuitBreaker(@NonNull Ingestion ingestion) {
+        if (mCircuitBreakers == null) {
+            return null;
+        }
+        CircuitBreaker circuitBreaker = mCircuitBreakers.get(ingestion);
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker(ingestion.getClass().getSimpleName());
+            mCircuitBreakers.put(ingestion, circuitBreaker);
+        }
+        return circuitBreaker;
+    }
+
+    @Override
+    public synchronized void setNetworkPolicy(@NonNull NetworkPolicy networkPolicy) {
+        if (networkPolicy.isEager()) {
+            mMeteredBudget = null;
+            if (mNetworkStateHelper != null) {
+                mNetworkStateHelper.removeListener(mNetworkStateListener);
+                mNetworkStateHelper = null;
+            }
+        } else {
+            mMeteredBudget = new MeteredBudget(networkPolicy);
+            if (mNetworkStateHelper == null) {
+                mNetworkStateHelper = NetworkStateHelper.getSharedInstance(mContext);
+                mNetworkStateHelper.addListener(mNetworkStateListener);
+            }
+        }
+
+        /* Logs held by the previous policy may be sent now. */
+        checkAllPendingLogs();
+    }
+
+    /**
+     * Get the metered network budget.
+     *
+     * @return the budget, or null if the network policy sends everything on any network.
+     */
+    @Nullable
+    public synchronized MeteredBudget getMeteredBudget() {
+        return mMeteredBudget;
+    }
+
+    @Override
+    public void setOverflowPolicy(@OverflowPolicy int overflowPolicy) {
+        mOverflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public long getDroppedLogCount(String groupName) {
+        GroupState groupState = mGroupStates.get(groupName);
+        return groupState == null ? 0 : groupState.mDroppedLogCount.get();
+    }
+
     /**
      * Call this after every async (such as database/ingestion) callback and stop processing if it returns false.
      * That means either the groupState was removed (or removed/added again),
@@ -193,17 +410,26 @@ public class DefaultChannel implements Channel {
     }
 
     @Override
-    public synchronized void addGroup(final String groupName, int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener) {
+    public void addGroup(final String groupName, int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener) {
+        addGroup(groupName, maxLogsPerBatch, 0, batchTimeInterval, maxParallelBatches, ingestion, groupListener);
+    }
+
+    @Override
+    public synchronized void addGroup(final String groupName, int maxLogsPerBatch, long maxBatchBytes, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener groupListener) {
 
         /* Init group. */
         AppCenterLog.debug(LOG_TAG, "addGroup(" + groupName + ")");
         ingestion = ingestion == null ? mIngestion : ingestion;
         mIngestions.add(ingestion);
-        final GroupState groupState = new GroupState(groupName, maxLogsPerBatch, batchTimeInterval, maxParallelBatches, ingestion, groupListener);
+        final GroupState groupState = new GroupState(groupName, maxLogsPerBatch, maxBatchBytes, batchTimeInterval, maxParallelBatches, ingestion, groupListener);
+        if (mAdaptiveBatching) {
+            groupState.mAdaptiveBatchController = groupState.newAdaptiveBatchController();
+        }
         mGroupStates.put(groupName, groupState);
 
-        /* Count pending logs. */
+        /* Count pending logs, logs stored before a restart keep their priority lane. */
         groupState.mPendingLogCount = mPersistence.countLogs(groupName);
+        countPriorityLogs(groupState);
 
         /* If no app secret, don't resume sending App Center logs from storage. */
         if (mAppSecret != null && mIngestion == ingestion) {
@@ -223,6 +449,7 @@ public class DefaultChannel implements Channel {
         AppCenterLog.debug(LOG_TAG, "removeGroup(" + groupName + ")");
         GroupState groupState = mGroupStates.remove(groupName);
         if (groupState != null) {
+            flushPendingEnqueues(groupState);
             cancelTimer(groupState);
         }
 
@@ -286,8 +513,11 @@ public class DefaultChannel implements Channel {
             for (Ingestion ingestion : mIngestions) {
                 ingestion.reopen();
             }
-            for (String groupName : mGroupStates.keySet()) {
-                checkPendingLogs(groupName);
+
+            /* Critical logs of the batches released by suspending are pending again. */
+            for (GroupState groupState : mGroupStates.values()) {
+                countPriorityLogs(groupState);
+                checkPendingLogs(groupState.mName);
             }
         } else {
             suspend(true, new CancellationException());
@@ -315,6 +545,11 @@ public class DefaultChannel implements Channel {
             return;
         }
         AppCenterLog.debug(LOG_TAG, "clear(" + groupName + ")");
+        GroupState groupState = mGroupStates.get(groupName);
+        synchronized (groupState) {
+            groupState.mIngress.drainTo(new ArrayList<Log>(), Integer.MAX_VALUE);
+            groupState.mLowIngress.drainTo(new ArrayList<Log>(), Integer.MAX_VALUE);
+        }
         mPersistence.deleteLogs(groupName);
 
         /* Call listeners so that they can react on group clearing. */
@@ -338,7 +573,11 @@ public class DefaultChannel implements Channel {
         mEnabled = false;
         mDiscardLogs = deleteLogs;
         mCurrentState++;
+        if (mCircuitBreakers != null) {
+            mCircuitBreakers.clear();
+        }
         for (GroupState groupState : mGroupStates.values()) {
+            flushPendingEnqueues(groupState);
             cancelTimer(groupState);
 
             /* Delete all other batches and call callback method that are currently in progress. */
@@ -346,6 +585,8 @@ public class DefaultChannel implements Channel {
                 Map.Entry<String, List<Log>> entry = iterator.next();
                 List<Log> removedLogsForBatchId = groupState.mSendingBatches.get(entry.getKey());
                 iterator.remove();
+                groupState.mSendingBatchSizes.remove(entry.getKey());
+                groupState.mSendingBatchStartTimes.remove(entry.getKey());
                 if (deleteLogs) {
                     GroupListener groupListener = groupState.mListener;
                     if (groupListener != null) {
@@ -388,6 +629,16 @@ public class DefaultChannel implements Channel {
         }
     }
 
+    /**
+     * Read the number of critical and low priority logs not being sent from persistence.
+     *
+     * @param groupState the group state.
+     */
+    private void countPriorityLogs(@NonNull GroupState groupState) {
+        groupState.mPendingCriticalLogCount = mPersistence.countLogs(groupState.mName, Flags.CRITICAL);
+        groupState.mPendingLowLogCount = mPersistence.countLogs(groupState.mName, Flags.LOW);
+    }
+
     @VisibleForTesting
     void cancelTimer(GroupState groupState) {
         if (groupState.mScheduled) {
@@ -407,120 +658,296 @@ public class DefaultChannel implements Channel {
      * It will also reset the counters for sending out items for both the number of items enqueued and
      * the handlers. It will do this even if we don't have reached the limit
      * of pending batches or the time interval.
+     * Runs on the App Center handler thread without holding the channel lock, so that reading logs from disk
+     * does not block enqueuing or the handling of sending results.
      *
      * @param groupName the group name
      */
-    private synchronized void triggerIngestion(final @NonNull String groupName) {
-        if (!mEnabled) {
-            return;
+    private void triggerIngestion(final @NonNull String groupName) {
+        GroupState groupState;
+        CircuitBreaker circuitBreaker;
+        boolean metered;
+        boolean criticalOnly = false;
+        int currentState;
+        List<GroupState> otherGroupStates = new ArrayList<>();
+        synchronized (this) {
+            if (!mEnabled) {
+                return;
+            }
+            groupState = mGroupStates.get(groupName);
+            if (groupState == null) {
+                return;
+            }
+
+            /* Wait until the circuit lets a probe through if the ingestion is failing. */
+            circuitBreaker = getCircuitBreaker(groupState.mIngestion);
+            if (circuitBreaker != null) {
+                long now = SystemClock.elapsedRealtime();
+                if (!circuitBreaker.isRequestAllowed(now)) {
+                    cancelTimer(groupState);
+
+                    /* When half open, the probe result checks pending logs again. */
+                    long remainingOpenTime = circuitBreaker.getRemainingOpenTime(now);
+                    if (remainingOpenTime > 0) {
+                        groupState.mScheduled = true;
+                        groupState.mLowPriorityScheduled = false;
+                        mAppCenterHandler.postDelayed(groupState.mRunnable, remainingOpenTime);
+                    }
+                    AppCenterLog.debug(LOG_TAG, "Circuit of " + groupName + " ingestion is open, skip sending.");
+                    return;
+                }
+            }
+
+            /* On metered networks, only critical logs are sent once the budget is spent. */
+            metered = mMeteredBudget != null && mNetworkStateHelper.isNetworkMetered();
+            if (metered) {
+                long now = System.currentTimeMillis();
+                if (!mMeteredBudget.hasRemaining(now)) {
+                    if (groupState.mPendingCriticalLogCount == 0) {
+                        cancelTimer(groupState);
+
+                        /* Without a renewal time, network changes check pending logs again. */
+                        long remainingPeriod = mMeteredBudget.getRemainingPeriod(now);
+                        if (remainingPeriod > 0) {
+                            groupState.mScheduled = true;
+                            groupState.mLowPriorityScheduled = false;
+                            mAppCenterHandler.postDelayed(groupState.mRunnable, remainingPeriod);
+                        }
+                        AppCenterLog.debug(LOG_TAG, "Metered network budget spent, holding logs of " + groupName + ".");
+                        return;
+                    }
+                    criticalOnly = true;
+                }
+            }
+            currentState = mCurrentState;
+
+            /* Add the logs of other groups using the same ingestion to the same request, a probe sends only one batch. */
+            boolean probe = circuitBreaker != null && circuitBreaker.getState() != CircuitBreaker.CLOSED;
+            if (mGroupCoalescing && !probe) {
+                for (GroupState otherGroupState : mGroupStates.values()) {
+                    int otherPendingLogCount = criticalOnly ? otherGroupState.mPendingCriticalLogCount : otherGroupState.mPendingLogCount;
+                    if (otherGroupState != groupState && otherGroupState.mIngestion == groupState.mIngestion && !otherGroupState.mPaused && otherPendingLogCount > 0) {
+                        otherGroupStates.add(otherGroupState);
+                    }
+                }
+            }
         }
-        final GroupState groupState = mGroupStates.get(groupName);
-        int pendingLogCount = groupState.mPendingLogCount;
-        int maxFetch = Math.min(pendingLogCount, groupState.mMaxLogsPerBatch);
-        AppCenterLog.debug(LOG_TAG, "triggerIngestion(" + groupName + ") pendingLogCount=" + pendingLogCount);
-        cancelTimer(groupState);
-
-        /* Check if we have reached the maximum number of pending batches, log to LogCat and don't trigger another sending. */
-        if (groupState.mSendingBatches.size() == groupState.mMaxParallelBatches) {
-            AppCenterLog.debug(LOG_TAG, "Already sending " + groupState.mMaxParallelBatches + " batches of analytics data to the server.");
+        Batch batch = prepareBatch(groupState, currentState, metered, criticalOnly);
+        if (batch == null) {
             return;
         }
+        List<Batch> batches = new ArrayList<>();
+        batches.add(batch);
+        for (GroupState otherGroupState : otherGroupStates) {
+            Batch otherBatch = prepareBatch(otherGroupState, currentState, metered, criticalOnly);
+            if (otherBatch != null) {
+                batches.add(otherBatch);
+            }
+        }
+        synchronized (this) {
 
-        /* Get a batch from Persistence. */
-        final List<Log> batch = new ArrayList<>(maxFetch);
-        final int stateSnapshot = mCurrentState;
-        final String batchId = mPersistence.getLogs(groupName, maxFetch, batch);
+            /* Charge the budget even if the request fails, the data was still used. Critical logs are not charged. */
+            if (metered && mMeteredBudget != null) {
+                long byteCount = 0;
+                for (Batch sentBatch : batches) {
+                    byteCount += sentBatch.mByteCount;
+                }
+                mMeteredBudget.onSent(byteCount, System.currentTimeMillis());
+            }
 
-        /* Decrement counter. */
-        groupState.mPendingLogCount -= maxFetch;
+            /* Network calls run on the SDK network executor, no need to go through the main looper. */
+            if (circuitBreaker != null) {
+                circuitBreaker.onRequestSent();
+            }
+            sendLogs(currentState, batches);
+        }
+    }
 
-        /* Nothing more to do if no logs. */
-        if (batchId == null) {
-            return;
+    /**
+     * Get the next batch of a group from persistence, update counters and remember the batch as being sent.
+     * Persistence is read under the group lock only, the channel lock is held before and after to update counters.
+     * Must not be called while holding the channel lock.
+     *
+     * @param groupState   the group state.
+     * @param currentState the channel state when ingestion was triggered.
+     * @param metered      true to measure the batch size for the metered budget.
+     * @param criticalOnly true to take only the critical logs, which are stored first.
+     * @return the batch or null if there is nothing to send, the group already sends its maximum of batches
+     * or the channel state changed.
+     */
+    @Nullable
+    private Batch prepareBatch(@NonNull GroupState groupState, int currentState, boolean metered, boolean criticalOnly) {
+        String groupName = groupState.mName;
+        int maxFetch;
+        boolean serializedLogsPassthrough;
+        boolean needLogs;
+        synchronized (this) {
+            if (!checkStateDidNotChange(groupState, currentState)) {
+                return null;
+            }
+            int pendingLogCount = criticalOnly ? groupState.mPendingCriticalLogCount : groupState.mPendingLogCount;
+            maxFetch = Math.min(pendingLogCount, groupState.getMaxLogsPerBatch());
+            AppCenterLog.debug(LOG_TAG, "triggerIngestion(" + groupName + ") pendingLogCount=" + pendingLogCount);
+            cancelTimer(groupState);
+
+            /* Check if we have reached the maximum number of pending batches, log to LogCat and don't trigger another sending. */
+            int maxParallelBatches = groupState.getMaxParallelBatches();
+            if (groupState.mSendingBatches.size() >= maxParallelBatches) {
+                AppCenterLog.debug(LOG_TAG, "Already sending " + maxParallelBatches + " batches of analytics data to the server.");
+                return null;
+            }
+
+            /*
+             * When sending stored payloads, logs are deserialized only if a group listener is registered
+             * or if the group uses an alternate ingestion, which reads logs to build its headers.
+             */
+            serializedLogsPassthrough = mSerializedLogsPassthrough;
+            needLogs = !serializedLogsPassthrough || groupState.mListener != null || groupState.mIngestion != mIngestion;
         }
-        AppCenterLog.debug(LOG_TAG, "ingestLogs(" + groupState.mName + "," + batchId + ") pendingLogCount=" + groupState.mPendingLogCount);
 
-        /* Call group listener before sending logs to ingestion service. */
-        if (groupState.mListener != null) {
-            for (Log log : batch) {
-                groupState.mListener.onBeforeSending(log);
+        /* Get a batch from Persistence. */
+        List<Log> batch = new ArrayList<>(maxFetch);
+        List<String> serializedBatch = serializedLogsPassthrough ? new ArrayList<String>(maxFetch) : null;
+        String batchId;
+        long byteCount = 0;
+        synchronized (groupState) {
+            if (groupState.mMaxBatchBytes > 0) {
+                batchId = mPersistence.getLogs(groupName, maxFetch, groupState.mMaxBatchBytes, needLogs ? batch : null, serializedBatch);
+            } else if (serializedBatch != null) {
+                batchId = mPersistence.getLogs(groupName, maxFetch, needLogs ? batch : null, serializedBatch);
+            } else {
+                batchId = mPersistence.getLogs(groupName, maxFetch, batch);
+            }
+
+            /* The size was measured in UTF-8 bytes when the logs were stored, critical logs are not part of the budget. */
+            if (metered && batchId != null) {
+                byteCount = mPersistence.getBatchByteCount(groupName, batchId) - mPersistence.getBatchCriticalByteCount(groupName, batchId);
             }
         }
+        synchronized (this) {
 
-        /* Remember this batch. */
-        groupState.mSendingBatches.put(batchId, batch);
+            /* Disabled or removed while reading, the logs will be read again. */
+            if (!checkStateDidNotChange(groupState, currentState)) {
+                if (batchId != null) {
+                    mPersistence.clearPendingLogState(groupName, batchId);
+                }
+                return null;
+            }
 
-        /*
-         * Due to bug on old Android versions (verified on 4.0.4),
-         * if we start an async task from here, i.e. the async handler thread,
-         * we end up with AsyncTask configured with the wrong Handler to use for onPostExecute
-         * instead of using main thread as advertised in Javadoc (and its a static field there).
-         *
-         * Our SDK guards against an application that would make a first async task in non UI
-         * thread before SDK is initialized, but we should also avoid corrupting AsyncTask
-         * with our wrong handler to avoid creating bugs in the application code since we are
-         * a library.
-         *
-         * So make sure we execute the async task from UI thread to avoid any issue.
-         */
-        HandlerUtils.runOnUiThread(new Runnable() {
+            /* Decrement counter, a batch cut by size leaves the remaining logs pending. */
+            int batchSize = serializedBatch == null ? batch.size() : serializedBatch.size();
+            if (groupState.mMaxBatchBytes > 0 && batchId != null) {
+                groupState.mPendingLogCount -= batchSize;
+            } else {
+                groupState.mPendingLogCount -= maxFetch;
+            }
 
-            @Override
-            public void run() {
-                sendLogs(groupState, stateSnapshot, batch, batchId);
+            /* Critical logs are selected first. */
+            groupState.mPendingCriticalLogCount = batchId == null ? 0 : Math.max(0, groupState.mPendingCriticalLogCount - batchSize);
+
+            /* Low priority logs are selected last. */
+            groupState.mPendingLowLogCount = Math.min(groupState.mPendingLowLogCount, Math.max(0, groupState.mPendingLogCount));
+
+            /* Nothing more to do if no logs. */
+            if (batchId == null) {
+                return null;
             }
-        });
+            AppCenterLog.debug(LOG_TAG, "ingestLogs(" + groupState.mName + "," + batchId + ") pendingLogCount=" + groupState.mPendingLogCount);
+
+            /* Call group listener before sending logs to ingestion service. */
+            if (groupState.mListener != null) {
+                for (Log log : batch) {
+                    groupState.mListener.onBeforeSending(log);
+                }
+            }
+
+            /* Remember this batch. */
+            groupState.mSendingBatches.put(batchId, batch);
+            groupState.mSendingBatchSizes.put(batchId, batchSize);
+        }
+        return new Batch(groupState, batchId, batch, serializedBatch, byteCount);
     }
 
     /**
-     * Send logs.
+     * Send batches in a single request, all batches use the same ingestion.
+     * The result of the request is then handled for each batch in its own group.
      *
-     * @param groupState   The group state.
      * @param currentState The current state.
-     * @param batch        The log batch.
-     * @param batchId      The batch ID.
+     * @param batches      The batches.
      */
-    @MainThread
-    private synchronized void sendLogs(final GroupState groupState, final int currentState, List<Log> batch, final String batchId) {
-        if (checkStateDidNotChange(groupState, currentState)) {
-
-            /* Send logs. */
-            LogContainer logContainer = new LogContainer();
-            logContainer.setLogs(batch);
-            groupState.mIngestion.sendAsync(mAppSecret, mInstallId, logContainer, new ServiceCallback() {
+    private synchronized void sendLogs(final int currentState, List<Batch> batches) {
+
+        /* Skip batches of groups that were removed since. */
+        final List<Batch> sendingBatches = new ArrayList<>(batches.size());
+        List<Log> logs = new ArrayList<>();
+        List<String> serializedLogs = null;
+        long startTime = SystemClock.elapsedRealtime();
+        for (Batch batch : batches) {
+            if (checkStateDidNotChange(batch.mGroupState, currentState)) {
+                sendingBatches.add(batch);
+                logs.addAll(batch.mLogs);
+                if (batch.mSerializedLogs != null) {
+                    if (serializedLogs == null) {
+                        serializedLogs = new ArrayList<>();
+                    }
+                    serializedLogs.addAll(batch.mSerializedLogs);
+                }
+                batch.mGroupState.mSendingBatchStartTimes.put(batch.mBatchId, startTime);
+            }
+        }
+        if (sendingBatches.isEmpty()) {
+            return;
+        }
+        if (sendingBatches.size() > 1) {
+            AppCenterLog.debug(LOG_TAG, "Sending " + sendingBatches.size() + " groups in a single request.");
+        }
 
-                @Override
-                public void onCallSucceeded(String payload) {
-                    mAppCenterHandler.post(new Runnable() {
+        /* Send logs. */
+        LogContainer logContainer = new LogContainer();
+        logContainer.setLogs(logs);
+        logContainer.setSerializedLogs(serializedLogs);
+        final Ingestion ingestion = sendingBatches.get(0).mGroupState.mIngestion;
+        ingestion.sendAsync(mAppSecret, mInstallId, logContainer, new ServiceCallback() {
 
-                        @Override
-                        public void run() {
-                            handleSendingSuccess(groupState, currentState, batchId);
+            @Override
+            public void onCallSucceeded(String payload) {
+                mAppCenterHandler.post(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        handleCircuitBreaker(ingestion, currentState, null);
+                        for (Batch batch : sendingBatches) {
+                            handleSendingSuccess(batch.mGroupState, currentState, batch.mBatchId);
                         }
-                    });
-                }
-
-                @Override
-                public void onCallFailed(final Exception e) {
-                    mAppCenterHandler.post(new Runnable() {
+                    }
+                });
+            }
 
-                        @Override
-                        public void run() {
-                            handleSendingFailure(groupState, currentState, batchId, e);
+            @Override
+            public void onCallFailed(final Exception e) {
+                mAppCenterHandler.post(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        handleCircuitBreaker(ingestion, currentState, e);
+                        for (Batch batch : sendingBatches) {
+                            handleSendingFailure(batch.mGroupState, currentState, batch.mBatchId, e);
                         }
-                    });
-                }
-            });
+                    }
+                });
+            }
+        });
 
-            /* Check for more pending logs. */
-            mAppCenterHandler.post(new Runnable() {
+        /* Check for more pending logs. */
+        mAppCenterHandler.post(new Runnable() {
 
-                @Override
-                public void run() {
-                    checkPendingLogsAfterPost(groupState, currentState);
+            @Override
+            public void run() {
+                for (Batch batch : sendingBatches) {
+                    checkPendingLogsAfterPost(batch.mGroupState, currentState);
                 }
-            });
-        }
+            }
+        });
     }
 
     private void checkPendingLogsAfterPost(@NonNull final GroupState groupState, int currentState) {
@@ -529,18 +956,65 @@ public class DefaultChannel implements Channel {
         }
     }
 
+    /**
+     * Update the circuit breaker of an ingestion with the result of a request.
+     * When the circuit closes again, the other groups of the ingestion resume sending.
+     *
+     * @param ingestion    the ingestion that sent the request.
+     * @param currentState the current state.
+     * @param e            the error, null if the request succeeded.
+     */
+    private synchronized void handleCircuitBreaker(@NonNull Ingestion ingestion, int currentState, @Nullable Exception e) {
+        if (currentState != mCurrentState) {
+            return;
+        }
+        CircuitBreaker circuitBreaker = getCircuitBreaker(ingestion);
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (e != null) {
+            circuitBreaker.onFailure(SystemClock.elapsedRealtime());
+            return;
+        }
+        boolean wasOpen = circuitBreaker.getState() != CircuitBreaker.CLOSED;
+        circuitBreaker.onSuccess();
+        if (wasOpen) {
+            for (GroupState groupState : mGroupStates.values()) {
+                if (groupState.mIngestion == ingestion) {
+                    checkPendingLogs(groupState.mName);
+                }
+            }
+        }
+    }
+
     /**
      * The actual implementation to react to sending a batch to the server successfully.
+     * Logs are deleted under the group lock only, the channel lock is held afterwards to update the batches being sent.
      *
      * @param groupState   The group state.
      * @param currentState The current state.
      * @param batchId      The batch ID.
      */
-    private synchronized void handleSendingSuccess(@NonNull final GroupState groupState, int currentState, @NonNull final String batchId) {
-        if (checkStateDidNotChange(groupState, currentState)) {
-            String groupName = groupState.mName;
+    private void handleSendingSuccess(@NonNull final GroupState groupState, int currentState, @NonNull final String batchId) {
+        if (!checkStateDidNotChange(groupState, currentState)) {
+            return;
+        }
+
+        /* Delete the logs under the group lock only. */
+        String groupName = groupState.mName;
+        synchronized (groupState) {
             mPersistence.deleteLogs(groupName, batchId);
+        }
+        synchronized (this) {
+            if (!checkStateDidNotChange(groupState, currentState)) {
+                return;
+            }
             List<Log> removedLogsForBatchId = groupState.mSendingBatches.remove(batchId);
+            groupState.mSendingBatchSizes.remove(batchId);
+            Long startTime = groupState.mSendingBatchStartTimes.remove(batchId);
+            if (groupState.mAdaptiveBatchController != null && startTime != null) {
+                groupState.mAdaptiveBatchController.onSuccess(SystemClock.elapsedRealtime() - startTime);
+            }
             GroupListener groupListener = groupState.mListener;
             if (groupListener != null) {
                 for (Log log : removedLogsForBatchId) {
@@ -555,6 +1029,7 @@ public class DefaultChannel implements Channel {
      * The actual implementation to react to not being able to send a batch to the server.
      * Will disable the sender in case of a recoverable error.
      * Will delete batch of data in case of a non-recoverable error.
+     * With circuit breakers, a recoverable error only releases the failed batch and the channel stays enabled.
      *
      * @param groupState   the group state
      * @param currentState the current state
@@ -566,9 +1041,16 @@ public class DefaultChannel implements Channel {
             String groupName = groupState.mName;
             AppCenterLog.error(LOG_TAG, "Sending logs groupName=" + groupName + " id=" + batchId + " failed", e);
             List<Log> removedLogsForBatchId = groupState.mSendingBatches.remove(batchId);
+            Integer batchSize = groupState.mSendingBatchSizes.remove(batchId);
+            groupState.mSendingBatchStartTimes.remove(batchId);
             boolean recoverableError = HttpUtils.isRecoverableError(e);
             if (recoverableError) {
-                groupState.mPendingLogCount += removedLogsForBatchId.size();
+                if (batchSize != null) {
+                    groupState.mPendingLogCount += batchSize;
+                }
+                if (groupState.mAdaptiveBatchController != null) {
+                    groupState.mAdaptiveBatchController.onFailure();
+                }
             } else {
                 GroupListener groupListener = groupState.mListener;
                 if (groupListener != null) {
@@ -577,18 +1059,42 @@ public class DefaultChannel implements Channel {
                     }
                 }
             }
-            suspend(!recoverableError, e);
+            if (mCircuitBreakers != null && recoverableError) {
+
+                /* Count the released critical logs again so that the retry does not wait for the timer. */
+                mPersistence.clearPendingLogState(groupName, batchId);
+                countPriorityLogs(groupState);
+                checkPendingLogs(groupName);
+            } else {
+                suspend(!recoverableError, e);
+            }
         }
     }
 
+    /**
+     * Enqueue a log with the flags set for its type.
+     *
+     * @param log       the Log to be enqueued
+     * @param groupName the queue to use
+     */
+    @Override
+    public void enqueue(@NonNull Log log, @NonNull final String groupName) {
+        String type = log.getType();
+        Integer flags = type == null ? null : mLogTypeFlags.get(type);
+        enqueue(log, groupName, flags == null ? Flags.DEFAULTS : flags);
+    }
+
     /**
      * Actual implementation of enqueue logic. Will increase counters, triggers of batching logic.
+     * No lock is taken: normal logs are written to the group ring buffer, which is drained
+     * in batches to persistence on the App Center thread.
      *
      * @param log       the Log to be enqueued
      * @param groupName the queue to use
+     * @param flags     the log flags
      */
     @Override
-    public synchronized void enqueue(@NonNull Log log, @NonNull final String groupName) {
+    public void enqueue(@NonNull Log log, @NonNull final String groupName, int flags) {
 
         /* Check group name is registered. */
         final GroupState groupState = mGroupStates.get(groupName);
@@ -614,19 +1120,13 @@ public class DefaultChannel implements Channel {
 
         /* Attach device properties to every log if its not already attached by a service. */
         if (log.getDevice() == null) {
-
-            /* Generate device properties only once per process life time. */
-            if (mDevice == null) {
-                try {
-                    mDevice = DeviceInfoHelper.getDeviceInfo(mContext);
-                } catch (DeviceInfoHelper.DeviceInfoException e) {
-                    AppCenterLog.error(LOG_TAG, "Device log cannot be generated", e);
-                    return;
-                }
+            Device device = getDevice();
+            if (device == null) {
+                return;
             }
 
             /* Attach device properties. */
-            log.setDevice(mDevice);
+            log.setDevice(device);
         }
 
         /* Set date to current if not explicitly set in the past by a module (such as a crash). */
@@ -648,29 +1148,214 @@ public class DefaultChannel implements Channel {
         /* If filtered out, nothing more to do. */
         if (filteredOut) {
             AppCenterLog.debug(LOG_TAG, "Log of type '" + log.getType() + "' was filtered out by listener(s)");
-        } else {
-            if (mAppSecret == null && groupState.mIngestion == mIngestion) {
+            return;
+        }
+        if (mAppSecret == null && groupState.mIngestion == mIngestion) {
 
-                /* Log was not filtered out but no app secret has been provided. Do nothing in this case. */
-                AppCenterLog.debug(LOG_TAG, "Log of type '" + log.getType() + "' was not filtered out by listener(s) but no app secret was provided. Not persisting/sending the log.");
-                return;
+            /* Log was not filtered out but no app secret has been provided. Do nothing in this case. */
+            AppCenterLog.debug(LOG_TAG, "Log of type '" + log.getType() + "' was not filtered out by listener(s) but no app secret was provided. Not persisting/sending the log.");
+            return;
+        }
+
+        /* Critical logs do not wait for other logs. */
+        if (Flags.getPriority(flags) == Flags.CRITICAL) {
+            persistCriticalLog(groupState, log);
+            return;
+        }
+
+        /*
+         * Persist log if not filtered out. Logs enqueued in a burst are held until the
+         * App Center thread processed the other pending messages (or the enqueue window expires)
+         * so that they share a single database transaction.
+         */
+        LogRingBuffer ingress = Flags.getPriority(flags) == Flags.LOW ? groupState.mLowIngress : groupState.mIngress;
+        if (!offer(groupState, ingress, log)) {
+            return;
+        }
+
+        /* Only the first log of a burst posts the drain. */
+        if (groupState.mFlushScheduled.compareAndSet(false, true)) {
+            long enqueueWindow = mEnqueueWindow;
+            boolean posted;
+            if (enqueueWindow > 0) {
+                posted = mAppCenterHandler.postDelayed(groupState.mFlushRunnable, enqueueWindow);
+            } else {
+                posted = mAppCenterHandler.post(groupState.mFlushRunnable);
             }
 
-            /* Persist log if not filtered out. */
-            try {
+            /* Persist now if the looper is not accepting messages anymore. */
+            if (!posted) {
+                flushPendingEnqueues(groupState);
+            }
+        }
+    }
 
-                /* Increment counters and schedule ingestion if we are enabled. */
-                mPersistence.putLog(groupName, log);
-                groupState.mPendingLogCount++;
-                AppCenterLog.debug(LOG_TAG, "enqueue(" + groupState.mName + ") pendingLogCount=" + groupState.mPendingLogCount);
-                if (mEnabled) {
-                    checkPendingLogs(groupState.mName);
-                } else {
-                    AppCenterLog.warn(LOG_TAG, "Channel is temporarily disabled, log was saved to disk.");
-                }
+    /**
+     * Write a log to the group ring buffer, applying the overflow policy if it is full.
+     *
+     * @param groupState the group state.
+     * @param log        the log.
+     * @return false if the log was dropped.
+     */
+    private boolean offer(@NonNull GroupState groupState, @NonNull LogRingBuffer ingress, @NonNull Log log) {
+        while (!ingress.offer(log)) {
+
+            /*
+             * The App Center thread is the one draining: when logs are enqueued from it, the drain
+             * waits behind them, so persist the buffer now rather than dropping logs or waiting forever.
+             */
+            if (Looper.myLooper() == mAppCenterHandler.getLooper()) {
+                flushPendingEnqueues(groupState);
+                continue;
+            }
+            switch (mOverflowPolicy) {
+
+                case OverflowPolicy.DROP_NEWEST:
+                    onLogDropped(groupState, log);
+                    return false;
+
+                case OverflowPolicy.BLOCK:
+                    try {
+                        ingress.awaitDrain(OVERFLOW_WAIT_TIME);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        onLogDropped(groupState, log);
+                        return false;
+                    }
+                    break;
+
+                default:
+                    Log oldestLog = ingress.poll();
+                    if (oldestLog != null) {
+                        onLogDropped(groupState, oldestLog);
+                    }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Count a log dropped by the overflow policy and notify the group listener.
+     *
+     * @param groupState the group state.
+     * @param log        the dropped log.
+     */
+    private void onLogDropped(@NonNull GroupState groupState, @NonNull Log log) {
+        long droppedLogCount = groupState.mDroppedLogCount.incrementAndGet();
+        AppCenterLog.warn(LOG_TAG, "Buffer of " + groupState.mName + " is full, dropped log of type '" + log.getType() + "', dropped count=" + droppedLogCount);
+        if (groupState.mListener != null) {
+            groupState.mListener.onBeforeSending(log);
+            groupState.mListener.onFailure(log, new LogDroppedException());
+        }
+    }
+
+    /**
+     * Persist a critical log right away and trigger ingestion.
+     *
+     * @param groupState the group state.
+     * @param log        the log.
+     */
+    private void persistCriticalLog(@NonNull GroupState groupState, @NonNull Log log) {
+        synchronized (groupState) {
+            try {
+                mPersistence.putLog(groupState.mName, log, Flags.CRITICAL);
             } catch (Persistence.PersistenceException e) {
                 AppCenterLog.error(LOG_TAG, "Error persisting log with exception: " + e.toString());
+                return;
+            }
+        }
+        onLogsPersisted(groupState, 1, Flags.CRITICAL);
+    }
+
+    /**
+     * Get device properties, generating them only once per process life time.
+     *
+     * @return device properties or null if they cannot be generated.
+     */
+    private Device getDevice() {
+        Device device = mDevice;
+        if (device == null) {
+            synchronized (this) {
+                if (mDevice == null) {
+                    try {
+                        mDevice = DeviceInfoHelper.getDeviceInfo(mContext);
+                    } catch (DeviceInfoHelper.DeviceInfoException e) {
+                        AppCenterLog.error(LOG_TAG, "Device log cannot be generated", e);
+                    }
+                }
+                device = mDevice;
+            }
+        }
+        return device;
+    }
+
+    /**
+     * Persist logs held by {@link #enqueue}, increase counters and trigger batching logic.
+     * Logs are persisted under the group lock only, the channel lock is held just to update counters.
+     * Must not be called while holding the group lock as it takes the channel lock afterwards.
+     *
+     * @param groupState the group state.
+     */
+    private void flushPendingEnqueues(@NonNull GroupState groupState) {
+        String groupName = groupState.mName;
+        int storedCount;
+        int storedLowCount;
+        synchronized (groupState) {
+
+            /* Logs written after this point post another drain. */
+            groupState.mFlushScheduled.set(false);
+            List<Log> logs = new ArrayList<>();
+            List<Log> lowLogs = new ArrayList<>();
+            groupState.mIngress.drainTo(logs, groupState.mIngress.capacity());
+            groupState.mLowIngress.drainTo(lowLogs, groupState.mLowIngress.capacity());
+            if (logs.isEmpty() && lowLogs.isEmpty()) {
+                return;
+            }
+            storedLowCount = lowLogs.isEmpty() ? 0 : mPersistence.putLogs(groupName, lowLogs, Flags.LOW).size();
+            if (logs.isEmpty()) {
+                storedCount = 0;
+            } else if (logs.size() == 1) {
+                try {
+                    mPersistence.putLog(groupName, logs.get(0));
+                    storedCount = 1;
+                } catch (Persistence.PersistenceException e) {
+                    AppCenterLog.error(LOG_TAG, "Error persisting log with exception: " + e.toString());
+                    storedCount = 0;
+                }
+            } else {
+                storedCount = mPersistence.putLogs(groupName, logs).size();
+            }
+        }
+        if (storedLowCount > 0) {
+            onLogsPersisted(groupState, storedLowCount, Flags.LOW);
+        }
+        if (storedCount > 0) {
+            onLogsPersisted(groupState, storedCount, Flags.NORMAL);
+        }
+    }
+
+    /**
+     * Increment counters and schedule ingestion if we are enabled.
+     *
+     * @param groupState the group state.
+     * @param count      number of logs persisted.
+     * @param priority   priority lane of the logs.
+     */
+    private synchronized void onLogsPersisted(@NonNull GroupState groupState, int count, int priority) {
+        String groupName = groupState.mName;
+        groupState.mPendingLogCount += count;
+        if (priority == Flags.CRITICAL) {
+            groupState.mPendingCriticalLogCount += count;
+        } else if (priority == Flags.LOW) {
+            groupState.mPendingLowLogCount += count;
+        }
+        AppCenterLog.debug(LOG_TAG, "enqueue(" + groupName + ") pendingLogCount=" + groupState.mPendingLogCount);
+        if (mEnabled) {
+            if (groupState == mGroupStates.get(groupName)) {
+                checkPendingLogs(groupName);
             }
+        } else {
+            AppCenterLog.warn(LOG_TAG, "Channel is temporarily disabled, log was saved to disk.");
         }
     }
 
@@ -688,11 +1373,45 @@ public class DefaultChannel implements Channel {
         }
         long pendingLogCount = groupState.mPendingLogCount;
         AppCenterLog.debug(LOG_TAG, "checkPendingLogs(" + groupName + ") pendingLogCount=" + pendingLogCount);
-        if (pendingLogCount >= groupState.mMaxLogsPerBatch) {
-            triggerIngestion(groupName);
-        } else if (pendingLogCount > 0 && !groupState.mScheduled) {
+        if (pendingLogCount >= groupState.getMaxLogsPerBatch() || groupState.mPendingCriticalLogCount > 0) {
+
+            /* Trigger outside of the channel lock held by callers, replacing any scheduled timer. */
+            cancelTimer(groupState);
             groupState.mScheduled = true;
-            mAppCenterHandler.postDelayed(groupState.mRunnable, groupState.mBatchTimeInterval);
+            groupState.mLowPriorityScheduled = false;
+            mAppCenterHandler.post(groupState.mRunnable);
+        } else if (pendingLogCount > 0) {
+
+            /* Low priority logs alone wait longer, other logs do not wait for their timer. */
+            boolean lowPriorityOnly = groupState.mPendingLowLogCount >= pendingLogCount;
+            if (groupState.mScheduled && groupState.mLowPriorityScheduled && !lowPriorityOnly) {
+                cancelTimer(groupState);
+            }
+            if (!groupState.mScheduled) {
+                groupState.mScheduled = true;
+                groupState.mLowPriorityScheduled = lowPriorityOnly;
+                long batchTimeInterval = groupState.getBatchTimeInterval();
+                if (lowPriorityOnly) {
+                    batchTimeInterval *= LOW_PRIORITY_INTERVAL_FACTOR;
+                }
+                mAppCenterHandler.postDelayed(groupState.mRunnable, batchTimeInterval);
+            }
+        }
+    }
+
+    /**
+     * Check pending logs of all groups that can send.
+     */
+    private synchronized void checkAllPendingLogs() {
+        if (!mEnabled) {
+            return;
+        }
+        for (GroupState groupState : mGroupStates.values()) {
+
+            /* Groups using default ingestion wait for the app secret. */
+            if (mAppSecret != null || groupState.mIngestion != mIngestion) {
+                checkPendingLogs(groupState.mName);
+            }
         }
     }
 
@@ -713,6 +1432,8 @@ public class DefaultChannel implements Channel {
 
     @Override
     public synchronized void shutdown() {
+
+        /* Suspending persists the logs that are still held in memory. */
         suspend(false, new CancellationException());
     }
 
@@ -732,6 +1453,11 @@ public class DefaultChannel implements Channel {
          */
         final int mMaxLogsPerBatch;
 
+        /**
+         * Target batch size in bytes of stored payloads, 0 if batches are cut by log count only.
+         */
+        final long mMaxBatchBytes;
+
         /**
          * Time to wait before 2 batches, in ms.
          */
@@ -747,6 +1473,21 @@ public class DefaultChannel implements Channel {
          */
         final Map<String, List<Log>> mSendingBatches = new HashMap<>();
 
+        /**
+         * Number of logs in each batch being currently sent, logs may not be deserialized.
+         */
+        final Map<String, Integer> mSendingBatchSizes = new HashMap<>();
+
+        /**
+         * Time when each batch being currently sent was handed to ingestion.
+         */
+        final Map<String, Long> mSendingBatchStartTimes = new HashMap<>();
+
+        /**
+         * Adapts batching to upload latency, null if the static settings are used.
+         */
+        AdaptiveBatchController mAdaptiveBatchController;
+
         /**
          * Ingestion for the group state.
          */
@@ -762,19 +1503,65 @@ public class DefaultChannel implements Channel {
          */
         int mPendingLogCount;
 
+        /**
+         * Pending critical log count not part of a batch yet, sent without waiting for the timer.
+         */
+        int mPendingCriticalLogCount;
+
+        /**
+         * Pending low priority log count not part of a batch yet, sent after the other logs.
+         */
+        int mPendingLowLogCount;
+
         /**
          * Is timer scheduled.
          */
         boolean mScheduled;
 
+        /**
+         * Is the timer scheduled with the longer interval of low priority logs.
+         */
+        boolean mLowPriorityScheduled;
+
         /**
          * Indicates if the group is paused.
          */
         boolean mPaused;
 
+        /**
+         * Logs enqueued but not persisted yet.
+         */
+        final LogRingBuffer mIngress = new LogRingBuffer(INGRESS_CAPACITY);
+
+        /**
+         * Low priority logs enqueued but not persisted yet.
+         */
+        final LogRingBuffer mLowIngress = new LogRingBuffer(INGRESS_CAPACITY);
+
+        /**
+         * Is persisting enqueued logs scheduled.
+         */
+        final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+
+        /**
+         * Number of logs dropped because the buffer was full.
+         */
+        final AtomicLong mDroppedLogCount = new AtomicLong();
+
+        /**
+         * Runnable that persists enqueued logs in a single transaction.
+         */
+        final Runnable mFlushRunnable = new Runnable() {
+
+            @Override
+            public void run() {
+                flushPendingEnqueues(GroupState.this);
+            }
+        };
+
         /**
          * Runnable that triggers ingestion of this group data
-         * and triggers itself in {@link #mBatchTimeInterval} ms.
+         * and triggers itself in {@link #getBatchTimeInterval()} ms.
          */
         final Runnable mRunnable = new Runnable() {
 
@@ -790,18 +1577,104 @@ public class DefaultChannel implements Channel {
          *
          * @param name               group name.
          * @param maxLogsPerBatch    max batch size.
+         * @param maxBatchBytes      target batch size in bytes, 0 for no limit.
          * @param batchTimeInterval  batch interval in ms.
          * @param maxParallelBatches max number of parallel batches.
          * @param ingestion          ingestion for the group state.
          * @param listener           listener for a service.
          */
-        GroupState(String name, int maxLogsPerBatch, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener listener) {
+        GroupState(String name, int maxLogsPerBatch, long maxBatchBytes, long batchTimeInterval, int maxParallelBatches, Ingestion ingestion, GroupListener listener) {
             mName = name;
             mMaxLogsPerBatch = maxLogsPerBatch;
+            mMaxBatchBytes = maxBatchBytes;
             mBatchTimeInterval = batchTimeInterval;
             mMaxParallelBatches = maxParallelBatches;
             mIngestion = ingestion;
             mListener = listener;
         }
+
+        /**
+         * Create an adaptive controller starting from the group settings.
+         *
+         * @return a new controller.
+         */
+        AdaptiveBatchController newAdaptiveBatchController() {
+            return new AdaptiveBatchController(mMaxLogsPerBatch, mBatchTimeInterval, mMaxParallelBatches);
+        }
+
+        /**
+         * Get the current maximum log count per batch.
+         *
+         * @return log count per batch.
+         */
+        int getMaxLogsPerBatch() {
+            return mAdaptiveBatchController == null ? mMaxLogsPerBatch : mAdaptiveBatchController.getMaxLogsPerBatch();
+        }
+
+        /**
+         * Get the current time to wait before 2 batches.
+         *
+         * @return batch interval in ms.
+         */
+        long getBatchTimeInterval() {
+            return mAdaptiveBatchController == null ? mBatchTimeInterval : mAdaptiveBatchController.getBatchTimeInterval();
+        }
+
+        /**
+         * Get the current maximum number of batches in parallel.
+         *
+         * @return max number of parallel batches.
+         */
+        int getMaxParallelBatches() {
+            return mAdaptiveBatchController == null ? mMaxParallelBatches : mAdaptiveBatchController.getMaxParallelBatches();
+        }
+    }
+
+    /**
+     * Batch of a group being sent, possibly in the same request as batches of other groups.
+     */
+    private static class Batch {
+
+        /**
+         * Group of the logs.
+         */
+        final GroupState mGroupState;
+
+        /**
+         * Batch identifier in persistence.
+         */
+        final String mBatchId;
+
+        /**
+         * Logs, may be empty if sending stored payloads.
+         */
+        final List<Log> mLogs;
+
+        /**
+         * Stored JSON payloads, null to serialize logs.
+         */
+        final List<String> mSerializedLogs;
+
+        /**
+         * Size of the stored payloads of non critical logs in UTF-8 bytes, 0 if not measured.
+         */
+        final long mByteCount;
+
+        /**
+         * Init.
+         *
+         * @param groupState     group of the logs.
+         * @param batchId        batch identifier in persistence.
+         * @param logs           logs.
+         * @param serializedLogs stored JSON payloads or null.
+         * @param byteCount      size of the stored payloads of non critical logs in UTF-8 bytes, 0 if not measured.
+         */
+        Batch(GroupState groupState, String batchId, List<Log> logs, List<String> serializedLogs, long byteCount) {
+            mGroupState = groupState;
+            mBatchId = batchId;
+            mLogs = logs;
+            mSerializedLogs = serializedLogs;
+            mByteCount = byteCount;
+        }
     }
 }
@@ -0,0 +1,11 @@
+package com.microsoft.appcenter.channel;
+
+/**
+ * Reported to group listeners when a log is dropped by the {@link OverflowPolicy} of the channel.
+ */
+public class LogDroppedException extends Exception {
+
+    public LogDroppedException() {
+        super("Log dropped because the channel buffer is full.");
+    }
+}
@@ -0,0 +1,207 @@
+package com.microsoft.appcenter.channel;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.appcenter.ingestion.models.Log;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded queue of logs that many threads can write without locks.
+ * Each slot has a sequence number telling whether it can be written or read for a given position,
+ * so that producers only compete on a compare and set of the write position.
+ * Logs are read by the channel thread, but reading is also safe from producers,
+ * which is used to drop the oldest logs when the buffer is full.
+ */
+class LogRingBuffer {
+
+    /**
+     * Slots.
+     */
+    private final AtomicReferenceArray<Log> mLogs;
+
+    /**
+     * Sequence number of each slot.
+     */
+    private final AtomicLongArray mSequences;
+
+    /**
+     * Mask to compute the slot index of a position.
+     */
+    private final int mMask;
+
+    /**
+     * Next position to write.
+     */
+    private final AtomicLong mWritePosition = new AtomicLong();
+
+    /**
+     * Next position to read.
+     */
+    private final AtomicLong mReadPosition = new AtomicLong();
+
+    /**
+     * Number of threads waiting for free space.
+     */
+    private final AtomicInteger mWaitingWriters = new AtomicInteger();
+
+    /**
+     * Init.
+     *
+     * @param capacity minimum capacity, rounded up to a power of 2.
+     */
+    LogRingBuffer(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mLogs = new AtomicReferenceArray<>(size);
+        mSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            mSequences.set(i, i);
+        }
+        mMask = size - 1;
+    }
+
+    /**
+     * Get the number of logs the buffer can hold.
+     *
+     * @return capacity.
+     */
+    int capacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Add a log if there is free space.
+     *
+     * @param log log to add.
+     * @return true if added, false if the buffer is full.
+     */
+    boolean offer(@NonNull Log log) {
+        long position = mWritePosition.get();
+        while (true) {
+            int index = (int) (position & mMask);
+            long difference = mSequences.get(index) - position;
+            if (difference == 0) {
+                if (mWritePosition.compareAndSet(position, position + 1)) {
+                    mLogs.set(index, log);
+
+                    /* Publish the log to readers. */
+                    mSequences.set(index, position + 1);
+                    return true;
+                }
+                position = mWritePosition.get();
+            } else if (difference < 0) {
+
+                /* The slot still holds the log written one lap before. */
+                return false;
+            } else {
+
+                /* Another writer took this position. */
+                position = mWritePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest log.
+     *
+     * @return the oldest log or null if the buffer is empty.
+     */
+    @Nullable
+    Log poll() {
+        long position = mReadPosition.get();
+        while (true) {
+            int index = (int) (position & mMask);
+            long difference = mSequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (mReadPosition.compareAndSet(position, position + 1)) {
+                    Log log = mLogs.get(index);
+                    mLogs.set(index, null);
+
+                    /* Release the slot for the next lap of writers. */
+                    mSequences.set(index, position + mMask + 1);
+                    return log;
+                }
+                position = mReadPosition.get();
+            } else if (difference < 0) {
+
+                /* Empty, or the writer of this position did not publish yet. */
+                return null;
+            } else {
+
+                /* Another reader took this position. */
+                position = mReadPosition.get();
+            }
+        }
+    }
+
+    /**
+     * Move logs to a list, oldest first.
+     *
+     * @param logs     list to add logs to.
+     * @param maxCount maximum number of logs to move.
+     * @return number of logs moved.
+     */
+    int drainTo(@NonNull List<Log> logs, int maxCount) {
+        int count = 0;
+        Log log;
+        while (count < maxCount && (log = poll()) != null) {
+            logs.add(log);
+            count++;
+        }
+        if (count > 0 && mWaitingWriters.get() > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check if the buffer has no log to read.
+     *
+     * @return true if empty.
+     */
+    boolean isEmpty() {
+        long position = mReadPosition.get();
+        return mSequences.get((int) (position & mMask)) - (position + 1) < 0;
+    }
+
+    /**
+     * Check if the buffer has no free slot.
+     *
+     * @return true if full.
+     */
+    private boolean isFull() {
+        long position = mWritePosition.get();
+        return mSequences.get((int) (position & mMask)) - position < 0;
+    }
+
+    /**
+     * Wait until logs are drained or the timeout expires. This is the only blocking operation.
+     *
+     * @param timeout maximum time to wait in milliseconds.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    void awaitDrain(long timeout) throws InterruptedException {
+        mWaitingWriters.incrementAndGet();
+        try {
+            synchronized (this) {
+
+                /* Checking under the monitor avoids missing the notification of a drain. */
+                if (isFull()) {
+                    wait(timeout);
+                }
+            }
+        } finally {
+            mWaitingWriters.decrementAndGet();
+        }
+    }
+}
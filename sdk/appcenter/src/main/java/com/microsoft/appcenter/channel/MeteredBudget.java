@@ -0,0 +1,130 @@
+package com.microsoft.appcenter.channel;
+
+import com.microsoft.appcenter.NetworkPolicy;
+import com.microsoft.appcenter.utils.storage.StorageHelper.PreferencesStorage;
+
+/**
+ * Bytes sent on metered networks during the current period of a {@link NetworkPolicy}.
+ * Times are wall clock times. The budget is saved in preferences so that restarting the
+ * process does not start a new period.
+ */
+public class MeteredBudget {
+
+    /**
+     * Preference key of the start time of the current period.
+     */
+    private static final String PREFERENCE_KEY_PERIOD_START_TIME = "MeteredBudget.period_start_time";
+
+    /**
+     * Preference key of the bytes sent during the current period.
+     */
+    private static final String PREFERENCE_KEY_BYTES_SENT = "MeteredBudget.bytes_sent";
+
+    /**
+     * Bytes that can be sent per period.
+     */
+    private final long mByteBudget;
+
+    /**
+     * Period duration in milliseconds.
+     */
+    private final long mPeriod;
+
+    /**
+     * Start time of the current period, -1 before the first byte is sent.
+     */
+    private long mPeriodStartTime;
+
+    /**
+     * Bytes sent during the current period.
+     */
+    private long mBytesSent;
+
+    /**
+     * Init.
+     *
+     * @param policy network policy with a limited budget.
+     */
+    MeteredBudget(NetworkPolicy policy) {
+        mByteBudget = policy.getMeteredByteBudget();
+        mPeriod = policy.getBudgetPeriod();
+        mPeriodStartTime = PreferencesStorage.getLong(PREFERENCE_KEY_PERIOD_START_TIME, -1);
+        mBytesSent = PreferencesStorage.getLong(PREFERENCE_KEY_BYTES_SENT, 0);
+    }
+
+    /**
+     * Start a new period if the current one is over.
+     * A period that seems to start in the future because the clock was set back is over as well.
+     *
+     * @param now current time in milliseconds.
+     */
+    private void renew(long now) {
+        if (mPeriodStartTime >= 0 && (now - mPeriodStartTime >= mPeriod || now < mPeriodStartTime)) {
+            mPeriodStartTime = -1;
+            mBytesSent = 0;
+            PreferencesStorage.remove(PREFERENCE_KEY_PERIOD_START_TIME);
+            PreferencesStorage.remove(PREFERENCE_KEY_BYTES_SENT);
+        }
+    }
+
+    /**
+     * Check if more bytes can be sent in the current period.
+     * A batch is sent as a whole, the budget can be exceeded by the last batch of a period.
+     *
+     * @param now current time in milliseconds.
+     * @return true if some budget is left.
+     */
+    synchronized boolean hasRemaining(long now) {
+        renew(now);
+        return mBytesSent < mByteBudget;
+    }
+
+    /**
+     * Get the time until the budget renews.
+     *
+     * @param now current time in milliseconds.
+     * @return remaining time in milliseconds, 0 if there is nothing to wait for
+     * (the budget is available or it never renews because it is 0).
+     */
+    synchronized long getRemainingPeriod(long now) {
+        renew(now);
+        if (mByteBudget == 0 || mPeriodStartTime < 0) {
+            return 0;
+        }
+        return mPeriodStartTime + mPeriod - now;
+    }
+
+    /**
+     * Record bytes sent on a metered network.
+     *
+     * @param bytes bytes sent.
+     * @param now   current time in milliseconds.
+     */
+    synchronized void onSent(long bytes, long now) {
+        renew(now);
+        if (mPeriodStartTime < 0) {
+            mPeriodStartTime = now;
+            PreferencesStorage.putLong(PREFERENCE_KEY_PERIOD_START_TIME, now);
+        }
+        mBytesSent += bytes;
+        PreferencesStorage.putLong(PREFERENCE_KEY_BYTES_SENT, mBytesSent);
+    }
+
+    /**
+     * Get the bytes sent on metered networks during the current period.
+     *
+     * @return bytes sent.
+     */
+    public synchronized long getBytesSent() {
+        return mBytesSent;
+    }
+
+    /**
+     * Get the bytes that can be sent per period.
+     *
+     * @return byte budget.
+     */
+    public long getByteBudget() {
+        return mByteBudget;
+    }
+}
@@ -2,8 +2,10 @@ package com.microsoft.appcenter.channel;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
+import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.ingestion.Ingestion;
 import com.microsoft.appcenter.ingestion.OneCollectorIngestion;
 import com.microsoft.appcenter.ingestion.models.Log;
@@ -81,10 +83,21 @@ public class OneCollectorChannelListener extends AbstractChannelListener {
      * @param channel channel.
      */
     public OneCollectorChannelListener(@NonNull Context context, @NonNull Channel channel, @NonNull LogSerializer logSerializer, @NonNull UUID installId) {
+        this(context, channel, logSerializer, installId, null);
+    }
+
+    /**
+     * Init with channel and a custom HTTP client for One Collector ingestion.
+     *
+     * @param context    context.
+     * @param channel    channel.
+     * @param httpClient HTTP client, null to use the default one.
+     */
+    public OneCollectorChannelListener(@NonNull Context context, @NonNull Channel channel, @NonNull LogSerializer logSerializer, @NonNull UUID installId, @Nullable HttpClient httpClient) {
         mChannel = channel;
         mLogSerializer = logSerializer;
         mInstallId = installId;
-        mIngestion = new OneCollectorIngestion(context, mLogSerializer);
+        mIngestion = new OneCollectorIngestion(context, mLogSerializer, httpClient);
     }
 
     @Override
@@ -0,0 +1,34 @@
+package com.microsoft.appcenter.channel;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Constants to use for {@link Channel#setOverflowPolicy}, applied when logs are enqueued faster
+ * than they are persisted and the in memory buffer of a group is full.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@IntDef({
+        OverflowPolicy.DROP_OLDEST,
+        OverflowPolicy.DROP_NEWEST,
+        OverflowPolicy.BLOCK
+})
+public @interface OverflowPolicy {
+
+    /**
+     * Discard the oldest buffered log to make room for the new one.
+     */
+    int DROP_OLDEST = 0;
+
+    /**
+     * Discard the log being enqueued.
+     */
+    int DROP_NEWEST = 1;
+
+    /**
+     * Wait for buffered logs to be persisted.
+     */
+    int BLOCK = 2;
+}
@@ -0,0 +1,135 @@
+package com.microsoft.appcenter.http;
+
+/**
+ * Durations of the phases of an HTTP call, in milliseconds. A phase that was not measured is -1,
+ * for example when the call failed before reaching it.
+ */
+public class CallTimings {
+
+    /**
+     * Host of the call.
+     */
+    private final String mHost;
+
+    /**
+     * Request body length on the wire, -1 if unknown.
+     */
+    long mRequestBytes = -1;
+
+    /**
+     * Time waiting for an executor thread.
+     */
+    long mQueueTime = -1;
+
+    /**
+     * Time building and compressing a request body that is not streamed.
+     */
+    long mSerializeTime = -1;
+
+    /**
+     * Time connecting, including host resolution and the TLS handshake.
+     */
+    long mConnectTime = -1;
+
+    /**
+     * Time writing the request body, including serialization when it is streamed.
+     */
+    long mWriteTime = -1;
+
+    /**
+     * Time between the end of the request and the response status.
+     */
+    long mTimeToFirstByte = -1;
+
+    /**
+     * Time reading the response body.
+     */
+    long mReadTime = -1;
+
+    /**
+     * Init.
+     *
+     * @param host host of the call.
+     */
+    CallTimings(String host) {
+        mHost = host;
+    }
+
+    /**
+     * Get the host of the call.
+     *
+     * @return host.
+     */
+    public String getHost() {
+        return mHost;
+    }
+
+    /**
+     * Get the request body length on the wire.
+     *
+     * @return length in bytes, -1 if unknown.
+     */
+    public long getRequestBytes() {
+        return mRequestBytes;
+    }
+
+    /**
+     * Get the time waiting for an executor thread.
+     *
+     * @return duration in ms or -1.
+     */
+    public long getQueueTime() {
+        return mQueueTime;
+    }
+
+    /**
+     * Get the time building and compressing a request body that is not streamed.
+     *
+     * @return duration in ms or -1.
+     */
+    public long getSerializeTime() {
+        return mSerializeTime;
+    }
+
+    /**
+     * Get the time connecting, including host resolution and the TLS handshake.
+     *
+     * @return duration in ms or -1.
+     */
+    public long getConnectTime() {
+        return mConnectTime;
+    }
+
+    /**
+     * Get the time writing the request body.
+     *
+     * @return duration in ms or -1.
+     */
+    public long getWriteTime() {
+        return mWriteTime;
+    }
+
+    /**
+     * Get the time between the end of the request and the response status.
+     *
+     * @return duration in ms or -1.
+     */
+    public long getTimeToFirstByte() {
+        return mTimeToFirstByte;
+    }
+
+    /**
+     * Get the time reading the response body.
+     *
+     * @return duration in ms or -1.
+     */
+    public long getReadTime() {
+        return mReadTime;
+    }
+
+    @Override
+    public String toString() {
+        return "host=" + mHost + " requestBytes=" + mRequestBytes + " queue=" + mQueueTime + " serialize=" + mSerializeTime + " connect=" + mConnectTime
+                + " write=" + mWriteTime + " ttfb=" + mTimeToFirstByte + " read=" + mReadTime;
+    }
+}
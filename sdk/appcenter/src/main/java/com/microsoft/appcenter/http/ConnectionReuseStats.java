@@ -0,0 +1,167 @@
+package com.microsoft.appcenter.http;
+
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.lang.Math.max;
+
+/**
+ * Keep track of the connections released to the platform connection pool for each host,
+ * to estimate how often a call could use an already established connection and how much setup time it saved.
+ * The platform does not tell if a socket was reused, so a connection is guessed warm
+ * when it is acquired for a host that had a connection released less than the keep alive duration ago.
+ * The pool may have closed that connection meanwhile, so all values are estimates for reporting only,
+ * they must not drive the behavior of calls.
+ */
+public class ConnectionReuseStats {
+
+    /**
+     * Duration an idle connection is kept by the platform connection pool, in milliseconds.
+     */
+    @VisibleForTesting
+    static final long KEEP_ALIVE_DURATION = 5 * 60 * 1000;
+
+    /**
+     * Shared instance.
+     */
+    private static ConnectionReuseStats sSharedInstance;
+
+    /**
+     * Release times of idle connections by host, oldest first.
+     */
+    private final Map<String, Deque<Long>> mIdleConnections = new HashMap<>();
+
+    /**
+     * Number of connections acquired.
+     */
+    private int mConnectionCount;
+
+    /**
+     * Number of connections acquired that were guessed warm.
+     */
+    private int mReusedConnectionCount;
+
+    /**
+     * Total setup time of new connections.
+     */
+    private long mNewConnectionSetupTime;
+
+    /**
+     * Total setup time of connections guessed warm.
+     */
+    private long mReusedConnectionSetupTime;
+
+    /**
+     * Get shared instance.
+     *
+     * @return shared instance.
+     */
+    public static synchronized ConnectionReuseStats getSharedInstance() {
+        if (sSharedInstance == null) {
+            sSharedInstance = new ConnectionReuseStats();
+        }
+        return sSharedInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void unsetInstance() {
+        sSharedInstance = null;
+    }
+
+    /**
+     * Take an idle connection of a host if any.
+     *
+     * @param host host to connect to.
+     * @return true if a warm connection is guessed to be used.
+     */
+    synchronized boolean acquire(String host) {
+        Deque<Long> idleConnections = mIdleConnections.get(host);
+        if (idleConnections == null) {
+            return false;
+        }
+
+        /* Forget connections the pool has evicted. */
+        long now = SystemClock.elapsedRealtime();
+        while (!idleConnections.isEmpty() && now - idleConnections.peekFirst() >= KEEP_ALIVE_DURATION) {
+            idleConnections.pollFirst();
+        }
+
+        /* The most recently released connection is used first. */
+        return idleConnections.pollLast() != null;
+    }
+
+    /**
+     * Record a connection setup.
+     *
+     * @param reused    whether the connection was guessed warm.
+     * @param setupTime time to connect in milliseconds.
+     */
+    synchronized void onConnected(boolean reused, long setupTime) {
+        mConnectionCount++;
+        if (reused) {
+            mReusedConnectionCount++;
+            mReusedConnectionSetupTime += setupTime;
+        } else {
+            mNewConnectionSetupTime += setupTime;
+        }
+    }
+
+    /**
+     * Record a connection released to the pool after its response was fully read.
+     *
+     * @param host host of the connection.
+     */
+    synchronized void release(String host) {
+        Deque<Long> idleConnections = mIdleConnections.get(host);
+        if (idleConnections == null) {
+            idleConnections = new ArrayDeque<>();
+            mIdleConnections.put(host, idleConnections);
+        }
+        idleConnections.addLast(SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Get the number of connections used.
+     *
+     * @return number of connections.
+     */
+    public synchronized int getConnectionCount() {
+        return mConnectionCount;
+    }
+
+    /**
+     * Get the estimated number of connections that were reused.
+     *
+     * @return number of connections guessed reused.
+     */
+    public synchronized int getEstimatedReusedConnectionCount() {
+        return mReusedConnectionCount;
+    }
+
+    /**
+     * Get the estimated ratio of reused connections.
+     *
+     * @return estimated hit rate between 0 and 1.
+     */
+    public synchronized float getEstimatedReuseHitRate() {
+        return mConnectionCount == 0 ? 0 : (float) mReusedConnectionCount / mConnectionCount;
+    }
+
+    /**
+     * Get the estimated average setup time saved by a reused connection compared to a new connection.
+     *
+     * @return estimated time saved in milliseconds, 0 if not known yet.
+     */
+    public synchronized long getEstimatedAverageSetupTimeSaved() {
+        int newConnectionCount = mConnectionCount - mReusedConnectionCount;
+        if (newConnectionCount == 0 || mReusedConnectionCount == 0) {
+            return 0;
+        }
+        return max(0, mNewConnectionSetupTime / newConnectionCount - mReusedConnectionSetupTime / mReusedConnectionCount);
+    }
+}
@@ -1,29 +1,37 @@
 package com.microsoft.appcenter.http;
 
 import android.net.TrafficStats;
-import android.os.AsyncTask;
 import android.os.Build;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
 import com.microsoft.appcenter.utils.AppCenterLog;
-import com.microsoft.appcenter.utils.HandlerUtils;
 
 import org.json.JSONObject;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.URL;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
 
 import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 import static java.lang.Math.max;
@@ -31,7 +39,7 @@ import static java.lang.Math.max;
 /**
  * Default HTTP client without the additional behaviors.
  */
-public class DefaultHttpClient implements HttpClient {
+public class DefaultHttpClient implements HttpClient.PrewarmingHttpClient {
 
     /**
      * HTTP GET method.
@@ -53,6 +61,11 @@ public class DefaultHttpClient implements HttpClient {
      */
     public static final String CONTENT_TYPE_KEY = "Content-Type";
 
+    /**
+     * Retry after header key.
+     */
+    private static final String RETRY_AFTER_KEY = "Retry-After";
+
     /**
      * Content type header value.
      */
@@ -83,6 +96,11 @@ public class DefaultHttpClient implements HttpClient {
      */
     private static final int READ_BUFFER_SIZE = 1024;
 
+    /**
+     * Write buffer size when streaming the request body.
+     */
+    private static final int WRITE_BUFFER_SIZE = 8192;
+
     /**
      * HTTP connection timeout.
      */
@@ -94,9 +112,10 @@ public class DefaultHttpClient implements HttpClient {
     private static final int READ_TIMEOUT = 20000;
 
     /**
-     * Minimum payload length in bytes to use gzip.
+     * Default minimum payload length in bytes to use gzip.
      */
-    private static final int MIN_GZIP_LENGTH = 1400;
+    @VisibleForTesting
+    static final int MIN_GZIP_LENGTH = 1400;
 
     /**
      * Pattern used to replace token in url encoded parameters.
@@ -108,6 +127,71 @@ public class DefaultHttpClient implements HttpClient {
      */
     private static final Pattern TOKEN_REGEX_JSON = Pattern.compile("token\":\"[^\"]+\"");
 
+    /**
+     * Executor running the calls.
+     */
+    private final Executor mExecutor;
+
+    /**
+     * Whether connections are left to the platform pool after a call to be reused by the next one.
+     */
+    private final boolean mKeepAlive;
+
+    /**
+     * Compression level.
+     */
+    private volatile int mCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Minimum payload length in bytes to use gzip when the payload is not streamed.
+     */
+    private volatile int mMinCompressionLength = MIN_GZIP_LENGTH;
+
+    /**
+     * Init with the shared SDK network executor, connections are closed after each call.
+     */
+    public DefaultHttpClient() {
+        this(false);
+    }
+
+    /**
+     * Init with the shared SDK network executor.
+     *
+     * @param keepAlive true to keep connections open between calls to the same host.
+     */
+    public DefaultHttpClient(boolean keepAlive) {
+        this(NetworkExecutor.getSharedInstance(), keepAlive);
+    }
+
+    /**
+     * Init.
+     *
+     * @param executor  executor running the calls, callbacks are invoked from its threads.
+     * @param keepAlive true to keep connections open between calls to the same host.
+     */
+    public DefaultHttpClient(Executor executor, boolean keepAlive) {
+        mExecutor = executor;
+        mKeepAlive = keepAlive;
+    }
+
+    /**
+     * Choose how request bodies are compressed. A higher level uses more CPU for fewer bytes on the wire.
+     *
+     * @param level     compression level between {@link Deflater#NO_COMPRESSION} that disables compression
+     *                  and {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param minLength minimum payload length in bytes to compress, streamed payloads are always compressed.
+     */
+    public void setCompression(int level, int minLength) {
+        if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        if (minLength < 0) {
+            throw new IllegalArgumentException("Invalid minimum compression length: " + minLength);
+        }
+        mCompressionLevel = level;
+        mMinCompressionLength = minLength;
+    }
+
     /**
      * Dump stream to string.
      *
@@ -130,6 +214,11 @@ public class DefaultHttpClient implements HttpClient {
         } else {
             stream = urlConnection.getErrorStream();
         }
+
+        /* There is no error stream if the server did not send a body. */
+        if (stream == null) {
+            return "";
+        }
         try {
             InputStreamReader in = new InputStreamReader(stream, CHARSET_NAME);
             char[] buffer = new char[READ_BUFFER_SIZE];
@@ -143,13 +232,32 @@ public class DefaultHttpClient implements HttpClient {
         }
     }
 
+    /**
+     * Read a successful response body until the end without decoding it, so that the connection can be reused.
+     *
+     * @param urlConnection URL connection.
+     * @throws IOException if an error occurred.
+     */
+    private static void drain(HttpURLConnection urlConnection) throws IOException {
+        InputStream stream = urlConnection.getInputStream();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try {
+            while (stream.read(buffer) != -1) {
+
+                /* Discard. */
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
     /**
      * Do call and tag socket to avoid strict mode issue.
      */
-    private static String doCall(String urlString, String method, Map<String, String> headers, CallTemplate callTemplate) throws Exception {
+    private String doCall(String urlString, String method, Map<String, String> headers, CallTemplate callTemplate, CallTimings callTimings) throws Exception {
         TrafficStats.setThreadStatsTag(THREAD_STATS_TAG);
         try {
-            return doHttpCall(urlString, method, headers, callTemplate);
+            return doHttpCall(urlString, method, headers, callTemplate, callTimings);
         } finally {
             TrafficStats.clearThreadStatsTag();
         }
@@ -157,12 +265,19 @@ public class DefaultHttpClient implements HttpClient {
 
     /**
      * Do http call.
+     *
+     * @param callTimings phase timings to fill, null to skip timing.
      */
-    private static String doHttpCall(String urlString, String method, Map<String, String> headers, CallTemplate callTemplate) throws Exception {
+    private String doHttpCall(String urlString, String method, Map<String, String> headers, CallTemplate callTemplate, CallTimings callTimings) throws Exception {
 
         /* HTTP session. */
         URL url = new URL(urlString);
         HttpsURLConnection urlConnection = (HttpsURLConnection) url.openConnection();
+        String host = url.getHost();
+        ConnectionReuseStats connectionReuseStats = ConnectionReuseStats.getSharedInstance();
+        boolean keepAlive = mKeepAlive;
+        int compressionLevel = mCompressionLevel;
+        boolean released = false;
         try {
 
             /*
@@ -179,17 +294,30 @@ public class DefaultHttpClient implements HttpClient {
             urlConnection.setReadTimeout(READ_TIMEOUT);
 
             /* Build payload now if POST. */
+            long serializeStartTime = SystemClock.elapsedRealtime();
             urlConnection.setRequestMethod(method);
             String payload = null;
             byte[] binaryPayload = null;
             boolean shouldCompress = false;
             boolean isPost = method.equals(METHOD_POST);
-            if (isPost && callTemplate != null) {
+
+            /*
+             * Stream the body when possible, unless verbose logging needs the whole payload.
+             * The size is not known in advance so always compress unless disabled.
+             */
+            StreamingCallTemplate streamingCallTemplate = null;
+            if (isPost && callTemplate instanceof StreamingCallTemplate && AppCenterLog.getLogLevel() > Log.VERBOSE) {
+                streamingCallTemplate = (StreamingCallTemplate) callTemplate;
+                shouldCompress = compressionLevel != Deflater.NO_COMPRESSION;
+                if (!headers.containsKey(CONTENT_TYPE_KEY)) {
+                    headers.put(CONTENT_TYPE_KEY, CONTENT_TYPE_VALUE);
+                }
+            } else if (isPost && callTemplate != null) {
 
                 /* Get bytes, check if large enough to compress. */
                 payload = callTemplate.buildRequestBody();
                 binaryPayload = payload.getBytes(CHARSET_NAME);
-                shouldCompress = binaryPayload.length >= MIN_GZIP_LENGTH;
+                shouldCompress = compressionLevel != Deflater.NO_COMPRESSION && binaryPayload.length >= mMinCompressionLength;
 
                 /* If no content type specified, assume json. */
                 if (!headers.containsKey(CONTENT_TYPE_KEY)) {
@@ -225,23 +353,104 @@ public class DefaultHttpClient implements HttpClient {
                 }
                 if (shouldCompress) {
                     ByteArrayOutputStream gzipBuffer = new ByteArrayOutputStream(binaryPayload.length);
-                    GZIPOutputStream gzipStream = new GZIPOutputStream(gzipBuffer);
+                    OutputStream gzipStream = new PooledGzipOutputStream(gzipBuffer, compressionLevel);
                     gzipStream.write(binaryPayload);
                     gzipStream.close();
                     binaryPayload = gzipBuffer.toByteArray();
                 }
 
-                /* Send payload on the wire. */
+                /* Configure streaming before connecting. */
                 urlConnection.setDoOutput(true);
                 urlConnection.setFixedLengthStreamingMode(binaryPayload.length);
+                if (callTimings != null) {
+                    callTimings.mSerializeTime = SystemClock.elapsedRealtime() - serializeStartTime;
+                    callTimings.mRequestBytes = binaryPayload.length;
+                }
+            } else if (streamingCallTemplate != null) {
+                urlConnection.setDoOutput(true);
+                urlConnection.setChunkedStreamingMode(0);
+            } else if (callTimings != null) {
+                callTimings.mRequestBytes = 0;
+            }
+
+            /*
+             * Connect, that's where a new connection pays the host resolution, TCP and TLS handshakes.
+             * Whether the connection is reused is only a guess, so it does not change what is measured.
+             */
+            boolean likelyReused = keepAlive && connectionReuseStats.acquire(host);
+            long connectStartTime = SystemClock.elapsedRealtime();
+            urlConnection.connect();
+            long setupTime = SystemClock.elapsedRealtime() - connectStartTime;
+            if (callTimings != null) {
+                callTimings.mConnectTime = setupTime;
+            }
+            connectionReuseStats.onConnected(likelyReused, setupTime);
+            AppCenterLog.verbose(LOG_TAG, "Connected to " + host + " in " + setupTime + "ms likelyReused=" + likelyReused);
+
+            /* Send payload on the wire. */
+            long writeStartTime = SystemClock.elapsedRealtime();
+            if (binaryPayload != null) {
                 OutputStream out = urlConnection.getOutputStream();
-                out.write(binaryPayload);
-                out.close();
+                try {
+                    out.write(binaryPayload);
+                } finally {
+                    out.close();
+                }
+            } else if (streamingCallTemplate != null) {
+
+                /* Memory is bounded by the buffer and the compressor window whatever the payload size. */
+                CountingOutputStream out = new CountingOutputStream(urlConnection.getOutputStream());
+                PooledGzipOutputStream gzipStream = null;
+                try {
+                    if (shouldCompress) {
+                        gzipStream = new PooledGzipOutputStream(out, compressionLevel);
+                    }
+                    OutputStream bufferedStream = new BufferedOutputStream(gzipStream != null ? gzipStream : out, WRITE_BUFFER_SIZE);
+                    streamingCallTemplate.writeRequestBody(bufferedStream);
+                    bufferedStream.close();
+                } finally {
+
+                    /* Give the deflater back even if writing failed. */
+                    if (gzipStream != null) {
+                        gzipStream.release();
+                    }
+                    out.close();
+                }
+                if (callTimings != null) {
+                    callTimings.mRequestBytes = out.mCount;
+                }
+            }
+            long requestEndTime = SystemClock.elapsedRealtime();
+            if (callTimings != null) {
+                callTimings.mWriteTime = requestEndTime - writeStartTime;
             }
 
-            /* Read response. */
+            /* Read response, the stream is fully read and closed so that the connection can be reused. */
             int status = urlConnection.getResponseCode();
-            String response = dump(urlConnection);
+            long responseStartTime = SystemClock.elapsedRealtime();
+            if (callTimings != null) {
+                callTimings.mTimeToFirstByte = responseStartTime - requestEndTime;
+            }
+            boolean success = status >= 200 && status < 300;
+            boolean ignoreResponseBody = success && callTemplate instanceof ResponseBodyIgnoredCallTemplate;
+            String response;
+            if (ignoreResponseBody) {
+                drain(urlConnection);
+                response = "";
+            } else {
+                response = dump(urlConnection);
+            }
+            if (callTimings != null) {
+                callTimings.mReadTime = SystemClock.elapsedRealtime() - responseStartTime;
+            }
+            if (keepAlive) {
+                connectionReuseStats.release(host);
+                released = true;
+            }
+            if (ignoreResponseBody) {
+                AppCenterLog.verbose(LOG_TAG, "HTTP response status=" + status + " payload ignored");
+                return response;
+            }
             String contentType = urlConnection.getHeaderField(CONTENT_TYPE_KEY);
             String logPayload;
             if (contentType == null || contentType.startsWith("text/") || contentType.startsWith("application/")) {
@@ -252,39 +461,108 @@ public class DefaultHttpClient implements HttpClient {
             AppCenterLog.verbose(LOG_TAG, "HTTP response status=" + status + " payload=" + logPayload);
 
             /* Accept all 2xx codes. */
-            if (status >= 200 && status < 300) {
+            if (success) {
                 return response;
             }
 
             /* Generate exception on failure. */
-            throw new HttpException(status, response);
+            throw new HttpException(status, response, urlConnection.getHeaderField(RETRY_AFTER_KEY));
         } finally {
 
-            /* Release connection. */
-            urlConnection.disconnect();
+            /*
+             * Disconnecting can close the socket instead of returning it to the pool,
+             * only do it when not reusing connections or if the response was not read until the end.
+             */
+            if (!released) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Resolve hosts and complete TLS handshakes in the background, so that the next calls to these
+     * URLs don't pay DNS and full TLS setup. No HTTP request is sent. Failures are ignored.
+     *
+     * @param urls     URLs to connect to.
+     * @param callback called from the executor thread when all hosts are prepared or failed.
+     */
+    @Override
+    public void prewarmAsync(final Collection<String> urls, final Runnable callback) {
+        try {
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    TrafficStats.setThreadStatsTag(THREAD_STATS_TAG);
+                    try {
+                        for (String url : urls) {
+                            prewarm(url);
+                        }
+                    } finally {
+                        TrafficStats.clearThreadStatsTag();
+                    }
+                    callback.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Resolve the host and complete a TLS handshake without sending any HTTP request, so that the
+     * next call finds the host in the DNS cache and resumes the TLS session. The socket is closed
+     * right away as it cannot be handed over to the connection pool.
+     *
+     * @param urlString URL whose host to connect to.
+     */
+    @VisibleForTesting
+    void prewarm(String urlString) {
+        Socket socket = null;
+        try {
+            URL url = new URL(urlString);
+            String host = url.getHost();
+            int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            SSLSocketFactory socketFactory;
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT_WATCH) {
+                socketFactory = new TLS1_2SocketFactory();
+            } else {
+                socketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+            }
+            long connectStartTime = SystemClock.elapsedRealtime();
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            socket.setSoTimeout(READ_TIMEOUT);
+            SSLSocket sslSocket = (SSLSocket) socketFactory.createSocket(socket, host, port, true);
+            socket = sslSocket;
+            sslSocket.startHandshake();
+            long setupTime = SystemClock.elapsedRealtime() - connectStartTime;
+            AppCenterLog.verbose(LOG_TAG, "Pre-warmed " + host + " in " + setupTime + "ms");
+        } catch (IOException e) {
+            AppCenterLog.verbose(LOG_TAG, "Failed to pre-warm " + urlString, e);
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
         }
     }
 
     @Override
     public ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, final ServiceCallback serviceCallback) {
-        final Call call = new Call(url, method, headers, callTemplate, serviceCallback);
+        final Call call = new Call(url, method, headers, callTemplate, serviceCallback, this);
         try {
-            call.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+            call.executeOnExecutor(mExecutor);
         } catch (final RejectedExecutionException e) {
 
             /*
-             * When executor saturated (shared with app), we should use the retry mechanism
+             * When the executor does not accept calls, we should use the retry mechanism
              * rather than creating more threads to avoid putting too much pressure on the hosting app.
-             * Also we need to return the method before calling the listener,
-             * so we post the callback on handler to make sure of that.
+             * Callbacks already run on SDK threads, callers post their handling to their own thread.
              */
-            HandlerUtils.runOnUiThread(new Runnable() {
-
-                @Override
-                public void run() {
-                    serviceCallback.onCallFailed(e);
-                }
-            });
+            serviceCallback.onCallFailed(e);
         }
         return new ServiceCall() {
 
@@ -309,8 +587,11 @@ public class DefaultHttpClient implements HttpClient {
         /* Nothing to do. */
     }
 
+    /**
+     * HTTP call running on the network executor, the callback is invoked from the same thread.
+     */
     @VisibleForTesting
-    static class Call extends AsyncTask<Void, Void, Object> {
+    static class Call implements Runnable {
 
         private final String mUrl;
 
@@ -322,30 +603,149 @@ public class DefaultHttpClient implements HttpClient {
 
         private final ServiceCallback mServiceCallback;
 
-        public Call(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
+        private final DefaultHttpClient mHttpClient;
+
+        /**
+         * Time when the call was submitted.
+         */
+        private final long mSubmitTime = SystemClock.elapsedRealtime();
+
+        /**
+         * Phase timings, null if the callback does not want them.
+         */
+        private CallTimings mCallTimings;
+
+        /**
+         * Set when cancelled, the callback is not invoked after that.
+         */
+        private volatile boolean mCancelled;
+
+        /**
+         * Thread running the call, null if not running.
+         */
+        private Thread mThread;
+
+        public Call(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback, DefaultHttpClient httpClient) {
             mUrl = url;
             mMethod = method;
             mHeaders = headers;
             mCallTemplate = callTemplate;
             mServiceCallback = serviceCallback;
+            mHttpClient = httpClient;
+        }
+
+        /**
+         * Submit the call.
+         *
+         * @param executor executor to run the call.
+         * @return this call.
+         * @throws RejectedExecutionException if the executor does not accept the call.
+         */
+        Call executeOnExecutor(Executor executor) {
+            executor.execute(this);
+            return this;
         }
 
         @Override
-        protected Object doInBackground(Void... params) {
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            synchronized (this) {
+                mThread = Thread.currentThread();
+            }
+            Object result;
             try {
-                return doCall(mUrl, mMethod, mHeaders, mCallTemplate);
+                result = doInBackground();
+            } finally {
+                synchronized (this) {
+                    mThread = null;
+
+                    /* Don't leak an interruption to the next call of this thread. */
+                    Thread.interrupted();
+                }
+            }
+            if (!mCancelled) {
+                onPostExecute(result);
+            }
+        }
+
+        Object doInBackground() {
+            if (mServiceCallback instanceof TimedServiceCallback) {
+                String host = "";
+                try {
+                    host = new URL(mUrl).getHost();
+                } catch (IOException ignored) {
+                }
+                mCallTimings = new CallTimings(host);
+                mCallTimings.mQueueTime = SystemClock.elapsedRealtime() - mSubmitTime;
+            }
+            try {
+                return mHttpClient.doCall(mUrl, mMethod, mHeaders, mCallTemplate, mCallTimings);
             } catch (Exception e) {
                 return e;
             }
         }
 
-        @Override
-        protected void onPostExecute(Object result) {
+        void onPostExecute(Object result) {
+            if (mCallTimings != null) {
+                ((TimedServiceCallback) mServiceCallback).onCallTimed(mCallTimings);
+            }
             if (result instanceof Exception) {
                 mServiceCallback.onCallFailed((Exception) result);
             } else {
                 mServiceCallback.onCallSucceeded(result.toString());
             }
         }
+
+        boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Cancel the call, the callback won't be invoked.
+         *
+         * @param mayInterruptIfRunning true to interrupt the thread running the call.
+         */
+        synchronized void cancel(boolean mayInterruptIfRunning) {
+            mCancelled = true;
+            if (mayInterruptIfRunning && mThread != null) {
+                mThread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Count the bytes written on the wire when the request body length is not known in advance.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        /**
+         * Number of bytes written.
+         */
+        long mCount;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            mCount++;
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            mCount += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            /* Don't swallow flush errors like FilterOutputStream does. */
+            out.close();
+        }
     }
 }
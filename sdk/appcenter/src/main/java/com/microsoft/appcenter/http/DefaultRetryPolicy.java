@@ -0,0 +1,272 @@
+package com.microsoft.appcenter.http;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.AppCenter;
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry recoverable errors with exponential backoff and decorrelated jitter.
+ * The delay is taken from the Retry-After header when the server sends one, within the backoff bounds.
+ * Retries to the same host share a token bucket, so that parallel calls failing together
+ * are spread over time instead of retrying in lockstep.
+ */
+public class DefaultRetryPolicy implements RetryPolicy {
+
+    /**
+     * Maximum number of retries per call.
+     */
+    @VisibleForTesting
+    static final int MAX_RETRIES = 3;
+
+    /**
+     * Base delay, also the minimum delay applied to Retry-After.
+     */
+    @VisibleForTesting
+    static final long BASE_DELAY = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Maximum delay, also applied to Retry-After.
+     */
+    @VisibleForTesting
+    static final long MAX_DELAY = TimeUnit.MINUTES.toMillis(20);
+
+    /**
+     * Minimum delay when the server throttles without Retry-After header.
+     */
+    @VisibleForTesting
+    static final long THROTTLED_MIN_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Number of retries a host allows in a burst.
+     */
+    @VisibleForTesting
+    static final int BUCKET_CAPACITY = 5;
+
+    /**
+     * Time to get back 1 retry token.
+     */
+    @VisibleForTesting
+    static final long BUCKET_REFILL_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * HTTP too many requests status.
+     */
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Retry-After HTTP date format.
+     */
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    /**
+     * Shared instance.
+     */
+    private static DefaultRetryPolicy sSharedInstance;
+
+    /**
+     * Retry token buckets by host.
+     */
+    private final Map<String, TokenBucket> mTokenBuckets = new HashMap<>();
+
+    /**
+     * Random object for jitter.
+     */
+    private final Random mRandom = new Random();
+
+    /**
+     * Number of retries scheduled.
+     */
+    private long mRetryCount;
+
+    /**
+     * Number of calls given up.
+     */
+    private long mGiveUpCount;
+
+    /**
+     * Number of retries delayed by the server Retry-After header.
+     */
+    private long mRetryAfterCount;
+
+    /**
+     * Number of retries delayed because the host token bucket was empty.
+     */
+    private long mThrottledCount;
+
+    /**
+     * Get shared instance.
+     *
+     * @return shared instance.
+     */
+    public static synchronized DefaultRetryPolicy getSharedInstance() {
+        if (sSharedInstance == null) {
+            sSharedInstance = new DefaultRetryPolicy();
+        }
+        return sSharedInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void unsetInstance() {
+        sSharedInstance = null;
+    }
+
+    /**
+     * Parse a Retry-After header value.
+     *
+     * @param retryAfter header value, number of seconds or HTTP date.
+     * @param now        current time in milliseconds since epoch.
+     * @return delay in milliseconds or -1 if missing or invalid.
+     */
+    @VisibleForTesting
+    static long parseRetryAfter(@Nullable String retryAfter, long now) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        retryAfter = retryAfter.trim();
+        try {
+            return max0(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter)));
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            Date date = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US).parse(retryAfter);
+            return max0(date.getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    private static long max0(long delay) {
+        return Math.max(0, delay);
+    }
+
+    private static String getHost(@Nullable String url) {
+        if (url != null) {
+            try {
+                return new URL(url).getHost();
+            } catch (MalformedURLException ignored) {
+            }
+        }
+        return "";
+    }
+
+    @Override
+    public synchronized long getRetryDelay(@Nullable String url, int retryCount, long previousDelay, @NonNull Exception e) {
+        if (retryCount >= MAX_RETRIES || !HttpUtils.isRecoverableError(e)) {
+            mGiveUpCount++;
+            AppCenterLog.verbose(AppCenter.LOG_TAG, "Giving up after " + retryCount + " retries, retries=" + mRetryCount + " giveUps=" + mGiveUpCount);
+            return GIVE_UP;
+        }
+
+        /* Decorrelated jitter: random between base and 3 times the previous delay. */
+        long upperBound = Math.min(MAX_DELAY, Math.max(BASE_DELAY, previousDelay) * 3);
+        long delay = BASE_DELAY + (long) (mRandom.nextDouble() * (upperBound - BASE_DELAY));
+
+        /* Follow server hints, clamped to the backoff bounds. */
+        if (e instanceof HttpException) {
+            HttpException httpException = (HttpException) e;
+            long retryAfter = parseRetryAfter(httpException.getRetryAfter(), System.currentTimeMillis());
+            if (retryAfter >= 0) {
+                delay = Math.min(MAX_DELAY, Math.max(BASE_DELAY, retryAfter));
+                mRetryAfterCount++;
+            } else if (httpException.getStatusCode() == TOO_MANY_REQUESTS) {
+                delay = Math.max(delay, THROTTLED_MIN_DELAY);
+            }
+        }
+
+        /* Wait for a retry token of the host. */
+        String host = getHost(url);
+        TokenBucket tokenBucket = mTokenBuckets.get(host);
+        if (tokenBucket == null) {
+            tokenBucket = new TokenBucket();
+            mTokenBuckets.put(host, tokenBucket);
+        }
+        long tokenWait = tokenBucket.reserve(SystemClock.elapsedRealtime());
+        if (tokenWait > delay) {
+            delay = tokenWait;
+            mThrottledCount++;
+        }
+        mRetryCount++;
+        return delay;
+    }
+
+    /**
+     * Get the number of retries scheduled.
+     *
+     * @return number of retries.
+     */
+    public synchronized long getRetryCount() {
+        return mRetryCount;
+    }
+
+    /**
+     * Get the number of calls that failed without further retry.
+     *
+     * @return number of give ups.
+     */
+    public synchronized long getGiveUpCount() {
+        return mGiveUpCount;
+    }
+
+    /**
+     * Get the number of retries delayed as requested by the server Retry-After header.
+     *
+     * @return number of retries following Retry-After.
+     */
+    public synchronized long getRetryAfterCount() {
+        return mRetryAfterCount;
+    }
+
+    /**
+     * Get the number of retries delayed further because too many retries were made to the same host.
+     *
+     * @return number of throttled retries.
+     */
+    public synchronized long getThrottledCount() {
+        return mThrottledCount;
+    }
+
+    /**
+     * Retry tokens of a host. Tokens can be reserved in advance, the balance then becomes negative
+     * and the reservation tells how long to wait for the token.
+     */
+    private static class TokenBucket {
+
+        /**
+         * Available tokens.
+         */
+        private double mTokens = BUCKET_CAPACITY;
+
+        /**
+         * Last time tokens were added.
+         */
+        private long mLastRefillTime = SystemClock.elapsedRealtime();
+
+        /**
+         * Reserve a token.
+         *
+         * @param now current time.
+         * @return time to wait for the token in milliseconds.
+         */
+        long reserve(long now) {
+            mTokens = Math.min(BUCKET_CAPACITY, mTokens + (double) (now - mLastRefillTime) / BUCKET_REFILL_INTERVAL);
+            mLastRefillTime = now;
+            mTokens--;
+            return mTokens >= 0 ? 0 : (long) Math.ceil(-mTokens * BUCKET_REFILL_INTERVAL);
+        }
+    }
+}
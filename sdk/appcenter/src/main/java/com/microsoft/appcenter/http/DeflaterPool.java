@@ -0,0 +1,79 @@
+package com.microsoft.appcenter.http;
+
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.Deflater;
+
+/**
+ * Pool of deflaters, so that compressing a payload does not allocate a new native zlib state every time.
+ * Deflaters produce raw deflate data, the gzip framing is done by {@link PooledGzipOutputStream}.
+ */
+class DeflaterPool {
+
+    /**
+     * Maximum number of idle deflaters kept, should match the number of parallel calls.
+     */
+    @VisibleForTesting
+    static final int MAX_POOL_SIZE = 4;
+
+    /**
+     * Idle deflaters.
+     */
+    private static final Deque<Deflater> sDeflaters = new ArrayDeque<>();
+
+    @VisibleForTesting
+    DeflaterPool() {
+    }
+
+    /**
+     * Get a deflater ready to compress a new payload.
+     *
+     * @param level compression level.
+     * @return deflater to give back with {@link #release(Deflater)} after use.
+     */
+    static synchronized Deflater acquire(int level) {
+        Deflater deflater = sDeflaters.pollLast();
+        if (deflater == null) {
+            return new Deflater(level, true);
+        }
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    /**
+     * Give back a deflater, its native memory is freed if the pool is already full.
+     *
+     * @param deflater deflater obtained with {@link #acquire(int)}.
+     */
+    static synchronized void release(Deflater deflater) {
+        if (sDeflaters.size() < MAX_POOL_SIZE) {
+            deflater.reset();
+            sDeflaters.addLast(deflater);
+        } else {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Get the number of idle deflaters.
+     *
+     * @return pool size.
+     */
+    @VisibleForTesting
+    static synchronized int size() {
+        return sDeflaters.size();
+    }
+
+    /**
+     * Free all idle deflaters.
+     */
+    @VisibleForTesting
+    static synchronized void clear() {
+        for (Deflater deflater : sDeflaters) {
+            deflater.end();
+        }
+        sDeflaters.clear();
+    }
+}
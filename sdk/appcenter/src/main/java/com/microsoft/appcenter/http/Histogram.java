@@ -0,0 +1,118 @@
+package com.microsoft.appcenter.http;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of durations in fixed exponential buckets, cheap enough to record every call.
+ */
+public class Histogram {
+
+    /**
+     * Inclusive upper bound of each bucket in milliseconds, a last bucket holds larger values.
+     */
+    private static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000};
+
+    /**
+     * Number of values in each bucket.
+     */
+    private final long[] mBucketCounts = new long[BUCKET_BOUNDS.length + 1];
+
+    /**
+     * Number of values.
+     */
+    private long mCount;
+
+    /**
+     * Sum of values.
+     */
+    private long mSum;
+
+    /**
+     * Largest value.
+     */
+    private long mMax;
+
+    /**
+     * Get the inclusive upper bound of each bucket but the last one, which has no bound.
+     *
+     * @return bucket bounds in milliseconds.
+     */
+    public static long[] getBucketBounds() {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param value duration in milliseconds.
+     */
+    synchronized void record(long value) {
+        int index = Arrays.binarySearch(BUCKET_BOUNDS, value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        mBucketCounts[index]++;
+        mCount++;
+        mSum += value;
+        mMax = Math.max(mMax, value);
+    }
+
+    /**
+     * Get the number of values in each bucket.
+     *
+     * @return counts, one more than {@link #getBucketBounds()}.
+     */
+    public synchronized long[] getBucketCounts() {
+        return mBucketCounts.clone();
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return number of values.
+     */
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Get the largest value.
+     *
+     * @return largest value in milliseconds, 0 if empty.
+     */
+    public synchronized long getMax() {
+        return mMax;
+    }
+
+    /**
+     * Get the mean value.
+     *
+     * @return mean in milliseconds, 0 if empty.
+     */
+    public synchronized long getMean() {
+        return mCount == 0 ? 0 : mSum / mCount;
+    }
+
+    /**
+     * Get an upper estimate of a percentile, the bound of the bucket where it falls.
+     *
+     * @param percentile between 0 and 100.
+     * @return value in milliseconds, 0 if empty.
+     */
+    public synchronized long getPercentile(double percentile) {
+        long rank = (long) Math.ceil(percentile / 100 * mCount);
+        long count = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            count += mBucketCounts[i];
+            if (count >= rank && count > 0) {
+                return Math.min(BUCKET_BOUNDS[i], mMax);
+            }
+        }
+        return mMax;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "count=" + mCount + " mean=" + getMean() + " p50=" + getPercentile(50) + " p95=" + getPercentile(95) + " max=" + mMax;
+    }
+}
@@ -3,7 +3,10 @@ package com.microsoft.appcenter.http;
 import org.json.JSONException;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -45,8 +48,45 @@ public interface HttpClient extends Closeable {
         void onBeforeCalling(URL url, Map<String, String> headers);
     }
 
+    /**
+     * Call callbacks of a caller that does not use the body of a successful response.
+     * The body is read without being decoded and the call succeeds with an empty payload.
+     */
+    interface ResponseBodyIgnoredCallTemplate extends CallTemplate {
+    }
+
+    /**
+     * Call callbacks that can write the request body directly to the connection
+     * instead of building it in memory.
+     */
+    interface StreamingCallTemplate extends CallTemplate {
+
+        /**
+         * Called when the method is POST to write request body, used instead of {@link #buildRequestBody()}.
+         *
+         * @param out stream compressing and sending the body as it is written, must not be closed.
+         * @throws JSONException callback can throw this to make the call fail if a JSON error occurs.
+         * @throws IOException   if writing to the connection fails.
+         */
+        void writeRequestBody(OutputStream out) throws JSONException, IOException;
+    }
+
     /**
      * Make this client active again after closing.
      */
     void reopen();
+
+    /**
+     * Client that can prepare connections to hosts before calls are made to them.
+     */
+    interface PrewarmingHttpClient extends HttpClient {
+
+        /**
+         * Prepare connections in the background. Failures are ignored.
+         *
+         * @param urls     URLs of the next calls.
+         * @param callback called when all hosts are prepared or failed.
+         */
+        void prewarmAsync(Collection<String> urls, Runnable callback);
+    }
 }
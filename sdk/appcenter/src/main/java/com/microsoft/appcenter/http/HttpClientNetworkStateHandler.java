@@ -1,12 +1,16 @@
 package com.microsoft.appcenter.http;
 
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.NetworkStateHelper;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
 
 import static com.microsoft.appcenter.utils.AppCenterLog.LOG_TAG;
 
@@ -15,15 +19,41 @@ import static com.microsoft.appcenter.utils.AppCenterLog.LOG_TAG;
  */
 public class HttpClientNetworkStateHandler extends HttpClientDecorator implements NetworkStateHelper.Listener {
 
+    /**
+     * Delay between 2 pending calls released after pre-warming.
+     */
+    @VisibleForTesting
+    static final long STAGGER_INTERVAL = 250;
+
     /**
      * Network state helper.
      */
     private final NetworkStateHelper mNetworkStateHelper;
 
     /**
-     * All pending calls.
+     * Executor timing the staggered calls after pre-warming.
+     */
+    private final NetworkExecutor mNetworkExecutor;
+
+    /**
+     * All pending calls, in submission order.
      */
-    private final Set<Call> mCalls = new HashSet<>();
+    private final Set<Call> mCalls = new LinkedHashSet<>();
+
+    /**
+     * Client used to pre-warm connections when network comes back, null to submit calls right away.
+     */
+    private PrewarmingHttpClient mPrewarmClient;
+
+    /**
+     * Is pre-warming in progress. Calls wait for it to complete.
+     */
+    private boolean mPrewarming;
+
+    /**
+     * Incremented on each network state change to ignore the completion of an outdated pre-warming.
+     */
+    private int mNetworkStateVersion;
 
     /**
      * Init.
@@ -32,16 +62,42 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
      * @param networkStateHelper network state helper.
      */
     public HttpClientNetworkStateHandler(HttpClient decoratedApi, NetworkStateHelper networkStateHelper) {
+        this(decoratedApi, networkStateHelper, NetworkExecutor.getSharedInstance());
+    }
+
+    /**
+     * Init.
+     *
+     * @param decoratedApi       decorated API.
+     * @param networkStateHelper network state helper.
+     * @param networkExecutor    executor to stagger calls.
+     */
+    @VisibleForTesting
+    HttpClientNetworkStateHandler(HttpClient decoratedApi, NetworkStateHelper networkStateHelper, NetworkExecutor networkExecutor) {
         super(decoratedApi);
         mNetworkStateHelper = networkStateHelper;
+        mNetworkExecutor = networkExecutor;
         mNetworkStateHelper.addListener(this);
     }
 
+    /**
+     * Pre-warm connections to the hosts of pending calls when network comes back, then submit the
+     * calls one by one spaced by a short delay so that they don't all pay DNS and TLS setup at once.
+     * Pre-warming is skipped on metered networks.
+     *
+     * @param prewarmClient client preparing the connections, null to submit pending calls right away.
+     */
+    public synchronized void setPrewarmClient(@Nullable PrewarmingHttpClient prewarmClient) {
+        mPrewarmClient = prewarmClient;
+    }
+
     @Override
     public synchronized ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
         Call call = new Call(mDecoratedApi, url, method, headers, callTemplate, serviceCallback);
         mCalls.add(call);
-        if (mNetworkStateHelper.isNetworkConnected()) {
+        if (mPrewarming) {
+            AppCenterLog.debug(LOG_TAG, "Call triggered while pre-warming connections, waiting for it to complete...");
+        } else if (mNetworkStateHelper.isNetworkConnected()) {
             call.run();
         } else {
             AppCenterLog.debug(LOG_TAG, "Call triggered with no network connectivity, waiting network to become available...");
@@ -52,7 +108,10 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
     @Override
     public synchronized void close() throws IOException {
         mNetworkStateHelper.removeListener(this);
+        mNetworkStateVersion++;
+        mPrewarming = false;
         for (Call call : mCalls) {
+            cancelRelease(call);
             pauseCall(call);
         }
         mCalls.clear();
@@ -67,6 +126,15 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
 
     @Override
     public synchronized void onNetworkStateUpdated(boolean connected) {
+        mNetworkStateVersion++;
+        mPrewarming = false;
+        for (Call call : mCalls) {
+            cancelRelease(call);
+        }
+        if (connected && mPrewarmClient != null && !mCalls.isEmpty() && !mNetworkStateHelper.isNetworkMetered()) {
+            prewarm();
+            return;
+        }
         if (connected) {
             AppCenterLog.debug(LOG_TAG, "Network is available. " + mCalls.size() + " pending call(s) to submit now.");
         } else {
@@ -81,15 +149,61 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
         }
     }
 
+    /**
+     * Open connections to the hosts of pending calls, then submit the calls staggered.
+     */
+    private void prewarm() {
+        Set<String> urls = new LinkedHashSet<>();
+        for (Call call : mCalls) {
+            urls.add(call.mUrl);
+        }
+        AppCenterLog.debug(LOG_TAG, "Network is available. Pre-warming connections before submitting " + mCalls.size() + " pending call(s).");
+        mPrewarming = true;
+        final int networkStateVersion = mNetworkStateVersion;
+        mPrewarmClient.prewarmAsync(urls, new Runnable() {
+
+            @Override
+            public void run() {
+                onPrewarmCompleted(networkStateVersion);
+            }
+        });
+    }
+
+    private synchronized void onPrewarmCompleted(int networkStateVersion) {
+        if (networkStateVersion != mNetworkStateVersion) {
+            return;
+        }
+        mPrewarming = false;
+        long delay = 0;
+        for (Call call : mCalls) {
+            call.mRelease = mNetworkExecutor.schedule(call, delay);
+            delay += STAGGER_INTERVAL;
+        }
+    }
+
     private synchronized void callRunAsync(Call call) {
+
+        /* A staggered call may have been canceled while waiting. */
+        call.mRelease = null;
+        if (!mCalls.contains(call)) {
+            return;
+        }
         call.mServiceCall = call.mDecoratedApi.callAsync(call.mUrl, call.mMethod, call.mHeaders, call.mCallTemplate, call);
     }
 
     private synchronized void cancelCall(Call call) {
         mCalls.remove(call);
+        cancelRelease(call);
         pauseCall(call);
     }
 
+    private void cancelRelease(Call call) {
+        if (call.mRelease != null) {
+            call.mRelease.cancel(false);
+            call.mRelease = null;
+        }
+    }
+
     private synchronized void pauseCall(Call call) {
         if (call.mServiceCall != null) {
             call.mServiceCall.cancel();
@@ -98,29 +212,38 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
 
     /**
      * Guard against multiple calls since this call can be retried on network state change.
+     * The callback runs on a network thread, outside of the lock.
      */
-    private synchronized void onCallSucceeded(Call call, String payload) {
-        if (mCalls.contains(call)) {
+    private void onCallSucceeded(Call call, String payload) {
+        if (removeCall(call)) {
             call.mServiceCallback.onCallSucceeded(payload);
-            mCalls.remove(call);
         }
     }
 
     /**
      * Guard against multiple calls since this call can be retried on network state change.
+     * The callback runs on a network thread, outside of the lock.
      */
-    private synchronized void onCallFailed(Call call, Exception e) {
-        if (mCalls.contains(call)) {
+    private void onCallFailed(Call call, Exception e) {
+        if (removeCall(call)) {
             call.mServiceCallback.onCallFailed(e);
-            mCalls.remove(call);
         }
     }
 
+    private synchronized boolean removeCall(Call call) {
+        return mCalls.remove(call);
+    }
+
     /**
      * Call wrapper logic.
      */
     private class Call extends HttpClientCallDecorator implements Runnable, ServiceCallback {
 
+        /**
+         * Staggered submission waiting for its delay, guarded by the handler lock.
+         */
+        private ScheduledFuture<?> mRelease;
+
         Call(HttpClient decoratedApi, String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
             super(decoratedApi, url, method, headers, callTemplate, serviceCallback);
         }
@@ -1,7 +1,5 @@
 package com.microsoft.appcenter.http;
 
-import android.os.Handler;
-import android.os.Looper;
 import android.support.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.AppCenter;
@@ -9,8 +7,7 @@ import com.microsoft.appcenter.utils.AppCenterLog;
 
 import java.net.UnknownHostException;
 import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * Decorator managing retries.
@@ -18,44 +15,57 @@ import java.util.concurrent.TimeUnit;
 public class HttpClientRetryer extends HttpClientDecorator {
 
     /**
-     * Retry intervals to use, array index is to use the value for each retry. When we used all the array values, we give up and forward the last error.
+     * Executor timing the retries.
      */
-    @VisibleForTesting
-    static final long[] RETRY_INTERVALS = new long[]{
-            TimeUnit.SECONDS.toMillis(10),
-            TimeUnit.MINUTES.toMillis(5),
-            TimeUnit.MINUTES.toMillis(20)
-    };
+    private final NetworkExecutor mNetworkExecutor;
 
     /**
-     * Android "timer" using the main thread loop.
+     * Policy deciding retries and their delays.
      */
-    private final Handler mHandler;
+    private final RetryPolicy mRetryPolicy;
 
     /**
-     * Random object for interval randomness.
+     * Init with default retry policy.
+     *
+     * @param decoratedApi API to decorate.
      */
-    private final Random mRandom = new Random();
+    public HttpClientRetryer(HttpClient decoratedApi) {
+        this(decoratedApi, DefaultRetryPolicy.getSharedInstance());
+    }
 
     /**
-     * Init with default retry policy.
+     * Init with a custom retry policy.
      *
      * @param decoratedApi API to decorate.
+     * @param retryPolicy  retry policy.
      */
-    public HttpClientRetryer(HttpClient decoratedApi) {
-        this(decoratedApi, new Handler(Looper.getMainLooper()));
+    public HttpClientRetryer(HttpClient decoratedApi, RetryPolicy retryPolicy) {
+        this(decoratedApi, NetworkExecutor.getSharedInstance(), retryPolicy);
     }
 
     /**
      * Init.
      *
-     * @param decoratedApi API to decorate.
-     * @param handler      handler for timed retries.
+     * @param decoratedApi    API to decorate.
+     * @param networkExecutor executor for timed retries.
      */
     @VisibleForTesting
-    HttpClientRetryer(HttpClient decoratedApi, Handler handler) {
+    HttpClientRetryer(HttpClient decoratedApi, NetworkExecutor networkExecutor) {
+        this(decoratedApi, networkExecutor, DefaultRetryPolicy.getSharedInstance());
+    }
+
+    /**
+     * Init.
+     *
+     * @param decoratedApi    API to decorate.
+     * @param networkExecutor executor for timed retries.
+     * @param retryPolicy     retry policy.
+     */
+    @VisibleForTesting
+    HttpClientRetryer(HttpClient decoratedApi, NetworkExecutor networkExecutor, RetryPolicy retryPolicy) {
         super(decoratedApi);
-        mHandler = handler;
+        mNetworkExecutor = networkExecutor;
+        mRetryPolicy = retryPolicy;
     }
 
 
@@ -78,30 +88,48 @@ public class HttpClientRetryer extends HttpClientDecorator {
          */
         private int mRetryCount;
 
+        /**
+         * Delay used before the last retry.
+         */
+        private long mPreviousDelay;
+
+        /**
+         * Retry waiting for its delay.
+         */
+        private ScheduledFuture<?> mRetry;
+
         RetryableCall(HttpClient decoratedApi, String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
             super(decoratedApi, url, method, headers, callTemplate, serviceCallback);
         }
 
         @Override
         public synchronized void cancel() {
-            mHandler.removeCallbacks(this);
+            if (mRetry != null) {
+                mRetry.cancel(false);
+                mRetry = null;
+            }
             super.cancel();
         }
 
         @Override
         public void onCallFailed(Exception e) {
-            if (mRetryCount < RETRY_INTERVALS.length && HttpUtils.isRecoverableError(e)) {
-                long delay = RETRY_INTERVALS[mRetryCount++] / 2;
-                delay += mRandom.nextInt((int) delay);
+            long delay = mRetryPolicy.getRetryDelay(mUrl, mRetryCount, mPreviousDelay, e);
+            if (delay != RetryPolicy.GIVE_UP) {
+                mRetryCount++;
+                mPreviousDelay = delay;
                 String message = "Try #" + mRetryCount + " failed and will be retried in " + delay + " ms";
                 if (e instanceof UnknownHostException) {
                     message += " (UnknownHostException)";
                 }
                 AppCenterLog.warn(AppCenter.LOG_TAG, message, e);
-                mHandler.postDelayed(this, delay);
+                scheduleRetry(delay);
             } else {
                 mServiceCallback.onCallFailed(e);
             }
         }
+
+        private synchronized void scheduleRetry(long delay) {
+            mRetry = mNetworkExecutor.schedule(this, delay);
+        }
     }
 }
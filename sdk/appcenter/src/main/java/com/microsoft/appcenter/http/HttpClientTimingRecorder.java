@@ -0,0 +1,103 @@
+package com.microsoft.appcenter.http;
+
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.AppCenter;
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Decorator recording the phase timings of each call in {@link HttpMetrics}.
+ * It must decorate the {@link DefaultHttpClient} directly to receive the timings of each phase,
+ * otherwise only the total time is recorded.
+ */
+public class HttpClientTimingRecorder extends HttpClientDecorator {
+
+    /**
+     * Metrics to record to.
+     */
+    private final HttpMetrics mHttpMetrics;
+
+    /**
+     * Init with the shared metrics.
+     *
+     * @param decoratedApi API to decorate.
+     */
+    public HttpClientTimingRecorder(HttpClient decoratedApi) {
+        this(decoratedApi, HttpMetrics.getSharedInstance());
+    }
+
+    /**
+     * Init.
+     *
+     * @param decoratedApi API to decorate.
+     * @param httpMetrics  metrics to record to.
+     */
+    @VisibleForTesting
+    HttpClientTimingRecorder(HttpClient decoratedApi, HttpMetrics httpMetrics) {
+        super(decoratedApi);
+        mHttpMetrics = httpMetrics;
+    }
+
+    @Override
+    public ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
+        return mDecoratedApi.callAsync(url, method, headers, callTemplate, new TimedCallback(url, serviceCallback));
+    }
+
+    /**
+     * Callback wrapper recording timings before forwarding the result.
+     */
+    private class TimedCallback implements TimedServiceCallback {
+
+        private final String mUrl;
+
+        private final ServiceCallback mServiceCallback;
+
+        private final long mStartTime = SystemClock.elapsedRealtime();
+
+        private CallTimings mCallTimings;
+
+        TimedCallback(String url, ServiceCallback serviceCallback) {
+            mUrl = url;
+            mServiceCallback = serviceCallback;
+        }
+
+        @Override
+        public void onCallTimed(CallTimings callTimings) {
+            mCallTimings = callTimings;
+        }
+
+        @Override
+        public void onCallSucceeded(String payload) {
+            record();
+            mServiceCallback.onCallSucceeded(payload);
+        }
+
+        @Override
+        public void onCallFailed(Exception e) {
+            record();
+            mServiceCallback.onCallFailed(e);
+        }
+
+        private void record() {
+            CallTimings callTimings = mCallTimings;
+            if (callTimings == null) {
+                String host = "";
+                if (mUrl != null) {
+                    try {
+                        host = new URL(mUrl).getHost();
+                    } catch (MalformedURLException ignored) {
+                    }
+                }
+                callTimings = new CallTimings(host);
+            }
+            long totalTime = SystemClock.elapsedRealtime() - mStartTime;
+            mHttpMetrics.record(callTimings, totalTime);
+            AppCenterLog.verbose(AppCenter.LOG_TAG, "HTTP call timings: " + callTimings + " total=" + totalTime);
+        }
+    }
+}
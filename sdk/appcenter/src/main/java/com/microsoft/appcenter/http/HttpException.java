@@ -1,6 +1,7 @@
 package com.microsoft.appcenter.http;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
 import java.io.IOException;
@@ -20,6 +21,11 @@ public class HttpException extends IOException {
      */
     private final String payload;
 
+    /**
+     * Retry-After response header value.
+     */
+    private final String retryAfter;
+
     /**
      * Init with empty response body.
      *
@@ -37,9 +43,21 @@ public class HttpException extends IOException {
      */
     @SuppressWarnings("WeakerAccess")
     public HttpException(int status, @NonNull String payload) {
+        this(status, payload, null);
+    }
+
+    /**
+     * Init.
+     *
+     * @param status     HTTP status code.
+     * @param payload    HTTP payload.
+     * @param retryAfter Retry-After response header value if any.
+     */
+    public HttpException(int status, @NonNull String payload, @Nullable String retryAfter) {
         super(getDetailMessage(status, payload));
         this.payload = payload;
         this.statusCode = status;
+        this.retryAfter = retryAfter;
     }
 
     @NonNull
@@ -71,6 +89,16 @@ public class HttpException extends IOException {
         return payload;
     }
 
+    /**
+     * Get the Retry-After response header, either a number of seconds or an HTTP date.
+     *
+     * @return Retry-After header value or null if the server did not send it.
+     */
+    @Nullable
+    public String getRetryAfter() {
+        return retryAfter;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
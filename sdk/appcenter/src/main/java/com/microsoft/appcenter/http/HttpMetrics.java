@@ -0,0 +1,167 @@
+package com.microsoft.appcenter.http;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Histograms of HTTP call phases recorded by {@link HttpClientTimingRecorder},
+ * tagged by host and by request size class.
+ */
+public class HttpMetrics {
+
+    /**
+     * Time waiting for an executor thread.
+     */
+    public static final String PHASE_QUEUE = "queue";
+
+    /**
+     * Time building and compressing a request body that is not streamed.
+     */
+    public static final String PHASE_SERIALIZE = "serialize";
+
+    /**
+     * Time connecting, including host resolution and the TLS handshake.
+     */
+    public static final String PHASE_CONNECT = "connect";
+
+    /**
+     * Time writing the request body.
+     */
+    public static final String PHASE_WRITE = "write";
+
+    /**
+     * Time between the end of the request and the response status.
+     */
+    public static final String PHASE_TIME_TO_FIRST_BYTE = "ttfb";
+
+    /**
+     * Time reading the response body.
+     */
+    public static final String PHASE_READ = "read";
+
+    /**
+     * Time from the call to its result, including the queue time.
+     */
+    public static final String PHASE_TOTAL = "total";
+
+    /**
+     * Size class of calls with an unknown request length.
+     */
+    public static final String SIZE_UNKNOWN = "unknown";
+
+    /**
+     * Shared instance.
+     */
+    private static HttpMetrics sSharedInstance;
+
+    /**
+     * Histograms by key.
+     */
+    private final Map<String, Histogram> mHistograms = new HashMap<>();
+
+    /**
+     * Get shared instance.
+     *
+     * @return shared instance.
+     */
+    public static synchronized HttpMetrics getSharedInstance() {
+        if (sSharedInstance == null) {
+            sSharedInstance = new HttpMetrics();
+        }
+        return sSharedInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void unsetInstance() {
+        sSharedInstance = null;
+    }
+
+    /**
+     * Get the size class of a request, used to tell apart small and large batches.
+     *
+     * @param requestBytes request body length on the wire, -1 if unknown.
+     * @return size class.
+     */
+    @NonNull
+    public static String getSizeClass(long requestBytes) {
+        if (requestBytes < 0) {
+            return SIZE_UNKNOWN;
+        } else if (requestBytes < 1024) {
+            return "<1KB";
+        } else if (requestBytes < 10 * 1024) {
+            return "<10KB";
+        } else if (requestBytes < 100 * 1024) {
+            return "<100KB";
+        }
+        return ">=100KB";
+    }
+
+    private static String getKey(String host, String sizeClass, String phase) {
+        return host + " " + sizeClass + " " + phase;
+    }
+
+    /**
+     * Record the timings of a call.
+     *
+     * @param callTimings phase timings.
+     * @param totalTime   time from the call to its result in milliseconds.
+     */
+    synchronized void record(@NonNull CallTimings callTimings, long totalTime) {
+        String host = callTimings.getHost();
+        String sizeClass = getSizeClass(callTimings.getRequestBytes());
+        record(host, sizeClass, PHASE_QUEUE, callTimings.getQueueTime());
+        record(host, sizeClass, PHASE_SERIALIZE, callTimings.getSerializeTime());
+        record(host, sizeClass, PHASE_CONNECT, callTimings.getConnectTime());
+        record(host, sizeClass, PHASE_WRITE, callTimings.getWriteTime());
+        record(host, sizeClass, PHASE_TIME_TO_FIRST_BYTE, callTimings.getTimeToFirstByte());
+        record(host, sizeClass, PHASE_READ, callTimings.getReadTime());
+        record(host, sizeClass, PHASE_TOTAL, totalTime);
+    }
+
+    private void record(String host, String sizeClass, String phase, long value) {
+        if (value < 0) {
+            return;
+        }
+        String key = getKey(host, sizeClass, phase);
+        Histogram histogram = mHistograms.get(key);
+        if (histogram == null) {
+            histogram = new Histogram();
+            mHistograms.put(key, histogram);
+        }
+        histogram.record(value);
+    }
+
+    /**
+     * Get the histogram of a phase.
+     *
+     * @param host      host.
+     * @param sizeClass size class as returned by {@link #getSizeClass(long)}.
+     * @param phase     one of the PHASE constants.
+     * @return histogram or null if nothing was recorded.
+     */
+    @Nullable
+    public synchronized Histogram getHistogram(String host, String sizeClass, String phase) {
+        return mHistograms.get(getKey(host, sizeClass, phase));
+    }
+
+    /**
+     * Get all histograms.
+     *
+     * @return histograms keyed by host, size class and phase separated by spaces.
+     */
+    @NonNull
+    public synchronized Map<String, Histogram> getHistograms() {
+        return new HashMap<>(mHistograms);
+    }
+
+    /**
+     * Forget recorded values.
+     */
+    public synchronized void reset() {
+        mHistograms.clear();
+    }
+}
@@ -0,0 +1,215 @@
+package com.microsoft.appcenter.http;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor dedicated to the SDK network calls, so that they don't compete with the host application
+ * for the shared {@link android.os.AsyncTask} thread pool and don't need the main looper.
+ * The number of threads is bounded, calls exceeding it wait in a queue.
+ * Delayed work such as retries is timed by a single scheduler thread and then runs on the pool.
+ */
+public class NetworkExecutor implements Executor {
+
+    /**
+     * Default number of threads, one per batch the channel sends in parallel by default:
+     * 3 for App Center ingestion and 2 for One Collector ingestion.
+     */
+    @VisibleForTesting
+    static final int DEFAULT_THREAD_COUNT = 5;
+
+    /**
+     * Idle time after which a thread is stopped, in milliseconds.
+     */
+    private static final long KEEP_ALIVE_TIME = 30000;
+
+    /**
+     * Thread name prefix.
+     */
+    private static final String THREAD_NAME_PREFIX = "AppCenter.Network-";
+
+    /**
+     * Scheduler thread name.
+     */
+    private static final String SCHEDULER_THREAD_NAME = "AppCenter.NetworkScheduler";
+
+    /**
+     * Shared instance.
+     */
+    private static NetworkExecutor sSharedInstance;
+
+    /**
+     * Thread pool.
+     */
+    private final ThreadPoolExecutor mThreadPoolExecutor;
+
+    /**
+     * Timer for delayed work, it only hands the work over to the thread pool.
+     */
+    private final ScheduledThreadPoolExecutor mScheduler;
+
+    /**
+     * Highest number of calls observed waiting for a thread.
+     */
+    private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+
+    /**
+     * Init.
+     *
+     * @param threadCount number of threads.
+     */
+    @VisibleForTesting
+    NetworkExecutor(int threadCount) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        mThreadPoolExecutor = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                return new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+            }
+        });
+        mThreadPoolExecutor.allowCoreThreadTimeOut(true);
+        mScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                return new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, SCHEDULER_THREAD_NAME);
+            }
+        });
+        mScheduler.setKeepAliveTime(KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS);
+        mScheduler.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get shared instance.
+     *
+     * @return shared instance.
+     */
+    public static synchronized NetworkExecutor getSharedInstance() {
+        if (sSharedInstance == null) {
+            sSharedInstance = new NetworkExecutor(DEFAULT_THREAD_COUNT);
+        }
+        return sSharedInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void unsetInstance() {
+        sSharedInstance = null;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        mThreadPoolExecutor.execute(command);
+        int queueDepth = mThreadPoolExecutor.getQueue().size();
+        int maxQueueDepth;
+        do {
+            maxQueueDepth = mMaxQueueDepth.get();
+        } while (queueDepth > maxQueueDepth && !mMaxQueueDepth.compareAndSet(maxQueueDepth, queueDepth));
+    }
+
+    /**
+     * Run a command on the network threads after a delay.
+     *
+     * @param command command to run.
+     * @param delay   delay in milliseconds.
+     * @return future to cancel the command while it waits for the delay.
+     */
+    public ScheduledFuture<?> schedule(@NonNull final Runnable command, long delay) {
+        return mScheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                execute(command);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set the maximum number of network calls running in parallel.
+     *
+     * @param threadCount number of threads, must be at least 1.
+     */
+    public synchronized void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be at least 1.");
+        }
+
+        /* Maximum pool size can't be lower than core pool size at any time. */
+        if (threadCount > mThreadPoolExecutor.getMaximumPoolSize()) {
+            mThreadPoolExecutor.setMaximumPoolSize(threadCount);
+            mThreadPoolExecutor.setCorePoolSize(threadCount);
+        } else {
+            mThreadPoolExecutor.setCorePoolSize(threadCount);
+            mThreadPoolExecutor.setMaximumPoolSize(threadCount);
+        }
+    }
+
+    /**
+     * Get the maximum number of network calls running in parallel.
+     *
+     * @return number of threads.
+     */
+    public int getThreadCount() {
+        return mThreadPoolExecutor.getMaximumPoolSize();
+    }
+
+    /**
+     * Get the number of calls waiting for a thread.
+     *
+     * @return queue depth.
+     */
+    public int getQueueDepth() {
+        return mThreadPoolExecutor.getQueue().size();
+    }
+
+    /**
+     * Get the highest number of calls that waited for a thread at the same time.
+     *
+     * @return maximum queue depth observed.
+     */
+    public int getMaxQueueDepth() {
+        return mMaxQueueDepth.get();
+    }
+
+    /**
+     * Get the number of calls currently running.
+     *
+     * @return approximate number of active calls.
+     */
+    public int getActiveCount() {
+        return mThreadPoolExecutor.getActiveCount();
+    }
+
+    /**
+     * Get the number of calls that completed.
+     *
+     * @return approximate number of completed calls.
+     */
+    public long getCompletedCount() {
+        return mThreadPoolExecutor.getCompletedTaskCount();
+    }
+}
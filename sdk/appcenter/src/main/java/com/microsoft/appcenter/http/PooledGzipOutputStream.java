@@ -0,0 +1,96 @@
+package com.microsoft.appcenter.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Same output as {@link java.util.zip.GZIPOutputStream} but using a deflater from {@link DeflaterPool}
+ * with a chosen compression level. The deflater goes back to the pool when the stream is closed.
+ */
+class PooledGzipOutputStream extends DeflaterOutputStream {
+
+    /**
+     * Compressed data buffer size.
+     */
+    private static final int BUFFER_SIZE = 512;
+
+    /**
+     * GZIP header: magic number, deflate method, no flag, no modification time, no extra flag, unknown OS.
+     */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    /**
+     * Trailer size.
+     */
+    private static final int TRAILER_SIZE = 8;
+
+    /**
+     * Checksum of uncompressed data.
+     */
+    private final CRC32 mCrc = new CRC32();
+
+    /**
+     * Whether the deflater was given back.
+     */
+    private boolean mReleased;
+
+    /**
+     * Init and write the header.
+     *
+     * @param out   stream to write compressed data to.
+     * @param level compression level.
+     * @throws IOException if writing the header fails.
+     */
+    PooledGzipOutputStream(OutputStream out, int level) throws IOException {
+        super(out, DeflaterPool.acquire(level), BUFFER_SIZE);
+        try {
+            out.write(HEADER);
+        } catch (IOException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        super.write(buffer, offset, length);
+        mCrc.update(buffer, offset, length);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (!def.finished()) {
+            super.finish();
+            long crc = mCrc.getValue();
+            long size = def.getBytesRead();
+            byte[] trailer = new byte[TRAILER_SIZE];
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte) (crc >> (8 * i));
+                trailer[4 + i] = (byte) (size >> (8 * i));
+            }
+            out.write(trailer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Give the deflater back to the pool, the stream can no longer be used after that.
+     */
+    void release() {
+        if (!mReleased) {
+            mReleased = true;
+            DeflaterPool.release(def);
+        }
+    }
+}
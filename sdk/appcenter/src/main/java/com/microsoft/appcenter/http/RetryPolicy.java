@@ -0,0 +1,26 @@
+package com.microsoft.appcenter.http;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Decide if and when {@link HttpClientRetryer} retries a failed call.
+ */
+public interface RetryPolicy {
+
+    /**
+     * Value returned by {@link #getRetryDelay} to stop retrying and forward the error.
+     */
+    long GIVE_UP = -1;
+
+    /**
+     * Get the delay before retrying a failed call.
+     *
+     * @param url           URL of the call.
+     * @param retryCount    number of retries already made for this call, 0 after the first failure.
+     * @param previousDelay delay used before the last retry, 0 if there was no retry yet.
+     * @param e             error of the last try.
+     * @return delay in milliseconds or {@link #GIVE_UP}.
+     */
+    long getRetryDelay(@Nullable String url, int retryCount, long previousDelay, @NonNull Exception e);
+}
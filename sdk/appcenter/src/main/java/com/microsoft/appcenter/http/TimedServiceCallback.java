@@ -0,0 +1,14 @@
+package com.microsoft.appcenter.http;
+
+/**
+ * Callback that also receives the phase timings of the call, before the result.
+ */
+public interface TimedServiceCallback extends ServiceCallback {
+
+    /**
+     * Called with the timings measured by the HTTP client, just before the call result.
+     *
+     * @param callTimings timings of the call.
+     */
+    void onCallTimed(CallTimings callTimings);
+}
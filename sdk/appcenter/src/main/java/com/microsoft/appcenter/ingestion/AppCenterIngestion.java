@@ -2,12 +2,14 @@ package com.microsoft.appcenter.ingestion;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.http.DefaultHttpClient;
 import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.http.HttpClientNetworkStateHandler;
 import com.microsoft.appcenter.http.HttpClientRetryer;
+import com.microsoft.appcenter.http.HttpClientTimingRecorder;
 import com.microsoft.appcenter.http.HttpUtils;
 import com.microsoft.appcenter.http.ServiceCall;
 import com.microsoft.appcenter.http.ServiceCallback;
@@ -19,6 +21,7 @@ import com.microsoft.appcenter.utils.NetworkStateHelper;
 import org.json.JSONException;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
@@ -64,6 +67,11 @@ public class AppCenterIngestion implements Ingestion {
      */
     private final HttpClient mHttpClient;
 
+    /**
+     * Default HTTP client making the calls, wrapped by {@link #mHttpClient}, null if a custom client is used.
+     */
+    private final DefaultHttpClient mDefaultHttpClient;
+
     /**
      * Log base URL (scheme + authority).
      */
@@ -76,10 +84,29 @@ public class AppCenterIngestion implements Ingestion {
      * @param logSerializer log serializer.
      */
     public AppCenterIngestion(@NonNull Context context, @NonNull LogSerializer logSerializer) {
+        this(context, logSerializer, null);
+    }
+
+    /**
+     * Init with a custom HTTP client, still wrapped for retries and network state.
+     *
+     * @param context       any context.
+     * @param logSerializer log serializer.
+     * @param httpClient    HTTP client making the calls, null to use {@link DefaultHttpClient}.
+     */
+    public AppCenterIngestion(@NonNull Context context, @NonNull LogSerializer logSerializer, @Nullable HttpClient httpClient) {
         mLogSerializer = logSerializer;
-        HttpClientRetryer retryer = new HttpClientRetryer(new DefaultHttpClient());
+        if (httpClient == null) {
+            mDefaultHttpClient = new DefaultHttpClient(true);
+            httpClient = mDefaultHttpClient;
+        } else {
+            mDefaultHttpClient = null;
+        }
+        HttpClientRetryer retryer = new HttpClientRetryer(new HttpClientTimingRecorder(httpClient));
         NetworkStateHelper networkStateHelper = NetworkStateHelper.getSharedInstance(context);
-        mHttpClient = new HttpClientNetworkStateHandler(retryer, networkStateHelper);
+        HttpClientNetworkStateHandler networkStateHandler = new HttpClientNetworkStateHandler(retryer, networkStateHelper);
+        networkStateHandler.setPrewarmClient(httpClient instanceof HttpClient.PrewarmingHttpClient ? (HttpClient.PrewarmingHttpClient) httpClient : null);
+        mHttpClient = networkStateHandler;
         mLogUrl = DEFAULT_LOG_URL;
     }
 
@@ -94,6 +121,20 @@ public class AppCenterIngestion implements Ingestion {
         mLogUrl = logUrl;
     }
 
+    /**
+     * Choose how request bodies are compressed for this ingestion, to trade battery for bandwidth.
+     * Ignored when a custom HTTP client is used, it handles compression itself.
+     *
+     * @param level     compression level, {@link java.util.zip.Deflater#NO_COMPRESSION} disables compression.
+     * @param minLength minimum payload length in bytes to compress when the payload is not streamed.
+     * @see DefaultHttpClient#setCompression(int, int)
+     */
+    public void setCompression(int level, int minLength) {
+        if (mDefaultHttpClient != null) {
+            mDefaultHttpClient.setCompression(level, minLength);
+        }
+    }
+
     @Override
     public ServiceCall sendAsync(String appSecret, UUID installId, LogContainer logContainer, final ServiceCallback serviceCallback) throws IllegalArgumentException {
         Map<String, String> headers = new HashMap<>();
@@ -116,7 +157,7 @@ public class AppCenterIngestion implements Ingestion {
     /**
      * Inner class is used to be able to mock System.currentTimeMillis, does not work if using anonymous inner class...
      */
-    private static class IngestionCallTemplate implements HttpClient.CallTemplate {
+    private static class IngestionCallTemplate implements HttpClient.StreamingCallTemplate, HttpClient.ResponseBodyIgnoredCallTemplate {
 
         private final LogSerializer mLogSerializer;
 
@@ -134,6 +175,13 @@ public class AppCenterIngestion implements Ingestion {
             return mLogSerializer.serializeContainer(mLogContainer);
         }
 
+        @Override
+        public void writeRequestBody(OutputStream out) throws JSONException, IOException {
+
+            /* Serialize payload one log at a time. */
+            mLogSerializer.writeContainer(mLogContainer, out);
+        }
+
         @Override
         public void onBeforeCalling(URL url, Map<String, String> headers) {
             if (AppCenterLog.getLogLevel() <= VERBOSE) {
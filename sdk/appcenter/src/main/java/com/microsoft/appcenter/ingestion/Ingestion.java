@@ -18,7 +18,8 @@ public interface Ingestion extends Closeable {
      * @param appSecret       a unique and secret key used to identify the application.
      * @param installId       install identifier.
      * @param logContainer    payload.
-     * @param serviceCallback the async ServiceCallback to handle successful and failed responses.
+     * @param serviceCallback the async ServiceCallback to handle successful and failed responses,
+     *                        the payload of a successful response is not read and is always empty.
      * @return the {@link ServiceCall} object
      * @throws IllegalArgumentException thrown if callback is null
      */
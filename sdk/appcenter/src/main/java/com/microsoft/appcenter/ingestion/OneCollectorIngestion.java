@@ -2,6 +2,7 @@ package com.microsoft.appcenter.ingestion;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.Constants;
@@ -9,6 +10,7 @@ import com.microsoft.appcenter.http.DefaultHttpClient;
 import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.http.HttpClientNetworkStateHandler;
 import com.microsoft.appcenter.http.HttpClientRetryer;
+import com.microsoft.appcenter.http.HttpClientTimingRecorder;
 import com.microsoft.appcenter.http.HttpUtils;
 import com.microsoft.appcenter.http.ServiceCall;
 import com.microsoft.appcenter.http.ServiceCallback;
@@ -24,6 +26,9 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -95,6 +100,11 @@ public class OneCollectorIngestion implements Ingestion {
      */
     private final HttpClient mHttpClient;
 
+    /**
+     * Default HTTP client making the calls, wrapped by {@link #mHttpClient}, null if a custom client is used.
+     */
+    private final DefaultHttpClient mDefaultHttpClient;
+
     /**
      * Log base URL (scheme + authority).
      */
@@ -107,10 +117,29 @@ public class OneCollectorIngestion implements Ingestion {
      * @param logSerializer log serializer.
      */
     public OneCollectorIngestion(@NonNull Context context, @NonNull LogSerializer logSerializer) {
+        this(context, logSerializer, null);
+    }
+
+    /**
+     * Init with a custom HTTP client, still wrapped for retries and network state.
+     *
+     * @param context       any context.
+     * @param logSerializer log serializer.
+     * @param httpClient    HTTP client making the calls, null to use {@link DefaultHttpClient}.
+     */
+    public OneCollectorIngestion(@NonNull Context context, @NonNull LogSerializer logSerializer, @Nullable HttpClient httpClient) {
         mLogSerializer = logSerializer;
-        HttpClientRetryer retryer = new HttpClientRetryer(new DefaultHttpClient());
+        if (httpClient == null) {
+            mDefaultHttpClient = new DefaultHttpClient(true);
+            httpClient = mDefaultHttpClient;
+        } else {
+            mDefaultHttpClient = null;
+        }
+        HttpClientRetryer retryer = new HttpClientRetryer(new HttpClientTimingRecorder(httpClient));
         NetworkStateHelper networkStateHelper = NetworkStateHelper.getSharedInstance(context);
-        mHttpClient = new HttpClientNetworkStateHandler(retryer, networkStateHelper);
+        HttpClientNetworkStateHandler networkStateHandler = new HttpClientNetworkStateHandler(retryer, networkStateHelper);
+        networkStateHandler.setPrewarmClient(httpClient instanceof HttpClient.PrewarmingHttpClient ? (HttpClient.PrewarmingHttpClient) httpClient : null);
+        mHttpClient = networkStateHandler;
         mLogUrl = DEFAULT_LOG_URL;
     }
 
@@ -188,6 +217,20 @@ public class OneCollectorIngestion implements Ingestion {
         mLogUrl = logUrl;
     }
 
+    /**
+     * Choose how request bodies are compressed for this ingestion, to trade battery for bandwidth.
+     * Ignored when a custom HTTP client is used, it handles compression itself.
+     *
+     * @param level     compression level, {@link java.util.zip.Deflater#NO_COMPRESSION} disables compression.
+     * @param minLength minimum payload length in bytes to compress when the payload is not streamed.
+     * @see DefaultHttpClient#setCompression(int, int)
+     */
+    public void setCompression(int level, int minLength) {
+        if (mDefaultHttpClient != null) {
+            mDefaultHttpClient.setCompression(level, minLength);
+        }
+    }
+
     @Override
     public void reopen() {
         mHttpClient.reopen();
@@ -201,7 +244,7 @@ public class OneCollectorIngestion implements Ingestion {
     /**
      * Call template implementation for One Collector.
      */
-    private static class IngestionCallTemplate implements HttpClient.CallTemplate {
+    private static class IngestionCallTemplate implements HttpClient.StreamingCallTemplate, HttpClient.ResponseBodyIgnoredCallTemplate {
 
         /**
          * Log serializer.
@@ -224,8 +267,15 @@ public class OneCollectorIngestion implements Ingestion {
         @Override
         public String buildRequestBody() throws JSONException {
 
-            /* Serialize payload. */
+            /* Serialize payload, unless logs are already serialized. */
             StringBuilder jsonStream = new StringBuilder();
+            List<String> serializedLogs = mLogContainer.getSerializedLogs();
+            if (serializedLogs != null) {
+                for (String serializedLog : serializedLogs) {
+                    jsonStream.append(serializedLog).append('\n');
+                }
+                return jsonStream.toString();
+            }
             for (Log log : mLogContainer.getLogs()) {
                 jsonStream.append(mLogSerializer.serializeLog(log));
 
@@ -235,6 +285,26 @@ public class OneCollectorIngestion implements Ingestion {
             return jsonStream.toString();
         }
 
+        @Override
+        public void writeRequestBody(OutputStream out) throws JSONException, IOException {
+
+            /* Same as building the body, but only 1 log is serialized in memory at once. */
+            List<String> serializedLogs = mLogContainer.getSerializedLogs();
+            if (serializedLogs != null) {
+                Writer writer = new OutputStreamWriter(out, "UTF-8");
+                for (String serializedLog : serializedLogs) {
+                    writer.write(serializedLog);
+                    writer.write('\n');
+                }
+                writer.flush();
+            } else {
+                for (Log log : mLogContainer.getLogs()) {
+                    mLogSerializer.writeLog(log, out);
+                    out.write('\n');
+                }
+            }
+        }
+
         @Override
         public void onBeforeCalling(URL url, Map<String, String> headers) {
             if (AppCenterLog.getLogLevel() <= VERBOSE) {
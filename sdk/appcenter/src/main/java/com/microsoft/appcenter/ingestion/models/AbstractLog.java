@@ -2,14 +2,16 @@ package com.microsoft.appcenter.ingestion.models;
 
 
 import android.support.annotation.VisibleForTesting;
+import android.util.JsonReader;
 
 import com.microsoft.appcenter.ingestion.models.json.JSONDateUtils;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashSet;
@@ -157,9 +159,9 @@ public abstract class AbstractLog implements Log {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.write(writer, TYPE, getType());
-        writer.key(TIMESTAMP).value(JSONDateUtils.toString(getTimestamp()));
+        writer.key(TIMESTAMP).value(getTimestamp());
         JSONUtils.write(writer, SID, getSid());
         JSONUtils.write(writer, DISTRIBUTION_GROUP_ID, getDistributionGroupId());
         if (getDevice() != null) {
@@ -188,6 +190,62 @@ public abstract class AbstractLog implements Log {
         }
     }
 
+    /**
+     * Read the properties of a log in one pass. The type property may have been consumed
+     * by the caller to select the log factory, otherwise it is checked.
+     *
+     * @param reader reader positioned inside the object.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the log is invalid.
+     */
+    @Override
+    public void read(JsonReader reader) throws IOException, JSONException {
+        while (reader.hasNext()) {
+            if (!readField(reader.nextName(), reader)) {
+                reader.skipValue();
+            }
+        }
+        JSONUtils.checkRequired(TIMESTAMP, getTimestamp());
+    }
+
+    /**
+     * Read a property in {@link #read(JsonReader)}.
+     *
+     * @param name   property name.
+     * @param reader reader positioned on the property value.
+     * @return false if the property is unknown, its value is then skipped.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the value is invalid.
+     */
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case TYPE:
+                if (!reader.nextString().equals(getType())) {
+                    throw new JSONException("Invalid type");
+                }
+                return true;
+
+            case TIMESTAMP:
+                setTimestamp(JSONDateUtils.toDate(reader.nextString()));
+                return true;
+
+            case SID:
+                setSid(UUID.fromString(reader.nextString()));
+                return true;
+
+            case DISTRIBUTION_GROUP_ID:
+                setDistributionGroupId(reader.nextString());
+                return true;
+
+            case DEVICE:
+                setDevice(JSONUtils.readModel(reader, new Device()));
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
     @SuppressWarnings("SimplifiableIfStatement")
     @Override
     public boolean equals(Object o) {
@@ -1,13 +1,16 @@
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.json.JSONDateUtils;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -80,7 +83,58 @@ public class CustomPropertiesLog extends AbstractLog {
         return value;
     }
 
-    private static void writeProperties(JSONStringer writer, Map<String, Object> properties) throws JSONException {
+    private static Map<String, Object> readProperties(JsonReader reader) throws IOException, JSONException {
+        Map<String, Object> properties = new HashMap<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String key = null;
+            String type = null;
+            Object value = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case PROPERTY_NAME:
+                        key = reader.nextString();
+                        break;
+
+                    case PROPERTY_TYPE:
+                        type = reader.nextString();
+                        break;
+
+                    case PROPERTY_VALUE:
+                        value = JSONUtils.readValue(reader);
+                        break;
+
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            JSONUtils.checkRequired(PROPERTY_NAME, key);
+            JSONUtils.checkRequired(PROPERTY_TYPE, type);
+            properties.put(key, toPropertyValue(type, value));
+        }
+        reader.endArray();
+        return properties;
+    }
+
+    @SuppressWarnings("IfCanBeSwitch")
+    private static Object toPropertyValue(String type, Object value) throws JSONException {
+        if (type.equals(PROPERTY_TYPE_CLEAR)) {
+            return null;
+        } else if (type.equals(PROPERTY_TYPE_BOOLEAN) && value instanceof Boolean) {
+            return value;
+        } else if (type.equals(PROPERTY_TYPE_NUMBER) && value instanceof Number) {
+            return value;
+        } else if (type.equals(PROPERTY_TYPE_DATETIME) && value instanceof String) {
+            return JSONDateUtils.toDate((String) value);
+        } else if (type.equals(PROPERTY_TYPE_STRING) && value instanceof String) {
+            return value;
+        }
+        throw new JSONException("Invalid value type");
+    }
+
+    private static void writeProperties(JSONStreamWriter writer, Map<String, Object> properties) throws JSONException {
         if (properties != null) {
             writer.key(PROPERTIES).array();
             for (Map.Entry<String, Object> property : properties.entrySet()) {
@@ -95,7 +149,7 @@ public class CustomPropertiesLog extends AbstractLog {
         }
     }
 
-    private static void writePropertyValue(JSONStringer writer, Object value) throws JSONException {
+    private static void writePropertyValue(JSONStreamWriter writer, Object value) throws JSONException {
         if (value == null) {
             JSONUtils.write(writer, PROPERTY_TYPE, PROPERTY_TYPE_CLEAR);
         } else if (value instanceof Boolean) {
@@ -106,7 +160,7 @@ public class CustomPropertiesLog extends AbstractLog {
             JSONUtils.write(writer, PROPERTY_VALUE, value);
         } else if (value instanceof Date) {
             JSONUtils.write(writer, PROPERTY_TYPE, PROPERTY_TYPE_DATETIME);
-            JSONUtils.write(writer, PROPERTY_VALUE, JSONDateUtils.toString((Date) value));
+            writer.key(PROPERTY_VALUE).value((Date) value);
         } else if (value instanceof String) {
             JSONUtils.write(writer, PROPERTY_TYPE, PROPERTY_TYPE_STRING);
             JSONUtils.write(writer, PROPERTY_VALUE, value);
@@ -145,7 +199,22 @@ public class CustomPropertiesLog extends AbstractLog {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        super.read(reader);
+        JSONUtils.checkRequired(PROPERTIES, getProperties());
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        if (PROPERTIES.equals(name)) {
+            setProperties(readProperties(reader));
+            return true;
+        }
+        return super.readField(name, reader);
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         writeProperties(writer, getProperties());
     }
@@ -1,10 +1,14 @@
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
+
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 /**
  * Device characteristic log.
@@ -437,7 +441,95 @@ public class Device extends WrapperSdk {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        super.read(reader);
+        JSONUtils.checkRequired(SDK_NAME, getSdkName());
+        JSONUtils.checkRequired(SDK_VERSION, getSdkVersion());
+        JSONUtils.checkRequired(MODEL, getModel());
+        JSONUtils.checkRequired(OEM_NAME, getOemName());
+        JSONUtils.checkRequired(OS_NAME, getOsName());
+        JSONUtils.checkRequired(OS_VERSION, getOsVersion());
+        JSONUtils.checkRequired(LOCALE, getLocale());
+        JSONUtils.checkRequired(TIME_ZONE_OFFSET, getTimeZoneOffset());
+        JSONUtils.checkRequired(SCREEN_SIZE, getScreenSize());
+        JSONUtils.checkRequired(APP_VERSION, getAppVersion());
+        JSONUtils.checkRequired(APP_BUILD, getAppBuild());
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case SDK_NAME:
+                setSdkName(reader.nextString());
+                return true;
+
+            case SDK_VERSION:
+                setSdkVersion(reader.nextString());
+                return true;
+
+            case MODEL:
+                setModel(reader.nextString());
+                return true;
+
+            case OEM_NAME:
+                setOemName(reader.nextString());
+                return true;
+
+            case OS_NAME:
+                setOsName(reader.nextString());
+                return true;
+
+            case OS_VERSION:
+                setOsVersion(reader.nextString());
+                return true;
+
+            case OS_BUILD:
+                setOsBuild(JSONUtils.readString(reader));
+                return true;
+
+            case OS_API_LEVEL:
+                setOsApiLevel(JSONUtils.readInteger(reader));
+                return true;
+
+            case LOCALE:
+                setLocale(reader.nextString());
+                return true;
+
+            case TIME_ZONE_OFFSET:
+                setTimeZoneOffset(reader.nextInt());
+                return true;
+
+            case SCREEN_SIZE:
+                setScreenSize(reader.nextString());
+                return true;
+
+            case APP_VERSION:
+                setAppVersion(reader.nextString());
+                return true;
+
+            case CARRIER_NAME:
+                setCarrierName(JSONUtils.readString(reader));
+                return true;
+
+            case CARRIER_COUNTRY:
+                setCarrierCountry(JSONUtils.readString(reader));
+                return true;
+
+            case APP_BUILD:
+                setAppBuild(reader.nextString());
+                return true;
+
+            case APP_NAMESPACE:
+                setAppNamespace(JSONUtils.readString(reader));
+                return true;
+
+            default:
+                return super.readField(name, reader);
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         writer.key(SDK_NAME).value(getSdkName());
         writer.key(SDK_VERSION).value(getSdkVersion());
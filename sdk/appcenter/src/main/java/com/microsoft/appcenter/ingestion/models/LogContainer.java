@@ -12,6 +12,11 @@ public class LogContainer {
      */
     private List<Log> logs;
 
+    /**
+     * The logs already serialized as JSON, sent instead of serializing logs again if not null.
+     */
+    private List<String> serializedLogs;
+
     /**
      * Get the logs value.
      *
@@ -30,6 +35,24 @@ public class LogContainer {
         this.logs = logs;
     }
 
+    /**
+     * Get the serialized logs value.
+     *
+     * @return the serialized logs value
+     */
+    public List<String> getSerializedLogs() {
+        return this.serializedLogs;
+    }
+
+    /**
+     * Set the serialized logs value.
+     *
+     * @param serializedLogs the serialized logs value to set
+     */
+    public void setSerializedLogs(List<String> serializedLogs) {
+        this.serializedLogs = serializedLogs;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -39,11 +62,16 @@ public class LogContainer {
             return false;
         }
         LogContainer container = (LogContainer) o;
-        return logs != null ? logs.equals(container.logs) : container.logs == null;
+        if (logs != null ? !logs.equals(container.logs) : container.logs != null) {
+            return false;
+        }
+        return serializedLogs != null ? serializedLogs.equals(container.serializedLogs) : container.serializedLogs == null;
     }
 
     @Override
     public int hashCode() {
-        return logs != null ? logs.hashCode() : 0;
+        int result = logs != null ? logs.hashCode() : 0;
+        result = 31 * result + (serializedLogs != null ? serializedLogs.hashCode() : 0);
+        return result;
     }
 }
@@ -1,12 +1,27 @@
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
+
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
+
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 public interface Model {
 
     void read(JSONObject object) throws JSONException;
 
-    void write(JSONStringer writer) throws JSONException;
+    /**
+     * Read the properties of a JSON object in one pass, unknown properties are skipped.
+     * Like {@link #write(JSONStreamWriter)}, the caller begins and ends the object.
+     *
+     * @param reader reader positioned inside the object.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the model is invalid.
+     */
+    void read(JsonReader reader) throws IOException, JSONException;
+
+    void write(JSONStreamWriter writer) throws JSONException;
 }
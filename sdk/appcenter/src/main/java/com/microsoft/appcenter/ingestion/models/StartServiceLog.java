@@ -1,11 +1,14 @@
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
+
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -55,7 +58,16 @@ public class StartServiceLog extends AbstractLog {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        if (SERVICES.equals(name)) {
+            setServices(JSONUtils.readStringArray(reader));
+            return true;
+        }
+        return super.readField(name, reader);
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         super.write(writer);
         JSONUtils.writeStringArray(writer, SERVICES, getServices());
     }
@@ -1,10 +1,14 @@
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
+
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 public class WrapperSdk implements Model {
 
@@ -174,7 +178,56 @@ public class WrapperSdk implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        while (reader.hasNext()) {
+            if (!readField(reader.nextName(), reader)) {
+                reader.skipValue();
+            }
+        }
+    }
+
+    /**
+     * Read a property in {@link #read(JsonReader)}.
+     *
+     * @param name   property name.
+     * @param reader reader positioned on the property value.
+     * @return false if the property is unknown, its value is then skipped.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the value is invalid.
+     */
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+            case WRAPPER_SDK_VERSION:
+                setWrapperSdkVersion(JSONUtils.readString(reader));
+                return true;
+
+            case WRAPPER_SDK_NAME:
+                setWrapperSdkName(JSONUtils.readString(reader));
+                return true;
+
+            case WRAPPER_RUNTIME_VERSION:
+                setWrapperRuntimeVersion(JSONUtils.readString(reader));
+                return true;
+
+            case LIVE_UPDATE_RELEASE_LABEL:
+                setLiveUpdateReleaseLabel(JSONUtils.readString(reader));
+                return true;
+
+            case LIVE_UPDATE_DEPLOYMENT_KEY:
+                setLiveUpdateDeploymentKey(JSONUtils.readString(reader));
+                return true;
+
+            case LIVE_UPDATE_PACKAGE_HASH:
+                setLiveUpdatePackageHash(JSONUtils.readString(reader));
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.write(writer, WRAPPER_SDK_VERSION, getWrapperSdkVersion());
         JSONUtils.write(writer, WRAPPER_SDK_NAME, getWrapperSdkName());
         JSONUtils.write(writer, WRAPPER_RUNTIME_VERSION, getWrapperRuntimeVersion());
@@ -1,6 +1,8 @@
 package com.microsoft.appcenter.ingestion.models.json;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.JsonReader;
 
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
@@ -9,8 +11,10 @@ import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -25,14 +29,37 @@ public class DefaultLogSerializer implements LogSerializer {
 
     private final Map<String, LogFactory> mLogFactories = new HashMap<>();
 
+    /**
+     * Writer of each thread, reused to avoid growing a new buffer for each log.
+     */
+    private final ThreadLocal<JSONStreamWriter> mWriters = new ThreadLocal<JSONStreamWriter>() {
+
+        @Override
+        protected JSONStreamWriter initialValue() {
+            return new JSONStreamWriter();
+        }
+    };
+
     @NonNull
-    private JSONStringer writeLog(JSONStringer writer, Log log) throws JSONException {
+    private JSONStreamWriter writeLog(JSONStreamWriter writer, Log log) throws JSONException {
         writer.object();
         log.write(writer);
         writer.endObject();
         return writer;
     }
 
+    /**
+     * Get the writer of the current thread, to {@link JSONStreamWriter#reset()} after use.
+     *
+     * @return writer.
+     */
+    @NonNull
+    private JSONStreamWriter obtainWriter() {
+        JSONStreamWriter writer = mWriters.get();
+        writer.reset();
+        return writer;
+    }
+
     @NonNull
     private Log readLog(JSONObject object, String type) throws JSONException {
         if (type == null) {
@@ -47,16 +74,85 @@ public class DefaultLogSerializer implements LogSerializer {
         return log;
     }
 
+    /**
+     * Read a log in one pass, without building a {@link JSONObject}.
+     *
+     * @param reader reader positioned inside the log object.
+     * @param type   log type or null to read it from the type property.
+     * @return the log, or null if the type is not known and is not the first property
+     * (logs written by this SDK always start with it), the payload must then be read as a {@link JSONObject}.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the log is invalid.
+     */
+    @Nullable
+    private Log readLog(JsonReader reader, String type) throws IOException, JSONException {
+        if (type == null) {
+            if (!reader.hasNext() || !TYPE.equals(reader.nextName())) {
+                return null;
+            }
+            type = reader.nextString();
+        }
+        LogFactory logFactory = mLogFactories.get(type);
+        if (logFactory == null) {
+            throw new JSONException("Unknown log type: " + type);
+        }
+        Log log = logFactory.create();
+        log.read(reader);
+        return log;
+    }
+
+    @NonNull
+    private LogContainer readContainer(JSONObject jContainer, String type) throws JSONException {
+        LogContainer container = new LogContainer();
+        JSONArray jLogs = jContainer.getJSONArray(LOGS);
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < jLogs.length(); i++) {
+            JSONObject jLog = jLogs.getJSONObject(i);
+            Log log = readLog(jLog, type);
+            logs.add(log);
+        }
+        container.setLogs(logs);
+        return container;
+    }
+
     @NonNull
     @Override
     public String serializeLog(@NonNull Log log) throws JSONException {
-        return writeLog(new JSONStringer(), log).toString();
+        JSONStreamWriter writer = obtainWriter();
+        try {
+            return writeLog(writer, log).toString();
+        } finally {
+            writer.reset();
+        }
+    }
+
+    @Override
+    public void writeLog(@NonNull Log log, @NonNull OutputStream out) throws JSONException, IOException {
+        JSONStreamWriter writer = obtainWriter();
+        try {
+            writeLog(writer, log).flushTo(out);
+        } finally {
+            writer.reset();
+        }
     }
 
     @NonNull
     @Override
     public Log deserializeLog(@NonNull String json, String type) throws JSONException {
-        return readLog(new JSONObject(json), type);
+        JsonReader reader = new JsonReader(new StringReader(json));
+        try {
+            reader.beginObject();
+            Log log = readLog(reader, type);
+            if (log == null) {
+                return readLog(new JSONObject(json), type);
+            }
+            reader.endObject();
+            return log;
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+
+            /* Malformed JSON, unexpected value types and invalid numbers or identifiers. */
+            throw new JSONException(e.getMessage());
+        }
     }
 
     @Override
@@ -68,34 +164,96 @@ public class DefaultLogSerializer implements LogSerializer {
     @Override
     public String serializeContainer(@NonNull LogContainer logContainer) throws JSONException {
 
-        /* Init JSON serializer. */
-        JSONStringer writer = new JSONStringer();
+        /* Logs are already serialized, just wrap them. */
+        List<String> serializedLogs = logContainer.getSerializedLogs();
+        if (serializedLogs != null) {
+            StringBuilder builder = new StringBuilder("{\"" + LOGS + "\":[");
+            for (int i = 0; i < serializedLogs.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(serializedLogs.get(i));
+            }
+            return builder.append("]}").toString();
+        }
 
         /* Start writing JSON. */
-        writer.object();
-        writer.key(LOGS).array();
-        for (Log log : logContainer.getLogs()) {
-            writeLog(writer, log);
+        JSONStreamWriter writer = obtainWriter();
+        try {
+            writer.object();
+            writer.key(LOGS).array();
+            for (Log log : logContainer.getLogs()) {
+                writeLog(writer, log);
+            }
+            writer.endArray();
+            writer.endObject();
+            return writer.toString();
+        } finally {
+            writer.reset();
+        }
+    }
+
+    @Override
+    public void writeContainer(@NonNull LogContainer logContainer, @NonNull OutputStream out) throws JSONException, IOException {
+        JSONStreamWriter writer = obtainWriter();
+        try {
+            writer.object();
+            writer.key(LOGS).array();
+            List<String> serializedLogs = logContainer.getSerializedLogs();
+            if (serializedLogs != null) {
+                for (String serializedLog : serializedLogs) {
+                    writer.rawValue(serializedLog);
+                    writer.flushTo(out);
+                }
+            } else {
+                for (Log log : logContainer.getLogs()) {
+                    writeLog(writer, log);
+                    writer.flushTo(out);
+                }
+            }
+            writer.endArray();
+            writer.endObject();
+            writer.flushTo(out);
+        } finally {
+            writer.reset();
         }
-        writer.endArray();
-        writer.endObject();
-        return writer.toString();
     }
 
     @NonNull
     @Override
     public LogContainer deserializeContainer(@NonNull String json, String type) throws JSONException {
-        JSONObject jContainer = new JSONObject(json);
-        LogContainer container = new LogContainer();
-        JSONArray jLogs = jContainer.getJSONArray(LOGS);
-        List<Log> logs = new ArrayList<>();
-        for (int i = 0; i < jLogs.length(); i++) {
-            JSONObject jLog = jLogs.getJSONObject(i);
-            Log log = readLog(jLog, type);
-            logs.add(log);
+        JsonReader reader = new JsonReader(new StringReader(json));
+        try {
+            List<Log> logs = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (LOGS.equals(reader.nextName())) {
+                    logs = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reader.beginObject();
+                        Log log = readLog(reader, type);
+                        if (log == null) {
+                            return readContainer(new JSONObject(json), type);
+                        }
+                        reader.endObject();
+                        logs.add(log);
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            JSONUtils.checkRequired(LOGS, logs);
+            LogContainer container = new LogContainer();
+            container.setLogs(logs);
+            return container;
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+
+            /* Malformed JSON, unexpected value types and invalid numbers or identifiers. */
+            throw new JSONException(e.getMessage());
         }
-        container.setLogs(logs);
-        return container;
     }
 
     @Override
@@ -29,6 +29,27 @@ public final class JSONDateUtils {
         }
     };
 
+    /**
+     * Length of a formatted date.
+     */
+    static final int FORMATTED_LENGTH = 24;
+
+    /**
+     * Milliseconds per day.
+     */
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000;
+
+    /**
+     * First time formatted without {@link SimpleDateFormat}: 1583-01-01T00:00:00.000Z,
+     * before that the calendar is Julian.
+     */
+    private static final long FAST_FORMAT_MIN_TIME = -12212553600000L;
+
+    /**
+     * Last time formatted without {@link SimpleDateFormat}: 9999-12-31T23:59:59.999Z.
+     */
+    private static final long FAST_FORMAT_MAX_TIME = 253402300799999L;
+
     /**
      * Check date parameter is null.
      *
@@ -49,10 +70,72 @@ public final class JSONDateUtils {
      * @throws JSONException if the date is null.
      */
     public static String toString(Date date) throws JSONException {
-        checkNull(date);
+        char[] chars = new char[FORMATTED_LENGTH];
+        if (format(date, chars) > 0) {
+            return new String(chars);
+        }
         return DATE_FORMAT.get().format(date);
     }
 
+    /**
+     * Format a date like {@link #toString(Date)} without allocating, for years 1583 to 9999.
+     *
+     * @param date date.
+     * @param out  buffer of at least {@link #FORMATTED_LENGTH} chars.
+     * @return {@link #FORMATTED_LENGTH} or 0 if the date is out of the supported range.
+     * @throws JSONException if the date is null.
+     */
+    static int format(Date date, char[] out) throws JSONException {
+        checkNull(date);
+        long time = date.getTime();
+        if (time < FAST_FORMAT_MIN_TIME || time > FAST_FORMAT_MAX_TIME) {
+            return 0;
+        }
+
+        /* Split days and time of day, rounding days down for dates before 1970. */
+        long days = time / DAY_MILLIS;
+        int millisOfDay = (int) (time - days * DAY_MILLIS);
+        if (millisOfDay < 0) {
+            days--;
+            millisOfDay += DAY_MILLIS;
+        }
+
+        /* Convert days to a Gregorian calendar date, in eras of 400 years starting on March 1st. */
+        long shiftedDays = days + 719468;
+        long era = (shiftedDays >= 0 ? shiftedDays : shiftedDays - 146096) / 146097;
+        int dayOfEra = (int) (shiftedDays - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int) (era * 400) + yearOfEra + (month <= 2 ? 1 : 0);
+
+        /* Write yyyy-MM-dd'T'HH:mm:ss.SSS'Z'. */
+        writeDigits(out, 0, year, 4);
+        out[4] = '-';
+        writeDigits(out, 5, month, 2);
+        out[7] = '-';
+        writeDigits(out, 8, day, 2);
+        out[10] = 'T';
+        writeDigits(out, 11, millisOfDay / 3600000, 2);
+        out[13] = ':';
+        writeDigits(out, 14, millisOfDay / 60000 % 60, 2);
+        out[16] = ':';
+        writeDigits(out, 17, millisOfDay / 1000 % 60, 2);
+        out[19] = '.';
+        writeDigits(out, 20, millisOfDay % 1000, 3);
+        out[23] = 'Z';
+        return FORMATTED_LENGTH;
+    }
+
+    private static void writeDigits(char[] out, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
     /**
      * Convert string to date.
      *
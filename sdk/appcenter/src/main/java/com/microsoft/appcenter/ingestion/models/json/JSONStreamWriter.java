@@ -0,0 +1,574 @@
+package com.microsoft.appcenter.ingestion.models.json;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+
+/**
+ * JSON writer encoding UTF-8 straight into a reusable byte buffer.
+ * It has the same API and produces the same bytes as {@link org.json.JSONStringer} without indentation,
+ * but avoids building intermediate strings: ASCII is copied as is, numbers are written digit by digit
+ * and dates are formatted in ISO 8601 without {@link java.text.SimpleDateFormat}.
+ * <p>
+ * Buffered bytes can be moved to a stream with {@link #flushTo(OutputStream)} while writing,
+ * so that only a part of a large document is in memory at once.
+ * <p>
+ * This class is not thread safe.
+ */
+public class JSONStreamWriter {
+
+    /**
+     * UTF-8 charset.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Initial buffer capacity in bytes.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Buffer capacity above which {@link #reset()} releases the buffer.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    /**
+     * Maximum bytes written for a single char.
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    /**
+     * Scope: array without values yet.
+     */
+    private static final int EMPTY_ARRAY = 1;
+
+    /**
+     * Scope: array with at least one value.
+     */
+    private static final int NONEMPTY_ARRAY = 2;
+
+    /**
+     * Scope: object without keys yet.
+     */
+    private static final int EMPTY_OBJECT = 3;
+
+    /**
+     * Scope: object with a key waiting for its value.
+     */
+    private static final int DANGLING_KEY = 4;
+
+    /**
+     * Scope: object with at least one key/value pair.
+     */
+    private static final int NONEMPTY_OBJECT = 5;
+
+    /**
+     * Hexadecimal digits, lower case like {@link org.json.JSONStringer}.
+     */
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(UTF_8);
+
+    /**
+     * Escape of each ASCII char: 0 if written as is, 'u' for a unicode escape,
+     * otherwise the char to write after a backslash.
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['/'] = '/';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\f'] = 'f';
+    }
+
+    /**
+     * Negative zero, written as "-0" like {@link JSONObject#numberToString(Number)}.
+     */
+    private static final Double NEGATIVE_ZERO = -0d;
+
+    /**
+     * Encoded bytes.
+     */
+    private byte[] mBuffer = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Number of bytes in {@link #mBuffer}.
+     */
+    private int mCount;
+
+    /**
+     * True once the root value has been opened, even if flushed since.
+     */
+    private boolean mStarted;
+
+    /**
+     * Nesting scopes, innermost last.
+     */
+    private int[] mScopes = new int[16];
+
+    /**
+     * Number of scopes in {@link #mScopes}.
+     */
+    private int mDepth;
+
+    /**
+     * Scratch buffer for dates.
+     */
+    private final char[] mDateChars = new char[JSONDateUtils.FORMATTED_LENGTH];
+
+    /**
+     * Begin an object.
+     *
+     * @return this writer.
+     * @throws JSONException if nesting is invalid.
+     */
+    public JSONStreamWriter object() throws JSONException {
+        return open(EMPTY_OBJECT, '{');
+    }
+
+    /**
+     * End the current object.
+     *
+     * @return this writer.
+     * @throws JSONException if nesting is invalid.
+     */
+    public JSONStreamWriter endObject() throws JSONException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    /**
+     * Begin an array.
+     *
+     * @return this writer.
+     * @throws JSONException if nesting is invalid.
+     */
+    public JSONStreamWriter array() throws JSONException {
+        return open(EMPTY_ARRAY, '[');
+    }
+
+    /**
+     * End the current array.
+     *
+     * @return this writer.
+     * @throws JSONException if nesting is invalid.
+     */
+    public JSONStreamWriter endArray() throws JSONException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Write a key in the current object, it must be followed by a value.
+     *
+     * @param name key.
+     * @return this writer.
+     * @throws JSONException if name is null or nesting is invalid.
+     */
+    public JSONStreamWriter key(String name) throws JSONException {
+        if (name == null) {
+            throw new JSONException("Names must be non-null");
+        }
+        int scope = peek();
+        if (scope == NONEMPTY_OBJECT) {
+            writeByte(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new JSONException("Nesting problem");
+        }
+        mScopes[mDepth - 1] = DANGLING_KEY;
+        writeString(name, true);
+        return this;
+    }
+
+    /**
+     * Write a value, with the same conversions as {@link org.json.JSONStringer#value(Object)}:
+     * null, {@link JSONObject#NULL}, booleans and numbers are written as literals,
+     * {@link JSONObject} and {@link JSONArray} are written recursively, dates are written
+     * with {@link #value(Date)} and any other object is written as its string representation.
+     *
+     * @param value value.
+     * @return this writer.
+     * @throws JSONException if value is a non finite number or nesting is invalid.
+     */
+    public JSONStreamWriter value(Object value) throws JSONException {
+        if (value instanceof String) {
+            return value((String) value);
+        }
+        if (value instanceof JSONObject) {
+            return writeObject((JSONObject) value);
+        }
+        if (value instanceof JSONArray) {
+            return writeArray((JSONArray) value);
+        }
+        if (value instanceof Date) {
+            return value((Date) value);
+        }
+        if (value instanceof Number) {
+            writeNumber((Number) value);
+            return this;
+        }
+        beforeValue();
+        if (value == null || value == JSONObject.NULL) {
+            writeAscii("null");
+        } else if (value instanceof Boolean) {
+            writeAscii((Boolean) value ? "true" : "false");
+        } else {
+            writeString(value.toString(), true);
+        }
+        return this;
+    }
+
+    /**
+     * Write a string value.
+     *
+     * @param value value, null is written as a JSON null.
+     * @return this writer.
+     * @throws JSONException if nesting is invalid.
+     */
+    public JSONStreamWriter value(String value) throws JSONException {
+        beforeValue();
+        if (value == null) {
+            writeAscii("null");
+        } else {
+            writeString(value, true);
+        }
+        return this;
+    }
+
+    /**
+     * Write a boolean value.
+     *
+     * @param value value.
+     * @return this writer.
+     * @throws JSONException if nesting is invalid.
+     */
+    public JSONStreamWriter value(boolean value) throws JSONException {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Write a number value.
+     *
+     * @param value value.
+     * @return this writer.
+     * @throws JSONException if value is not finite or nesting is invalid.
+     */
+    public JSONStreamWriter value(double value) throws JSONException {
+        writeNumber(value);
+        return this;
+    }
+
+    /**
+     * Write a number value.
+     *
+     * @param value value.
+     * @return this writer.
+     * @throws JSONException if nesting is invalid.
+     */
+    public JSONStreamWriter value(long value) throws JSONException {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * Write a date as an ISO 8601 string, in the format of {@link JSONDateUtils#toString(Date)}.
+     *
+     * @param date date.
+     * @return this writer.
+     * @throws JSONException if date is null or nesting is invalid.
+     */
+    public JSONStreamWriter value(Date date) throws JSONException {
+        int length = JSONDateUtils.format(date, mDateChars);
+        if (length == 0) {
+            return value(JSONDateUtils.toString(date));
+        }
+        beforeValue();
+        ensureCapacity(length + 2);
+        byte[] buffer = mBuffer;
+        int count = mCount;
+        buffer[count++] = '"';
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) mDateChars[i];
+        }
+        buffer[count++] = '"';
+        mCount = count;
+        return this;
+    }
+
+    /**
+     * Write a value that is already serialized in JSON, for example a stored log.
+     *
+     * @param json serialized JSON value, not checked.
+     * @return this writer.
+     * @throws JSONException if nesting is invalid.
+     */
+    public JSONStreamWriter rawValue(String json) throws JSONException {
+        beforeValue();
+        writeString(json, false);
+        return this;
+    }
+
+    /**
+     * Move the bytes buffered so far to a stream, keeping the nesting state
+     * so that writing can continue. The stream itself is not flushed.
+     *
+     * @param out stream.
+     * @throws IOException if the stream fails.
+     */
+    public void flushTo(OutputStream out) throws IOException {
+        out.write(mBuffer, 0, mCount);
+        mCount = 0;
+    }
+
+    /**
+     * Get the number of bytes buffered.
+     *
+     * @return byte count.
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Clear the buffer and the nesting state to write a new document.
+     * The buffer is kept for reuse unless it grew beyond a limit.
+     */
+    public void reset() {
+        mCount = 0;
+        mDepth = 0;
+        mStarted = false;
+        if (mBuffer.length > MAX_RETAINED_CAPACITY) {
+            mBuffer = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Get the buffered JSON.
+     *
+     * @return JSON string, null if nothing is buffered like {@link org.json.JSONStringer#toString()}.
+     */
+    @Override
+    public String toString() {
+        return mCount == 0 ? null : new String(mBuffer, 0, mCount, UTF_8);
+    }
+
+    private JSONStreamWriter open(int empty, char openBracket) throws JSONException {
+        if (mDepth > 0) {
+            beforeValue();
+        } else if (mStarted) {
+            throw new JSONException("Nesting problem: multiple top-level roots");
+        }
+        mStarted = true;
+        if (mDepth == mScopes.length) {
+            mScopes = Arrays.copyOf(mScopes, mDepth * 2);
+        }
+        mScopes[mDepth++] = empty;
+        writeByte(openBracket);
+        return this;
+    }
+
+    private JSONStreamWriter close(int empty, int nonEmpty, char closeBracket) throws JSONException {
+        int scope = peek();
+        if (scope != nonEmpty && scope != empty) {
+            throw new JSONException("Nesting problem");
+        }
+        mDepth--;
+        writeByte(closeBracket);
+        return this;
+    }
+
+    private int peek() throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        return mScopes[mDepth - 1];
+    }
+
+    /**
+     * Insert separators before a value and update the scope, like {@link org.json.JSONStringer}.
+     */
+    private void beforeValue() throws JSONException {
+        int scope = peek();
+        if (scope == EMPTY_ARRAY) {
+            mScopes[mDepth - 1] = NONEMPTY_ARRAY;
+        } else if (scope == NONEMPTY_ARRAY) {
+            writeByte(',');
+        } else if (scope == DANGLING_KEY) {
+            writeByte(':');
+            mScopes[mDepth - 1] = NONEMPTY_OBJECT;
+        } else {
+            throw new JSONException("Nesting problem");
+        }
+    }
+
+    private JSONStreamWriter writeObject(JSONObject object) throws JSONException {
+        object();
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            key(key).value(object.opt(key));
+        }
+        return endObject();
+    }
+
+    private JSONStreamWriter writeArray(JSONArray array) throws JSONException {
+        array();
+        for (int i = 0, length = array.length(); i < length; i++) {
+            value(array.opt(i));
+        }
+        return endArray();
+    }
+
+    /**
+     * Write a number like {@link JSONObject#numberToString(Number)}:
+     * integral values without decimals, non finite values rejected.
+     */
+    private void writeNumber(Number number) throws JSONException {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            beforeValue();
+            writeLong(number.longValue());
+            return;
+        }
+        double doubleValue = number.doubleValue();
+        if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+            throw new JSONException("Forbidden numeric value: " + doubleValue);
+        }
+        beforeValue();
+        if (number.equals(NEGATIVE_ZERO)) {
+            writeAscii("-0");
+            return;
+        }
+        long longValue = number.longValue();
+        if (doubleValue == (double) longValue) {
+            writeLong(longValue);
+        } else {
+            writeAscii(number.toString());
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        byte[] buffer = mBuffer;
+        if (value < 0) {
+            buffer[mCount++] = '-';
+            value = -value;
+        }
+
+        /* Count digits then write them from the end. */
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        int position = mCount + digits;
+        mCount = position;
+        do {
+            buffer[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        mBuffer[mCount++] = (byte) c;
+    }
+
+    private void writeAscii(String value) {
+        int length = value.length();
+        ensureCapacity(length);
+        byte[] buffer = mBuffer;
+        int count = mCount;
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) value.charAt(i);
+        }
+        mCount = count;
+    }
+
+    /**
+     * Encode a string in UTF-8. Unpaired surrogates are replaced by '?' like {@link String#getBytes}.
+     *
+     * @param value  string.
+     * @param quoted true to write a JSON string literal, false to copy the chars as is.
+     */
+    private void writeString(String value, boolean quoted) {
+        int length = value.length();
+        ensureCapacity(length + 2);
+        byte[] buffer = mBuffer;
+        int count = mCount;
+        if (quoted) {
+            buffer[count++] = '"';
+        }
+        for (int i = 0; i < length; i++) {
+            if (count + MAX_CHAR_BYTES > buffer.length) {
+                mCount = count;
+                ensureCapacity(MAX_CHAR_BYTES + length - i);
+                buffer = mBuffer;
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte escape = quoted ? ESCAPES[c] : 0;
+                if (escape == 0) {
+                    buffer[count++] = (byte) c;
+                } else if (escape == 'u') {
+                    buffer[count++] = '\\';
+                    buffer[count++] = 'u';
+                    buffer[count++] = '0';
+                    buffer[count++] = '0';
+                    buffer[count++] = HEX_DIGITS[c >> 4];
+                    buffer[count++] = HEX_DIGITS[c & 0xF];
+                } else {
+                    buffer[count++] = '\\';
+                    buffer[count++] = escape;
+                }
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | c >> 6);
+                buffer[count++] = (byte) (0x80 | c & 0x3F);
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                buffer[count++] = (byte) (0xE0 | c >> 12);
+                buffer[count++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[count++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[count++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[count++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                buffer[count++] = '?';
+            }
+        }
+        if (quoted) {
+            if (count == buffer.length) {
+                mCount = count;
+                ensureCapacity(1);
+                buffer = mBuffer;
+            }
+            buffer[count++] = '"';
+        }
+        mCount = count;
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = mCount + extra;
+        if (required > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(required, mBuffer.length * 2));
+        }
+    }
+}
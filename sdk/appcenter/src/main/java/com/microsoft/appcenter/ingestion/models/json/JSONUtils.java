@@ -1,14 +1,16 @@
 package com.microsoft.appcenter.ingestion.models.json;
 
 import android.support.annotation.VisibleForTesting;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
 import com.microsoft.appcenter.ingestion.models.Model;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -17,6 +19,11 @@ import java.util.Map;
 
 public final class JSONUtils {
 
+    /**
+     * Initial capacity of arrays read from a {@link JsonReader}, which does not tell their length.
+     */
+    private static final int DEFAULT_ARRAY_CAPACITY = 10;
+
     @VisibleForTesting
     JSONUtils() {
     }
@@ -83,13 +90,190 @@ public final class JSONUtils {
         return array;
     }
 
-    public static void write(JSONStringer writer, String key, Object value) throws JSONException {
+    /**
+     * Check that a required property was read, as reading it from a {@link JSONObject} would have.
+     *
+     * @param key   property name.
+     * @param value property value.
+     * @throws JSONException if the value is null.
+     */
+    public static void checkRequired(String key, Object value) throws JSONException {
+        if (value == null) {
+            throw new JSONException("No value for " + key);
+        }
+    }
+
+    public static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    public static Integer readInteger(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextInt();
+    }
+
+    public static Long readLong(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextLong();
+    }
+
+    public static Double readDouble(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextDouble();
+    }
+
+    public static Boolean readBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextBoolean();
+    }
+
+    public static Map<String, String> readMap(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        Map<String, String> properties = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            properties.put(reader.nextName(), reader.nextString());
+        }
+        reader.endObject();
+        return properties;
+    }
+
+    /**
+     * Read a JSON object into a model.
+     *
+     * @param reader reader positioned on the object.
+     * @param model  model to populate.
+     * @param <M>    model type.
+     * @return the model.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the model is invalid.
+     */
+    public static <M extends Model> M readModel(JsonReader reader, M model) throws IOException, JSONException {
+        reader.beginObject();
+        model.read(reader);
+        reader.endObject();
+        return model;
+    }
+
+    public static <M extends Model> List<M> readArray(JsonReader reader, ModelFactory<M> factory) throws IOException, JSONException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<M> array = factory.createList(DEFAULT_ARRAY_CAPACITY);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            array.add(readModel(reader, factory.create()));
+        }
+        reader.endArray();
+        return array;
+    }
+
+    public static List<String> readStringArray(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<String> array = new ArrayList<>(DEFAULT_ARRAY_CAPACITY);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            array.add(reader.nextString());
+        }
+        reader.endArray();
+        return array;
+    }
+
+    /**
+     * Read any JSON value as {@link JSONObject#get(String)} would return it:
+     * {@link JSONObject#NULL}, {@link Boolean}, {@link Integer}, {@link Long}, {@link Double},
+     * {@link String}, {@link JSONObject} or {@link JSONArray}.
+     *
+     * @param reader reader positioned on the value.
+     * @return value.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if an object has a null key.
+     */
+    public static Object readValue(JsonReader reader) throws IOException, JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                JSONObject object = new JSONObject();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    object.put(reader.nextName(), readValue(reader));
+                }
+                reader.endObject();
+                return object;
+
+            case BEGIN_ARRAY:
+                JSONArray array = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.put(readValue(reader));
+                }
+                reader.endArray();
+                return array;
+
+            case BOOLEAN:
+                return reader.nextBoolean();
+
+            case NUMBER:
+                return parseNumber(reader.nextString());
+
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+
+            default:
+                return reader.nextString();
+        }
+    }
+
+    /**
+     * Convert a number literal like {@link org.json.JSONTokener}: integers that fit are
+     * {@link Integer}, then {@link Long}, anything else is {@link Double}.
+     */
+    private static Number parseNumber(String literal) {
+        if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+            try {
+                long longValue = Long.parseLong(literal);
+                if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            } catch (NumberFormatException ignored) {
+
+                /* Too large for a long. */
+            }
+        }
+        return Double.valueOf(literal);
+    }
+
+    public static void write(JSONStreamWriter writer, String key, Object value) throws JSONException {
         if (value != null) {
             writer.key(key).value(value);
         }
     }
 
-    public static void writeMap(JSONStringer writer, String key, Map<String, String> value) throws JSONException {
+    public static void writeMap(JSONStreamWriter writer, String key, Map<String, String> value) throws JSONException {
         if (value != null) {
             writer.key(key).object();
             for (Map.Entry<String, String> property : value.entrySet()) {
@@ -99,7 +283,7 @@ public final class JSONUtils {
         }
     }
 
-    public static void writeArray(JSONStringer writer, String key, List<? extends Model> value) throws JSONException {
+    public static void writeArray(JSONStreamWriter writer, String key, List<? extends Model> value) throws JSONException {
         if (value != null) {
             writer.key(key).array();
             for (Model model : value) {
@@ -111,7 +295,7 @@ public final class JSONUtils {
         }
     }
 
-    public static void writeStringArray(JSONStringer writer, String key, List<String> values) throws JSONException {
+    public static void writeStringArray(JSONStreamWriter writer, String key, List<String> values) throws JSONException {
         if (values != null) {
             writer.key(key).array();
             for (String value : values) {
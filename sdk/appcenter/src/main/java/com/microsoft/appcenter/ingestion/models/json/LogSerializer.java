@@ -8,6 +8,8 @@ import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 
 import org.json.JSONException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collection;
 
 public interface LogSerializer {
@@ -15,6 +17,16 @@ public interface LogSerializer {
     @NonNull
     String serializeLog(@NonNull Log log) throws JSONException;
 
+    /**
+     * Write the same JSON as {@link #serializeLog(Log)} in UTF-8 without building a string.
+     *
+     * @param log log to write.
+     * @param out stream to write to, it is not flushed nor closed.
+     * @throws JSONException if the log can't be serialized.
+     * @throws IOException   if the stream fails.
+     */
+    void writeLog(@NonNull Log log, @NonNull OutputStream out) throws JSONException, IOException;
+
     @NonNull
     Log deserializeLog(@NonNull String json, String type) throws JSONException;
 
@@ -23,6 +35,17 @@ public interface LogSerializer {
     @NonNull
     String serializeContainer(@NonNull LogContainer container) throws JSONException;
 
+    /**
+     * Write the same JSON as {@link #serializeContainer(LogContainer)} in UTF-8 one log at a time,
+     * so that only 1 serialized log is in memory at once.
+     *
+     * @param container logs to write.
+     * @param out       stream to write to, it is not flushed nor closed.
+     * @throws JSONException if a log can't be serialized.
+     * @throws IOException   if the stream fails.
+     */
+    void writeContainer(@NonNull LogContainer container, @NonNull OutputStream out) throws JSONException, IOException;
+
     @NonNull
     LogContainer deserializeContainer(@NonNull String json, String type) throws JSONException;
 
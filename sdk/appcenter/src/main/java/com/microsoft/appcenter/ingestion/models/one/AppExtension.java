@@ -1,11 +1,15 @@
 package com.microsoft.appcenter.ingestion.models.one;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 /**
  * This is the application extension. It contains data specified by the application.
@@ -134,7 +138,34 @@ public class AppExtension implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException {
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case ID:
+                    setId(JSONUtils.readString(reader));
+                    break;
+
+                case VER:
+                    setVer(JSONUtils.readString(reader));
+                    break;
+
+                case NAME:
+                    setName(JSONUtils.readString(reader));
+                    break;
+
+                case LOCALE:
+                    setLocale(JSONUtils.readString(reader));
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.write(writer, ID, getId());
         JSONUtils.write(writer, VER, getVer());
         JSONUtils.write(writer, NAME, getName());
@@ -1,12 +1,16 @@
 package com.microsoft.appcenter.ingestion.models.one;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.AbstractLog;
 import com.microsoft.appcenter.ingestion.models.json.JSONDateUtils;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 /**
  * Common schema has 1 log type with extensions, everything is called an event.
@@ -282,14 +286,67 @@ public abstract class CommonSchemaLog extends AbstractLog {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        super.read(reader);
+        JSONUtils.checkRequired(VER, getVer());
+        JSONUtils.checkRequired(NAME, getName());
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader reader) throws IOException, JSONException {
+
+        /* Only Common Schema properties, the App Center ones are not part of this schema. */
+        switch (name) {
+            case VER:
+                setVer(reader.nextString());
+                return true;
+
+            case NAME:
+                setName(reader.nextString());
+                return true;
+
+            case TIME:
+                setTimestamp(JSONDateUtils.toDate(reader.nextString()));
+                return true;
+
+            case POP_SAMPLE:
+                setPopSample(JSONUtils.readDouble(reader));
+                return true;
+
+            case IKEY:
+                setIKey(JSONUtils.readString(reader));
+                return true;
+
+            case FLAGS:
+                setFlags(JSONUtils.readLong(reader));
+                return true;
+
+            case CV:
+                setCV(JSONUtils.readString(reader));
+                return true;
+
+            case EXT:
+                setExt(JSONUtils.readModel(reader, new Extensions()));
+                return true;
+
+            case DATA:
+                setData(JSONUtils.readModel(reader, new Data()));
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
 
         /* Override abstract log JSON since it's Common Schema and not App Center schema. */
 
         /* Part A. */
         writer.key(VER).value(getVer());
         writer.key(NAME).value(getName());
-        writer.key(TIME).value(JSONDateUtils.toString(getTimestamp()));
+        writer.key(TIME).value(getTimestamp());
         JSONUtils.write(writer, POP_SAMPLE, getPopSample());
         JSONUtils.write(writer, IKEY, getIKey());
         JSONUtils.write(writer, FLAGS, getFlags());
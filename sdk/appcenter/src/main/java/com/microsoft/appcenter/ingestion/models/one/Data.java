@@ -1,11 +1,17 @@
 package com.microsoft.appcenter.ingestion.models.one;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
+import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
+import java.util.Iterator;
 
 /**
  * Object that contains Part B and Part C from Common Schema.
@@ -52,18 +58,30 @@ public class Data implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
 
         /* Part C. */
-        JSONArray names = mProperties.names();
-        if (names != null) {
-            for (int i = 0; i < names.length(); i++) {
-                String name = names.getString(i);
-                writer.key(name).value(mProperties.get(name));
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals(BASE_DATA) || name.equals(BASE_DATA_TYPE)) {
+                reader.skipValue();
+            } else {
+                mProperties.put(name, JSONUtils.readValue(reader));
             }
         }
     }
 
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
+
+        /* Part C, the nested objects are streamed without converting the tree to a string. */
+        Iterator<String> names = mProperties.keys();
+        while (names.hasNext()) {
+            String name = names.next();
+            writer.key(name).value(mProperties.get(name));
+        }
+    }
+
     @SuppressWarnings("SimplifiableIfStatement")
     @Override
     public boolean equals(Object o) {
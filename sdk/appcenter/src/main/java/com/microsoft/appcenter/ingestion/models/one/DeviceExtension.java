@@ -1,11 +1,15 @@
 package com.microsoft.appcenter.ingestion.models.one;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 /**
  * The “device” extension tracks common device elements that are not available in the core envelope.
@@ -46,7 +50,18 @@ public class DeviceExtension implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException {
+        while (reader.hasNext()) {
+            if (LOCAL_ID.equals(reader.nextName())) {
+                setLocalId(JSONUtils.readString(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.write(writer, LOCAL_ID, getLocalId());
     }
 
@@ -1,10 +1,15 @@
 package com.microsoft.appcenter.ingestion.models.one;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
+import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 /**
  * Common Schema Part A extensions.
@@ -296,7 +301,50 @@ public class Extensions implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException, JSONException {
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case PROTOCOL:
+                    setProtocol(JSONUtils.readModel(reader, new ProtocolExtension()));
+                    break;
+
+                case USER:
+                    setUser(JSONUtils.readModel(reader, new UserExtension()));
+                    break;
+
+                case DEVICE:
+                    setDevice(JSONUtils.readModel(reader, new DeviceExtension()));
+                    break;
+
+                case OS:
+                    setOs(JSONUtils.readModel(reader, new OsExtension()));
+                    break;
+
+                case APP:
+                    setApp(JSONUtils.readModel(reader, new AppExtension()));
+                    break;
+
+                case NET:
+                    setNet(JSONUtils.readModel(reader, new NetExtension()));
+                    break;
+
+                case SDK:
+                    setSdk(JSONUtils.readModel(reader, new SdkExtension()));
+                    break;
+
+                case LOC:
+                    setLoc(JSONUtils.readModel(reader, new LocExtension()));
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
 
         /* Protocol. */
         if (getProtocol() != null) {
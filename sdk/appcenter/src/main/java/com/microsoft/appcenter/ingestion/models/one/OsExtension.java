@@ -1,11 +1,15 @@
 package com.microsoft.appcenter.ingestion.models.one;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
+
+import java.io.IOException;
 
 /**
  * The “os” extension tracks common os elements that are not available in the core envelope.
@@ -75,7 +79,26 @@ public class OsExtension implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException {
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case NAME:
+                    setName(JSONUtils.readString(reader));
+                    break;
+
+                case VER:
+                    setVer(JSONUtils.readString(reader));
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.write(writer, NAME, getName());
         JSONUtils.write(writer, VER, getVer());
     }
@@ -1,12 +1,15 @@
 package com.microsoft.appcenter.ingestion.models.one;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -106,7 +109,30 @@ public class ProtocolExtension implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException {
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case TICKET_KEYS:
+                    setTicketKeys(JSONUtils.readStringArray(reader));
+                    break;
+
+                case DEV_MAKE:
+                    setDevMake(JSONUtils.readString(reader));
+                    break;
+
+                case DEV_MODEL:
+                    setDevModel(JSONUtils.readString(reader));
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.writeStringArray(writer, TICKET_KEYS, getTicketKeys());
         JSONUtils.write(writer, DEV_MAKE, getDevMake());
         JSONUtils.write(writer, DEV_MODEL, getDevModel());
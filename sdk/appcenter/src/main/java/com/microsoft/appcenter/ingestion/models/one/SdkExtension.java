@@ -1,12 +1,15 @@
 package com.microsoft.appcenter.ingestion.models.one;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.json.JSONStreamWriter;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.UUID;
 
 /**
@@ -140,7 +143,34 @@ public class SdkExtension implements Model {
     }
 
     @Override
-    public void write(JSONStringer writer) throws JSONException {
+    public void read(JsonReader reader) throws IOException {
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case LIB_VER:
+                    setLibVer(JSONUtils.readString(reader));
+                    break;
+
+                case EPOCH:
+                    setEpoch(JSONUtils.readString(reader));
+                    break;
+
+                case SEQ:
+                    setSeq(JSONUtils.readLong(reader));
+                    break;
+
+                case INSTALL_ID:
+                    setInstallId(UUID.fromString(reader.nextString()));
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+    }
+
+    @Override
+    public void write(JSONStreamWriter writer) throws JSONException {
         JSONUtils.write(writer, LIB_VER, getLibVer());
         JSONUtils.write(writer, EPOCH, getEpoch());
         JSONUtils.write(writer, SEQ, getSeq());
@@ -9,6 +9,7 @@ import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.Constants;
+import com.microsoft.appcenter.Flags;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 import com.microsoft.appcenter.utils.AppCenterLog;
@@ -22,13 +23,14 @@ import org.json.JSONException;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 import static com.microsoft.appcenter.utils.storage.StorageHelper.DatabaseStorage;
@@ -38,7 +40,7 @@ public class DatabasePersistence extends Persistence {
     /**
      * Version of the schema.
      */
-    private static final int VERSION = 2;
+    private static final int VERSION = 5;
 
     /**
      * Name of group column in the table.
@@ -64,6 +66,29 @@ public class DatabasePersistence extends Persistence {
     @VisibleForTesting
     static final String COLUMN_DATA_TYPE = "type";
 
+    /**
+     * Name of priority column in the table.
+     */
+    @VisibleForTesting
+    static final String COLUMN_PRIORITY = "priority";
+
+    /**
+     * Name of payload size column in the table, size is in UTF-8 bytes.
+     */
+    @VisibleForTesting
+    static final String COLUMN_SIZE = "size";
+
+    /**
+     * Name of the index used to select logs of a group in priority then insertion order.
+     */
+    @VisibleForTesting
+    static final String GROUP_INDEX = "ix_logs_persistence_group";
+
+    /**
+     * Priority lanes in the order logs are returned by {@link #getLogs}.
+     */
+    private static final int[] PRIORITIES = {Flags.CRITICAL, Flags.NORMAL, Flags.LOW};
+
     /**
      * Database name.
      */
@@ -80,7 +105,7 @@ public class DatabasePersistence extends Persistence {
      * Table schema for Persistence.
      */
     @VisibleForTesting
-    static final ContentValues SCHEMA = getContentValues("", "", "", "");
+    static final ContentValues SCHEMA = getContentValues("", "", "", "", 0, 0);
 
     /**
      * Size limit (in bytes) for a database row log payload.
@@ -115,12 +140,49 @@ public class DatabasePersistence extends Persistence {
     @VisibleForTesting
     final Map<String, List<Long>> mPendingDbIdentifiersGroups;
 
+    /**
+     * Size of the stored payloads of pending log groups in UTF-8 bytes, same keys as {@link #mPendingDbIdentifiersGroups}.
+     * Values are the size of all the logs then the size of the critical logs.
+     */
+    private final Map<String, long[]> mPendingByteCountGroups;
+
+    /**
+     * Number of logs per priority of pending log groups, same keys as {@link #mPendingDbIdentifiersGroups}.
+     */
+    private final Map<String, Map<Integer, Integer>> mPendingPriorityCountGroups;
+
     /**
      * Pending logs across all groups.
      */
     @VisibleForTesting
     final Set<Long> mPendingDbIdentifiers;
 
+    /**
+     * Highest database identifier already returned by {@link #getLogs} per group and priority.
+     * Identifiers are auto incremented so the next batch only needs to query rows above it.
+     */
+    @VisibleForTesting
+    final Map<String, Map<Integer, Long>> mPendingWatermarks;
+
+    /**
+     * Log counts of all groups by priority read with a single query the first time a group is counted.
+     * A group reads its count from this snapshot only once and as long as it was not modified since.
+     * Priority counts are read from this snapshot as long as the group was not modified since.
+     */
+    @VisibleForTesting
+    Map<String, Map<Integer, Integer>> mLogCountSnapshot;
+
+    /**
+     * Groups that cannot be counted from the snapshot anymore.
+     */
+    @VisibleForTesting
+    final Set<String> mStaleLogCountGroups;
+
+    /**
+     * Groups modified since the snapshot, their priority counts are read from the database.
+     */
+    private final Set<String> mModifiedLogCountGroups;
+
     /**
      * Base directory to store large payloads outside of SQLite.
      */
@@ -146,24 +208,51 @@ public class DatabasePersistence extends Persistence {
     DatabasePersistence(Context context, int version, ContentValues schema) {
         mContext = context;
         mPendingDbIdentifiersGroups = new HashMap<>();
+        mPendingByteCountGroups = new HashMap<>();
+        mPendingPriorityCountGroups = new HashMap<>();
         mPendingDbIdentifiers = new HashSet<>();
+        mPendingWatermarks = new HashMap<>();
+        mStaleLogCountGroups = new HashSet<>();
+        mModifiedLogCountGroups = new HashSet<>();
         mDatabaseStorage = DatabaseStorage.getDatabaseStorage(DATABASE, TABLE, version, schema, new DatabaseManager.Listener() {
 
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+                createGroupIndex(db);
+            }
+
             @Override
             public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
 
-                /*
-                 * This is called only on upgrade and thus only if oldVersion is < 2.
-                 * Therefore we don't have to check anything to add the missing columns.
-                 */
-                db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_TARGET_TOKEN + "` TEXT");
-                db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_DATA_TYPE + "` TEXT");
+                /* Version 2 added target token and data type columns. */
+                if (oldVersion < 2) {
+                    db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_TARGET_TOKEN + "` TEXT");
+                    db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_DATA_TYPE + "` TEXT");
+                }
+
+                /* Version 4 added the priority column, which is also part of the group index since then. */
+                if (oldVersion < 4) {
+                    db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_PRIORITY + "` INTEGER DEFAULT " + Flags.NORMAL);
+                    db.execSQL("DROP INDEX IF EXISTS `" + GROUP_INDEX + "`");
+                }
+
+                /* Version 5 added the payload size column, older rows are measured when read. */
+                if (oldVersion < 5) {
+                    db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN `" + COLUMN_SIZE + "` INTEGER");
+                }
+
+                /* Version 3 added the group index. */
+                createGroupIndex(db);
                 return true;
             }
 
             @Override
             public void onError(String operation, RuntimeException e) {
                 AppCenterLog.error(LOG_TAG, "Cannot complete an operation (" + operation + ")", e);
+
+                /* Identifiers restart and data is lost when switching to in-memory database. */
+                mPendingWatermarks.clear();
+                mLogCountSnapshot = null;
             }
         });
         mLargePayloadDirectory = new File(Constants.FILES_PATH + PAYLOAD_LARGE_DIRECTORY);
@@ -172,6 +261,16 @@ public class DatabasePersistence extends Persistence {
         mLargePayloadDirectory.mkdirs();
     }
 
+    /**
+     * Create the index used by count, get and delete operations on a group, those select by group
+     * and order by priority and identifier.
+     *
+     * @param db database.
+     */
+    private static void createGroupIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS `" + GROUP_INDEX + "` ON `" + TABLE + "` (`" + COLUMN_GROUP + "`, `" + COLUMN_PRIORITY + "`, `" + DatabaseManager.PRIMARY_KEY + "`)");
+    }
+
     @Override
     public boolean setMaxStorageSize(long maxStorageSizeInBytes) {
         return mDatabaseStorage.setMaxStorageSize(maxStorageSizeInBytes);
@@ -183,55 +282,42 @@ public class DatabasePersistence extends Persistence {
      * @param group       The group of the storage for the log.
      * @param logJ        The JSON string for a log.
      * @param targetToken target token if the log is common schema.
+     * @param type        log type.
+     * @param priority    priority lane of the log.
+     * @param size        payload size in UTF-8 bytes.
      * @return A {@link ContentValues} instance.
      */
-    private static ContentValues getContentValues(@Nullable String group, @Nullable String logJ, String targetToken, String type) {
+    private static ContentValues getContentValues(@Nullable String group, @Nullable String logJ, String targetToken, String type, int priority, long size) {
         ContentValues values = new ContentValues();
         values.put(COLUMN_GROUP, group);
         values.put(COLUMN_LOG, logJ);
         values.put(COLUMN_TARGET_TOKEN, targetToken);
         values.put(COLUMN_DATA_TYPE, type);
+        values.put(COLUMN_PRIORITY, priority);
+        values.put(COLUMN_SIZE, size);
         return values;
     }
 
     @Override
     public long putLog(@NonNull String group, @NonNull Log log) throws PersistenceException {
+        return putLog(group, log, Flags.DEFAULTS);
+    }
+
+    @Override
+    public synchronized long putLog(@NonNull String group, @NonNull Log log, int flags) throws PersistenceException {
 
         /* Convert log to JSON string and put in the database. */
+        onLogsModified(group);
         try {
             AppCenterLog.debug(LOG_TAG, "Storing a log to the Persistence database for log type " + log.getType() + " with sid=" + log.getSid());
             String payload = getLogSerializer().serializeLog(log);
-            ContentValues contentValues;
-            boolean isLargePayload = payload.getBytes("UTF-8").length >= PAYLOAD_MAX_SIZE;
-            String targetToken;
-            if (log instanceof CommonSchemaLog) {
-                if (isLargePayload) {
-                    throw new PersistenceException("Log is larger than " + PAYLOAD_MAX_SIZE + " bytes, cannot send to OneCollector.");
-                }
-                targetToken = log.getTransmissionTargetTokens().iterator().next();
-                targetToken = CryptoUtils.getInstance(mContext).encrypt(targetToken);
-            } else {
-                targetToken = null;
-            }
-            contentValues = getContentValues(group, isLargePayload ? null : payload, targetToken, log.getType());
+            int size = getPayloadSize(payload);
+            boolean isLargePayload = isLargePayload(size);
+            ContentValues contentValues = getLogContentValues(group, log, payload, size, isLargePayload, Flags.getPriority(flags));
             long databaseId = mDatabaseStorage.put(contentValues);
             AppCenterLog.debug(LOG_TAG, "Stored a log to the Persistence database for log type " + log.getType() + " with databaseId=" + databaseId);
             if (isLargePayload) {
-                AppCenterLog.debug(LOG_TAG, "Payload is larger than what SQLite supports, storing payload in a separate file.");
-                File directory = getLargePayloadGroupDirectory(group);
-
-                //noinspection ResultOfMethodCallIgnored we'll get an error anyway at write time.
-                directory.mkdir();
-                File payloadFile = getLargePayloadFile(directory, databaseId);
-                try {
-                    StorageHelper.InternalStorage.write(payloadFile, payload);
-                } catch (IOException e) {
-
-                    /* Remove database entry if we cannot save payload as a file. */
-                    mDatabaseStorage.delete(databaseId);
-                    throw e;
-                }
-                AppCenterLog.debug(LOG_TAG, "Payload written to " + payloadFile);
+                writeLargePayload(group, databaseId, payload);
             }
             return databaseId;
         } catch (JSONException e) {
@@ -241,6 +327,153 @@ public class DatabasePersistence extends Persistence {
         }
     }
 
+    @NonNull
+    @Override
+    public List<Long> putLogs(@NonNull String group, @NonNull List<Log> logs) {
+        return putLogs(group, logs, Flags.DEFAULTS);
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Long> putLogs(@NonNull String group, @NonNull List<Log> logs, int flags) {
+
+        /* Serialize everything first to keep the transaction as short as possible. */
+        AppCenterLog.debug(LOG_TAG, "Storing " + logs.size() + " logs to the Persistence database for " + group);
+        onLogsModified(group);
+        List<ContentValues> valuesList = new ArrayList<>(logs.size());
+        List<String> largePayloads = new ArrayList<>(logs.size());
+        int priority = Flags.getPriority(flags);
+        for (Log log : logs) {
+            try {
+                String payload = getLogSerializer().serializeLog(log);
+                int size = getPayloadSize(payload);
+                boolean isLargePayload = isLargePayload(size);
+                valuesList.add(getLogContentValues(group, log, payload, size, isLargePayload, priority));
+                largePayloads.add(isLargePayload ? payload : null);
+            } catch (JSONException e) {
+                AppCenterLog.error(LOG_TAG, "Cannot convert to JSON string, skipping log of type " + log.getType(), e);
+            } catch (PersistenceException e) {
+                AppCenterLog.error(LOG_TAG, "Cannot store log of type " + log.getType(), e);
+            }
+        }
+        if (valuesList.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        /* Insert all rows in a single transaction, then save large payloads outside of SQLite. */
+        List<Long> databaseIds = mDatabaseStorage.put(valuesList);
+        List<Long> storedIds = new ArrayList<>(databaseIds.size());
+        for (int i = 0; i < databaseIds.size(); i++) {
+            long databaseId = databaseIds.get(i);
+            if (databaseId < 0) {
+                continue;
+            }
+            String largePayload = largePayloads.get(i);
+            if (largePayload != null) {
+                try {
+                    writeLargePayload(group, databaseId, largePayload);
+                } catch (IOException e) {
+                    AppCenterLog.error(LOG_TAG, "Cannot save large payload in a file", e);
+                    continue;
+                }
+            }
+            storedIds.add(databaseId);
+        }
+        AppCenterLog.debug(LOG_TAG, "Stored " + storedIds.size() + " logs to the Persistence database for " + group);
+        return storedIds;
+    }
+
+    /**
+     * Gets the size of a payload once encoded in UTF-8, which is what is stored and sent,
+     * without encoding it. Unpaired surrogates count as the 1 byte replacement character.
+     *
+     * @param payload serialized log.
+     * @return size in UTF-8 bytes.
+     */
+    @VisibleForTesting
+    static int getPayloadSize(String payload) {
+        int size = 0;
+        int length = payload.length();
+        for (int i = 0; i < length; i++) {
+            char c = payload.charAt(i);
+            if (c < 0x80) {
+                size++;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                size += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(payload.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Checks whether a payload is too large to be stored in a database row.
+     *
+     * @param size payload size in UTF-8 bytes.
+     * @return true if the payload must be stored in a separate file.
+     */
+    private static boolean isLargePayload(int size) {
+        return size >= PAYLOAD_MAX_SIZE;
+    }
+
+    /**
+     * Builds the database row for a log.
+     *
+     * @param group          The group of the storage for the log.
+     * @param log            The log.
+     * @param payload        The serialized log.
+     * @param size           The payload size in UTF-8 bytes.
+     * @param isLargePayload true if the payload is stored in a separate file.
+     * @param priority       priority lane of the log.
+     * @return A {@link ContentValues} instance.
+     * @throws PersistenceException if the log cannot be stored.
+     */
+    private ContentValues getLogContentValues(@NonNull String group, @NonNull Log log, String payload, int size, boolean isLargePayload, int priority) throws PersistenceException {
+        String targetToken;
+        if (log instanceof CommonSchemaLog) {
+            if (isLargePayload) {
+                throw new PersistenceException("Log is larger than " + PAYLOAD_MAX_SIZE + " bytes, cannot send to OneCollector.");
+            }
+            targetToken = log.getTransmissionTargetTokens().iterator().next();
+            targetToken = CryptoUtils.getInstance(mContext).encrypt(targetToken);
+        } else {
+            targetToken = null;
+        }
+        return getContentValues(group, isLargePayload ? null : payload, targetToken, log.getType(), priority, size);
+    }
+
+    /**
+     * Stores a payload that is too large for SQLite in a separate file.
+     *
+     * @param group      The group of the storage for the log.
+     * @param databaseId The database identifier of the log.
+     * @param payload    The serialized log.
+     * @throws IOException if the file cannot be written, in that case the database entry is removed.
+     */
+    private void writeLargePayload(@NonNull String group, long databaseId, String payload) throws IOException {
+        AppCenterLog.debug(LOG_TAG, "Payload is larger than what SQLite supports, storing payload in a separate file.");
+        File directory = getLargePayloadGroupDirectory(group);
+
+        //noinspection ResultOfMethodCallIgnored we'll get an error anyway at write time.
+        directory.mkdir();
+        File payloadFile = getLargePayloadFile(directory, databaseId);
+        try {
+            StorageHelper.InternalStorage.write(payloadFile, payload);
+        } catch (IOException e) {
+
+            /* Remove database entry if we cannot save payload as a file. */
+            mDatabaseStorage.delete(databaseId);
+            throw e;
+        }
+        AppCenterLog.debug(LOG_TAG, "Payload written to " + payloadFile);
+    }
+
     @NonNull
     @VisibleForTesting
     File getLargePayloadGroupDirectory(String group) {
@@ -260,13 +493,16 @@ public class DatabasePersistence extends Persistence {
     }
 
     @Override
-    public void deleteLogs(@NonNull String group, @NonNull String id) {
+    public synchronized void deleteLogs(@NonNull String group, @NonNull String id) {
 
         /* Log. */
         AppCenterLog.debug(LOG_TAG, "Deleting logs from the Persistence database for " + group + " with " + id);
         AppCenterLog.debug(LOG_TAG, "The IDs for deleting log(s) is/are:");
+        onLogsModified(group);
 
         List<Long> dbIdentifiers = mPendingDbIdentifiersGroups.remove(group + id);
+        mPendingByteCountGroups.remove(group + id);
+        mPendingPriorityCountGroups.remove(group + id);
         File directory = getLargePayloadGroupDirectory(group);
         if (dbIdentifiers != null) {
             for (Long dbIdentifier : dbIdentifiers) {
@@ -278,10 +514,11 @@ public class DatabasePersistence extends Persistence {
     }
 
     @Override
-    public void deleteLogs(String group) {
+    public synchronized void deleteLogs(String group) {
 
         /* Log. */
         AppCenterLog.debug(LOG_TAG, "Deleting all logs from the Persistence database for " + group);
+        onLogsModified(group);
 
         /* Delete large payload files */
         File directory = getLargePayloadGroupDirectory(group);
@@ -305,12 +542,25 @@ public class DatabasePersistence extends Persistence {
             String key = iterator.next();
             if (key.startsWith(group)) {
                 iterator.remove();
+                mPendingByteCountGroups.remove(key);
+                mPendingPriorityCountGroups.remove(key);
             }
         }
+        mPendingWatermarks.remove(group);
     }
 
     @Override
-    public int countLogs(@NonNull String group) {
+    public synchronized int countLogs(@NonNull String group) {
+
+        /* Count all groups at once the first time, then use that snapshot once per group while it's valid. */
+        Map<Integer, Integer> snapshotCounts = getLogCountSnapshot(group);
+        if (mStaleLogCountGroups.add(group)) {
+            int count = 0;
+            for (Integer priorityCount : snapshotCounts.values()) {
+                count += priorityCount;
+            }
+            return count;
+        }
 
         /* Query database and get scanner. */
         DatabaseStorage.DatabaseScanner scanner = mDatabaseStorage.getScanner(COLUMN_GROUP, group, true);
@@ -319,92 +569,217 @@ public class DatabasePersistence extends Persistence {
         return count;
     }
 
+    @Override
+    public synchronized int countLogs(@NonNull String group, int priority) {
+
+        /* Use the snapshot while the group is not modified, otherwise count in the database without reading rows. */
+        int count;
+        Map<Integer, Integer> snapshotCounts = getLogCountSnapshot(group);
+        if (mModifiedLogCountGroups.contains(group)) {
+            count = mDatabaseStorage.getCount(COLUMN_GROUP, group, COLUMN_PRIORITY, priority);
+        } else {
+            Integer snapshotCount = snapshotCounts.get(priority);
+            count = snapshotCount == null ? 0 : snapshotCount;
+        }
+
+        /* Logs being sent are not pending. */
+        for (Map.Entry<String, Map<Integer, Integer>> entry : mPendingPriorityCountGroups.entrySet()) {
+            if (entry.getKey().startsWith(group)) {
+                Integer pendingCount = entry.getValue().get(priority);
+                if (pendingCount != null) {
+                    count -= pendingCount;
+                }
+            }
+        }
+        return Math.max(0, count);
+    }
+
+    /**
+     * Get the log counts of a group by priority from the snapshot, counting all groups at once the first time.
+     *
+     * @param group the group.
+     * @return number of logs per priority when the snapshot was taken.
+     */
+    @NonNull
+    private Map<Integer, Integer> getLogCountSnapshot(@NonNull String group) {
+        if (mLogCountSnapshot == null) {
+            mLogCountSnapshot = new HashMap<>();
+            for (Map.Entry<String, Map<String, Integer>> groupCounts : mDatabaseStorage.getCountsGroupedBy(COLUMN_GROUP, COLUMN_PRIORITY).entrySet()) {
+                Map<Integer, Integer> priorityCounts = new HashMap<>();
+                for (Map.Entry<String, Integer> priorityCount : groupCounts.getValue().entrySet()) {
+                    String priority = priorityCount.getKey();
+                    priorityCounts.put(priority == null ? Flags.NORMAL : Integer.parseInt(priority), priorityCount.getValue());
+                }
+                mLogCountSnapshot.put(groupCounts.getKey(), priorityCounts);
+            }
+        }
+        Map<Integer, Integer> counts = mLogCountSnapshot.get(group);
+        return counts == null ? Collections.<Integer, Integer>emptyMap() : counts;
+    }
+
+    /**
+     * Stop using the snapshot to count the logs of a group.
+     *
+     * @param group the modified group.
+     */
+    private void onLogsModified(@NonNull String group) {
+        mStaleLogCountGroups.add(group);
+        mModifiedLogCountGroups.add(group);
+    }
+
+    @NonNull
+    @Override
+    public synchronized Map<String, Integer> countLogsByGroup() {
+        return mDatabaseStorage.getCountsGroupedBy(COLUMN_GROUP);
+    }
+
     @Override
     @Nullable
     public String getLogs(@NonNull String group, @IntRange(from = 0) int limit, @NonNull List<Log> outLogs) {
+        return getLogs(group, limit, outLogs, null);
+    }
+
+    @Override
+    @Nullable
+    public String getLogs(@NonNull String group, @IntRange(from = 0) int limit, @Nullable List<Log> outLogs, @Nullable List<String> outPayloads) {
+        return getLogs(group, limit, 0, outLogs, outPayloads);
+    }
+
+    @Override
+    @Nullable
+    public synchronized String getLogs(@NonNull String group, @IntRange(from = 0) int limit, @IntRange(from = 0) long maxBytes, @Nullable List<Log> outLogs, @Nullable List<String> outPayloads) {
 
         /* Log. */
         AppCenterLog.debug(LOG_TAG, "Trying to get " + limit + " logs from the Persistence database for " + group);
-
-        /* Query database and get scanner. */
-        DatabaseStorage.DatabaseScanner scanner = mDatabaseStorage.getScanner(COLUMN_GROUP, group);
+        mStaleLogCountGroups.add(group);
 
         /* Add logs to output parameter after deserialization if logs are not already sent. */
         int count = 0;
-        Map<Long, Log> candidates = new TreeMap<>();
+        long payloadBytes = 0;
+        long criticalPayloadBytes = 0;
+        Map<Integer, Integer> priorityCounts = new HashMap<>();
+        boolean full = false;
+        Map<Long, String> candidates = new LinkedHashMap<>();
+        Map<Long, Log> candidateLogs = new HashMap<>();
         List<Long> failedDbIdentifiers = new ArrayList<>();
         File largePayloadGroupDirectory = getLargePayloadGroupDirectory(group);
-        for (Iterator<ContentValues> iterator = scanner.iterator(); iterator.hasNext() && count < limit; ) {
-            ContentValues values = iterator.next();
-            Long dbIdentifier = values.getAsLong(DatabaseManager.PRIMARY_KEY);
-
-            /*
-             * When we can't even read the identifier (in this case ContentValues is most likely empty).
-             * That probably means it contained a record larger than 2MB (from a previous SDK version)
-             * and we hit the cursor limit.
-             * Get rid of first non pending log.
-             */
-            if (dbIdentifier == null) {
-                AppCenterLog.error(LOG_TAG, "Empty database record, probably content was larger than 2MB, need to delete as it's now corrupted.");
-                DatabaseStorage.DatabaseScanner idScanner = mDatabaseStorage.getScanner(COLUMN_GROUP, group, true);
-                for (ContentValues idValues : idScanner) {
-                    Long invalidId = idValues.getAsLong(DatabaseManager.PRIMARY_KEY);
-                    if (!mPendingDbIdentifiers.contains(invalidId) && !candidates.containsKey(invalidId)) {
-
-                        /* Found the record to delete that we could not read when selecting all fields. */
-                        deleteLog(largePayloadGroupDirectory, invalidId);
-                        AppCenterLog.error(LOG_TAG, "Empty database corrupted empty record deleted, id=" + invalidId);
-                        break;
-                    }
-                }
-                idScanner.close();
-                continue;
+        Map<Integer, Long> watermarks = mPendingWatermarks.get(group);
+        if (watermarks == null) {
+            watermarks = new HashMap<>();
+            mPendingWatermarks.put(group, watermarks);
+        }
+
+        /* Select critical logs first, then fill the batch with normal logs, then low priority logs. */
+        for (int priority : PRIORITIES) {
+            if (full || count >= limit) {
+                break;
             }
 
-            /* If the log is already in pending state, then skip. Otherwise put the log to candidate container. */
-            if (!mPendingDbIdentifiers.contains(dbIdentifier)) {
-                try {
+            /* Query only the rows after the ones already returned, no need to scan logs being sent. */
+            Long watermark = watermarks.get(priority);
+            long afterId = watermark == null ? DatabaseManager.NO_ID_LOWER_BOUND : watermark;
+            DatabaseStorage.DatabaseScanner scanner = mDatabaseStorage.getScanner(COLUMN_GROUP, group, COLUMN_PRIORITY, priority, false, afterId, limit - count);
+            for (Iterator<ContentValues> iterator = scanner.iterator(); iterator.hasNext() && count < limit; ) {
+                ContentValues values = iterator.next();
+                Long dbIdentifier = values.getAsLong(DatabaseManager.PRIMARY_KEY);
 
-                    /* Deserialize JSON to Log. */
-                    String logPayload;
-                    String databasePayload = values.getAsString(COLUMN_LOG);
-                    if (databasePayload == null) {
-                        File file = getLargePayloadFile(largePayloadGroupDirectory, dbIdentifier);
-                        AppCenterLog.debug(LOG_TAG, "Read payload file " + file);
-                        logPayload = StorageHelper.InternalStorage.read(file);
-                        if (logPayload == null) {
-                            throw new JSONException("Log payload is null and not stored as a file.");
+                /*
+                 * When we can't even read the identifier (in this case ContentValues is most likely empty).
+                 * That probably means it contained a record larger than 2MB (from a previous SDK version)
+                 * and we hit the cursor limit.
+                 * Get rid of first non pending log.
+                 */
+                if (dbIdentifier == null) {
+                    AppCenterLog.error(LOG_TAG, "Empty database record, probably content was larger than 2MB, need to delete as it's now corrupted.");
+                    DatabaseStorage.DatabaseScanner idScanner = mDatabaseStorage.getScanner(COLUMN_GROUP, group, COLUMN_PRIORITY, priority, true, afterId, DatabaseManager.NO_LIMIT);
+                    for (ContentValues idValues : idScanner) {
+                        Long invalidId = idValues.getAsLong(DatabaseManager.PRIMARY_KEY);
+                        if (!mPendingDbIdentifiers.contains(invalidId) && !candidates.containsKey(invalidId)) {
+
+                            /* Found the record to delete that we could not read when selecting all fields. */
+                            deleteLog(largePayloadGroupDirectory, invalidId);
+                            onLogsModified(group);
+                            AppCenterLog.error(LOG_TAG, "Empty database corrupted empty record deleted, id=" + invalidId);
+                            break;
                         }
-                    } else {
-                        logPayload = databasePayload;
-                    }
-                    String databasePayloadType = values.getAsString(COLUMN_DATA_TYPE);
-                    Log log = getLogSerializer().deserializeLog(logPayload, databasePayloadType);
-
-                    /* Restore target token. */
-                    String targetToken = values.getAsString(COLUMN_TARGET_TOKEN);
-                    if (targetToken != null) {
-                        CryptoUtils.DecryptedData data = CryptoUtils.getInstance(mContext).decrypt(targetToken, false);
-                        log.addTransmissionTarget(data.getDecryptedData());
                     }
+                    idScanner.close();
+                    continue;
+                }
+
+                /* If the log is already in pending state, then skip. Otherwise put the log to candidate container. */
+                if (!mPendingDbIdentifiers.contains(dbIdentifier)) {
+                    try {
+
+                        /* Deserialize JSON to Log. */
+                        String logPayload;
+                        String databasePayload = values.getAsString(COLUMN_LOG);
+                        if (databasePayload == null) {
+                            File file = getLargePayloadFile(largePayloadGroupDirectory, dbIdentifier);
+                            AppCenterLog.debug(LOG_TAG, "Read payload file " + file);
+                            logPayload = StorageHelper.InternalStorage.read(file);
+                            if (logPayload == null) {
+                                throw new JSONException("Log payload is null and not stored as a file.");
+                            }
+                        } else {
+                            logPayload = databasePayload;
+                        }
+
+                        /* Stop before exceeding the byte size, the log is left for the next call. */
+                        Long size = values.getAsLong(COLUMN_SIZE);
+                        long payloadSize = size == null ? getPayloadSize(logPayload) : size;
+                        if (maxBytes > 0 && count > 0 && payloadBytes + payloadSize > maxBytes) {
+                            full = true;
+                            break;
+                        }
+
+                        /* Skip deserialization if only the payload is requested. */
+                        if (outLogs != null) {
+                            String databasePayloadType = values.getAsString(COLUMN_DATA_TYPE);
+                            Log log = getLogSerializer().deserializeLog(logPayload, databasePayloadType);
+
+                            /* Restore target token. */
+                            String targetToken = values.getAsString(COLUMN_TARGET_TOKEN);
+                            if (targetToken != null) {
+                                CryptoUtils.DecryptedData data = CryptoUtils.getInstance(mContext).decrypt(targetToken, false);
+                                log.addTransmissionTarget(data.getDecryptedData());
+                            }
+                            candidateLogs.put(dbIdentifier, log);
+                        }
 
-                    /* Add log to list and count. */
-                    candidates.put(dbIdentifier, log);
-                    count++;
-                } catch (JSONException e) {
+                        /* Add log to list and count. */
+                        candidates.put(dbIdentifier, logPayload);
+                        payloadBytes += payloadSize;
+                        if (priority == Flags.CRITICAL) {
+                            criticalPayloadBytes += payloadSize;
+                        }
+                        Integer priorityCount = priorityCounts.get(priority);
+                        priorityCounts.put(priority, priorityCount == null ? 1 : priorityCount + 1);
+                        count++;
+                    } catch (JSONException e) {
 
-                    /* If it is not able to deserialize, delete and get another log. */
-                    AppCenterLog.error(LOG_TAG, "Cannot deserialize a log in the database", e);
+                        /* If it is not able to deserialize, delete and get another log. */
+                        AppCenterLog.error(LOG_TAG, "Cannot deserialize a log in the database", e);
 
-                    /* Put the failed identifier to delete. */
-                    failedDbIdentifiers.add(dbIdentifier);
+                        /* Put the failed identifier to delete. */
+                        failedDbIdentifiers.add(dbIdentifier);
+                    }
                 }
+                if (dbIdentifier > afterId) {
+                    afterId = dbIdentifier;
+                }
+            }
+            scanner.close();
+
+            /* Remember where to start next time. */
+            if (afterId > DatabaseManager.NO_ID_LOWER_BOUND) {
+                watermarks.put(priority, afterId);
             }
         }
-        scanner.close();
 
         /* Delete any logs that cannot be de-serialized. */
         if (failedDbIdentifiers.size() > 0) {
+            onLogsModified(group);
             for (long id : failedDbIdentifiers) {
                 deleteLog(largePayloadGroupDirectory, id);
             }
@@ -425,7 +800,7 @@ public class DatabasePersistence extends Persistence {
         AppCenterLog.debug(LOG_TAG, "The SID/ID pairs for returning log(s) is/are:");
 
         List<Long> pendingDbIdentifiersGroup = new ArrayList<>();
-        for (Map.Entry<Long, Log> entry : candidates.entrySet()) {
+        for (Map.Entry<Long, String> entry : candidates.entrySet()) {
             Long dbIdentifier = entry.getKey();
 
             /* Change a database identifier to pending state. */
@@ -434,25 +809,64 @@ public class DatabasePersistence extends Persistence {
             /* Store a database identifier to a group of the ID. */
             pendingDbIdentifiersGroup.add(dbIdentifier);
 
-            /* Add to output parameter. */
-            outLogs.add(entry.getValue());
+            /* Add to output parameters. */
+            if (outPayloads != null) {
+                outPayloads.add(entry.getValue());
+            }
+            if (outLogs != null) {
+                Log log = candidateLogs.get(dbIdentifier);
+                outLogs.add(log);
 
-            /* Log. */
-            AppCenterLog.debug(LOG_TAG, "\t" + entry.getValue().getSid() + " / " + dbIdentifier);
+                /* Log. */
+                AppCenterLog.debug(LOG_TAG, "\t" + log.getSid() + " / " + dbIdentifier);
+            } else {
+                AppCenterLog.debug(LOG_TAG, "\t" + dbIdentifier);
+            }
         }
 
         /* Update pending IDs. */
         mPendingDbIdentifiersGroups.put(group + id, pendingDbIdentifiersGroup);
+        mPendingByteCountGroups.put(group + id, new long[]{payloadBytes, criticalPayloadBytes});
+        mPendingPriorityCountGroups.put(group + id, priorityCounts);
         return id;
     }
 
     @Override
-    public void clearPendingLogState() {
+    public synchronized long getBatchByteCount(@NonNull String group, @NonNull String id) {
+        long[] byteCounts = mPendingByteCountGroups.get(group + id);
+        return byteCounts == null ? 0 : byteCounts[0];
+    }
+
+    @Override
+    public synchronized long getBatchCriticalByteCount(@NonNull String group, @NonNull String id) {
+        long[] byteCounts = mPendingByteCountGroups.get(group + id);
+        return byteCounts == null ? 0 : byteCounts[1];
+    }
+
+    @Override
+    public synchronized void clearPendingLogState() {
         mPendingDbIdentifiers.clear();
         mPendingDbIdentifiersGroups.clear();
+        mPendingByteCountGroups.clear();
+        mPendingPriorityCountGroups.clear();
+        mPendingWatermarks.clear();
         AppCenterLog.debug(LOG_TAG, "Cleared pending log states");
     }
 
+    @Override
+    public synchronized void clearPendingLogState(@NonNull String group, @NonNull String id) {
+        List<Long> dbIdentifiers = mPendingDbIdentifiersGroups.remove(group + id);
+        mPendingByteCountGroups.remove(group + id);
+        mPendingPriorityCountGroups.remove(group + id);
+        if (dbIdentifiers != null) {
+            mPendingDbIdentifiers.removeAll(dbIdentifiers);
+
+            /* Scan the group from the start again to find the released logs. */
+            mPendingWatermarks.remove(group);
+        }
+        AppCenterLog.debug(LOG_TAG, "Cleared pending log state of " + group + " " + id);
+    }
+
     @Override
     public void close() {
         mDatabaseStorage.close();
@@ -6,12 +6,18 @@ import android.support.annotation.Nullable;
 
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.utils.AppCenterLog;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 
 /**
  * Abstract class for Persistence service.
+ * Implementations must be thread safe as logs of different groups can be persisted concurrently.
  */
 public abstract class Persistence implements Closeable {
 
@@ -30,6 +36,63 @@ public abstract class Persistence implements Closeable {
      */
     public abstract long putLog(@NonNull String group, @NonNull Log log) throws PersistenceException;
 
+    /**
+     * Writes a log to the storage with the given {@code group} in the priority lane given by flags.
+     * Logs of a higher priority are returned first by {@link #getLogs}.
+     *
+     * @param group The group of the storage for the log.
+     * @param log   The log to be placed in the storage.
+     * @param flags Log flags such as {@link com.microsoft.appcenter.Flags#CRITICAL}.
+     * @return Log identifier from persistence after saving.
+     * @throws PersistenceException Exception will be thrown if Persistence cannot write a log to the storage.
+     */
+    public abstract long putLog(@NonNull String group, @NonNull Log log, int flags) throws PersistenceException;
+
+    /**
+     * Writes several logs to the storage with the given {@code group} in the normal priority lane.
+     * Implementations should store all the logs in a single transaction.
+     * Logs that cannot be stored are skipped and reported in the SDK logs.
+     *
+     * @param group The group of the storage for the logs.
+     * @param logs  The logs to be placed in the storage.
+     * @return Log identifiers from persistence for the logs that were saved.
+     */
+    @NonNull
+    public List<Long> putLogs(@NonNull String group, @NonNull List<Log> logs) {
+        List<Long> ids = new ArrayList<>(logs.size());
+        for (Log log : logs) {
+            try {
+                ids.add(putLog(group, log));
+            } catch (PersistenceException e) {
+                AppCenterLog.error(LOG_TAG, "Error persisting log with exception: " + e.toString());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Writes several logs to the storage with the given {@code group} in the priority lane given by flags.
+     * Implementations should store all the logs in a single transaction.
+     * Logs that cannot be stored are skipped and reported in the SDK logs.
+     *
+     * @param group The group of the storage for the logs.
+     * @param logs  The logs to be placed in the storage.
+     * @param flags Log flags such as {@link com.microsoft.appcenter.Flags#LOW}.
+     * @return Log identifiers from persistence for the logs that were saved.
+     */
+    @NonNull
+    public List<Long> putLogs(@NonNull String group, @NonNull List<Log> logs, int flags) {
+        List<Long> ids = new ArrayList<>(logs.size());
+        for (Log log : logs) {
+            try {
+                ids.add(putLog(group, log, flags));
+            } catch (PersistenceException e) {
+                AppCenterLog.error(LOG_TAG, "Error persisting log with exception: " + e.toString());
+            }
+        }
+        return ids;
+    }
+
     /**
      * Deletes a log with the give ID from the {@code group}.
      *
@@ -53,6 +116,24 @@ public abstract class Persistence implements Closeable {
      */
     public abstract int countLogs(@NonNull String group);
 
+    /**
+     * Gets the number of logs of a priority lane for the given {@code group}, not counting the logs
+     * of batches returned by {@link #getLogs} that are still pending.
+     *
+     * @param group    The group of the storage for logs.
+     * @param priority The priority lane such as {@link com.microsoft.appcenter.Flags#CRITICAL}.
+     * @return The number of logs of the lane that are not being sent.
+     */
+    public abstract int countLogs(@NonNull String group, int priority);
+
+    /**
+     * Gets the number of logs for every group in a single query.
+     *
+     * @return The number of logs per group. Groups without any log are not in the map.
+     */
+    @NonNull
+    public abstract Map<String, Integer> countLogsByGroup();
+
     /**
      * Gets an array of logs for the given {@code group}.
      *
@@ -64,11 +145,67 @@ public abstract class Persistence implements Closeable {
     @Nullable
     public abstract String getLogs(@NonNull String group, @IntRange(from = 0) int limit, @NonNull List<Log> outLogs);
 
+    /**
+     * Gets an array of logs for the given {@code group} along with their stored JSON payloads.
+     * Logs are deserialized only if {@code outLogs} is not null.
+     *
+     * @param group       The group of the storage for logs.
+     * @param limit       The max number of logs to be returned.
+     * @param outLogs     An optional list to receive {@link Log} objects.
+     * @param outPayloads An optional list to receive the JSON payload of each log.
+     * @return An ID for the logs. {@code null} if no logs exist.
+     */
+    @Nullable
+    public abstract String getLogs(@NonNull String group, @IntRange(from = 0) int limit, @Nullable List<Log> outLogs, @Nullable List<String> outPayloads);
+
+    /**
+     * Gets an array of logs for the given {@code group}, stopping before the stored JSON payloads
+     * exceed {@code maxBytes} in total once encoded in UTF-8. The first log is always returned even if larger.
+     *
+     * @param group       The group of the storage for logs.
+     * @param limit       The max number of logs to be returned.
+     * @param maxBytes    The max total size of stored payloads in UTF-8 bytes, 0 for no limit.
+     * @param outLogs     An optional list to receive {@link Log} objects.
+     * @param outPayloads An optional list to receive the JSON payload of each log.
+     * @return An ID for the logs. {@code null} if no logs exist.
+     */
+    @Nullable
+    public abstract String getLogs(@NonNull String group, @IntRange(from = 0) int limit, @IntRange(from = 0) long maxBytes, @Nullable List<Log> outLogs, @Nullable List<String> outPayloads);
+
+    /**
+     * Gets the total size of the stored payloads of a batch returned by {@link #getLogs(String, int, List)},
+     * as measured when the logs were stored.
+     *
+     * @param group The group of the batch.
+     * @param id    The id of the batch.
+     * @return The size in UTF-8 bytes, 0 if the batch is not pending.
+     */
+    public abstract long getBatchByteCount(@NonNull String group, @NonNull String id);
+
+    /**
+     * Gets the size of the stored payloads of the critical logs in a batch returned by {@link #getLogs(String, int, List)},
+     * as measured when the logs were stored.
+     *
+     * @param group The group of the batch.
+     * @param id    The id of the batch.
+     * @return The size in UTF-8 bytes, 0 if the batch is not pending.
+     */
+    public abstract long getBatchCriticalByteCount(@NonNull String group, @NonNull String id);
+
     /**
      * Clears all associations between logs of the {@code group} and ids returned by {@link #getLogs(String, int, List)}}.
      */
     public abstract void clearPendingLogState();
 
+    /**
+     * Clears the association between the logs of a batch and its id returned by {@link #getLogs(String, int, List)},
+     * so that these logs can be returned again in a new batch.
+     *
+     * @param group The group of the batch.
+     * @param id    The id of the batch.
+     */
+    public abstract void clearPendingLogState(@NonNull String group, @NonNull String id);
+
     /**
      * Gets a {@link LogSerializer}.
      *
@@ -153,6 +153,22 @@ public class NetworkStateHelper implements Closeable {
         return mNetworkType != null || !mAvailableNetworks.isEmpty();
     }
 
+    /**
+     * Check whether the active network may cost the user money, like a mobile data plan.
+     *
+     * @return true if metered, false if unmetered or if the network state cannot be read.
+     */
+    public boolean isNetworkMetered() {
+        try {
+            return mConnectivityManager.isActiveNetworkMetered();
+        } catch (RuntimeException e) {
+
+            /* Can be security exception if permission missing or firmware specific error. */
+            AppCenterLog.error(LOG_TAG, "Cannot access network state information", e);
+            return false;
+        }
+    }
+
     /**
      * Handle network available update on API level >= 21.
      */
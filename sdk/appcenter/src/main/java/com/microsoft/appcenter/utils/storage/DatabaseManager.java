@@ -18,6 +18,8 @@ import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.utils.AppCenterLog;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -36,6 +38,16 @@ public class DatabaseManager implements Closeable {
      */
     public static final String PRIMARY_KEY = "oid";
 
+    /**
+     * Value for scanner identifier lower bound meaning no filtering on identifiers.
+     */
+    public static final long NO_ID_LOWER_BOUND = -1;
+
+    /**
+     * Value for scanner limit meaning all matching records are returned.
+     */
+    public static final int NO_LIMIT = 0;
+
     /**
      * Allowed multiple for maximum sizes.
      */
@@ -130,6 +142,7 @@ public class DatabaseManager implements Closeable {
                 }
                 sql.append(");");
                 db.execSQL(sql.toString());
+                mListener.onCreate(db);
             }
 
             @Override
@@ -191,38 +204,123 @@ public class DatabaseManager implements Closeable {
      * @param values The entry to be stored.
      * @return If a log was inserted, the database identifier. Otherwise -1.
      */
-    @SuppressWarnings("TryFinallyCanBeTryWithResources")
     public long put(@NonNull ContentValues values) {
 
         /* Try SQLite. */
         if (mIMDB == null) {
             try {
-                while (true) {
-                    try {
-
-                        /* Insert data. */
-                        return getDatabase().insertOrThrow(mTable, null, values);
-                    } catch (SQLiteFullException e) {
-
-                        /* Delete the oldest log. */
-                        Cursor cursor = getCursor(null, null, true);
-                        try {
-                            if (cursor.moveToNext()) {
-                                delete(cursor.getLong(0));
-                            } else {
-                                return -1;
-                            }
-                        } finally {
-                            cursor.close();
-                        }
+                return insert(values);
+            } catch (RuntimeException e) {
+                switchToInMemory("put", e);
+            }
+        }
+
+        /* Store the values to in-memory database. */
+        return putInMemory(values);
+    }
+
+    /**
+     * Stores all the entries to the table using a single transaction.
+     * If the table is full, the transaction is abandoned and the entries are stored one by one
+     * with the same rules as {@link #put(ContentValues)}.
+     *
+     * @param valuesList The entries to be stored.
+     * @return The database identifiers in the same order as the entries, -1 for any entry that was not inserted.
+     */
+    public List<Long> put(@NonNull List<ContentValues> valuesList) {
+        List<Long> ids = new ArrayList<>(valuesList.size());
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                if (!insertInTransaction(valuesList, ids)) {
+                    for (ContentValues values : valuesList) {
+                        ids.add(insert(values));
                     }
                 }
+                return ids;
             } catch (RuntimeException e) {
                 switchToInMemory("put", e);
             }
         }
 
-        /* Store the values to in-memory database. */
+        /* Store the values that were not inserted in SQLite to in-memory database. */
+        for (int i = ids.size(); i < valuesList.size(); i++) {
+            ids.add(putInMemory(valuesList.get(i)));
+        }
+        return ids;
+    }
+
+    /**
+     * Inserts all the entries in SQLite in a single transaction, without discarding any log.
+     *
+     * @param valuesList The entries to be stored.
+     * @param ids        The list receiving the database identifiers, left empty if the transaction is rolled back.
+     * @return false if the table is full, in that case nothing was inserted.
+     * @throws RuntimeException If an error occurs, in that case nothing was inserted.
+     */
+    private boolean insertInTransaction(@NonNull List<ContentValues> valuesList, @NonNull List<Long> ids) throws RuntimeException {
+        SQLiteDatabase database = getDatabase();
+        database.beginTransaction();
+        try {
+            try {
+                for (ContentValues values : valuesList) {
+                    ids.add(database.insertOrThrow(mTable, null, values));
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            return true;
+        } catch (SQLiteFullException e) {
+
+            /* SQLite may roll back the whole transaction on a full database, the identifiers are not valid. */
+            ids.clear();
+            return false;
+        } catch (RuntimeException e) {
+            ids.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Inserts the entry in SQLite, discarding the oldest logs until the new one can fit.
+     *
+     * @param values The entry to be stored.
+     * @return If a log was inserted, the database identifier. Otherwise -1.
+     * @throws RuntimeException If an error occurs.
+     */
+    @SuppressWarnings("TryFinallyCanBeTryWithResources")
+    private long insert(@NonNull ContentValues values) throws RuntimeException {
+        while (true) {
+            try {
+
+                /* Insert data. */
+                return getDatabase().insertOrThrow(mTable, null, values);
+            } catch (SQLiteFullException e) {
+
+                /* Delete the oldest log. */
+                Cursor cursor = getCursor(null, null, true);
+                try {
+                    if (cursor.moveToNext()) {
+                        delete(cursor.getLong(0));
+                    } else {
+                        return -1;
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the entry to the in-memory database.
+     *
+     * @param values The entry to be stored.
+     * @return The in-memory database identifier.
+     */
+    private long putInMemory(@NonNull ContentValues values) {
         values.put(PRIMARY_KEY, mIMDBAutoInc);
         mIMDB.put(mIMDBAutoInc, values);
         return mIMDBAutoInc++;
@@ -357,7 +455,43 @@ public class DatabaseManager implements Closeable {
      * @return A scanner to iterate all values.
      */
     Scanner getScanner(String key, Object value, boolean idOnly) {
-        return new Scanner(key, value, idOnly);
+        return getScanner(key, value, idOnly, NO_ID_LOWER_BOUND, NO_LIMIT);
+    }
+
+    /**
+     * Gets a scanner to iterate values those match key == value and whose identifier is greater than
+     * the specified lower bound, in identifier order.
+     *
+     * @param key       The optional key for query.
+     * @param value     The optional value for query.
+     * @param idOnly    true to return only identifier, false to return all fields.
+     *                  This flag is ignored if using in memory database.
+     * @param afterId   Only records with an identifier strictly greater than this value are returned,
+     *                  {@link #NO_ID_LOWER_BOUND} to not filter on identifiers.
+     * @param limit     Maximum number of records to return, {@link #NO_LIMIT} to return all of them.
+     * @return A scanner to iterate values.
+     */
+    Scanner getScanner(String key, Object value, boolean idOnly, long afterId, int limit) {
+        return getScanner(key, value, null, null, idOnly, afterId, limit);
+    }
+
+    /**
+     * Gets a scanner to iterate values those match both key == value and secondKey == secondValue
+     * and whose identifier is greater than the specified lower bound, in identifier order.
+     *
+     * @param key         The optional key for query.
+     * @param value       The optional value for query.
+     * @param secondKey   The optional second key for query.
+     * @param secondValue The optional value for second key.
+     * @param idOnly      true to return only identifier, false to return all fields.
+     *                    This flag is ignored if using in memory database.
+     * @param afterId     Only records with an identifier strictly greater than this value are returned,
+     *                    {@link #NO_ID_LOWER_BOUND} to not filter on identifiers.
+     * @param limit       Maximum number of records to return, {@link #NO_LIMIT} to return all of them.
+     * @return A scanner to iterate values.
+     */
+    Scanner getScanner(String key, Object value, String secondKey, Object secondValue, boolean idOnly, long afterId, int limit) {
+        return new Scanner(key, value, secondKey, secondValue, idOnly, afterId, limit);
     }
 
     /**
@@ -422,6 +556,139 @@ public class DatabaseManager implements Closeable {
         return mIMDB.size();
     }
 
+    /**
+     * Gets the number of rows for each value of a column, using a single query.
+     *
+     * @param key The column to group rows by.
+     * @return Number of rows per column value. Values with no rows are not in the map.
+     */
+    @NonNull
+    @SuppressWarnings("TryFinallyCanBeTryWithResources")
+    Map<String, Integer> getCountsGroupedBy(@NonNull String key) {
+        Map<String, Integer> counts = new HashMap<>();
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                SQLiteQueryBuilder builder = SQLiteUtils.newSQLiteQueryBuilder();
+                builder.setTables(mTable);
+                Cursor cursor = builder.query(getDatabase(), new String[]{key, "COUNT(*)"}, null, null, key, null, null);
+                try {
+                    while (cursor.moveToNext()) {
+                        counts.put(cursor.getString(0), cursor.getInt(1));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                return counts;
+            } catch (RuntimeException e) {
+                counts.clear();
+                switchToInMemory("countGroupedBy", e);
+            }
+        }
+
+        /* Count in-memory database values. */
+        for (ContentValues values : mIMDB.values()) {
+            String value = values.getAsString(key);
+            Integer count = counts.get(value);
+            counts.put(value, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the number of rows for each pair of values of 2 columns, using a single query.
+     *
+     * @param key       The column to group rows by.
+     * @param secondKey The column to group rows by within each value of the first column.
+     * @return Number of rows per value of the first column, then per value of the second column.
+     * Values with no rows are not in the maps.
+     */
+    @NonNull
+    @SuppressWarnings("TryFinallyCanBeTryWithResources")
+    Map<String, Map<String, Integer>> getCountsGroupedBy(@NonNull String key, @NonNull String secondKey) {
+        Map<String, Map<String, Integer>> counts = new HashMap<>();
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                SQLiteQueryBuilder builder = SQLiteUtils.newSQLiteQueryBuilder();
+                builder.setTables(mTable);
+                Cursor cursor = builder.query(getDatabase(), new String[]{key, secondKey, "COUNT(*)"}, null, null, key + ", " + secondKey, null, null);
+                try {
+                    while (cursor.moveToNext()) {
+                        getSecondCounts(counts, cursor.getString(0)).put(cursor.getString(1), cursor.getInt(2));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                return counts;
+            } catch (RuntimeException e) {
+                counts.clear();
+                switchToInMemory("countGroupedBy", e);
+            }
+        }
+
+        /* Count in-memory database values. */
+        for (ContentValues values : mIMDB.values()) {
+            Map<String, Integer> secondCounts = getSecondCounts(counts, values.getAsString(key));
+            String secondValue = values.getAsString(secondKey);
+            Integer count = secondCounts.get(secondValue);
+            secondCounts.put(secondValue, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    private static Map<String, Integer> getSecondCounts(Map<String, Map<String, Integer>> counts, String value) {
+        Map<String, Integer> secondCounts = counts.get(value);
+        if (secondCounts == null) {
+            secondCounts = new HashMap<>();
+            counts.put(value, secondCounts);
+        }
+        return secondCounts;
+    }
+
+    /**
+     * Gets the number of rows matching both key and value and second key and value, without reading them.
+     *
+     * @param key         The key for query.
+     * @param value       The value for query.
+     * @param secondKey   The second key for query.
+     * @param secondValue The value for second key.
+     * @return The number of matching rows.
+     */
+    @SuppressWarnings("TryFinallyCanBeTryWithResources")
+    int getCount(@NonNull String key, @NonNull Object value, @NonNull String secondKey, @NonNull Object secondValue) {
+
+        /* Try SQLite. */
+        if (mIMDB == null) {
+            try {
+                SQLiteQueryBuilder builder = SQLiteUtils.newSQLiteQueryBuilder();
+                builder.setTables(mTable);
+                List<String> selectionArgs = new ArrayList<>();
+                boolean hasCondition = appendWhere(builder, selectionArgs, key, value, false);
+                appendWhere(builder, selectionArgs, secondKey, secondValue, hasCondition);
+                Cursor cursor = builder.query(getDatabase(), new String[]{"COUNT(*)"}, null, selectionArgs.toArray(new String[selectionArgs.size()]), null, null, null);
+                try {
+                    return cursor.moveToNext() ? cursor.getInt(0) : 0;
+                } finally {
+                    cursor.close();
+                }
+            } catch (RuntimeException e) {
+                switchToInMemory("countWhere", e);
+            }
+        }
+
+        /* Count matching in-memory database values. */
+        int count = 0;
+        for (ContentValues values : mIMDB.values()) {
+            if (value.equals(values.get(key)) && secondValue.equals(values.get(secondKey))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Gets a cursor for all rows in the table, all rows where key matches value if specified.
      *
@@ -432,24 +699,86 @@ public class DatabaseManager implements Closeable {
      * @throws RuntimeException If an error occurs.
      */
     Cursor getCursor(String key, Object value, boolean idOnly) throws RuntimeException {
+        return getCursor(key, value, idOnly, NO_ID_LOWER_BOUND, NO_LIMIT);
+    }
+
+    /**
+     * Gets a cursor for rows in the table matching key and value if specified, with an identifier
+     * greater than a lower bound if specified, in identifier order.
+     *
+     * @param key     The optional key for query.
+     * @param value   The optional value for query.
+     * @param idOnly  Return only row identifier if true, return all fields otherwise.
+     * @param afterId Identifier lower bound (exclusive) or {@link #NO_ID_LOWER_BOUND}.
+     * @param limit   Maximum number of rows or {@link #NO_LIMIT}.
+     * @return A cursor for all rows that matches the given criteria.
+     * @throws RuntimeException If an error occurs.
+     */
+    Cursor getCursor(String key, Object value, boolean idOnly, long afterId, int limit) throws RuntimeException {
+        return getCursor(key, value, null, null, idOnly, afterId, limit);
+    }
+
+    /**
+     * Gets a cursor for rows in the table matching both key and value and second key and value
+     * if specified, with an identifier greater than a lower bound if specified, in identifier order.
+     *
+     * @param key         The optional key for query.
+     * @param value       The optional value for query.
+     * @param secondKey   The optional second key for query.
+     * @param secondValue The optional value for second key.
+     * @param idOnly      Return only row identifier if true, return all fields otherwise.
+     * @param afterId     Identifier lower bound (exclusive) or {@link #NO_ID_LOWER_BOUND}.
+     * @param limit       Maximum number of rows or {@link #NO_LIMIT}.
+     * @return A cursor for all rows that matches the given criteria.
+     * @throws RuntimeException If an error occurs.
+     */
+    Cursor getCursor(String key, Object value, String secondKey, Object secondValue, boolean idOnly, long afterId, int limit) throws RuntimeException {
 
         /* Build a query to get values. */
         SQLiteQueryBuilder builder = SQLiteUtils.newSQLiteQueryBuilder();
         builder.setTables(mTable);
-        String[] selectionArgs;
+        List<String> selectionArgs = new ArrayList<>();
+        boolean hasCondition = appendWhere(builder, selectionArgs, key, value, false);
+        hasCondition = appendWhere(builder, selectionArgs, secondKey, secondValue, hasCondition);
+        if (afterId > NO_ID_LOWER_BOUND) {
+            if (hasCondition) {
+                builder.appendWhere(" AND ");
+            }
+            builder.appendWhere(PRIMARY_KEY + " > ?");
+            selectionArgs.add(String.valueOf(afterId));
+        }
+
+        /* Query database. */
+        String[] projectionIn = idOnly ? new String[]{PRIMARY_KEY} : null;
+        String[] selectionArgsArray = selectionArgs.isEmpty() ? null : selectionArgs.toArray(new String[selectionArgs.size()]);
+        String limitString = limit > NO_LIMIT ? String.valueOf(limit) : null;
+        return builder.query(getDatabase(), projectionIn, null, selectionArgsArray, null, null, PRIMARY_KEY, limitString);
+    }
+
+    /**
+     * Append a key == value condition to a query.
+     *
+     * @param builder       The query builder.
+     * @param selectionArgs The selection arguments of the query.
+     * @param key           The optional key, nothing is appended if null.
+     * @param value         The value to match.
+     * @param hasCondition  true if the query already has a condition.
+     * @return true if the query has a condition after this call.
+     */
+    private static boolean appendWhere(SQLiteQueryBuilder builder, List<String> selectionArgs, String key, Object value, boolean hasCondition) {
         if (key == null) {
-            selectionArgs = null;
-        } else if (value == null) {
+            return hasCondition;
+        }
+        if (hasCondition) {
+            builder.appendWhere(" AND ");
+        }
+        if (value == null) {
             builder.appendWhere(key + " IS NULL");
-            selectionArgs = null;
         } else {
             builder.appendWhere(key + " = ?");
-            selectionArgs = new String[]{String.valueOf(value.toString())};
+            selectionArgs.add(String.valueOf(value.toString()));
         }
-
-        /* Query database. */
-        String[] projectionIn = idOnly ? new String[]{PRIMARY_KEY} : null;
-        return builder.query(getDatabase(), projectionIn, null, selectionArgs, null, null, PRIMARY_KEY);
+        return true;
     }
 
     /**
@@ -550,6 +879,13 @@ public class DatabaseManager implements Closeable {
      */
     public interface Listener {
 
+        /**
+         * Called after the table has been created, can be used to create indexes.
+         *
+         * @param db database where the table was created.
+         */
+        void onCreate(SQLiteDatabase db);
+
         /**
          * Called when upgrade is performed on the database.
          * You can use this callback to alter table schema without losing data.
@@ -588,11 +924,31 @@ public class DatabaseManager implements Closeable {
          */
         private final Object value;
 
+        /**
+         * Second filter key.
+         */
+        private final String secondKey;
+
+        /**
+         * Second filter value.
+         */
+        private final Object secondValue;
+
         /**
          * Return only IDs flags (SQLite implementation only).
          */
         private final boolean idOnly;
 
+        /**
+         * Identifier lower bound (exclusive).
+         */
+        private final long afterId;
+
+        /**
+         * Maximum number of records.
+         */
+        private final int limit;
+
         /**
          * SQLite cursor.
          */
@@ -601,10 +957,14 @@ public class DatabaseManager implements Closeable {
         /**
          * Initializes a cursor with optional filter.
          */
-        private Scanner(String key, Object value, boolean idOnly) {
+        private Scanner(String key, Object value, String secondKey, Object secondValue, boolean idOnly, long afterId, int limit) {
             this.key = key;
             this.value = value;
+            this.secondKey = secondKey;
+            this.secondValue = secondValue;
             this.idOnly = idOnly;
+            this.afterId = afterId;
+            this.limit = limit;
         }
 
         @Override
@@ -630,7 +990,7 @@ public class DatabaseManager implements Closeable {
                 try {
                     /* Close cursor first if it was being used. */
                     close();
-                    cursor = getCursor(key, value, idOnly);
+                    cursor = getCursor(key, value, secondKey, secondValue, idOnly, afterId, limit);
 
                     /* Wrap cursor as iterator. */
                     return new Iterator<ContentValues>() {
@@ -700,18 +1060,23 @@ public class DatabaseManager implements Closeable {
                 /** Next value. */
                 ContentValues next;
 
+                /** Number of values returned so far. */
+                int count;
+
                 @Override
                 public boolean hasNext() {
 
                     /* Iterator needs to be moved to the next. */
                     if (!advanced) {
                         next = null;
-                        while (iterator.hasNext()) {
+                        while (iterator.hasNext() && (limit <= NO_LIMIT || count < limit)) {
                             ContentValues nextCandidate = iterator.next();
-                            Object candidateValue = nextCandidate.get(key);
-                            if (key == null || (value != null && value.equals(candidateValue)) || (value == null && candidateValue == null)) {
-                                next = nextCandidate;
-                                break;
+                            if (matches(nextCandidate, key, value) && matches(nextCandidate, secondKey, secondValue)) {
+                                Long id = nextCandidate.getAsLong(PRIMARY_KEY);
+                                if (afterId <= NO_ID_LOWER_BOUND || (id != null && id > afterId)) {
+                                    next = nextCandidate;
+                                    break;
+                                }
                             }
                         }
                         advanced = true;
@@ -725,6 +1090,7 @@ public class DatabaseManager implements Closeable {
                         throw new NoSuchElementException();
                     }
                     advanced = false;
+                    count++;
                     return next;
                 }
 
@@ -735,11 +1101,27 @@ public class DatabaseManager implements Closeable {
             };
         }
 
+        /**
+         * Check an in-memory record against a filter.
+         *
+         * @param values the record.
+         * @param key    the optional filter key.
+         * @param value  the filter value.
+         * @return true if there is no filter or if the record matches it.
+         */
+        private boolean matches(ContentValues values, String key, Object value) {
+            if (key == null) {
+                return true;
+            }
+            Object candidateValue = values.get(key);
+            return (value != null && value.equals(candidateValue)) || (value == null && candidateValue == null);
+        }
+
         public int getCount() {
             if (mIMDB == null) {
                 try {
                     if (cursor == null) {
-                        cursor = getCursor(key, value, idOnly);
+                        cursor = getCursor(key, value, secondKey, secondValue, idOnly, afterId, limit);
                     }
                     return cursor.getCount();
                 } catch (RuntimeException e) {
@@ -29,6 +29,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -600,6 +601,16 @@ public class StorageHelper {
             return mDatabaseManager.put(values);
         }
 
+        /**
+         * Store entries in a table using a single transaction.
+         *
+         * @param valuesList The entries to be stored.
+         * @return The identifiers of the created database entries, in the same order as the entries.
+         */
+        public List<Long> put(@NonNull List<ContentValues> valuesList) {
+            return mDatabaseManager.put(valuesList);
+        }
+
         /**
          * Delete an entry in a table.
          *
@@ -684,6 +695,43 @@ public class StorageHelper {
             return new DatabaseScanner(mDatabaseManager.getScanner(key, value, idOnly));
         }
 
+        /**
+         * Gets a scanner to iterate values those match key == value, with an identifier greater
+         * than the specified one, up to a maximum number of records, in identifier order.
+         *
+         * @param key     The optional key for query.
+         * @param value   The optional value for query.
+         * @param idOnly  True to return only identifiers, false to return all fields.
+         *                This flag is ignored if using in memory database.
+         * @param afterId Only records with an identifier strictly greater than this value are returned,
+         *                {@link DatabaseManager#NO_ID_LOWER_BOUND} to not filter on identifiers.
+         * @param limit   Maximum number of records to return, {@link DatabaseManager#NO_LIMIT} for all.
+         * @return A scanner to iterate values.
+         */
+        public DatabaseScanner getScanner(@Nullable String key, @Nullable Object value, boolean idOnly, long afterId, int limit) {
+            return new DatabaseScanner(mDatabaseManager.getScanner(key, value, idOnly, afterId, limit));
+        }
+
+        /**
+         * Gets a scanner to iterate values those match both key == value and secondKey == secondValue,
+         * with an identifier greater than the specified one, up to a maximum number of records,
+         * in identifier order.
+         *
+         * @param key         The optional key for query.
+         * @param value       The optional value for query.
+         * @param secondKey   The optional second key for query.
+         * @param secondValue The optional value for second key.
+         * @param idOnly      True to return only identifiers, false to return all fields.
+         *                    This flag is ignored if using in memory database.
+         * @param afterId     Only records with an identifier strictly greater than this value are returned,
+         *                    {@link DatabaseManager#NO_ID_LOWER_BOUND} to not filter on identifiers.
+         * @param limit       Maximum number of records to return, {@link DatabaseManager#NO_LIMIT} for all.
+         * @return A scanner to iterate values.
+         */
+        public DatabaseScanner getScanner(@Nullable String key, @Nullable Object value, @Nullable String secondKey, @Nullable Object secondValue, boolean idOnly, long afterId, int limit) {
+            return new DatabaseScanner(mDatabaseManager.getScanner(key, value, secondKey, secondValue, idOnly, afterId, limit));
+        }
+
         /**
          * Clears the table in the database.
          */
@@ -708,6 +756,42 @@ public class StorageHelper {
             return mDatabaseManager.getRowCount();
         }
 
+        /**
+         * Gets the count of records for each value of a column.
+         *
+         * @param key The column to group records by.
+         * @return The number of records per column value.
+         */
+        @NonNull
+        public Map<String, Integer> getCountsGroupedBy(@NonNull String key) {
+            return mDatabaseManager.getCountsGroupedBy(key);
+        }
+
+        /**
+         * Gets the count of records for each pair of values of 2 columns.
+         *
+         * @param key       The column to group records by.
+         * @param secondKey The column to group records by within each value of the first column.
+         * @return The number of records per value of the first column, then per value of the second column.
+         */
+        @NonNull
+        public Map<String, Map<String, Integer>> getCountsGroupedBy(@NonNull String key, @NonNull String secondKey) {
+            return mDatabaseManager.getCountsGroupedBy(key, secondKey);
+        }
+
+        /**
+         * Gets the count of records matching both key and value and second key and value.
+         *
+         * @param key         The key for query.
+         * @param value       The value for query.
+         * @param secondKey   The second key for query.
+         * @param secondValue The value for second key.
+         * @return The number of matching records.
+         */
+        public int getCount(@NonNull String key, @NonNull Object value, @NonNull String secondKey, @NonNull Object secondValue) {
+            return mDatabaseManager.getCount(key, value, secondKey, secondValue);
+        }
+
         /**
          * Gets the maximum size of the database.
          *
@@ -1,12 +1,16 @@
 package com.microsoft.appcenter;
 
 import android.content.Context;
+import android.os.Handler;
 
 import com.microsoft.appcenter.channel.Channel;
+import com.microsoft.appcenter.channel.DefaultChannel;
 import com.microsoft.appcenter.channel.OneCollectorChannelListener;
+import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.ingestion.models.CustomPropertiesLog;
 import com.microsoft.appcenter.ingestion.models.StartServiceLog;
 import com.microsoft.appcenter.ingestion.models.WrapperSdk;
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.DeviceInfoHelper;
 import com.microsoft.appcenter.utils.ShutdownHelper;
@@ -50,6 +54,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.doAnswer;
+import static org.powermock.api.mockito.PowerMockito.verifyNew;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
 
@@ -849,6 +854,109 @@ public class AppCenterTest extends AbstractAppCenterTest {
         verify(mChannel).setLogUrl(logUrl);
     }
 
+    @Test
+    public void setNetworkPolicy() {
+
+        /* Null is ignored. */
+        AppCenter.setNetworkPolicy(null);
+
+        /* Change policy before start has no effect for now. */
+        NetworkPolicy networkPolicy = NetworkPolicy.unmeteredOnly();
+        AppCenter.setNetworkPolicy(networkPolicy);
+        verify(mChannel, never()).setNetworkPolicy(any(NetworkPolicy.class));
+
+        /* Start should apply the policy. */
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel).setNetworkPolicy(networkPolicy);
+
+        /* Change it after, should work immediately. */
+        networkPolicy = NetworkPolicy.eager();
+        AppCenter.setNetworkPolicy(networkPolicy);
+        verify(mChannel).setNetworkPolicy(networkPolicy);
+        verify(mChannel, times(2)).setNetworkPolicy(any(NetworkPolicy.class));
+    }
+
+    @Test
+    public void setHttpClient() throws Exception {
+
+        /* Set before start is used by the channel. */
+        HttpClient httpClient = mock(HttpClient.class);
+        AppCenter.setHttpClient(httpClient);
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verifyNew(DefaultChannel.class).withArguments(eq(mApplication), eq(DUMMY_APP_SECRET), any(LogSerializer.class), eq(httpClient), any(Handler.class));
+
+        /* Can't be changed after. */
+        AppCenter.setHttpClient(mock(HttpClient.class));
+        verifyStatic();
+        AppCenterLog.error(eq(LOG_TAG), anyString());
+    }
+
+    @Test
+    public void serializedLogsPassthroughDisabledByDefault() {
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel).setSerializedLogsPassthrough(false);
+        verify(mChannel, never()).setSerializedLogsPassthrough(true);
+    }
+
+    @Test
+    public void setSerializedLogsPassthrough() {
+
+        /* Set before start is used by the channel. */
+        AppCenter.setSerializedLogsPassthrough(true);
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel).setSerializedLogsPassthrough(true);
+
+        /* Can't be changed after. */
+        AppCenter.setSerializedLogsPassthrough(false);
+        verify(mChannel, never()).setSerializedLogsPassthrough(false);
+        verifyStatic();
+        AppCenterLog.error(eq(LOG_TAG), anyString());
+    }
+
+    @Test
+    public void groupCoalescingDisabledByDefault() {
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel).setGroupCoalescing(false);
+        verify(mChannel, never()).setGroupCoalescing(true);
+    }
+
+    @Test
+    public void setGroupCoalescing() {
+
+        /* Set before start is used by the channel. */
+        AppCenter.setGroupCoalescing(true);
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel).setGroupCoalescing(true);
+
+        /* Can't be changed after. */
+        AppCenter.setGroupCoalescing(false);
+        verify(mChannel, never()).setGroupCoalescing(false);
+        verifyStatic();
+        AppCenterLog.error(eq(LOG_TAG), anyString());
+    }
+
+    @Test
+    public void circuitBreakerDisabledByDefault() {
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel).setCircuitBreaker(false);
+        verify(mChannel, never()).setCircuitBreaker(true);
+    }
+
+    @Test
+    public void setCircuitBreaker() {
+
+        /* Set before start is used by the channel. */
+        AppCenter.setCircuitBreaker(true);
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel).setCircuitBreaker(true);
+
+        /* Can't be changed after. */
+        AppCenter.setCircuitBreaker(false);
+        verify(mChannel, never()).setCircuitBreaker(false);
+        verifyStatic();
+        AppCenterLog.error(eq(LOG_TAG), anyString());
+    }
+
     @Test
     public void getSdkVersionTest() {
         assertEquals(BuildConfig.VERSION_NAME, AppCenter.getSdkVersion());
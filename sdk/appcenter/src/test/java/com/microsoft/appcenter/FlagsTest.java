@@ -0,0 +1,19 @@
+package com.microsoft.appcenter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FlagsTest {
+
+    @Test
+    public void getPriority() {
+        assertEquals(Flags.NORMAL, Flags.getPriority(Flags.DEFAULTS));
+        assertEquals(Flags.NORMAL, Flags.getPriority(Flags.NORMAL));
+        assertEquals(Flags.CRITICAL, Flags.getPriority(Flags.CRITICAL));
+        assertEquals(Flags.CRITICAL, Flags.getPriority(Flags.NORMAL | Flags.CRITICAL));
+        assertEquals(Flags.NORMAL, Flags.getPriority(0));
+        assertEquals(Flags.LOW, Flags.getPriority(Flags.LOW));
+        assertEquals(Flags.CRITICAL, Flags.getPriority(Flags.LOW | Flags.CRITICAL));
+    }
+}
@@ -32,6 +32,11 @@ public class InstantiationTest {
         new Constants();
     }
 
+    @Test
+    public void flags() {
+        new Flags();
+    }
+
     @Test
     public void serviceInstrumentationUtils() {
         new ServiceInstrumentationUtils();
@@ -0,0 +1,34 @@
+package com.microsoft.appcenter;
+
+import org.junit.Test;
+
+import static com.microsoft.appcenter.NetworkPolicy.DEFAULT_BUDGET_PERIOD;
+import static com.microsoft.appcenter.NetworkPolicy.UNLIMITED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkPolicyTest {
+
+    @Test
+    public void factories() {
+        assertTrue(NetworkPolicy.eager().isEager());
+        assertEquals(UNLIMITED, NetworkPolicy.eager().getMeteredByteBudget());
+        assertFalse(NetworkPolicy.unmeteredOnly().isEager());
+        assertEquals(0, NetworkPolicy.unmeteredOnly().getMeteredByteBudget());
+        NetworkPolicy policy = NetworkPolicy.meteredBudget(1024);
+        assertFalse(policy.isEager());
+        assertEquals(1024, policy.getMeteredByteBudget());
+        assertEquals(DEFAULT_BUDGET_PERIOD, policy.getBudgetPeriod());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBudget() {
+        new NetworkPolicy(-2, DEFAULT_BUDGET_PERIOD);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPeriod() {
+        new NetworkPolicy(1024, 0);
+    }
+}
@@ -0,0 +1,64 @@
+package com.microsoft.appcenter.channel;
+
+import org.junit.Test;
+
+import static com.microsoft.appcenter.channel.AdaptiveBatchController.MAX_FACTOR;
+import static com.microsoft.appcenter.channel.AdaptiveBatchController.TARGET_LATENCY;
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveBatchControllerTest {
+
+    @Test
+    public void growWhileFast() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(50, 3000, 3);
+        controller.onSuccess(100);
+        assertEquals(100, controller.getMaxLogsPerBatch());
+        assertEquals(1500, controller.getBatchTimeInterval());
+        assertEquals(4, controller.getMaxParallelBatches());
+
+        /* Growth is bounded. */
+        for (int i = 0; i < 20; i++) {
+            controller.onSuccess(TARGET_LATENCY);
+        }
+        assertEquals(50 * MAX_FACTOR, controller.getMaxLogsPerBatch());
+        assertEquals(3000 / MAX_FACTOR, controller.getBatchTimeInterval());
+        assertEquals(6, controller.getMaxParallelBatches());
+    }
+
+    @Test
+    public void fewerRequestsWhileSlow() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(50, 3000, 3);
+        controller.onSuccess(TARGET_LATENCY + 1);
+
+        /* Batch size is kept, requests are spaced and serialized. */
+        assertEquals(50, controller.getMaxLogsPerBatch());
+        assertEquals(6000, controller.getBatchTimeInterval());
+        assertEquals(1, controller.getMaxParallelBatches());
+        for (int i = 0; i < 20; i++) {
+            controller.onSuccess(TARGET_LATENCY + 1);
+        }
+        assertEquals(3000 * MAX_FACTOR, controller.getBatchTimeInterval());
+        assertEquals(1, controller.getMaxParallelBatches());
+    }
+
+    @Test
+    public void backOffOnFailure() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(50, 3000, 3);
+        controller.onSuccess(0);
+        controller.onSuccess(0);
+        controller.onSuccess(0);
+        assertEquals(200, controller.getMaxLogsPerBatch());
+        assertEquals(6, controller.getMaxParallelBatches());
+        controller.onFailure();
+        assertEquals(100, controller.getMaxLogsPerBatch());
+        assertEquals(750, controller.getBatchTimeInterval());
+        assertEquals(3, controller.getMaxParallelBatches());
+
+        /* Never below the group settings for batch size. */
+        controller.onFailure();
+        controller.onFailure();
+        assertEquals(50, controller.getMaxLogsPerBatch());
+        assertEquals(3000, controller.getBatchTimeInterval());
+        assertEquals(1, controller.getMaxParallelBatches());
+    }
+}
@@ -0,0 +1,72 @@
+package com.microsoft.appcenter.channel;
+
+import org.junit.Test;
+
+import static com.microsoft.appcenter.channel.CircuitBreaker.CLOSED;
+import static com.microsoft.appcenter.channel.CircuitBreaker.HALF_OPEN;
+import static com.microsoft.appcenter.channel.CircuitBreaker.MAX_OPEN_DURATION;
+import static com.microsoft.appcenter.channel.CircuitBreaker.MIN_OPEN_DURATION;
+import static com.microsoft.appcenter.channel.CircuitBreaker.OPEN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void openThenProbe() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test");
+        assertEquals(CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.isRequestAllowed(0));
+        circuitBreaker.onRequestSent();
+        assertEquals(CLOSED, circuitBreaker.getState());
+
+        /* Failure blocks requests until the probe time. */
+        circuitBreaker.onFailure(1000);
+        assertEquals(OPEN, circuitBreaker.getState());
+        assertEquals(1, circuitBreaker.getOpenCount());
+        assertFalse(circuitBreaker.isRequestAllowed(1000));
+        assertEquals(MIN_OPEN_DURATION, circuitBreaker.getRemainingOpenTime(1000));
+
+        /* Failures of requests sent before opening do not extend it. */
+        circuitBreaker.onFailure(2000);
+        assertEquals(MIN_OPEN_DURATION - 1000, circuitBreaker.getRemainingOpenTime(2000));
+        assertEquals(1, circuitBreaker.getOpenCount());
+
+        /* A single probe is allowed. */
+        long probeTime = 1000 + MIN_OPEN_DURATION;
+        assertTrue(circuitBreaker.isRequestAllowed(probeTime));
+        circuitBreaker.onRequestSent();
+        assertEquals(HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.isRequestAllowed(probeTime));
+        assertEquals(0, circuitBreaker.getRemainingOpenTime(probeTime));
+
+        /* Probe success closes. */
+        circuitBreaker.onSuccess();
+        assertEquals(CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.isRequestAllowed(probeTime));
+    }
+
+    @Test
+    public void probeFailureDoublesOpenDuration() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test");
+        circuitBreaker.onFailure(0);
+        long expectedDuration = MIN_OPEN_DURATION;
+        long now = 0;
+        for (int i = 0; i < 10; i++) {
+            now += expectedDuration;
+            circuitBreaker.onRequestSent();
+            circuitBreaker.onFailure(now);
+            expectedDuration = Math.min(expectedDuration * 2, MAX_OPEN_DURATION);
+            assertEquals(expectedDuration, circuitBreaker.getRemainingOpenTime(now));
+        }
+        assertEquals(MAX_OPEN_DURATION, circuitBreaker.getRemainingOpenTime(now));
+
+        /* Closing resets the duration. */
+        circuitBreaker.onRequestSent();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure(now);
+        assertEquals(MIN_OPEN_DURATION, circuitBreaker.getRemainingOpenTime(now));
+        assertEquals(12, circuitBreaker.getOpenCount());
+    }
+}
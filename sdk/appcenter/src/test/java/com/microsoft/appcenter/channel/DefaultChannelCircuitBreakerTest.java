@@ -0,0 +1,171 @@
+package com.microsoft.appcenter.channel;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.http.HttpException;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.Ingestion;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.persistence.Persistence;
+import com.microsoft.appcenter.utils.AppCenterLog;
+import com.microsoft.appcenter.utils.DeviceInfoHelper;
+import com.microsoft.appcenter.utils.HandlerUtils;
+import com.microsoft.appcenter.utils.IdHelper;
+import com.microsoft.appcenter.utils.UUIDUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+
+import static com.microsoft.appcenter.channel.CircuitBreaker.CLOSED;
+import static com.microsoft.appcenter.channel.CircuitBreaker.MIN_OPEN_DURATION;
+import static com.microsoft.appcenter.channel.CircuitBreaker.OPEN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@PrepareForTest({DefaultChannel.class, IdHelper.class, DeviceInfoHelper.class, AppCenterLog.class, HandlerUtils.class, SystemClock.class})
+public class DefaultChannelCircuitBreakerTest extends AbstractDefaultChannelTest {
+
+    private static final String OTHER_GROUP = "group_other";
+
+    private Persistence mPersistence;
+
+    private Ingestion mIngestion;
+
+    private Ingestion mOtherIngestion;
+
+    private Channel.GroupListener mListener;
+
+    private DefaultChannel mChannel;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUpChannel() {
+        mockStatic(SystemClock.class);
+        mPersistence = mock(Persistence.class);
+        when(mPersistence.countLogs(anyString())).thenReturn(1);
+        when(mPersistence.getLogs(anyString(), anyInt(), anyList())).then(getGetLogsAnswer(1));
+        mIngestion = mock(Ingestion.class);
+        mOtherIngestion = mock(Ingestion.class);
+        when(mOtherIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        mListener = mock(Channel.GroupListener.class);
+        mChannel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mPersistence, mIngestion, mAppCenterHandler);
+        mChannel.setCircuitBreaker(true);
+        mChannel.addGroup(TEST_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mListener);
+        mChannel.addGroup(OTHER_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, mOtherIngestion, null);
+    }
+
+    @Test
+    public void failingIngestionDoesNotStopOthers() throws IOException {
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer(new SocketException()));
+
+        /* Recoverable failure releases the batch and opens the circuit of this ingestion only. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        verify(mIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mPersistence).clearPendingLogState(eq(TEST_GROUP), anyString());
+        verify(mPersistence, never()).clearPendingLogState();
+        verify(mListener, never()).onFailure(any(Log.class), any(Exception.class));
+        verify(mIngestion, never()).close();
+        assertTrue(mChannel.isEnabled());
+        assertEquals(OPEN, mChannel.getCircuitBreaker(TEST_GROUP).getState());
+        assertEquals(CLOSED, mChannel.getCircuitBreaker(OTHER_GROUP).getState());
+
+        /* The other ingestion keeps sending. */
+        mChannel.enqueue(mock(Log.class), OTHER_GROUP, Flags.CRITICAL);
+        verify(mOtherIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mPersistence).deleteLogs(eq(OTHER_GROUP), anyString());
+
+        /* The failing one waits until the probe time. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        verify(mIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(MIN_OPEN_DURATION));
+    }
+
+    @Test
+    public void probeClosesCircuit() {
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class)))
+                .then(getSendAsyncAnswer(new SocketException()))
+                .then(getSendAsyncAnswer());
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        assertEquals(OPEN, mChannel.getCircuitBreaker(TEST_GROUP).getState());
+
+        /* After the open duration, a probe is sent and its success closes the circuit. */
+        when(SystemClock.elapsedRealtime()).thenReturn(MIN_OPEN_DURATION);
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        verify(mIngestion, times(2)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        assertEquals(CLOSED, mChannel.getCircuitBreaker(TEST_GROUP).getState());
+        verify(mListener).onSuccess(any(Log.class));
+    }
+
+    @Test
+    public void singleProbeWhileHalfOpen() {
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class)))
+                .then(getSendAsyncAnswer(new SocketException()))
+                .thenReturn(null);
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        when(SystemClock.elapsedRealtime()).thenReturn(MIN_OPEN_DURATION);
+
+        /* The probe has no result yet, other batches wait for it. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        verify(mIngestion, times(2)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+    }
+
+    @Test
+    public void nonRecoverableErrorSuspendsChannel() throws IOException {
+        HttpException exception = new HttpException(403);
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer(exception));
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+
+        /* Same as without circuit breakers: all logs are deleted and the channel is disabled. */
+        verify(mListener).onFailure(any(Log.class), eq(exception));
+        verify(mPersistence).deleteLogs(TEST_GROUP);
+        verify(mPersistence).deleteLogs(OTHER_GROUP);
+        verify(mIngestion).close();
+        assertFalse(mChannel.isEnabled());
+
+        /* New logs are discarded. */
+        Log log = mock(Log.class);
+        mChannel.enqueue(log, TEST_GROUP, Flags.CRITICAL);
+        verify(mListener).onFailure(eq(log), any(CancellationException.class));
+        verify(mIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+    }
+
+    @Test
+    public void disablingResetsCircuits() {
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer(new SocketException()));
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        CircuitBreaker circuitBreaker = mChannel.getCircuitBreaker(TEST_GROUP);
+        assertEquals(OPEN, circuitBreaker.getState());
+        mChannel.setEnabled(false);
+        mChannel.setEnabled(true);
+        assertNotSame(circuitBreaker, mChannel.getCircuitBreaker(TEST_GROUP));
+        assertEquals(CLOSED, mChannel.getCircuitBreaker(TEST_GROUP).getState());
+
+        /* Disabling the feature removes circuits. */
+        mChannel.setCircuitBreaker(false);
+        assertNull(mChannel.getCircuitBreaker(TEST_GROUP));
+    }
+}
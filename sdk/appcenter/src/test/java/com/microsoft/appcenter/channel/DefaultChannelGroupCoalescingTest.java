@@ -0,0 +1,116 @@
+package com.microsoft.appcenter.channel;
+
+import android.content.Context;
+
+import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.http.HttpException;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.Ingestion;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.persistence.Persistence;
+import com.microsoft.appcenter.utils.UUIDUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultChannelGroupCoalescingTest extends AbstractDefaultChannelTest {
+
+    private static final String OTHER_GROUP = "group_other";
+
+    private Persistence mPersistence;
+
+    private Ingestion mIngestion;
+
+    private Channel.GroupListener mListener;
+
+    private Channel.GroupListener mOtherListener;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUpPersistence() {
+        mPersistence = mock(Persistence.class);
+        when(mPersistence.countLogs(anyString())).thenReturn(1);
+        when(mPersistence.getLogs(anyString(), anyInt(), anyList())).then(getGetLogsAnswer(1));
+        mIngestion = mock(Ingestion.class);
+        mListener = mock(Channel.GroupListener.class);
+        mOtherListener = mock(Channel.GroupListener.class);
+    }
+
+    @Test
+    public void groupsSentInOneRequest() {
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mPersistence, mIngestion, mAppCenterHandler);
+        channel.setGroupCoalescing(true);
+        channel.addGroup(TEST_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mListener);
+        channel.addGroup(OTHER_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mOtherListener);
+        verify(mIngestion, never()).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+
+        /* Triggering the first group also sends the logs waiting in the other group. */
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        ArgumentCaptor<LogContainer> container = ArgumentCaptor.forClass(LogContainer.class);
+        verify(mIngestion).sendAsync(anyString(), any(UUID.class), container.capture(), any(ServiceCallback.class));
+        assertEquals(2, container.getValue().getLogs().size());
+
+        /* The result is handled per group. */
+        verify(mPersistence).deleteLogs(eq(TEST_GROUP), anyString());
+        verify(mPersistence).deleteLogs(eq(OTHER_GROUP), anyString());
+        verify(mListener).onSuccess(any(Log.class));
+        verify(mOtherListener).onSuccess(any(Log.class));
+        assertEquals(0, channel.getCounter(OTHER_GROUP));
+    }
+
+    @Test
+    public void failureReportedToEveryGroup() {
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer(new HttpException(403)));
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mPersistence, mIngestion, mAppCenterHandler);
+        channel.setGroupCoalescing(true);
+        channel.addGroup(TEST_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mListener);
+        channel.addGroup(OTHER_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mOtherListener);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        verify(mIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mListener).onFailure(any(Log.class), any(HttpException.class));
+        verify(mOtherListener).onFailure(any(Log.class), any(HttpException.class));
+    }
+
+    @Test
+    public void otherIngestionNotMerged() {
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        Ingestion otherIngestion = mock(Ingestion.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mPersistence, mIngestion, mAppCenterHandler);
+        channel.setGroupCoalescing(true);
+        channel.addGroup(TEST_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mListener);
+        channel.addGroup(OTHER_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, otherIngestion, mOtherListener);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        verify(mIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(otherIngestion, never()).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        assertEquals(1, channel.getCounter(OTHER_GROUP));
+    }
+
+    @Test
+    public void disabledByDefault() {
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mPersistence, mIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mListener);
+        channel.addGroup(OTHER_GROUP, 10, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, mOtherListener);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        verify(mIngestion, times(1)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mOtherListener, never()).onBeforeSending(any(Log.class));
+        assertEquals(1, channel.getCounter(OTHER_GROUP));
+    }
+}
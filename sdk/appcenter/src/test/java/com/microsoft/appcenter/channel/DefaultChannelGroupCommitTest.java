@@ -0,0 +1,263 @@
+package com.microsoft.appcenter.channel;
+
+import android.content.Context;
+import android.os.Looper;
+
+import com.microsoft.appcenter.ingestion.AppCenterIngestion;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.persistence.Persistence;
+import com.microsoft.appcenter.utils.UUIDUtils;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultChannelGroupCommitTest extends AbstractDefaultChannelTest {
+
+    private static Answer<List<Long>> getPutLogsAnswer() {
+        return new Answer<List<Long>>() {
+
+            @Override
+            public List<Long> answer(InvocationOnMock invocation) {
+                List<?> logs = (List<?>) invocation.getArguments()[1];
+                List<Long> ids = new ArrayList<>();
+                for (long i = 0; i < logs.size(); i++) {
+                    ids.add(i);
+                }
+                return ids;
+            }
+        };
+    }
+
+    private List<Runnable> catchPostedRunnables() {
+        final List<Runnable> runnables = new ArrayList<>();
+        when(mAppCenterHandler.post(any(Runnable.class))).then(new Answer<Boolean>() {
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                runnables.add((Runnable) invocation.getArguments()[0]);
+                return true;
+            }
+        });
+        return runnables;
+    }
+
+    @Test
+    public void burstPersistedInOneTransaction() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.putLogs(eq(TEST_GROUP), anyListOf(Log.class))).then(getPutLogsAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        List<Runnable> runnables = catchPostedRunnables();
+
+        /* Enqueue a burst of logs, nothing is persisted until the background thread is idle. */
+        for (int i = 0; i < 10; i++) {
+            channel.enqueue(mock(Log.class), TEST_GROUP);
+        }
+        assertEquals(1, runnables.size());
+        assertEquals(0, channel.getCounter(TEST_GROUP));
+        verify(mockPersistence, never()).putLog(anyString(), any(Log.class));
+
+        /* Run the flush. */
+        runnables.get(0).run();
+        verify(mockPersistence).putLogs(eq(TEST_GROUP), anyListOf(Log.class));
+        verify(mockPersistence, never()).putLog(anyString(), any(Log.class));
+        assertEquals(10, channel.getCounter(TEST_GROUP));
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(BATCH_TIME_INTERVAL));
+
+        /* A new burst schedules a new flush. */
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        assertEquals(2, runnables.size());
+        runnables.get(1).run();
+        verify(mockPersistence).putLog(eq(TEST_GROUP), any(Log.class));
+        assertEquals(11, channel.getCounter(TEST_GROUP));
+    }
+
+    @Test
+    public void enqueueWindow() {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.putLogs(eq(TEST_GROUP), anyListOf(Log.class))).then(getPutLogsAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.setEnqueueWindow(200);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        when(mAppCenterHandler.postDelayed(any(Runnable.class), eq(200L))).thenReturn(true);
+
+        /* Enqueue logs, flush is delayed. */
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(200L));
+        assertEquals(0, channel.getCounter(TEST_GROUP));
+
+        /* Shutdown persists what is held in memory. */
+        channel.shutdown();
+        verify(mockPersistence).putLogs(eq(TEST_GROUP), anyListOf(Log.class));
+        assertEquals(2, channel.getCounter(TEST_GROUP));
+    }
+
+    @Test
+    public void clearDropsHeldLogs() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        List<Runnable> runnables = catchPostedRunnables();
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        channel.clear(TEST_GROUP);
+        runnables.get(0).run();
+        verify(mockPersistence, never()).putLog(anyString(), any(Log.class));
+        verify(mockPersistence, never()).putLogs(anyString(), anyListOf(Log.class));
+        assertEquals(0, channel.getCounter(TEST_GROUP));
+    }
+
+    @Test
+    public void groupsPersistedConcurrently() throws Exception {
+        final CountDownLatch persisting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.putLog(eq("slow"), any(Log.class))).then(new Answer<Long>() {
+
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable {
+                persisting.countDown();
+                release.await();
+                return 0L;
+            }
+        });
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup("slow", 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        List<Runnable> runnables = catchPostedRunnables();
+        channel.enqueue(mock(Log.class), "slow");
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        assertEquals(2, runnables.size());
+
+        /* Block persisting the first group in a background thread. */
+        Thread thread = new Thread(runnables.get(0));
+        thread.start();
+        persisting.await();
+
+        /* The other group is enqueued, persisted and counted meanwhile. */
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        runnables.get(1).run();
+        verify(mockPersistence).putLogs(eq(TEST_GROUP), anyListOf(Log.class));
+        assertEquals(0, channel.getCounter("slow"));
+
+        /* Unblock the first group. */
+        release.countDown();
+        thread.join();
+        assertEquals(1, channel.getCounter("slow"));
+    }
+
+    @Test
+    public void overflowDropOldest() {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.putLogs(eq(TEST_GROUP), anyListOf(Log.class))).then(getPutLogsAnswer());
+        Channel.GroupListener listener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 2 * DefaultChannel.INGRESS_CAPACITY, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, listener);
+        List<Runnable> runnables = catchPostedRunnables();
+
+        /* Enqueue from another thread than the App Center one. */
+        when(mAppCenterHandler.getLooper()).thenReturn(mock(Looper.class));
+
+        /* Fill the buffer then overflow it by one log. */
+        Log oldestLog = mock(Log.class);
+        Log log = mock(Log.class);
+        channel.enqueue(oldestLog, TEST_GROUP);
+        for (int i = 1; i <= DefaultChannel.INGRESS_CAPACITY; i++) {
+            channel.enqueue(log, TEST_GROUP);
+        }
+        assertEquals(1, runnables.size());
+        assertEquals(1, channel.getDroppedLogCount(TEST_GROUP));
+        verify(listener).onBeforeSending(oldestLog);
+        verify(listener).onFailure(eq(oldestLog), any(LogDroppedException.class));
+
+        /* The newest logs are persisted. */
+        runnables.get(0).run();
+        assertEquals(DefaultChannel.INGRESS_CAPACITY, channel.getCounter(TEST_GROUP));
+    }
+
+    @Test
+    public void overflowDropNewest() {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.putLogs(eq(TEST_GROUP), anyListOf(Log.class))).then(getPutLogsAnswer());
+        Channel.GroupListener listener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        channel.addGroup(TEST_GROUP, 2 * DefaultChannel.INGRESS_CAPACITY, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, listener);
+        List<Runnable> runnables = catchPostedRunnables();
+        when(mAppCenterHandler.getLooper()).thenReturn(mock(Looper.class));
+        Log log = mock(Log.class);
+        for (int i = 0; i < DefaultChannel.INGRESS_CAPACITY; i++) {
+            channel.enqueue(log, TEST_GROUP);
+        }
+        Log newestLog = mock(Log.class);
+        channel.enqueue(newestLog, TEST_GROUP);
+        channel.enqueue(newestLog, TEST_GROUP);
+        assertEquals(2, channel.getDroppedLogCount(TEST_GROUP));
+        verify(listener, times(2)).onFailure(eq(newestLog), any(LogDroppedException.class));
+        runnables.get(0).run();
+        assertEquals(DefaultChannel.INGRESS_CAPACITY, channel.getCounter(TEST_GROUP));
+        assertEquals(0, channel.getDroppedLogCount("unknown"));
+    }
+
+    @Test
+    public void overflowBlockOnAppCenterThread() {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.putLogs(eq(TEST_GROUP), anyListOf(Log.class))).then(getPutLogsAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.setOverflowPolicy(OverflowPolicy.BLOCK);
+        channel.addGroup(TEST_GROUP, 2 * DefaultChannel.INGRESS_CAPACITY, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        catchPostedRunnables();
+
+        /* The App Center thread drains the buffer itself instead of waiting. */
+        Log log = mock(Log.class);
+        for (int i = 0; i <= DefaultChannel.INGRESS_CAPACITY; i++) {
+            channel.enqueue(log, TEST_GROUP);
+        }
+        verify(mockPersistence).putLogs(eq(TEST_GROUP), anyListOf(Log.class));
+        assertEquals(DefaultChannel.INGRESS_CAPACITY, channel.getCounter(TEST_GROUP));
+        assertEquals(0, channel.getDroppedLogCount(TEST_GROUP));
+    }
+
+    @Test
+    public void overflowOnAppCenterThreadPersistsAllLogs() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.putLogs(eq(TEST_GROUP), anyListOf(Log.class))).then(getPutLogsAnswer());
+        Channel.GroupListener listener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 4 * DefaultChannel.INGRESS_CAPACITY, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, listener);
+        List<Runnable> runnables = catchPostedRunnables();
+
+        /* Logs enqueued from the App Center thread are persisted before the posted drain can run. */
+        int logCount = 2 * DefaultChannel.INGRESS_CAPACITY + 1;
+        for (int i = 0; i < logCount; i++) {
+            channel.enqueue(mock(Log.class), TEST_GROUP);
+        }
+        verify(mockPersistence, times(2)).putLogs(eq(TEST_GROUP), anyListOf(Log.class));
+        assertEquals(2 * DefaultChannel.INGRESS_CAPACITY, channel.getCounter(TEST_GROUP));
+
+        /* The posted drains persist the rest, nothing was dropped. */
+        for (Runnable runnable : runnables) {
+            runnable.run();
+        }
+        verify(mockPersistence).putLog(eq(TEST_GROUP), any(Log.class));
+        assertEquals(logCount, channel.getCounter(TEST_GROUP));
+        assertEquals(0, channel.getDroppedLogCount(TEST_GROUP));
+        verify(listener, never()).onFailure(any(Log.class), any(LogDroppedException.class));
+    }
+}
@@ -0,0 +1,187 @@
+package com.microsoft.appcenter.channel;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.NetworkPolicy;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.Ingestion;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.persistence.Persistence;
+import com.microsoft.appcenter.utils.AppCenterLog;
+import com.microsoft.appcenter.utils.DeviceInfoHelper;
+import com.microsoft.appcenter.utils.HandlerUtils;
+import com.microsoft.appcenter.utils.IdHelper;
+import com.microsoft.appcenter.utils.NetworkStateHelper;
+import com.microsoft.appcenter.utils.UUIDUtils;
+import com.microsoft.appcenter.utils.storage.StorageHelper.PreferencesStorage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+
+@PrepareForTest({DefaultChannel.class, IdHelper.class, DeviceInfoHelper.class, AppCenterLog.class, HandlerUtils.class, SystemClock.class, System.class, PreferencesStorage.class, NetworkStateHelper.class})
+public class DefaultChannelNetworkPolicyTest extends AbstractDefaultChannelTest {
+
+    private static final long BATCH_BYTE_COUNT = 64;
+
+    private Persistence mPersistence;
+
+    private Ingestion mIngestion;
+
+    private NetworkStateHelper mNetworkStateHelper;
+
+    private DefaultChannel mChannel;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUpChannel() {
+        mockStatic(SystemClock.class);
+        mockStatic(System.class);
+
+        /* No budget saved. */
+        mockStatic(PreferencesStorage.class);
+        when(PreferencesStorage.getLong(anyString(), anyLong())).then(new Answer<Long>() {
+
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                return (Long) invocation.getArguments()[1];
+            }
+        });
+        mockStatic(NetworkStateHelper.class);
+        mNetworkStateHelper = mock(NetworkStateHelper.class);
+        when(NetworkStateHelper.getSharedInstance(any(Context.class))).thenReturn(mNetworkStateHelper);
+        when(mNetworkStateHelper.isNetworkMetered()).thenReturn(true);
+        mPersistence = mock(Persistence.class);
+        when(mPersistence.getLogs(anyString(), anyInt(), anyList())).then(getGetLogsAnswer(1));
+
+        /* The size measured when storing the logs is used, payloads are not read. */
+        when(mPersistence.getBatchByteCount(anyString(), anyString())).thenReturn(BATCH_BYTE_COUNT);
+        mIngestion = mock(Ingestion.class);
+        when(mIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        mChannel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mPersistence, mIngestion, mAppCenterHandler);
+        mChannel.addGroup(TEST_GROUP, 1, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+    }
+
+    private void verifySendCount(int count) {
+        verify(mIngestion, times(count)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+    }
+
+    @Test
+    public void unmeteredOnly() {
+        when(mPersistence.getBatchCriticalByteCount(anyString(), anyString())).thenReturn(BATCH_BYTE_COUNT);
+        mChannel.setNetworkPolicy(NetworkPolicy.unmeteredOnly());
+        ArgumentCaptor<NetworkStateHelper.Listener> listener = ArgumentCaptor.forClass(NetworkStateHelper.Listener.class);
+        verify(mNetworkStateHelper).addListener(listener.capture());
+
+        /* Normal log is held on mobile data. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP);
+        verifySendCount(0);
+        verify(mAppCenterHandler, never()).postDelayed(any(Runnable.class), anyLong());
+
+        /* Critical log is sent alone. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        verifySendCount(1);
+        verify(mPersistence).getLogs(eq(TEST_GROUP), eq(1), anyList());
+        verify(mPersistence).getBatchByteCount(eq(TEST_GROUP), anyString());
+
+        /* Losing network does nothing. */
+        when(mNetworkStateHelper.isNetworkMetered()).thenReturn(false);
+        listener.getValue().onNetworkStateUpdated(false);
+        verifySendCount(1);
+
+        /* Switching to Wi-Fi sends the held log. */
+        listener.getValue().onNetworkStateUpdated(true);
+        verifySendCount(2);
+        verify(mPersistence, times(2)).getLogs(eq(TEST_GROUP), eq(1), anyList());
+        verify(mPersistence).getBatchByteCount(eq(TEST_GROUP), anyString());
+
+        /* Critical logs are not charged and Wi-Fi is free. */
+        assertEquals(0, mChannel.getMeteredBudget().getBytesSent());
+    }
+
+    @Test
+    public void meteredBudget() {
+        mChannel.setNetworkPolicy(new NetworkPolicy(BATCH_BYTE_COUNT + 1, 1000));
+
+        /* The budget allows 2 batches, the second one exceeds it. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP);
+        mChannel.enqueue(mock(Log.class), TEST_GROUP);
+        verifySendCount(2);
+        assertEquals(2 * BATCH_BYTE_COUNT, mChannel.getMeteredBudget().getBytesSent());
+
+        /* The next one waits for the budget to renew. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP);
+        verifySendCount(2);
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(mAppCenterHandler).postDelayed(runnable.capture(), eq(1000L));
+
+        /* Budget renewed. */
+        when(System.currentTimeMillis()).thenReturn(1000L);
+        runnable.getValue().run();
+        verifySendCount(3);
+        assertEquals(BATCH_BYTE_COUNT, mChannel.getMeteredBudget().getBytesSent());
+
+        /* The budget is saved. */
+        verifyStatic();
+        PreferencesStorage.putLong(anyString(), eq(0L));
+        verifyStatic();
+        PreferencesStorage.putLong(anyString(), eq(1000L));
+    }
+
+    @Test
+    public void criticalLogsNotCharged() {
+        when(mPersistence.getBatchCriticalByteCount(anyString(), anyString())).thenReturn(0L, BATCH_BYTE_COUNT);
+        mChannel.setNetworkPolicy(NetworkPolicy.meteredBudget(10 * BATCH_BYTE_COUNT));
+
+        /* A normal batch uses the budget. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP);
+        verifySendCount(1);
+        assertEquals(BATCH_BYTE_COUNT, mChannel.getMeteredBudget().getBytesSent());
+
+        /* A critical batch on the same metered network does not. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP, Flags.CRITICAL);
+        verifySendCount(2);
+        assertEquals(BATCH_BYTE_COUNT, mChannel.getMeteredBudget().getBytesSent());
+    }
+
+    @Test
+    public void backToEager() {
+        mChannel.setNetworkPolicy(NetworkPolicy.unmeteredOnly());
+        mChannel.enqueue(mock(Log.class), TEST_GROUP);
+        verifySendCount(0);
+
+        /* Held log is sent when policy changes. */
+        mChannel.setNetworkPolicy(NetworkPolicy.eager());
+        verify(mNetworkStateHelper).removeListener(any(NetworkStateHelper.Listener.class));
+        assertNull(mChannel.getMeteredBudget());
+        verifySendCount(1);
+
+        /* And the next ones right away on any network. */
+        mChannel.enqueue(mock(Log.class), TEST_GROUP);
+        verifySendCount(2);
+    }
+}
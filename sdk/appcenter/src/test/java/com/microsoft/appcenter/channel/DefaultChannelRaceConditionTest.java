@@ -13,7 +13,9 @@ import com.microsoft.appcenter.utils.HandlerUtils;
 import com.microsoft.appcenter.utils.UUIDUtils;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
@@ -27,58 +29,136 @@ import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static org.powermock.api.mockito.PowerMockito.doAnswer;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 
 public class DefaultChannelRaceConditionTest extends AbstractDefaultChannelTest {
 
     @Test
-    public void disabledWhileSendingLogs() {
+    public void logsSentWithoutGoingThroughMainLooper() {
+
+        /* Set up mocking. */
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.countLogs(anyString())).thenReturn(1);
+        when(mockPersistence.getLogs(anyString(), eq(1), anyListOf(Log.class))).then(getGetLogsAnswer(1));
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+
+        /* Logs are sent from the channel thread, there is no window where disabling could race with sending. */
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        Channel.GroupListener listener = mock(Channel.GroupListener.class);
+        channel.addGroup(TEST_GROUP, 1, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, listener);
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verifyStatic(never());
+        HandlerUtils.runOnUiThread(any(Runnable.class));
+    }
+
+    @Test
+    public void disabledWhileSendingLogs() throws Exception {
 
         /* Set up mocking. */
         final Semaphore beforeCallSemaphore = new Semaphore(0);
         final Semaphore afterCallSemaphore = new Semaphore(0);
         Persistence mockPersistence = mock(Persistence.class);
         when(mockPersistence.countLogs(anyString())).thenReturn(1);
-        when(mockPersistence.getLogs(anyString(), eq(1), anyListOf(Log.class))).then(getGetLogsAnswer(1));
+        final Answer<String> getLogsAnswer = getGetLogsAnswer(1);
+        when(mockPersistence.getLogs(anyString(), eq(1), anyListOf(Log.class))).then(new Answer<String>() {
+
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                beforeCallSemaphore.release();
+                afterCallSemaphore.acquireUninterruptibly();
+                return getLogsAnswer.answer(invocation);
+            }
+        });
         when(mockPersistence.getLogs(anyString(), eq(CLEAR_BATCH_SIZE), anyListOf(Log.class))).then(getGetLogsAnswer(0));
         AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
-        doAnswer(new Answer<Void>() {
+        final DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        final Channel.GroupListener listener = mock(Channel.GroupListener.class);
+
+        /* Start preparing a batch on the App Center thread. */
+        Thread appCenterThread = new Thread() {
 
             @Override
-            public Void answer(final InvocationOnMock invocation) {
-                new Thread() {
+            public void run() {
+                channel.addGroup(TEST_GROUP, 1, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, listener);
+            }
+        };
+        appCenterThread.start();
+        beforeCallSemaphore.acquireUninterruptibly();
 
-                    @Override
-                    public void run() {
-                        beforeCallSemaphore.acquireUninterruptibly();
-                        ((Runnable) invocation.getArguments()[0]).run();
-                        afterCallSemaphore.release();
-                    }
-                }.start();
-                return null;
+        /* Disable from another thread meanwhile. */
+        Thread disableThread = new Thread() {
+
+            @Override
+            public void run() {
+                channel.setEnabled(false);
             }
-        }).when(HandlerUtils.class);
-        HandlerUtils.runOnUiThread(any(Runnable.class));
+        };
+        disableThread.start();
+
+        /* Release preparing the batch. */
+        afterCallSemaphore.release();
+        appCenterThread.join();
+        disableThread.join();
+
+        /* Disabling waits for the batch to be handed to the network executor, then cancels it. */
+        InOrder inOrder = inOrder(mockIngestion);
+        inOrder.verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        inOrder.verify(mockIngestion).close();
+        verify(listener, never()).onSuccess(any(Log.class));
+        verify(listener).onFailure(any(Log.class), argThat(new ArgumentMatcher<Exception>() {
 
-        /* Simulate enable module then disable. */
-        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
-        Channel.GroupListener listener = mock(Channel.GroupListener.class);
-        channel.addGroup(TEST_GROUP, 1, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, listener);
-        channel.setEnabled(false);
-        channel.setEnabled(true);
+            @Override
+            public boolean matches(Object argument) {
+                return argument instanceof CancellationException;
+            }
+        }));
+    }
 
-        /* Release call to mock ingestion. */
-        beforeCallSemaphore.release();
+    @Test
+    public void disabledWhileReadingLogs() throws Exception {
 
-        /* Wait for callback ingestion. */
-        afterCallSemaphore.acquireUninterruptibly();
+        /* Set up mocking. */
+        final Semaphore beforeCallSemaphore = new Semaphore(0);
+        final Semaphore afterCallSemaphore = new Semaphore(0);
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.countLogs(anyString())).thenReturn(1);
+        final Answer<String> getLogsAnswer = getGetLogsAnswer(1);
+        when(mockPersistence.getLogs(anyString(), eq(1), anyListOf(Log.class))).then(new Answer<String>() {
+
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                beforeCallSemaphore.release();
+                afterCallSemaphore.acquireUninterruptibly();
+                return getLogsAnswer.answer(invocation);
+            }
+        });
+        when(mockPersistence.getLogs(anyString(), eq(CLEAR_BATCH_SIZE), anyListOf(Log.class))).then(getGetLogsAnswer(0));
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        final DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+
+        /* The single log waits for the timer. */
+        channel.addGroup(TEST_GROUP, 2, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        verify(mAppCenterHandler).postDelayed(timer.capture(), eq(BATCH_TIME_INTERVAL));
+
+        /* Start reading the batch on the App Center thread. */
+        Thread appCenterThread = new Thread(timer.getValue());
+        appCenterThread.start();
+        beforeCallSemaphore.acquireUninterruptibly();
+
+        /* Disabling does not wait for the disk read. */
+        channel.setEnabled(false);
 
-        /* Verify ingestion not sent. */
+        /* Release reading the batch: it is not sent and its logs are released. */
+        afterCallSemaphore.release();
+        appCenterThread.join();
         verify(mockIngestion, never()).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mockPersistence).clearPendingLogState(eq(TEST_GROUP), anyString());
     }
 
     @Test
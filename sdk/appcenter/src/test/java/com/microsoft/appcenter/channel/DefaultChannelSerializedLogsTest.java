@@ -0,0 +1,121 @@
+package com.microsoft.appcenter.channel;
+
+import android.content.Context;
+
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.Ingestion;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.persistence.Persistence;
+import com.microsoft.appcenter.utils.UUIDUtils;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.notNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultChannelSerializedLogsTest extends AbstractDefaultChannelTest {
+
+    private static Answer<String> getGetSerializedLogsAnswer(final int size) {
+        return new Answer<String>() {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public String answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                List<Log> logs = (List<Log>) args[2];
+                List<String> payloads = (List<String>) args[3];
+                for (int i = 0; i < size; i++) {
+                    if (logs != null) {
+                        logs.add(mock(Log.class));
+                    }
+                    payloads.add("{\"id\":" + i + "}");
+                }
+                return UUIDUtils.randomUUID().toString();
+            }
+        };
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sendStoredPayloadsWithoutDeserializing() {
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.countLogs(anyString())).thenReturn(2);
+        when(persistence.getLogs(anyString(), anyInt(), anyList(), anyList())).then(getGetSerializedLogsAnswer(2));
+        Ingestion ingestion = mock(Ingestion.class);
+        when(ingestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer(new SocketException()));
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), persistence, ingestion, mAppCenterHandler);
+        channel.setSerializedLogsPassthrough(true);
+        channel.addGroup(TEST_GROUP, 2, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+
+        /* Logs are not deserialized since there is no listener. */
+        verify(persistence).getLogs(eq(TEST_GROUP), eq(2), (List<Log>) isNull(), (List<String>) notNull());
+        verify(persistence, never()).getLogs(anyString(), anyInt(), anyList());
+        ArgumentCaptor<LogContainer> container = ArgumentCaptor.forClass(LogContainer.class);
+        verify(ingestion).sendAsync(anyString(), any(UUID.class), container.capture(), any(ServiceCallback.class));
+        assertTrue(container.getValue().getLogs().isEmpty());
+        assertEquals(Arrays.asList("{\"id\":0}", "{\"id\":1}"), container.getValue().getSerializedLogs());
+
+        /* Recoverable failure puts the logs back in the pending count even if not deserialized. */
+        assertEquals(2, channel.getCounter(TEST_GROUP));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void deserializeForListener() {
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.countLogs(anyString())).thenReturn(2);
+        when(persistence.getLogs(anyString(), anyInt(), anyList(), anyList())).then(getGetSerializedLogsAnswer(2));
+        Ingestion ingestion = mock(Ingestion.class);
+        when(ingestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        Channel.GroupListener listener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), persistence, ingestion, mAppCenterHandler);
+        channel.setSerializedLogsPassthrough(true);
+        channel.addGroup(TEST_GROUP, 2, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, listener);
+
+        /* Logs are deserialized for the listener, but sent as stored. */
+        verify(persistence).getLogs(eq(TEST_GROUP), eq(2), (List<Log>) notNull(), (List<String>) notNull());
+        ArgumentCaptor<LogContainer> container = ArgumentCaptor.forClass(LogContainer.class);
+        verify(ingestion).sendAsync(anyString(), any(UUID.class), container.capture(), any(ServiceCallback.class));
+        assertEquals(2, container.getValue().getLogs().size());
+        assertEquals(2, container.getValue().getSerializedLogs().size());
+        verify(listener, times(2)).onBeforeSending(any(Log.class));
+        verify(listener, times(2)).onSuccess(any(Log.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void disabledByDefault() {
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.countLogs(anyString())).thenReturn(1);
+        when(persistence.getLogs(anyString(), anyInt(), anyList())).then(getGetLogsAnswer(1));
+        Ingestion ingestion = mock(Ingestion.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), persistence, ingestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 1, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        verify(persistence, never()).getLogs(anyString(), anyInt(), anyList(), anyList());
+        ArgumentCaptor<LogContainer> container = ArgumentCaptor.forClass(LogContainer.class);
+        verify(ingestion).sendAsync(anyString(), any(UUID.class), container.capture(), any(ServiceCallback.class));
+        assertNull(container.getValue().getSerializedLogs());
+    }
+}
@@ -5,6 +5,7 @@ import android.content.pm.PackageManager;
 import android.support.annotation.NonNull;
 
 import com.microsoft.appcenter.CancellationException;
+import com.microsoft.appcenter.Flags;
 import com.microsoft.appcenter.http.HttpException;
 import com.microsoft.appcenter.http.ServiceCallback;
 import com.microsoft.appcenter.ingestion.AppCenterIngestion;
@@ -24,6 +25,7 @@ import org.mockito.stubbing.Answer;
 import java.io.IOException;
 import java.net.SocketException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -32,10 +34,12 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
@@ -1022,4 +1026,162 @@ public class DefaultChannelTest extends AbstractDefaultChannelTest {
         /* But that we cleared batch state. */
         verify(mockPersistence).clearPendingLogState();
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void batchCutBySize() {
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.countLogs(anyString())).thenReturn(10);
+
+        /* Only 3 logs fit in the byte size. */
+        when(persistence.getLogs(anyString(), anyInt(), anyLong(), anyList(), anyList())).then(new Answer<String>() {
+
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                List<Log> logs = (List<Log>) invocation.getArguments()[3];
+                for (int i = 0; i < 3; i++) {
+                    logs.add(mock(Log.class));
+                }
+                return UUIDUtils.randomUUID().toString();
+            }
+        });
+        Ingestion ingestion = mock(Ingestion.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), persistence, ingestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 10, 1024, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+
+        /* The remaining logs are still pending. */
+        verify(persistence).getLogs(eq(TEST_GROUP), eq(10), eq(1024L), anyList(), anyList());
+        verify(persistence, never()).getLogs(anyString(), anyInt(), anyList());
+        verify(ingestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        assertEquals(7, channel.getCounter(TEST_GROUP));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void adaptiveBatching() {
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.countLogs(anyString())).thenReturn(200);
+        when(persistence.getLogs(anyString(), anyInt(), anyList())).then(getGetLogsAnswer(50));
+        Ingestion ingestion = mock(Ingestion.class);
+        when(ingestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), persistence, ingestion, mAppCenterHandler);
+        channel.setAdaptiveBatching(true);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+
+        /* Fast uploads grow the next batches and shorten the timer. */
+        verify(persistence).getLogs(eq(TEST_GROUP), eq(50), anyList());
+        verify(persistence).getLogs(eq(TEST_GROUP), eq(100), anyList());
+        AdaptiveBatchController controller = channel.getAdaptiveBatchController(TEST_GROUP);
+        assertNotNull(controller);
+        assertEquals(150, controller.getMaxLogsPerBatch());
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(controller.getBatchTimeInterval()));
+        assertEquals(50, channel.getCounter(TEST_GROUP));
+
+        /* Static settings are used again when disabled. */
+        channel.setAdaptiveBatching(false);
+        assertNull(channel.getAdaptiveBatchController(TEST_GROUP));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void criticalLogsSentWithoutWaiting() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        Ingestion mockIngestion = mock(Ingestion.class);
+        when(mockPersistence.getLogs(any(String.class), anyInt(), any(ArrayList.class))).then(getGetLogsAnswer(1));
+        when(mockIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+
+        /* A normal log waits for the batch timer. */
+        Log normalLog = mock(Log.class);
+        channel.enqueue(normalLog, TEST_GROUP);
+        verify(mockPersistence).putLog(TEST_GROUP, normalLog);
+        verify(mockIngestion, never()).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+
+        /* A critical log is sent right away. */
+        Log criticalLog = mock(Log.class);
+        channel.enqueue(criticalLog, TEST_GROUP, Flags.CRITICAL);
+        verify(mockPersistence).putLog(TEST_GROUP, criticalLog, Flags.CRITICAL);
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+
+        /* Flags can be set per log type. */
+        Log typedLog = mock(Log.class);
+        when(typedLog.getType()).thenReturn("critical");
+        channel.setLogTypeFlags("critical", Flags.CRITICAL);
+        channel.enqueue(typedLog, TEST_GROUP);
+        verify(mockPersistence).putLog(TEST_GROUP, typedLog, Flags.CRITICAL);
+        verify(mockIngestion, times(2)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void persistedCriticalLogsSentWithoutWaiting() {
+        Persistence mockPersistence = mock(Persistence.class);
+        Ingestion mockIngestion = mock(Ingestion.class);
+        when(mockPersistence.countLogs(anyString())).thenReturn(3);
+        when(mockPersistence.countLogs(anyString(), eq(Flags.CRITICAL))).thenReturn(1);
+        when(mockPersistence.getLogs(any(String.class), anyInt(), any(ArrayList.class))).then(getGetLogsAnswer(3));
+        when(mockIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+
+        /* Critical logs stored before a restart do not wait for the batch timer. */
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mAppCenterHandler, never()).postDelayed(any(Runnable.class), eq(BATCH_TIME_INTERVAL));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void criticalLogCountRestoredAfterRecoverableFailure() {
+        Persistence mockPersistence = mock(Persistence.class);
+        Ingestion mockIngestion = mock(Ingestion.class);
+        when(mockPersistence.countLogs(anyString())).thenReturn(1);
+        when(mockPersistence.countLogs(anyString(), eq(Flags.CRITICAL))).thenReturn(1);
+        when(mockPersistence.getLogs(any(String.class), anyInt(), any(ArrayList.class))).then(getGetLogsAnswer(1));
+        when(mockIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer(new SocketException()));
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+
+        /* The failed batch suspends the channel. */
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        assertFalse(channel.isEnabled());
+
+        /* The critical log is counted again from storage when resuming and sent without waiting. */
+        channel.setEnabled(true);
+        verify(mockPersistence, times(2)).countLogs(TEST_GROUP, Flags.CRITICAL);
+        verify(mockIngestion, times(2)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void lowPriorityLogsWaitLonger() {
+        Persistence mockPersistence = mock(Persistence.class);
+        Ingestion mockIngestion = mock(Ingestion.class);
+        when(mockPersistence.putLogs(anyString(), anyList(), eq(Flags.LOW))).thenReturn(Collections.singletonList(1L));
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+
+        /* Low priority logs are persisted in their lane and only use a longer timer. */
+        Log lowLog = mock(Log.class);
+        channel.enqueue(lowLog, TEST_GROUP, Flags.LOW);
+        verify(mockPersistence).putLogs(TEST_GROUP, Collections.singletonList(lowLog), Flags.LOW);
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(BATCH_TIME_INTERVAL * DefaultChannel.LOW_PRIORITY_INTERVAL_FACTOR));
+        verify(mockIngestion, never()).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+
+        /* A normal log does not wait for the longer timer. */
+        channel.enqueue(mock(Log.class), TEST_GROUP);
+        verify(mAppCenterHandler).removeCallbacks(any(Runnable.class));
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(BATCH_TIME_INTERVAL));
+        assertEquals(2, channel.getCounter(TEST_GROUP));
+    }
+
+    @Test
+    public void lowPriorityLogCountRestoredFromPersistence() {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.countLogs(anyString())).thenReturn(2);
+        when(mockPersistence.countLogs(anyString(), eq(Flags.LOW))).thenReturn(2);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUIDUtils.randomUUID().toString(), mockPersistence, mock(Ingestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(BATCH_TIME_INTERVAL * DefaultChannel.LOW_PRIORITY_INTERVAL_FACTOR));
+    }
 }
@@ -0,0 +1,90 @@
+package com.microsoft.appcenter.channel;
+
+import com.microsoft.appcenter.ingestion.models.Log;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void offerAndPollInOrder() {
+        LogRingBuffer buffer = new LogRingBuffer(3);
+        assertEquals(4, buffer.capacity());
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Log log = mock(Log.class);
+            logs.add(log);
+            assertTrue(buffer.offer(log));
+        }
+
+        /* Full. */
+        assertFalse(buffer.offer(mock(Log.class)));
+        assertFalse(buffer.isEmpty());
+        assertSame(logs.get(0), buffer.poll());
+
+        /* Slot freed for the next lap. */
+        Log log = mock(Log.class);
+        assertTrue(buffer.offer(log));
+        logs.add(log);
+        List<Log> drained = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertEquals(logs.subList(1, 3), drained);
+        drained.clear();
+        assertEquals(2, buffer.drainTo(drained, 10));
+        assertEquals(logs.subList(3, 5), drained);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void concurrentProducers() throws InterruptedException {
+        final int producerCount = 4;
+        final int logsPerProducer = 1000;
+        final LogRingBuffer buffer = new LogRingBuffer(64);
+        final Log log = mock(Log.class);
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < producerCount; i++) {
+            Thread producer = new Thread() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < logsPerProducer; j++) {
+                        while (!buffer.offer(log)) {
+                            try {
+                                buffer.awaitDrain(10);
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                    }
+                }
+            };
+            producers.add(producer);
+            producer.start();
+        }
+
+        /* Single consumer receives every log exactly once. */
+        List<Log> drained = new ArrayList<>();
+        while (drained.size() < producerCount * logsPerProducer) {
+            if (buffer.drainTo(drained, buffer.capacity()) == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertEquals(producerCount * logsPerProducer, drained.size());
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+package com.microsoft.appcenter.channel;
+
+import com.microsoft.appcenter.NetworkPolicy;
+import com.microsoft.appcenter.utils.storage.StorageHelper.PreferencesStorage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.rule.PowerMockRule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@PrepareForTest(PreferencesStorage.class)
+public class MeteredBudgetTest {
+
+    @Rule
+    public PowerMockRule mPowerMockRule = new PowerMockRule();
+
+    private final Map<String, Long> mPreferences = new HashMap<>();
+
+    @Before
+    public void setUp() {
+
+        /* Keep preferences in memory. */
+        mockStatic(PreferencesStorage.class);
+        when(PreferencesStorage.getLong(anyString(), anyLong())).then(new Answer<Long>() {
+
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                Long value = mPreferences.get(invocation.getArguments()[0]);
+                return value == null ? (Long) invocation.getArguments()[1] : value;
+            }
+        });
+        PowerMockito.doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                mPreferences.put((String) invocation.getArguments()[0], (Long) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(PreferencesStorage.class);
+        PreferencesStorage.putLong(anyString(), anyLong());
+        PowerMockito.doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                mPreferences.remove(invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(PreferencesStorage.class);
+        PreferencesStorage.remove(anyString());
+    }
+
+    @Test
+    public void budgetRenewsAfterPeriod() {
+        MeteredBudget budget = new MeteredBudget(new NetworkPolicy(100, 1000));
+        assertEquals(100, budget.getByteBudget());
+        assertTrue(budget.hasRemaining(0));
+        assertEquals(0, budget.getRemainingPeriod(0));
+
+        /* Period starts with the first bytes sent. */
+        budget.onSent(60, 200);
+        assertTrue(budget.hasRemaining(300));
+        budget.onSent(60, 300);
+        assertEquals(120, budget.getBytesSent());
+        assertFalse(budget.hasRemaining(400));
+        assertEquals(800, budget.getRemainingPeriod(400));
+
+        /* Renewed. */
+        assertTrue(budget.hasRemaining(1200));
+        assertEquals(0, budget.getBytesSent());
+        assertEquals(0, budget.getRemainingPeriod(1200));
+        assertTrue(mPreferences.isEmpty());
+    }
+
+    @Test
+    public void budgetRestoredAfterRestart() {
+        MeteredBudget budget = new MeteredBudget(new NetworkPolicy(100, 1000));
+        budget.onSent(120, 200);
+
+        /* A new process goes on with the same period. */
+        budget = new MeteredBudget(new NetworkPolicy(100, 1000));
+        assertEquals(120, budget.getBytesSent());
+        assertFalse(budget.hasRemaining(400));
+        assertEquals(800, budget.getRemainingPeriod(400));
+
+        /* Clock set back before the period start renews the budget. */
+        assertTrue(budget.hasRemaining(100));
+        assertEquals(0, budget.getBytesSent());
+    }
+
+    @Test
+    public void zeroBudgetNeverRenews() {
+        MeteredBudget budget = new MeteredBudget(NetworkPolicy.unmeteredOnly());
+        assertFalse(budget.hasRemaining(0));
+        assertEquals(0, budget.getRemainingPeriod(0));
+    }
+}
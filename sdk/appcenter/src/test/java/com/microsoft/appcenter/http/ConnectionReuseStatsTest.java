@@ -0,0 +1,75 @@
+package com.microsoft.appcenter.http;
+
+import android.os.SystemClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.rule.PowerMockRule;
+
+import static com.microsoft.appcenter.http.ConnectionReuseStats.KEEP_ALIVE_DURATION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@PrepareForTest(SystemClock.class)
+public class ConnectionReuseStatsTest {
+
+    @Rule
+    public PowerMockRule mPowerMockRule = new PowerMockRule();
+
+    @Before
+    public void setUp() {
+        mockStatic(SystemClock.class);
+    }
+
+    @After
+    public void tearDown() {
+        ConnectionReuseStats.unsetInstance();
+    }
+
+    @Test
+    public void sharedInstance() {
+        assertSame(ConnectionReuseStats.getSharedInstance(), ConnectionReuseStats.getSharedInstance());
+    }
+
+    @Test
+    public void idleConnectionsByHost() {
+        ConnectionReuseStats stats = new ConnectionReuseStats();
+        assertEquals(0, stats.getEstimatedReuseHitRate(), 0);
+
+        /* Nothing to reuse yet. */
+        assertFalse(stats.acquire("a"));
+        stats.onConnected(false, 300);
+        stats.release("a");
+
+        /* Other host can't reuse it. */
+        assertFalse(stats.acquire("b"));
+        stats.onConnected(false, 500);
+
+        /* Same host can, but only once. */
+        assertTrue(stats.acquire("a"));
+        stats.onConnected(true, 20);
+        assertFalse(stats.acquire("a"));
+        stats.onConnected(false, 400);
+        assertEquals(4, stats.getConnectionCount());
+        assertEquals(1, stats.getEstimatedReusedConnectionCount());
+        assertEquals(0.25f, stats.getEstimatedReuseHitRate(), 0);
+        assertEquals(400 - 20, stats.getEstimatedAverageSetupTimeSaved());
+    }
+
+    @Test
+    public void idleConnectionExpires() {
+        ConnectionReuseStats stats = new ConnectionReuseStats();
+        when(SystemClock.elapsedRealtime()).thenReturn(1000L);
+        stats.release("a");
+        when(SystemClock.elapsedRealtime()).thenReturn(1000L + KEEP_ALIVE_DURATION);
+        assertFalse(stats.acquire("a"));
+        assertEquals(0, stats.getEstimatedAverageSetupTimeSaved());
+    }
+}
@@ -14,7 +14,9 @@ import org.json.JSONObject;
 import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
@@ -25,23 +27,32 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.Semaphore;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_GET;
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
+import static com.microsoft.appcenter.http.DefaultHttpClient.MIN_GZIP_LENGTH;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
@@ -49,6 +60,7 @@ import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.notNull;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -57,6 +69,7 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.doAnswer;
+import static org.powermock.api.mockito.PowerMockito.doThrow;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
@@ -85,7 +98,7 @@ public class DefaultHttpClientTest {
             @Override
             public Object answer(InvocationOnMock invocation) {
 
-                @SuppressWarnings("unchecked") final DefaultHttpClient.Call call = new DefaultHttpClient.Call(invocation.getArguments()[0].toString(), invocation.getArguments()[1].toString(), (Map<String, String>) invocation.getArguments()[2], (HttpClient.CallTemplate) invocation.getArguments()[3], (ServiceCallback) invocation.getArguments()[4]);
+                @SuppressWarnings("unchecked") final DefaultHttpClient.Call call = new DefaultHttpClient.Call(invocation.getArguments()[0].toString(), invocation.getArguments()[1].toString(), (Map<String, String>) invocation.getArguments()[2], (HttpClient.CallTemplate) invocation.getArguments()[3], (ServiceCallback) invocation.getArguments()[4], (DefaultHttpClient) invocation.getArguments()[5]);
                 DefaultHttpClient.Call spyCall = spy(call);
                 when(spyCall.executeOnExecutor(any(Executor.class))).then(new Answer<DefaultHttpClient.Call>() {
 
@@ -199,6 +212,238 @@ public class DefaultHttpClientTest {
         AppCenterLog.verbose(AppCenterLog.LOG_TAG, prettyString);
     }
 
+    @Test
+    public void postStreamedBody() throws Exception {
+
+        /* Configure mock HTTP. */
+        String urlString = "http://mock/logs?api-version=1.0.0";
+        URL url = mock(URL.class);
+        whenNew(URL.class).withArguments(urlString).thenReturn(url);
+        HttpsURLConnection urlConnection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+
+        /* Configure API client, body is written to the stream. */
+        HttpClient.StreamingCallTemplate callTemplate = mock(HttpClient.StreamingCallTemplate.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((OutputStream) invocation.getArguments()[0]).write("{a:1,b:2}".getBytes("UTF-8"));
+                return null;
+            }
+        }).when(callTemplate).writeRequestBody(any(OutputStream.class));
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded("OK");
+        verifyNoMoreInteractions(serviceCallback);
+        verify(urlConnection).setRequestProperty("Content-Type", "application/json");
+        verify(urlConnection).setRequestProperty("Content-Encoding", "gzip");
+        verify(urlConnection).setDoOutput(true);
+        verify(urlConnection).setChunkedStreamingMode(0);
+        verify(urlConnection, never()).setFixedLengthStreamingMode(anyInt());
+        verify(callTemplate, never()).buildRequestBody();
+
+        /* Verify payload was compressed while streamed. */
+        GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        byte[] readBuffer = new byte[64];
+        int len;
+        while ((len = gzipStream.read(readBuffer)) > 0) {
+            payload.write(readBuffer, 0, len);
+        }
+        assertEquals("{a:1,b:2}", payload.toString("UTF-8"));
+    }
+
+    @Test
+    public void compressionSettings() throws Exception {
+
+        /* Configure mock HTTP. */
+        String urlString = "http://mock/logs?api-version=1.0.0";
+        URL url = mock(URL.class);
+        whenNew(URL.class).withArguments(urlString).thenReturn(url);
+        HttpsURLConnection urlConnection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn("{a:1,b:2}");
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+
+        /* Small payload compressed when threshold lowered. */
+        httpClient.setCompression(Deflater.BEST_SPEED, 0);
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(urlConnection).setRequestProperty("Content-Encoding", "gzip");
+        GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        byte[] readBuffer = new byte[64];
+        int len = gzipStream.read(readBuffer);
+        assertEquals("{a:1,b:2}", new String(readBuffer, 0, len, "UTF-8"));
+
+        /* No compression at all whatever the size. */
+        buffer.reset();
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+        httpClient.setCompression(Deflater.NO_COMPRESSION, 0);
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(urlConnection).setRequestProperty("Content-Encoding", "gzip");
+        assertEquals("{a:1,b:2}", buffer.toString("UTF-8"));
+        verify(serviceCallback, times(2)).onCallSucceeded("OK");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCompressionLevel() {
+        new DefaultHttpClient().setCompression(10, MIN_GZIP_LENGTH);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMinCompressionLength() {
+        new DefaultHttpClient().setCompression(Deflater.DEFAULT_COMPRESSION, -1);
+    }
+
+    @Test
+    public void callTimings() throws Exception {
+
+        /* Configure mock HTTP. */
+        String urlString = "http://localhost/logs?api-version=1.0.0";
+        URL url = mock(URL.class);
+        whenNew(URL.class).withArguments(urlString).thenReturn(url);
+        when(url.getHost()).thenReturn("localhost");
+        HttpsURLConnection urlConnection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+        HttpClient.StreamingCallTemplate callTemplate = mock(HttpClient.StreamingCallTemplate.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((OutputStream) invocation.getArguments()[0]).write("{a:1,b:2}".getBytes("UTF-8"));
+                return null;
+            }
+        }).when(callTemplate).writeRequestBody(any(OutputStream.class));
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+        TimedServiceCallback serviceCallback = mock(TimedServiceCallback.class);
+        mockCall();
+
+        /* Timings are given before the result. */
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        ArgumentCaptor<CallTimings> captor = ArgumentCaptor.forClass(CallTimings.class);
+        InOrder inOrder = inOrder(serviceCallback);
+        inOrder.verify(serviceCallback).onCallTimed(captor.capture());
+        inOrder.verify(serviceCallback).onCallSucceeded("OK");
+        CallTimings callTimings = captor.getValue();
+        assertEquals("localhost", callTimings.getHost());
+        assertEquals(buffer.size(), callTimings.getRequestBytes());
+        assertTrue(callTimings.getQueueTime() >= 0);
+        assertTrue(callTimings.getConnectTime() >= 0);
+        assertTrue(callTimings.getWriteTime() >= 0);
+        assertTrue(callTimings.getTimeToFirstByte() >= 0);
+        assertTrue(callTimings.getReadTime() >= 0);
+
+        /* Serialization is part of writing when streamed. */
+        assertEquals(-1, callTimings.getSerializeTime());
+    }
+
+    @Test
+    public void ignoredResponseBody() throws Exception {
+
+        /* Configure mock HTTP. */
+        String urlString = "http://mock/logs?api-version=1.0.0";
+        URL url = mock(URL.class);
+        whenNew(URL.class).withArguments(urlString).thenReturn(url);
+        HttpsURLConnection urlConnection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayInputStream inputStream = new ByteArrayInputStream("{\"token\":\"secret\"}".getBytes());
+        when(urlConnection.getInputStream()).thenReturn(inputStream);
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.ResponseBodyIgnoredCallTemplate.class);
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+
+        /* Body is read until the end but not decoded. */
+        httpClient.callAsync(urlString, METHOD_GET, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded("");
+        assertEquals(0, inputStream.available());
+        verify(urlConnection, never()).getContentLength();
+        verify(urlConnection, never()).getHeaderField(anyString());
+
+        /* Error bodies are still read for the exception. */
+        when(urlConnection.getResponseCode()).thenReturn(503);
+        when(urlConnection.getErrorStream()).thenReturn(new ByteArrayInputStream("Busy".getBytes()));
+        httpClient.callAsync(urlString, METHOD_GET, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallFailed(new HttpException(503, "Busy"));
+    }
+
+    @Test
+    public void keepAlive() throws Exception {
+
+        /* Configure mock HTTP. */
+        ConnectionReuseStats.unsetInstance();
+        String urlString = "https://mock/logs?api-version=1.0.0";
+        URL url = mock(URL.class);
+        whenNew(URL.class).withArguments(urlString).thenReturn(url);
+        when(url.getHost()).thenReturn("mock");
+        HttpsURLConnection urlConnection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()), new ByteArrayInputStream("OK".getBytes()));
+
+        /* Call twice. */
+        DefaultHttpClient httpClient = new DefaultHttpClient(true);
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_GET, new HashMap<String, String>(), null, serviceCallback);
+        httpClient.callAsync(urlString, METHOD_GET, new HashMap<String, String>(), null, serviceCallback);
+        verify(serviceCallback, times(2)).onCallSucceeded("OK");
+
+        /* Connection is left to the pool and the second call is estimated as a reuse. */
+        verify(urlConnection, times(2)).connect();
+        verify(urlConnection, never()).disconnect();
+        ConnectionReuseStats stats = ConnectionReuseStats.getSharedInstance();
+        assertEquals(2, stats.getConnectionCount());
+        assertEquals(1, stats.getEstimatedReusedConnectionCount());
+        assertEquals(0.5f, stats.getEstimatedReuseHitRate(), 0);
+        ConnectionReuseStats.unsetInstance();
+    }
+
+    @Test
+    public void keepAliveDisconnectsOnReadFailure() throws Exception {
+
+        /* Configure mock HTTP. */
+        ConnectionReuseStats.unsetInstance();
+        String urlString = "https://mock/logs?api-version=1.0.0";
+        URL url = mock(URL.class);
+        whenNew(URL.class).withArguments(urlString).thenReturn(url);
+        HttpsURLConnection urlConnection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        IOException exception = new IOException("mock");
+        when(urlConnection.getInputStream()).thenThrow(exception);
+
+        /* The partly read connection can't be reused. */
+        DefaultHttpClient httpClient = new DefaultHttpClient(true);
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_GET, new HashMap<String, String>(), null, serviceCallback);
+        verify(serviceCallback).onCallFailed(exception);
+        verify(urlConnection).disconnect();
+        assertEquals(0, ConnectionReuseStats.getSharedInstance().getEstimatedReusedConnectionCount());
+        ConnectionReuseStats.unsetInstance();
+    }
+
     @Test
     public void post200WithoutCallTemplate() throws Exception {
 
@@ -532,6 +777,32 @@ public class DefaultHttpClientTest {
         TrafficStats.clearThreadStatsTag();
     }
 
+    @Test
+    public void error429WithRetryAfter() throws Exception {
+
+        /* Configure mock HTTP. */
+        URL url = mock(URL.class);
+        whenNew(URL.class).withAnyArguments().thenReturn(url);
+        HttpsURLConnection urlConnection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(urlConnection);
+        when(urlConnection.getResponseCode()).thenReturn(429);
+        when(urlConnection.getErrorStream()).thenReturn(new ByteArrayInputStream("Too many requests".getBytes()));
+        when(urlConnection.getHeaderField("Retry-After")).thenReturn("120");
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+
+        /* Verify the header is available to the retry policy. */
+        httpClient.callAsync("", METHOD_GET, new HashMap<String, String>(), callTemplate, serviceCallback);
+        ArgumentCaptor<Exception> captor = ArgumentCaptor.forClass(Exception.class);
+        verify(serviceCallback).onCallFailed(captor.capture());
+        HttpException exception = (HttpException) captor.getValue();
+        assertEquals(429, exception.getStatusCode());
+        assertEquals("Too many requests", exception.getPayload());
+        assertEquals("120", exception.getRetryAfter());
+    }
+
     @Test
     public void cancel() throws Exception {
 
@@ -624,29 +895,22 @@ public class DefaultHttpClientTest {
         TrafficStats.clearThreadStatsTag();
     }
 
+    @Test
+    public void callRunsOnExecutor() {
+        Executor executor = mock(Executor.class);
+        DefaultHttpClient httpClient = new DefaultHttpClient(executor, false);
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        httpClient.callAsync("", "", new HashMap<String, String>(), mock(HttpClient.CallTemplate.class), serviceCallback);
+        verify(executor).execute(any(DefaultHttpClient.Call.class));
+
+        /* Nothing happens until the executor runs the call. */
+        verifyZeroInteractions(serviceCallback);
+    }
+
     @Test
     @PrepareForTest(HandlerUtils.class)
     public void rejectedAsyncTask() throws Exception {
-
-        /* Mock HandlerUtils to simulate call from background (this unit test) to main (mock) thread. */
-        final Semaphore semaphore = new Semaphore(0);
         mockStatic(HandlerUtils.class);
-        doAnswer(new Answer<Object>() {
-
-            @Override
-            public Object answer(final InvocationOnMock invocation) {
-                new Thread("rejectedAsyncTask.handler") {
-
-                    @Override
-                    public void run() {
-                        ((Runnable) invocation.getArguments()[0]).run();
-                        semaphore.release();
-                    }
-                }.start();
-                return null;
-            }
-        }).when(HandlerUtils.class);
-        HandlerUtils.runOnUiThread(any(Runnable.class));
 
         /* Mock ingestion to fail on saturated executor in AsyncTask. */
         DefaultHttpClient.Call call = mock(DefaultHttpClient.Call.class);
@@ -659,10 +923,11 @@ public class DefaultHttpClientTest {
         ServiceCallback serviceCallback = mock(ServiceCallback.class);
         assertNotNull(httpClient.callAsync("", "", new HashMap<String, String>(), mock(HttpClient.CallTemplate.class), serviceCallback));
 
-        /* Verify the callback call from "main" thread. */
-        semaphore.acquireUninterruptibly();
+        /* Verify the callback is called right away, without going through the main thread. */
         verify(serviceCallback).onCallFailed(exception);
         verify(serviceCallback, never()).onCallSucceeded(notNull(String.class));
+        verifyStatic(never());
+        HandlerUtils.runOnUiThread(any(Runnable.class));
     }
 
     @Test
@@ -801,4 +1066,64 @@ public class DefaultHttpClientTest {
             }
         }));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void prewarm() throws Exception {
+
+        /* Run pre-warming inline. */
+        mockStatic(TrafficStats.class);
+        Executor executor = new Executor() {
+
+            @Override
+            public void execute(@SuppressWarnings("NullableProblems") Runnable command) {
+                command.run();
+            }
+        };
+        String urlString1 = "https://mock1/logs";
+        String urlString2 = "https://mock2:8443/logs";
+        URL url1 = mock(URL.class);
+        URL url2 = mock(URL.class);
+        whenNew(URL.class).withArguments(urlString1).thenReturn(url1);
+        whenNew(URL.class).withArguments(urlString2).thenReturn(url2);
+        when(url1.getHost()).thenReturn("mock1");
+        when(url1.getPort()).thenReturn(-1);
+        when(url1.getDefaultPort()).thenReturn(443);
+        when(url2.getHost()).thenReturn("mock2");
+        when(url2.getPort()).thenReturn(8443);
+        InetSocketAddress address1 = mock(InetSocketAddress.class);
+        InetSocketAddress address2 = mock(InetSocketAddress.class);
+        whenNew(InetSocketAddress.class).withArguments("mock1", 443).thenReturn(address1);
+        whenNew(InetSocketAddress.class).withArguments("mock2", 8443).thenReturn(address2);
+        Socket socket1 = mock(Socket.class);
+        Socket socket2 = mock(Socket.class);
+        whenNew(Socket.class).withNoArguments().thenReturn(socket1, socket2);
+        SSLSocket sslSocket = mock(SSLSocket.class);
+        TLS1_2SocketFactory socketFactory = mock(TLS1_2SocketFactory.class);
+        whenNew(TLS1_2SocketFactory.class).withNoArguments().thenReturn(socketFactory);
+        when(socketFactory.createSocket(socket1, "mock1", 443, true)).thenReturn(sslSocket);
+
+        /* Second host fails to connect. */
+        doThrow(new IOException("mock")).when(socket2).connect(address2, 60000);
+        Runnable callback = mock(Runnable.class);
+        DefaultHttpClient httpClient = new DefaultHttpClient(executor, true);
+        httpClient.prewarmAsync(Arrays.asList(urlString1, urlString2), callback);
+
+        /* TLS handshake is done without sending any request, sockets are closed and callback still called. */
+        verify(socket1).connect(address1, 60000);
+        verify(sslSocket).startHandshake();
+        verify(sslSocket).close();
+        verify(socket2).close();
+        verify(socketFactory, never()).createSocket(eq(socket2), anyString(), anyInt(), anyBoolean());
+        verify(url1, never()).openConnection();
+        verify(callback).run();
+    }
+
+    @Test
+    public void prewarmRejected() {
+        Executor executor = mock(Executor.class);
+        doThrow(new RejectedExecutionException()).when(executor).execute(any(Runnable.class));
+        Runnable callback = mock(Runnable.class);
+        new DefaultHttpClient(executor, true).prewarmAsync(Arrays.asList("https://mock/logs"), callback);
+        verify(callback).run();
+    }
+}
@@ -0,0 +1,136 @@
+package com.microsoft.appcenter.http;
+
+import android.os.SystemClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.rule.PowerMockRule;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static com.microsoft.appcenter.http.DefaultRetryPolicy.BASE_DELAY;
+import static com.microsoft.appcenter.http.DefaultRetryPolicy.BUCKET_CAPACITY;
+import static com.microsoft.appcenter.http.DefaultRetryPolicy.BUCKET_REFILL_INTERVAL;
+import static com.microsoft.appcenter.http.DefaultRetryPolicy.MAX_DELAY;
+import static com.microsoft.appcenter.http.DefaultRetryPolicy.MAX_RETRIES;
+import static com.microsoft.appcenter.http.DefaultRetryPolicy.THROTTLED_MIN_DELAY;
+import static com.microsoft.appcenter.http.RetryPolicy.GIVE_UP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@PrepareForTest(SystemClock.class)
+public class DefaultRetryPolicyTest {
+
+    private static final String URL = "https://mock.com/logs";
+
+    @Rule
+    public PowerMockRule mPowerMockRule = new PowerMockRule();
+
+    @Before
+    public void setUp() {
+        mockStatic(SystemClock.class);
+    }
+
+    @After
+    public void tearDown() {
+        DefaultRetryPolicy.unsetInstance();
+    }
+
+    @Test
+    public void sharedInstance() {
+        assertSame(DefaultRetryPolicy.getSharedInstance(), DefaultRetryPolicy.getSharedInstance());
+    }
+
+    @Test
+    public void parseRetryAfter() {
+        assertEquals(-1, DefaultRetryPolicy.parseRetryAfter(null, 0));
+        assertEquals(-1, DefaultRetryPolicy.parseRetryAfter("soon", 0));
+        assertEquals(120000, DefaultRetryPolicy.parseRetryAfter(" 120 ", 0));
+        assertEquals(0, DefaultRetryPolicy.parseRetryAfter("-5", 0));
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        long now = 1500000000000L;
+        assertEquals(30000, DefaultRetryPolicy.parseRetryAfter(format.format(new Date(now + 30000)), now));
+        assertEquals(0, DefaultRetryPolicy.parseRetryAfter(format.format(new Date(now - 30000)), now));
+    }
+
+    @Test
+    public void giveUp() {
+        DefaultRetryPolicy retryPolicy = new DefaultRetryPolicy();
+        assertEquals(GIVE_UP, retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(403)));
+        assertEquals(GIVE_UP, retryPolicy.getRetryDelay(URL, 0, 0, new IOException()));
+        assertEquals(GIVE_UP, retryPolicy.getRetryDelay(URL, MAX_RETRIES, MAX_DELAY, new HttpException(503)));
+        assertEquals(3, retryPolicy.getGiveUpCount());
+        assertEquals(0, retryPolicy.getRetryCount());
+    }
+
+    @Test
+    public void decorrelatedJitter() {
+        DefaultRetryPolicy retryPolicy = new DefaultRetryPolicy();
+        long previousDelay = 0;
+        for (int i = 0; i < MAX_RETRIES; i++) {
+
+            /* Move time forward so that the token bucket does not interfere. */
+            when(SystemClock.elapsedRealtime()).thenReturn(i * BUCKET_CAPACITY * BUCKET_REFILL_INTERVAL);
+            long delay = retryPolicy.getRetryDelay(URL, i, previousDelay, new SocketException());
+            assertTrue(delay >= BASE_DELAY);
+            assertTrue(delay <= Math.min(MAX_DELAY, Math.max(BASE_DELAY, previousDelay) * 3));
+            previousDelay = delay;
+        }
+        assertEquals(MAX_RETRIES, retryPolicy.getRetryCount());
+        assertEquals(0, retryPolicy.getThrottledCount());
+    }
+
+    @Test
+    public void retryAfter() {
+        DefaultRetryPolicy retryPolicy = new DefaultRetryPolicy();
+        assertEquals(30000, retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(503, "", "30")));
+        assertEquals(1, retryPolicy.getRetryAfterCount());
+
+        /* Hints are clamped to the backoff bounds. */
+        when(SystemClock.elapsedRealtime()).thenReturn(BUCKET_CAPACITY * BUCKET_REFILL_INTERVAL);
+        assertEquals(BASE_DELAY, retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(503, "", "2")));
+        assertEquals(MAX_DELAY, retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(503, "", "3600")));
+        assertEquals(3, retryPolicy.getRetryAfterCount());
+
+        /* Throttled without hint waits longer. */
+        assertTrue(retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(429)) >= THROTTLED_MIN_DELAY);
+        assertEquals(3, retryPolicy.getRetryAfterCount());
+    }
+
+    @Test
+    public void tokenBucketByHost() {
+        DefaultRetryPolicy retryPolicy = new DefaultRetryPolicy();
+
+        /* Burst uses all tokens without throttling. */
+        for (int i = 0; i < BUCKET_CAPACITY; i++) {
+            assertEquals(BASE_DELAY, retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(503, "", "0")));
+        }
+
+        /* Then retries are spread by the refill interval, the first wait is not longer than the base delay. */
+        assertEquals(BUCKET_REFILL_INTERVAL, retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(503, "", "0")));
+        assertEquals(2 * BUCKET_REFILL_INTERVAL, retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(503, "", "0")));
+        assertEquals(3 * BUCKET_REFILL_INTERVAL, retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(503, "", "0")));
+        assertEquals(2, retryPolicy.getThrottledCount());
+
+        /* Another host has its own bucket. */
+        assertEquals(BASE_DELAY, retryPolicy.getRetryDelay("https://other.com", 0, 0, new HttpException(503, "", "0")));
+
+        /* Tokens come back with time. */
+        when(SystemClock.elapsedRealtime()).thenReturn(4 * BUCKET_REFILL_INTERVAL);
+        assertEquals(BASE_DELAY, retryPolicy.getRetryDelay(URL, 0, 0, new HttpException(503, "", "0")));
+        assertEquals(2, retryPolicy.getThrottledCount());
+        assertEquals(10, retryPolicy.getRetryCount());
+    }
+}
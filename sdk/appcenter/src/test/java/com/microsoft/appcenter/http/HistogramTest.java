@@ -0,0 +1,52 @@
+package com.microsoft.appcenter.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest {
+
+    @Test
+    public void empty() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(Histogram.getBucketBounds().length + 1, histogram.getBucketCounts().length);
+    }
+
+    @Test
+    public void record() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 9; i++) {
+            histogram.record(3);
+        }
+        histogram.record(70000);
+        assertEquals(10, histogram.getCount());
+        assertEquals((9 * 3 + 70000) / 10, histogram.getMean());
+        assertEquals(70000, histogram.getMax());
+
+        /* Percentiles are the upper bound of their bucket. */
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(5, histogram.getPercentile(90));
+        assertEquals(70000, histogram.getPercentile(99));
+
+        /* Values on a bound go in that bucket. */
+        long[] expectedCounts = new long[Histogram.getBucketBounds().length + 1];
+        expectedCounts[2] = 9;
+        expectedCounts[expectedCounts.length - 1] = 1;
+        assertArrayEquals(expectedCounts, histogram.getBucketCounts());
+        histogram.record(5);
+        expectedCounts[2]++;
+        assertArrayEquals(expectedCounts, histogram.getBucketCounts());
+    }
+
+    @Test
+    public void percentileCappedByMax() {
+        Histogram histogram = new Histogram();
+        histogram.record(120);
+        assertEquals(120, histogram.getPercentile(50));
+    }
+}
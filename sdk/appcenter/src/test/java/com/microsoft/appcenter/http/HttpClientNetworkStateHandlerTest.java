@@ -3,18 +3,28 @@ package com.microsoft.appcenter.http;
 import com.microsoft.appcenter.utils.NetworkStateHelper;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
 import java.net.SocketException;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_GET;
+import static com.microsoft.appcenter.http.HttpClientNetworkStateHandler.STAGGER_INTERVAL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -298,4 +308,133 @@ public class HttpClientNetworkStateHandlerTest {
         decorator.close();
         verify(httpClient).close();
     }
+
+    @Test
+    public void prewarmThenStaggerCalls() throws IOException {
+
+        /* Configure mock wrapped API. */
+        String url = "http://mock/call";
+        Map<String, String> headers = new HashMap<>();
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        ServiceCallback callback1 = mock(ServiceCallback.class);
+        ServiceCallback callback2 = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                ((ServiceCallback) invocationOnMock.getArguments()[4]).onCallSucceeded("mockPayload");
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(eq(url), eq(METHOD_GET), eq(headers), eq(callTemplate), any(ServiceCallback.class));
+
+        /* Pre-warming completes only when we decide. */
+        DefaultHttpClient prewarmClient = mock(DefaultHttpClient.class);
+        ArgumentCaptor<Runnable> prewarmCallback = ArgumentCaptor.forClass(Runnable.class);
+
+        /* Network is initially down. */
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        when(networkStateHelper.isNetworkConnected()).thenReturn(false);
+        NetworkExecutor networkExecutor = mock(NetworkExecutor.class);
+        ScheduledFuture future = mock(ScheduledFuture.class);
+        doReturn(future).when(networkExecutor).schedule(any(Runnable.class), anyLong());
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, networkExecutor);
+        decorator.setPrewarmClient(prewarmClient);
+        decorator.callAsync(url, METHOD_GET, headers, callTemplate, callback1);
+        decorator.callAsync(url, METHOD_GET, headers, callTemplate, callback2);
+
+        /* Network comes back: pre-warm the single host, calls wait. */
+        when(networkStateHelper.isNetworkConnected()).thenReturn(true);
+        decorator.onNetworkStateUpdated(true);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> urls = (ArgumentCaptor) ArgumentCaptor.forClass(Collection.class);
+        verify(prewarmClient).prewarmAsync(urls.capture(), prewarmCallback.capture());
+        assertEquals(1, urls.getValue().size());
+        assertTrue(urls.getValue().contains(url));
+        verify(httpClient, never()).callAsync(eq(url), eq(METHOD_GET), eq(headers), eq(callTemplate), any(ServiceCallback.class));
+
+        /* A new call while pre-warming waits as well. */
+        ServiceCallback callback3 = mock(ServiceCallback.class);
+        decorator.callAsync(url, METHOD_GET, headers, callTemplate, callback3);
+        verify(httpClient, never()).callAsync(eq(url), eq(METHOD_GET), eq(headers), eq(callTemplate), any(ServiceCallback.class));
+
+        /* Pre-warming done: calls are released spaced by the stagger interval. */
+        prewarmCallback.getValue().run();
+        ArgumentCaptor<Runnable> calls = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Long> delays = ArgumentCaptor.forClass(Long.class);
+        verify(networkExecutor, times(3)).schedule(calls.capture(), delays.capture());
+        assertEquals(0L, (long) delays.getAllValues().get(0));
+        assertEquals(STAGGER_INTERVAL, (long) delays.getAllValues().get(1));
+        assertEquals(2 * STAGGER_INTERVAL, (long) delays.getAllValues().get(2));
+
+        /* Cancel the last call before its turn. */
+        List<Runnable> staggeredCalls = calls.getAllValues();
+        ((ServiceCall) staggeredCalls.get(2)).cancel();
+        verify(future).cancel(false);
+
+        /* Simulate the executor running the calls in order. */
+        for (Runnable call : staggeredCalls) {
+            call.run();
+        }
+        verify(httpClient, times(2)).callAsync(eq(url), eq(METHOD_GET), eq(headers), eq(callTemplate), any(ServiceCallback.class));
+        verify(callback1).onCallSucceeded("mockPayload");
+        verify(callback2).onCallSucceeded("mockPayload");
+        verifyNoMoreInteractions(callback3);
+    }
+
+    @Test
+    public void noPrewarmOnMeteredNetwork() {
+        String url = "http://mock/call";
+        Map<String, String> headers = new HashMap<>();
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        ServiceCallback callback = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpClient.PrewarmingHttpClient prewarmClient = mock(HttpClient.PrewarmingHttpClient.class);
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        when(networkStateHelper.isNetworkConnected()).thenReturn(false);
+        NetworkExecutor networkExecutor = mock(NetworkExecutor.class);
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, networkExecutor);
+        decorator.setPrewarmClient(prewarmClient);
+        decorator.callAsync(url, METHOD_GET, headers, callTemplate, callback);
+
+        /* Metered network comes back: calls are submitted right away. */
+        when(networkStateHelper.isNetworkConnected()).thenReturn(true);
+        when(networkStateHelper.isNetworkMetered()).thenReturn(true);
+        decorator.onNetworkStateUpdated(true);
+        verify(prewarmClient, never()).prewarmAsync(anyCollectionOf(String.class), any(Runnable.class));
+        verify(httpClient).callAsync(eq(url), eq(METHOD_GET), eq(headers), eq(callTemplate), any(ServiceCallback.class));
+    }
+
+    @Test
+    public void networkLossDuringPrewarm() throws IOException {
+        String url = "http://mock/call";
+        Map<String, String> headers = new HashMap<>();
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        ServiceCallback callback = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        DefaultHttpClient prewarmClient = mock(DefaultHttpClient.class);
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        when(networkStateHelper.isNetworkConnected()).thenReturn(false);
+        NetworkExecutor networkExecutor = mock(NetworkExecutor.class);
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, networkExecutor);
+        decorator.setPrewarmClient(prewarmClient);
+        decorator.callAsync(url, METHOD_GET, headers, callTemplate, callback);
+
+        /* Network up then down again before pre-warming completes. */
+        decorator.onNetworkStateUpdated(true);
+        ArgumentCaptor<Runnable> prewarmCallback = ArgumentCaptor.forClass(Runnable.class);
+        verify(prewarmClient).prewarmAsync(anyCollectionOf(String.class), prewarmCallback.capture());
+        decorator.onNetworkStateUpdated(false);
+
+        /* Outdated completion is ignored. */
+        prewarmCallback.getValue().run();
+        verify(networkExecutor, never()).schedule(any(Runnable.class), anyLong());
+        verify(httpClient, never()).callAsync(eq(url), eq(METHOD_GET), eq(headers), eq(callTemplate), any(ServiceCallback.class));
+
+        /* No pre-warming without pending calls. */
+        decorator.close();
+        decorator.reopen();
+        decorator.onNetworkStateUpdated(true);
+        verify(prewarmClient).prewarmAsync(anyCollectionOf(String.class), any(Runnable.class));
+    }
 }
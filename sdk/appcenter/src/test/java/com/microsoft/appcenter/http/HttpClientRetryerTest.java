@@ -1,7 +1,6 @@
 package com.microsoft.appcenter.http;
 
-import android.os.Handler;
-
+import org.junit.After;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
@@ -9,21 +8,29 @@ import org.mockito.stubbing.Answer;
 
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.concurrent.ScheduledFuture;
 
+import static com.microsoft.appcenter.http.DefaultRetryPolicy.BASE_DELAY;
+import static com.microsoft.appcenter.http.DefaultRetryPolicy.MAX_DELAY;
+import static com.microsoft.appcenter.http.DefaultRetryPolicy.MAX_RETRIES;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.longThat;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 @SuppressWarnings("unused")
 public class HttpClientRetryerTest {
 
-    private static void simulateRetryAfterDelay(Handler handler) {
+    private static void simulateRetryAfterDelay(NetworkExecutor networkExecutor) {
         doAnswer(new Answer() {
 
             @Override
@@ -32,21 +39,25 @@ public class HttpClientRetryerTest {
                 runnable.run();
                 return null;
             }
-        }).when(handler).postDelayed(any(Runnable.class), anyLong());
+        }).when(networkExecutor).schedule(any(Runnable.class), anyLong());
     }
 
-    private static void verifyDelay(Handler handler, final int retryIndex) {
-        verify(handler).postDelayed(any(Runnable.class), longThat(new ArgumentMatcher<Long>() {
+    private static void verifyDelays(NetworkExecutor networkExecutor, int retryCount) {
+        verify(networkExecutor, times(retryCount)).schedule(any(Runnable.class), longThat(new ArgumentMatcher<Long>() {
 
             @Override
             public boolean matches(Object argument) {
                 long interval = (Long) argument;
-                long retryInterval = HttpClientRetryer.RETRY_INTERVALS[retryIndex];
-                return interval >= retryInterval / 2 && interval <= retryInterval;
+                return interval >= BASE_DELAY && interval <= MAX_DELAY;
             }
         }));
     }
 
+    @After
+    public void tearDown() {
+        DefaultRetryPolicy.unsetInstance();
+    }
+
     @Test
     public void success() {
         final ServiceCall call = mock(ServiceCall.class);
@@ -86,12 +97,12 @@ public class HttpClientRetryerTest {
                 return mock(ServiceCall.class);
             }
         }).when(httpClient).callAsync(anyString(), anyString(), anyMapOf(String.class, String.class), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
-        Handler handler = mock(Handler.class);
-        HttpClient retryer = new HttpClientRetryer(httpClient, handler);
-        simulateRetryAfterDelay(handler);
+        NetworkExecutor networkExecutor = mock(NetworkExecutor.class);
+        HttpClient retryer = new HttpClientRetryer(httpClient, networkExecutor);
+        simulateRetryAfterDelay(networkExecutor);
         retryer.callAsync(null, null, null, null, callback);
-        verifyDelay(handler, 0);
-        verifyNoMoreInteractions(handler);
+        verifyDelays(networkExecutor, 1);
+        verifyNoMoreInteractions(networkExecutor);
         verify(callback).onCallSucceeded("mockSuccessPayload");
         verifyNoMoreInteractions(callback);
     }
@@ -116,12 +127,12 @@ public class HttpClientRetryerTest {
                 return mock(ServiceCall.class);
             }
         }).when(httpClient).callAsync(anyString(), anyString(), anyMapOf(String.class, String.class), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
-        Handler handler = mock(Handler.class);
-        HttpClient retryer = new HttpClientRetryer(httpClient, handler);
-        simulateRetryAfterDelay(handler);
+        NetworkExecutor networkExecutor = mock(NetworkExecutor.class);
+        HttpClient retryer = new HttpClientRetryer(httpClient, networkExecutor);
+        simulateRetryAfterDelay(networkExecutor);
         retryer.callAsync(null, null, null, null, callback);
-        verifyDelay(handler, 0);
-        verifyNoMoreInteractions(handler);
+        verifyDelays(networkExecutor, 1);
+        verifyNoMoreInteractions(networkExecutor);
         verify(callback).onCallFailed(any(Exception.class));
         verify(callback).onCallFailed(expectedException);
         verifyNoMoreInteractions(callback);
@@ -140,19 +151,43 @@ public class HttpClientRetryerTest {
                 return call;
             }
         }).when(httpClient).callAsync(anyString(), anyString(), anyMapOf(String.class, String.class), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
-        Handler handler = mock(Handler.class);
-        HttpClient retryer = new HttpClientRetryer(httpClient, handler);
-        simulateRetryAfterDelay(handler);
+        NetworkExecutor networkExecutor = mock(NetworkExecutor.class);
+        HttpClient retryer = new HttpClientRetryer(httpClient, networkExecutor);
+        simulateRetryAfterDelay(networkExecutor);
         retryer.callAsync(null, null, null, null, callback);
-        verifyDelay(handler, 0);
-        verifyDelay(handler, 1);
-        verifyDelay(handler, 2);
-        verifyNoMoreInteractions(handler);
+        verifyDelays(networkExecutor, MAX_RETRIES);
+        verifyNoMoreInteractions(networkExecutor);
         verify(callback).onCallFailed(new HttpException(408));
         verifyNoMoreInteractions(callback);
         verifyNoMoreInteractions(call);
     }
 
+    @Test
+    public void customPolicy() {
+        ServiceCallback callback = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        final HttpException exception = new HttpException(503);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                ((ServiceCallback) invocationOnMock.getArguments()[4]).onCallFailed(exception);
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(anyString(), anyString(), anyMapOf(String.class, String.class), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+        NetworkExecutor networkExecutor = mock(NetworkExecutor.class);
+        RetryPolicy retryPolicy = mock(RetryPolicy.class);
+        when(retryPolicy.getRetryDelay("http://mock", 0, 0, exception)).thenReturn(42L);
+        when(retryPolicy.getRetryDelay("http://mock", 1, 42, exception)).thenReturn(RetryPolicy.GIVE_UP);
+        HttpClient retryer = new HttpClientRetryer(httpClient, networkExecutor, retryPolicy);
+        simulateRetryAfterDelay(networkExecutor);
+        retryer.callAsync("http://mock", null, null, null, callback);
+        verify(networkExecutor).schedule(any(Runnable.class), eq(42L));
+        verifyNoMoreInteractions(networkExecutor);
+        verify(callback).onCallFailed(exception);
+        verifyNoMoreInteractions(callback);
+    }
+
     @Test
     public void cancel() throws InterruptedException {
         final ServiceCall call = mock(ServiceCall.class);
@@ -166,11 +201,14 @@ public class HttpClientRetryerTest {
                 return call;
             }
         }).when(httpClient).callAsync(anyString(), anyString(), anyMapOf(String.class, String.class), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
-        Handler handler = mock(Handler.class);
-        HttpClient retryer = new HttpClientRetryer(httpClient, handler);
+        NetworkExecutor networkExecutor = mock(NetworkExecutor.class);
+        ScheduledFuture future = mock(ScheduledFuture.class);
+        doReturn(future).when(networkExecutor).schedule(any(Runnable.class), anyLong());
+        HttpClient retryer = new HttpClientRetryer(httpClient, networkExecutor);
         retryer.callAsync(null, null, null, null, callback).cancel();
         Thread.sleep(500);
         verifyNoMoreInteractions(callback);
+        verify(future).cancel(false);
         verify(call).cancel();
     }
 }
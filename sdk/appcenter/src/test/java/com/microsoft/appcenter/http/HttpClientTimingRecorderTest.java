@@ -0,0 +1,75 @@
+package com.microsoft.appcenter.http;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import static com.microsoft.appcenter.http.HttpMetrics.PHASE_CONNECT;
+import static com.microsoft.appcenter.http.HttpMetrics.PHASE_TOTAL;
+import static com.microsoft.appcenter.http.HttpMetrics.SIZE_UNKNOWN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class HttpClientTimingRecorderTest {
+
+    @Test
+    public void recordTimingsFromClient() throws IOException {
+        final CallTimings callTimings = new CallTimings("mock");
+        callTimings.mRequestBytes = 10;
+        callTimings.mConnectTime = 42;
+        final ServiceCall call = mock(ServiceCall.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocation) {
+                TimedServiceCallback callback = (TimedServiceCallback) invocation.getArguments()[4];
+                callback.onCallTimed(callTimings);
+                callback.onCallSucceeded("OK");
+                return call;
+            }
+        }).when(httpClient).callAsync(anyString(), anyString(), anyMapOf(String.class, String.class), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+        HttpMetrics httpMetrics = new HttpMetrics();
+        HttpClientTimingRecorder recorder = new HttpClientTimingRecorder(httpClient, httpMetrics);
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        assertSame(call, recorder.callAsync("https://mock/logs", "POST", new HashMap<String, String>(), null, serviceCallback));
+        verify(serviceCallback).onCallSucceeded("OK");
+        assertEquals(42, httpMetrics.getHistogram("mock", "<1KB", PHASE_CONNECT).getMax());
+        assertEquals(1, httpMetrics.getHistogram("mock", "<1KB", PHASE_TOTAL).getCount());
+
+        /* Close is forwarded. */
+        recorder.close();
+        verify(httpClient).close();
+    }
+
+    @Test
+    public void recordTotalOnlyWithoutClientTimings() {
+        final Exception exception = new IOException();
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocation) {
+                ((ServiceCallback) invocation.getArguments()[4]).onCallFailed(exception);
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(anyString(), anyString(), anyMapOf(String.class, String.class), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+        HttpMetrics httpMetrics = new HttpMetrics();
+        HttpClientTimingRecorder recorder = new HttpClientTimingRecorder(httpClient, httpMetrics);
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        recorder.callAsync("https://other/logs", "GET", new HashMap<String, String>(), null, serviceCallback);
+        verify(serviceCallback).onCallFailed(exception);
+        assertNotNull(httpMetrics.getHistogram("other", SIZE_UNKNOWN, PHASE_TOTAL));
+        assertEquals(1, httpMetrics.getHistograms().size());
+    }
+}
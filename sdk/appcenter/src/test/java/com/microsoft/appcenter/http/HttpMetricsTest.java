@@ -0,0 +1,62 @@
+package com.microsoft.appcenter.http;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static com.microsoft.appcenter.http.HttpMetrics.PHASE_CONNECT;
+import static com.microsoft.appcenter.http.HttpMetrics.PHASE_SERIALIZE;
+import static com.microsoft.appcenter.http.HttpMetrics.PHASE_TOTAL;
+import static com.microsoft.appcenter.http.HttpMetrics.SIZE_UNKNOWN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HttpMetricsTest {
+
+    @After
+    public void tearDown() {
+        HttpMetrics.unsetInstance();
+    }
+
+    @Test
+    public void sharedInstance() {
+        assertSame(HttpMetrics.getSharedInstance(), HttpMetrics.getSharedInstance());
+    }
+
+    @Test
+    public void sizeClasses() {
+        assertEquals(SIZE_UNKNOWN, HttpMetrics.getSizeClass(-1));
+        assertEquals("<1KB", HttpMetrics.getSizeClass(0));
+        assertEquals("<10KB", HttpMetrics.getSizeClass(1024));
+        assertEquals("<100KB", HttpMetrics.getSizeClass(99 * 1024));
+        assertEquals(">=100KB", HttpMetrics.getSizeClass(100 * 1024));
+    }
+
+    @Test
+    public void recordByHostAndSize() {
+        HttpMetrics httpMetrics = new HttpMetrics();
+        CallTimings small = new CallTimings("a");
+        small.mRequestBytes = 100;
+        small.mConnectTime = 30;
+        httpMetrics.record(small, 200);
+        CallTimings large = new CallTimings("a");
+        large.mRequestBytes = 50000;
+        large.mConnectTime = 40;
+        httpMetrics.record(large, 800);
+        httpMetrics.record(new CallTimings("b"), 10);
+
+        /* Phases that were not measured are not recorded. */
+        assertNull(httpMetrics.getHistogram("a", "<1KB", PHASE_SERIALIZE));
+        assertEquals(30, httpMetrics.getHistogram("a", "<1KB", PHASE_CONNECT).getMax());
+        assertEquals(200, httpMetrics.getHistogram("a", "<1KB", PHASE_TOTAL).getMax());
+        assertEquals(40, httpMetrics.getHistogram("a", "<100KB", PHASE_CONNECT).getMax());
+        assertEquals(1, httpMetrics.getHistogram("b", SIZE_UNKNOWN, PHASE_TOTAL).getCount());
+        assertEquals(5, httpMetrics.getHistograms().size());
+        assertTrue(httpMetrics.getHistograms().containsKey("a <1KB connect"));
+
+        /* Reset. */
+        httpMetrics.reset();
+        assertTrue(httpMetrics.getHistograms().isEmpty());
+    }
+}
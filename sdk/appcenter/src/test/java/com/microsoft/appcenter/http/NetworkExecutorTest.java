@@ -0,0 +1,128 @@
+package com.microsoft.appcenter.http;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NetworkExecutorTest {
+
+    @After
+    public void tearDown() {
+        NetworkExecutor.unsetInstance();
+    }
+
+    @Test
+    public void sharedInstance() {
+        NetworkExecutor executor = NetworkExecutor.getSharedInstance();
+        assertSame(executor, NetworkExecutor.getSharedInstance());
+        assertEquals(NetworkExecutor.DEFAULT_THREAD_COUNT, executor.getThreadCount());
+        NetworkExecutor.unsetInstance();
+        assertNotSame(executor, NetworkExecutor.getSharedInstance());
+    }
+
+    @Test
+    public void queueDepth() throws InterruptedException {
+        NetworkExecutor executor = new NetworkExecutor(1);
+        final CountDownLatch blockLatch = new CountDownLatch(1);
+        final CountDownLatch runLatch = new CountDownLatch(3);
+        Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    blockLatch.await();
+                } catch (InterruptedException ignored) {
+                }
+                runLatch.countDown();
+            }
+        };
+
+        /* The single thread is busy, the 2 other calls wait. */
+        executor.execute(task);
+        executor.execute(task);
+        executor.execute(task);
+        assertEquals(2, executor.getQueueDepth());
+        assertEquals(2, executor.getMaxQueueDepth());
+
+        /* Release everything. */
+        blockLatch.countDown();
+        assertTrue(runLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(2, executor.getMaxQueueDepth());
+    }
+
+    @Test
+    public void setThreadCount() throws InterruptedException {
+        NetworkExecutor executor = new NetworkExecutor(1);
+        executor.setThreadCount(3);
+        assertEquals(3, executor.getThreadCount());
+
+        /* Check 3 calls run in parallel. */
+        final CountDownLatch startLatch = new CountDownLatch(3);
+        final CountDownLatch blockLatch = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                startLatch.countDown();
+                try {
+                    blockLatch.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            executor.execute(task);
+        }
+        assertTrue(startLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(3, executor.getActiveCount());
+        assertEquals(0, executor.getQueueDepth());
+        blockLatch.countDown();
+
+        /* Shrink. */
+        executor.setThreadCount(1);
+        assertEquals(1, executor.getThreadCount());
+    }
+
+    @Test
+    public void schedule() throws InterruptedException {
+        NetworkExecutor executor = new NetworkExecutor(1);
+        final CountDownLatch runLatch = new CountDownLatch(1);
+        final Thread[] thread = new Thread[1];
+        executor.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                thread[0] = Thread.currentThread();
+                runLatch.countDown();
+            }
+        }, 10);
+
+        /* Runs on a network thread. */
+        assertTrue(runLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(thread[0].getName().startsWith("AppCenter.Network-"));
+
+        /* Canceled before the delay: never runs. */
+        Runnable canceled = new Runnable() {
+
+            @Override
+            public void run() {
+                fail("Canceled command must not run.");
+            }
+        };
+        assertTrue(executor.schedule(canceled, 60000).cancel(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setInvalidThreadCount() {
+        new NetworkExecutor(1).setThreadCount(0);
+    }
+}
@@ -0,0 +1,113 @@
+package com.microsoft.appcenter.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+public class PooledGzipOutputStreamTest {
+
+    private static byte[] payload() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("{\"type\":\"event\",\"name\":\"click\",\"sid\":").append(i).append('}');
+        }
+        return builder.toString().getBytes();
+    }
+
+    @Before
+    @After
+    public void clearPool() {
+        new DeflaterPool();
+        DeflaterPool.clear();
+    }
+
+    @Test
+    public void sameOutputAsGzipOutputStream() throws IOException {
+        byte[] payload = payload();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        GZIPOutputStream gzipStream = new GZIPOutputStream(expected);
+        gzipStream.write(payload);
+        gzipStream.close();
+
+        /* Write in 2 parts to check checksum is computed on every write. */
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        OutputStream pooledStream = new PooledGzipOutputStream(actual, Deflater.DEFAULT_COMPRESSION);
+        pooledStream.write(payload, 0, 100);
+        pooledStream.write(payload, 100, payload.length - 100);
+        pooledStream.close();
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        assertEquals(1, DeflaterPool.size());
+
+        /* Closing twice does not release twice. */
+        pooledStream.close();
+        assertEquals(1, DeflaterPool.size());
+    }
+
+    @Test
+    public void reusedDeflaterWithOtherLevel() throws IOException {
+        byte[] payload = payload();
+        for (int level = Deflater.NO_COMPRESSION; level <= Deflater.BEST_COMPRESSION; level++) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            OutputStream pooledStream = new PooledGzipOutputStream(buffer, level);
+            pooledStream.write(payload);
+            pooledStream.close();
+            GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+            ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+            byte[] readBuffer = new byte[1024];
+            int len;
+            while ((len = gzipStream.read(readBuffer)) > 0) {
+                uncompressed.write(readBuffer, 0, len);
+            }
+            assertArrayEquals(payload, uncompressed.toByteArray());
+            assertEquals(1, DeflaterPool.size());
+        }
+    }
+
+    @Test
+    public void poolBounded() {
+        Deflater[] deflaters = new Deflater[DeflaterPool.MAX_POOL_SIZE + 1];
+        for (int i = 0; i < deflaters.length; i++) {
+            deflaters[i] = DeflaterPool.acquire(Deflater.BEST_SPEED);
+        }
+        for (Deflater deflater : deflaters) {
+            DeflaterPool.release(deflater);
+        }
+        assertEquals(DeflaterPool.MAX_POOL_SIZE, DeflaterPool.size());
+
+        /* Most recently released is reused first. */
+        Deflater deflater = DeflaterPool.acquire(Deflater.BEST_SPEED);
+        assertSame(deflaters[DeflaterPool.MAX_POOL_SIZE - 1], deflater);
+        assertNotSame(deflater, DeflaterPool.acquire(Deflater.BEST_SPEED));
+    }
+
+    @Test
+    public void releasedWhenHeaderFails() throws IOException {
+        OutputStream out = mock(OutputStream.class);
+        doThrow(new IOException()).when(out).write(any(byte[].class));
+        doThrow(new IOException()).when(out).write(any(byte[].class), anyInt(), anyInt());
+        try {
+            new PooledGzipOutputStream(out, Deflater.DEFAULT_COMPRESSION);
+            fail();
+        } catch (IOException ignored) {
+        }
+        assertEquals(1, DeflaterPool.size());
+    }
+}
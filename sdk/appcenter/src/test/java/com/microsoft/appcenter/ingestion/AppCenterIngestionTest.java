@@ -2,8 +2,10 @@ package com.microsoft.appcenter.ingestion;
 
 import android.content.Context;
 
+import com.microsoft.appcenter.http.DefaultHttpClient;
 import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.http.HttpClientNetworkStateHandler;
+import com.microsoft.appcenter.http.HttpClientTimingRecorder;
 import com.microsoft.appcenter.http.HttpUtils;
 import com.microsoft.appcenter.http.ServiceCall;
 import com.microsoft.appcenter.http.ServiceCallback;
@@ -22,6 +24,8 @@ import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -29,10 +33,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
 
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.contains;
@@ -44,6 +50,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.verifyNew;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
 
@@ -88,6 +95,9 @@ public class AppCenterIngestionTest {
         ServiceCallback serviceCallback = mock(ServiceCallback.class);
         assertEquals(call, ingestion.sendAsync(appSecret, installId, container, serviceCallback));
 
+        /* Connections are pre-warmed when network comes back. */
+        verify(httpClient).setPrewarmClient(notNull(DefaultHttpClient.class));
+
         /* Verify call to http client. */
         HashMap<String, String> expectedHeaders = new HashMap<>();
         expectedHeaders.put(AppCenterIngestion.APP_SECRET, appSecret);
@@ -95,6 +105,11 @@ public class AppCenterIngestionTest {
         verify(httpClient).callAsync(eq("http://mock" + AppCenterIngestion.API_PATH), eq(METHOD_POST), eq(expectedHeaders), notNull(HttpClient.CallTemplate.class), eq(serviceCallback));
         assertNotNull(callTemplate.get());
         assertEquals("mockPayload", callTemplate.get().buildRequestBody());
+        assertTrue(callTemplate.get() instanceof HttpClient.ResponseBodyIgnoredCallTemplate);
+
+        /* Verify streaming delegates to the serializer. */
+        ((HttpClient.StreamingCallTemplate) callTemplate.get()).writeRequestBody(new ByteArrayOutputStream());
+        verify(serializer).writeContainer(eq(container), any(OutputStream.class));
 
         /* Verify close. */
         ingestion.close();
@@ -105,6 +120,26 @@ public class AppCenterIngestionTest {
         verify(httpClient).reopen();
     }
 
+    @Test
+    public void customHttpClient() throws Exception {
+        HttpClientNetworkStateHandler networkStateHandler = mock(HttpClientNetworkStateHandler.class);
+        whenNew(HttpClientNetworkStateHandler.class).withAnyArguments().thenReturn(networkStateHandler);
+        HttpClientTimingRecorder timingRecorder = mock(HttpClientTimingRecorder.class);
+        whenNew(HttpClientTimingRecorder.class).withAnyArguments().thenReturn(timingRecorder);
+        HttpClient customHttpClient = mock(HttpClient.class);
+
+        /* Custom client is wrapped like the default one but there is nothing to pre-warm or compress. */
+        AppCenterIngestion ingestion = new AppCenterIngestion(mock(Context.class), mock(LogSerializer.class), customHttpClient);
+        verifyNew(HttpClientTimingRecorder.class).withArguments(customHttpClient);
+        verify(networkStateHandler).setPrewarmClient(null);
+        ingestion.setCompression(Deflater.BEST_SPEED, 0);
+
+        /* Unless the custom client can pre-warm. */
+        HttpClient.PrewarmingHttpClient prewarmingHttpClient = mock(HttpClient.PrewarmingHttpClient.class);
+        new AppCenterIngestion(mock(Context.class), mock(LogSerializer.class), prewarmingHttpClient);
+        verify(networkStateHandler).setPrewarmClient(prewarmingHttpClient);
+    }
+
     @Test
     public void failedSerialization() throws Exception {
 
@@ -33,6 +33,8 @@ import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -56,6 +58,7 @@ import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.notNull;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -140,6 +143,17 @@ public class OneCollectorIngestionTest {
         LogSerializer serializer = mock(LogSerializer.class);
         when(serializer.serializeLog(log1)).thenReturn("mockPayload1");
         when(serializer.serializeLog(log2)).thenReturn("mockPayload2");
+        Answer<Void> writeLogAnswer = new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Log log = (Log) invocation.getArguments()[0];
+                OutputStream out = (OutputStream) invocation.getArguments()[1];
+                out.write((log == log1 ? "mockPayload1" : "mockPayload2").getBytes("UTF-8"));
+                return null;
+            }
+        };
+        doAnswer(writeLogAnswer).when(serializer).writeLog(any(Log.class), any(OutputStream.class));
 
         /* Configure mock HTTP. */
         HttpClientNetworkStateHandler httpClient = mock(HttpClientNetworkStateHandler.class);
@@ -163,6 +177,20 @@ public class OneCollectorIngestionTest {
         verify(httpClient).callAsync(eq("http://mock"), eq(METHOD_POST), eq(expectedHeaders), notNull(HttpClient.CallTemplate.class), eq(serviceCallback));
         assertNotNull(callTemplate.getValue());
         assertEquals("mockPayload1\nmockPayload2\n", callTemplate.getValue().buildRequestBody());
+        assertTrue(callTemplate.getValue() instanceof HttpClient.ResponseBodyIgnoredCallTemplate);
+
+        /* Verify stored payloads are sent as is. */
+        container.setSerializedLogs(Arrays.asList("storedPayload1", "storedPayload2"));
+        assertEquals("storedPayload1\nstoredPayload2\n", callTemplate.getValue().buildRequestBody());
+
+        /* Verify streaming writes the same body. */
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((HttpClient.StreamingCallTemplate) callTemplate.getValue()).writeRequestBody(out);
+        assertEquals("storedPayload1\nstoredPayload2\n", out.toString("UTF-8"));
+        container.setSerializedLogs(null);
+        out.reset();
+        ((HttpClient.StreamingCallTemplate) callTemplate.getValue()).writeRequestBody(out);
+        assertEquals("mockPayload1\nmockPayload2\n", out.toString("UTF-8"));
 
         /* Verify close. */
         ingestion.close();
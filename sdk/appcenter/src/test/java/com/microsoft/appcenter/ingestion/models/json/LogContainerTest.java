@@ -47,5 +47,13 @@ public class LogContainerTest {
         container2.setLogs(Collections.singletonList(log2));
         TestUtils.compareSelfNullClass(container1);
         TestUtils.checkNotEquals(container1, container2);
+
+        container2.setLogs(Collections.singletonList(log1));
+        container1.setSerializedLogs(Collections.singletonList("{}"));
+        TestUtils.compareSelfNullClass(container1);
+        TestUtils.checkNotEquals(container1, container2);
+
+        container2.setSerializedLogs(Collections.singletonList("{}"));
+        TestUtils.checkEquals(container1, container2);
     }
 }
@@ -4,6 +4,7 @@ import android.content.ContentValues;
 import android.content.Context;
 
 import com.microsoft.appcenter.AppCenter;
+import com.microsoft.appcenter.Flags;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
@@ -21,20 +22,29 @@ import org.powermock.modules.junit4.rule.PowerMockRule;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static com.microsoft.appcenter.persistence.DatabasePersistence.COLUMN_GROUP;
+import static com.microsoft.appcenter.persistence.DatabasePersistence.COLUMN_PRIORITY;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -47,6 +57,18 @@ public class DatabasePersistenceTest {
     @Rule
     public PowerMockRule mPowerMockRule = new PowerMockRule();
 
+    private static void mockNoCriticalLogs(StorageHelper.DatabaseStorage databaseStorage) {
+        StorageHelper.DatabaseStorage.DatabaseScanner emptyScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
+        when(emptyScanner.iterator()).thenAnswer(new Answer<Iterator<ContentValues>>() {
+
+            @Override
+            public Iterator<ContentValues> answer(InvocationOnMock invocation) {
+                return new ArrayList<ContentValues>().iterator();
+            }
+        });
+        when(databaseStorage.getScanner(anyString(), anyString(), anyString(), eq(Flags.CRITICAL), anyBoolean(), anyLong(), anyInt())).thenReturn(emptyScanner);
+    }
+
     @Test
     public void databaseOperationException() throws Persistence.PersistenceException, JSONException {
 
@@ -97,10 +119,11 @@ public class DatabasePersistenceTest {
         StorageHelper.DatabaseStorage mockDatabaseStorage = mock(StorageHelper.DatabaseStorage.class);
         when(StorageHelper.DatabaseStorage.getDatabaseStorage(anyString(), anyString(), anyInt(), any(ContentValues.class), any(DatabaseManager.Listener.class))).thenReturn(mockDatabaseStorage);
 
+        mockNoCriticalLogs(mockDatabaseStorage);
         for (int i = 0; i < groupCount; i++) {
             StorageHelper.DatabaseStorage.DatabaseScanner mockDatabaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
             when(mockDatabaseScanner.iterator()).thenReturn(list.get(i).iterator());
-            when(mockDatabaseStorage.getScanner(COLUMN_GROUP, String.valueOf(i))).thenReturn(mockDatabaseScanner);
+            when(mockDatabaseStorage.getScanner(eq(COLUMN_GROUP), eq(String.valueOf(i)), eq(COLUMN_PRIORITY), eq(Flags.NORMAL), eq(false), anyLong(), anyInt())).thenReturn(mockDatabaseScanner);
         }
 
         LogSerializer mockLogSerializer = mock(LogSerializer.class);
@@ -118,11 +141,56 @@ public class DatabasePersistenceTest {
         /* Verify there are 4 pending groups. */
         assertEquals(groupCount, persistence.mPendingDbIdentifiersGroups.size());
         assertEquals(groupCount * logCount, persistence.mPendingDbIdentifiers.size());
+        assertEquals(groupCount, persistence.mPendingWatermarks.size());
 
         /* Clear all pending groups and verify. */
         persistence.clearPendingLogState();
         assertEquals(0, persistence.mPendingDbIdentifiersGroups.size());
         assertEquals(0, persistence.mPendingDbIdentifiers.size());
+        assertEquals(0, persistence.mPendingWatermarks.size());
+    }
+
+    @Test
+    public void clearPendingLogStateOfBatch() throws JSONException {
+
+        /* Mock logs of 2 groups. */
+        List<List<ContentValues>> list = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            List<ContentValues> iterator = new ArrayList<>();
+            for (long l = 1; l <= 2; l++) {
+                ContentValues values = mock(ContentValues.class);
+                when(values.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(l + i * 2);
+                when(values.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("{}");
+                iterator.add(values);
+            }
+            list.add(iterator);
+        }
+        mockStatic(StorageHelper.DatabaseStorage.class);
+        StorageHelper.DatabaseStorage mockDatabaseStorage = mock(StorageHelper.DatabaseStorage.class);
+        when(StorageHelper.DatabaseStorage.getDatabaseStorage(anyString(), anyString(), anyInt(), any(ContentValues.class), any(DatabaseManager.Listener.class))).thenReturn(mockDatabaseStorage);
+        mockNoCriticalLogs(mockDatabaseStorage);
+        for (int i = 0; i < 2; i++) {
+            StorageHelper.DatabaseStorage.DatabaseScanner mockDatabaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
+            when(mockDatabaseScanner.iterator()).thenReturn(list.get(i).iterator());
+            when(mockDatabaseStorage.getScanner(eq(COLUMN_GROUP), eq(String.valueOf(i)), eq(COLUMN_PRIORITY), eq(Flags.NORMAL), eq(false), anyLong(), anyInt())).thenReturn(mockDatabaseScanner);
+        }
+        LogSerializer mockLogSerializer = mock(LogSerializer.class);
+        when(mockLogSerializer.deserializeLog(anyString(), anyString())).thenReturn(mock(Log.class));
+        DatabasePersistence persistence = new DatabasePersistence(mock(Context.class));
+        persistence.setLogSerializer(mockLogSerializer);
+        String batchId = persistence.getLogs("0", 2, new ArrayList<Log>());
+        persistence.getLogs("1", 2, new ArrayList<Log>());
+
+        /* Release the batch of the first group only. */
+        persistence.clearPendingLogState("0", batchId);
+        assertEquals(1, persistence.mPendingDbIdentifiersGroups.size());
+        assertEquals(2, persistence.mPendingDbIdentifiers.size());
+        assertEquals(1, persistence.mPendingWatermarks.size());
+        assertNotNull(persistence.mPendingWatermarks.get("1"));
+
+        /* Unknown batch is ignored. */
+        persistence.clearPendingLogState("1", "unknown");
+        assertEquals(1, persistence.mPendingDbIdentifiersGroups.size());
     }
 
     @Test
@@ -159,8 +227,8 @@ public class DatabasePersistenceTest {
 
         /* Mock log sequence retrieved from scanner. */
         StorageHelper.DatabaseStorage.DatabaseScanner databaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
-        when(databaseStorage.getScanner(anyString(), anyString())).thenReturn(databaseScanner);
-        when(databaseStorage.getScanner(anyString(), anyString(), eq(false))).thenReturn(databaseScanner);
+        mockNoCriticalLogs(databaseStorage);
+        when(databaseStorage.getScanner(anyString(), anyString(), anyString(), eq(Flags.NORMAL), eq(false), anyLong(), anyInt())).thenReturn(databaseScanner);
         when(databaseScanner.iterator()).thenReturn(fieldValues.iterator());
 
         /* Mock second scanner with identifiers only. */
@@ -171,7 +239,7 @@ public class DatabasePersistenceTest {
             idValues.add(contentValues);
         }
         StorageHelper.DatabaseStorage.DatabaseScanner idDatabaseScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
-        when(databaseStorage.getScanner(anyString(), anyString(), eq(true))).thenReturn(idDatabaseScanner);
+        when(databaseStorage.getScanner(anyString(), anyString(), anyString(), eq(Flags.NORMAL), eq(true), anyLong(), anyInt())).thenReturn(idDatabaseScanner);
         when(idDatabaseScanner.iterator()).thenReturn(idValues.iterator());
 
         /* Mock serializer and eventually the database. */
@@ -200,6 +268,11 @@ public class DatabasePersistenceTest {
         /* Verify we detected and deleted the corrupted log, the second one. */
         verify(databaseStorage).delete(1);
 
+        /* Verify the first query was not filtered and that next one starts after the last returned log. */
+        verify(databaseStorage).getScanner(COLUMN_GROUP, "mock", COLUMN_PRIORITY, Flags.CRITICAL, false, DatabaseManager.NO_ID_LOWER_BOUND, 50);
+        verify(databaseStorage).getScanner(COLUMN_GROUP, "mock", COLUMN_PRIORITY, Flags.NORMAL, false, DatabaseManager.NO_ID_LOWER_BOUND, 50);
+        assertEquals(Long.valueOf(2), persistence.mPendingWatermarks.get("mock").get(Flags.NORMAL));
+
         /* Verify next call is empty logs as they are pending. */
         outLogs = new ArrayList<>();
         persistence.getLogs("mock", 50, outLogs);
@@ -256,11 +329,104 @@ public class DatabasePersistenceTest {
         persistence.getLogs("mock", 50, outLogs);
         assertEquals(1, outLogs.size());
         assertEquals("true last", outLogs.get(0).getType());
+        assertEquals(Long.valueOf(4), persistence.mPendingWatermarks.get("mock").get(Flags.NORMAL));
 
         /* Verify that the only log we deleted in the entire test was the one from previous test (id=1). */
         verify(databaseStorage).delete(anyLong());
     }
 
+    @Test
+    public void countLogsFromSnapshot() throws Persistence.PersistenceException, JSONException {
+
+        /* Mock database with logs in 2 groups. */
+        mockStatic(StorageHelper.DatabaseStorage.class);
+        StorageHelper.DatabaseStorage databaseStorage = mock(StorageHelper.DatabaseStorage.class);
+        when(StorageHelper.DatabaseStorage.getDatabaseStorage(anyString(), anyString(), anyInt(), any(ContentValues.class), any(DatabaseManager.Listener.class))).thenReturn(databaseStorage);
+        Map<String, Map<String, Integer>> counts = new HashMap<>();
+        Map<String, Integer> group1Counts = new HashMap<>();
+        group1Counts.put(String.valueOf(Flags.CRITICAL), 1);
+        group1Counts.put(String.valueOf(Flags.NORMAL), 2);
+        counts.put("group1", group1Counts);
+        Map<String, Integer> group2Counts = new HashMap<>();
+        group2Counts.put(String.valueOf(Flags.NORMAL), 5);
+        counts.put("group2", group2Counts);
+        when(databaseStorage.getCountsGroupedBy(COLUMN_GROUP, COLUMN_PRIORITY)).thenReturn(counts);
+        StorageHelper.DatabaseStorage.DatabaseScanner scanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
+        when(scanner.getCount()).thenReturn(4);
+        when(databaseStorage.getScanner(anyString(), anyString(), eq(true))).thenReturn(scanner);
+        DatabasePersistence persistence = new DatabasePersistence(mock(Context.class));
+        LogSerializer logSerializer = mock(LogSerializer.class);
+        when(logSerializer.serializeLog(any(Log.class))).thenReturn("{}");
+        persistence.setLogSerializer(logSerializer);
+
+        /* Every group is counted with a single query. */
+        assertEquals(3, persistence.countLogs("group1"));
+        assertEquals(0, persistence.countLogs("group3"));
+        verify(databaseStorage).getCountsGroupedBy(COLUMN_GROUP, COLUMN_PRIORITY);
+        verify(databaseStorage, never()).getScanner(anyString(), anyString(), eq(true));
+
+        /* A group counted again or modified since the snapshot is counted from the database. */
+        assertEquals(4, persistence.countLogs("group1"));
+        persistence.putLog("group2", mock(Log.class));
+        assertEquals(4, persistence.countLogs("group2"));
+        verify(databaseStorage, times(2)).getScanner(anyString(), anyString(), eq(true));
+        verify(databaseStorage).getCountsGroupedBy(COLUMN_GROUP, COLUMN_PRIORITY);
+    }
+
+    @Test
+    public void countPriorityLogsWithoutScanning() throws Persistence.PersistenceException, JSONException {
+
+        /* Mock database with 2 critical logs and 1 normal log. */
+        mockStatic(StorageHelper.DatabaseStorage.class);
+        StorageHelper.DatabaseStorage databaseStorage = mock(StorageHelper.DatabaseStorage.class);
+        when(StorageHelper.DatabaseStorage.getDatabaseStorage(anyString(), anyString(), anyInt(), any(ContentValues.class), any(DatabaseManager.Listener.class))).thenReturn(databaseStorage);
+        Map<String, Map<String, Integer>> counts = new HashMap<>();
+        Map<String, Integer> groupCounts = new HashMap<>();
+        groupCounts.put(String.valueOf(Flags.CRITICAL), 2);
+        groupCounts.put(String.valueOf(Flags.NORMAL), 1);
+        counts.put("group", groupCounts);
+        when(databaseStorage.getCountsGroupedBy(COLUMN_GROUP, COLUMN_PRIORITY)).thenReturn(counts);
+        when(databaseStorage.getCount(COLUMN_GROUP, "group", COLUMN_PRIORITY, Flags.CRITICAL)).thenReturn(3);
+        ContentValues criticalValues = new ContentValues();
+        criticalValues.put(DatabaseManager.PRIMARY_KEY, 1L);
+        criticalValues.put(DatabasePersistence.COLUMN_LOG, "{}");
+        StorageHelper.DatabaseStorage.DatabaseScanner criticalScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
+        when(criticalScanner.iterator()).thenReturn(Collections.singletonList(criticalValues).iterator());
+        StorageHelper.DatabaseStorage.DatabaseScanner emptyScanner = mock(StorageHelper.DatabaseStorage.DatabaseScanner.class);
+        when(emptyScanner.iterator()).thenReturn(Collections.<ContentValues>emptyList().iterator());
+        when(databaseStorage.getScanner(anyString(), anyString(), anyString(), anyInt(), anyBoolean(), anyLong(), anyInt())).thenReturn(emptyScanner);
+        when(databaseStorage.getScanner(anyString(), anyString(), anyString(), eq(Flags.CRITICAL), eq(false), anyLong(), anyInt())).thenReturn(criticalScanner);
+        DatabasePersistence persistence = new DatabasePersistence(mock(Context.class));
+        LogSerializer logSerializer = mock(LogSerializer.class);
+        when(logSerializer.serializeLog(any(Log.class))).thenReturn("{}");
+        when(logSerializer.deserializeLog(anyString(), anyString())).thenReturn(mock(Log.class));
+        persistence.setLogSerializer(logSerializer);
+
+        /* Counts come from the snapshot, even after the total count. */
+        assertEquals(3, persistence.countLogs("group"));
+        assertEquals(2, persistence.countLogs("group", Flags.CRITICAL));
+        assertEquals(1, persistence.countLogs("group", Flags.NORMAL));
+        assertEquals(0, persistence.countLogs("group", Flags.LOW));
+
+        /* Logs being sent are not counted. */
+        List<Log> outLogs = new ArrayList<>();
+        String batchId = persistence.getLogs("group", 1, outLogs);
+        assertNotNull(batchId);
+        assertEquals(1, persistence.countLogs("group", Flags.CRITICAL));
+        assertEquals(1, persistence.countLogs("group", Flags.NORMAL));
+
+        /* Once modified, counted in the database without reading the rows. */
+        persistence.putLog("group", mock(Log.class), Flags.CRITICAL);
+        assertEquals(2, persistence.countLogs("group", Flags.CRITICAL));
+        verify(databaseStorage).getCount(COLUMN_GROUP, "group", COLUMN_PRIORITY, Flags.CRITICAL);
+        verify(databaseStorage, never()).getScanner(anyString(), anyString(), anyString(), anyInt(), eq(true), anyLong(), anyInt());
+        verify(databaseStorage).getCountsGroupedBy(COLUMN_GROUP, COLUMN_PRIORITY);
+
+        /* Released logs are pending again. */
+        persistence.clearPendingLogState("group", batchId);
+        assertEquals(3, persistence.countLogs("group", Flags.CRITICAL));
+    }
+
     @Test
     public void checkSetStorageSizeForwarding() {
 
@@ -275,4 +441,12 @@ public class DatabasePersistenceTest {
         assertTrue(persistence.setMaxStorageSize(20480));
         assertFalse(persistence.setMaxStorageSize(2));
     }
+
+    @Test
+    public void payloadSizeIsUtf8Length() throws Exception {
+        String[] payloads = {"", "{\"a\":1}", "caf\u00e9 \u20ac \u4e2d\u6587", "emoji \ud83d\ude00", "unpaired \ud83d high", "unpaired \ude00 low"};
+        for (String payload : payloads) {
+            assertEquals(payload, payload.getBytes("UTF-8").length, DatabasePersistence.getPayloadSize(payload));
+        }
+    }
 }
\ No newline at end of file
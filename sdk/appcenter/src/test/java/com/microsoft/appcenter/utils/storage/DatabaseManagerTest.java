@@ -11,12 +11,14 @@ import android.database.sqlite.SQLiteQueryBuilder;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.internal.stubbing.answers.Returns;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import static org.junit.Assert.assertEquals;
@@ -28,9 +30,11 @@ import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -154,6 +158,20 @@ public class DatabaseManagerTest {
         databaseManagerMock.getRowCount();
         verify(databaseManagerMock).switchToInMemory(eq("count"), any(RuntimeException.class));
 
+        /* Row count grouped by column. */
+        databaseManagerMock = getDatabaseManagerMock();
+        databaseManagerMock.getCountsGroupedBy("key");
+        verify(databaseManagerMock).switchToInMemory(eq("countGroupedBy"), any(RuntimeException.class));
+
+        /* Row count grouped by 2 columns. */
+        databaseManagerMock = getDatabaseManagerMock();
+        databaseManagerMock.getCountsGroupedBy("key", "secondKey");
+        verify(databaseManagerMock).switchToInMemory(eq("countGroupedBy"), any(RuntimeException.class));
+
+        /* Row count of matching rows. */
+        databaseManagerMock = getDatabaseManagerMock();
+        databaseManagerMock.getCount("key", "value", "secondKey", 1);
+        verify(databaseManagerMock).switchToInMemory(eq("countWhere"), any(RuntimeException.class));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -326,4 +344,90 @@ public class DatabaseManagerTest {
         databaseManager.put(mock(ContentValues.class));
         verify(databaseManager).switchToInMemory("put", fatalException);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void putMultipleInOneTransaction() {
+
+        /* Mocking instances. */
+        Context contextMock = mock(Context.class);
+        SQLiteOpenHelper helperMock = mock(SQLiteOpenHelper.class);
+        SQLiteDatabase sqLiteDatabase = mock(SQLiteDatabase.class);
+        when(helperMock.getWritableDatabase()).thenReturn(sqLiteDatabase);
+        when(sqLiteDatabase.insertOrThrow(anyString(), anyString(), any(ContentValues.class))).thenReturn(1L).thenReturn(2L);
+
+        /* Instantiate real instance for DatabaseManager. */
+        DatabaseManager databaseManager = new DatabaseManager(contextMock, "database", "table", 1, null, null);
+        databaseManager.setSQLiteOpenHelper(helperMock);
+
+        /* Put 2 values and check they are committed together. */
+        List<Long> ids = databaseManager.put(Arrays.asList(mock(ContentValues.class), mock(ContentValues.class)));
+        assertEquals(Arrays.asList(1L, 2L), ids);
+        InOrder inOrder = inOrder(sqLiteDatabase);
+        inOrder.verify(sqLiteDatabase).beginTransaction();
+        inOrder.verify(sqLiteDatabase, times(2)).insertOrThrow(anyString(), anyString(), any(ContentValues.class));
+        inOrder.verify(sqLiteDatabase).setTransactionSuccessful();
+        inOrder.verify(sqLiteDatabase).endTransaction();
+    }
+
+    @Test
+    public void putMultipleSwitchesInMemory() {
+
+        /* Mocking instances. */
+        Context contextMock = mock(Context.class);
+        SQLiteOpenHelper helperMock = mock(SQLiteOpenHelper.class);
+        SQLiteDatabase sqLiteDatabase = mock(SQLiteDatabase.class);
+        when(helperMock.getWritableDatabase()).thenReturn(sqLiteDatabase);
+        RuntimeException exception = new RuntimeException();
+        when(sqLiteDatabase.insertOrThrow(anyString(), anyString(), any(ContentValues.class))).thenReturn(1L).thenThrow(exception);
+
+        /* Instantiate real instance for DatabaseManager. */
+        DatabaseManager databaseManager = spy(new DatabaseManager(contextMock, "database", "table", 1, null, null));
+        databaseManager.setSQLiteOpenHelper(helperMock);
+
+        /* Transaction is rolled back and all values go to in memory database. */
+        List<Long> ids = databaseManager.put(Arrays.asList(mock(ContentValues.class), mock(ContentValues.class)));
+        verify(databaseManager).switchToInMemory("put", exception);
+        verify(sqLiteDatabase, never()).setTransactionSuccessful();
+        verify(sqLiteDatabase).endTransaction();
+        assertEquals(Arrays.asList(0L, 1L), ids);
+        assertEquals(2, databaseManager.getRowCount());
+    }
+
+    @Test
+    public void putMultipleWhenFullInsertsOneByOne() {
+
+        /* Mocking instances. */
+        Context contextMock = mock(Context.class);
+        SQLiteOpenHelper helperMock = mock(SQLiteOpenHelper.class);
+        SQLiteDatabase sqLiteDatabase = mock(SQLiteDatabase.class);
+        when(helperMock.getWritableDatabase()).thenReturn(sqLiteDatabase);
+
+        /* Mock the select cursor we are using to find logs to evict. */
+        mockStatic(SQLiteUtils.class);
+        Cursor cursor = mock(Cursor.class);
+        when(cursor.moveToNext()).thenReturn(true);
+        when(cursor.getLong(0)).thenReturn(100L);
+        SQLiteQueryBuilder sqLiteQueryBuilder = mock(SQLiteQueryBuilder.class, new Returns(cursor));
+        when(SQLiteUtils.newSQLiteQueryBuilder()).thenReturn(sqLiteQueryBuilder);
+
+        /* Database is full during the transaction, then once more for the first log inserted alone. */
+        when(sqLiteDatabase.insertOrThrow(anyString(), anyString(), any(ContentValues.class)))
+                .thenReturn(1L)
+                .thenThrow(new SQLiteFullException())
+                .thenThrow(new SQLiteFullException())
+                .thenReturn(3L)
+                .thenReturn(4L);
+
+        /* Instantiate real instance for DatabaseManager. */
+        DatabaseManager databaseManager = spy(new DatabaseManager(contextMock, "database", "table", 1, null, null));
+        databaseManager.setSQLiteOpenHelper(helperMock);
+
+        /* Transaction is abandoned, identifiers come from the inserts done after evicting the oldest log. */
+        List<Long> ids = databaseManager.put(Arrays.asList(mock(ContentValues.class), mock(ContentValues.class)));
+        assertEquals(Arrays.asList(3L, 4L), ids);
+        verify(sqLiteDatabase, never()).setTransactionSuccessful();
+        verify(sqLiteDatabase).endTransaction();
+        verify(databaseManager).delete(100L);
+        verify(databaseManager, never()).switchToInMemory(anyString(), any(RuntimeException.class));
+    }
+}
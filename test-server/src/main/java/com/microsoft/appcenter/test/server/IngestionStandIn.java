@@ -0,0 +1,306 @@
+package com.microsoft.appcenter.test.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+/**
+ * Local stand-in for the App Center and One Collector ingestion endpoints.
+ * Accepts any log payload and answers with configurable latency, server errors and throttling,
+ * so that the whole upload pipeline can be measured without reaching production collectors.
+ * <p>
+ * Request bodies are not kept: only counters are recorded, so that long benchmarks don't
+ * accumulate memory in the process being measured.
+ */
+public class IngestionStandIn {
+
+    /**
+     * App Center ingestion path, appended by the ingestion to the log URL.
+     */
+    public static final String APP_CENTER_PATH = "/logs?api-version=1.0.0";
+
+    /**
+     * One Collector ingestion path, part of the log URL.
+     */
+    public static final String ONE_COLLECTOR_PATH = "/OneCollector/1.0";
+
+    /**
+     * Status code of simulated server errors.
+     */
+    public static final int SERVER_ERROR = 503;
+
+    /**
+     * Status code of simulated throttling.
+     */
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Server.
+     */
+    private final MockWebServer mServer = new MockWebServer();
+
+    /**
+     * Random generator deciding which calls fail.
+     */
+    private final Random mRandom;
+
+    /**
+     * Delay before sending response headers, in milliseconds.
+     */
+    private volatile long mLatency;
+
+    /**
+     * Probability of answering with {@link #SERVER_ERROR}.
+     */
+    private volatile double mErrorRate;
+
+    /**
+     * Probability of answering with {@link #TOO_MANY_REQUESTS}.
+     */
+    private volatile double mThrottleRate;
+
+    /**
+     * Retry-After header value in seconds of throttled responses.
+     */
+    private volatile int mRetryAfterSeconds = 1;
+
+    /**
+     * Number of calls received on the App Center endpoint.
+     */
+    private final AtomicLong mAppCenterRequestCount = new AtomicLong();
+
+    /**
+     * Number of calls received on the One Collector endpoint.
+     */
+    private final AtomicLong mOneCollectorRequestCount = new AtomicLong();
+
+    /**
+     * Number of calls answered with {@link #SERVER_ERROR}.
+     */
+    private final AtomicLong mErrorCount = new AtomicLong();
+
+    /**
+     * Number of calls answered with {@link #TOO_MANY_REQUESTS}.
+     */
+    private final AtomicLong mThrottledCount = new AtomicLong();
+
+    /**
+     * Request body bytes received, as sent on the wire (compressed if the client compressed).
+     */
+    private final AtomicLong mBytesReceived = new AtomicLong();
+
+    /**
+     * Init with a random seed.
+     */
+    public IngestionStandIn() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Init.
+     *
+     * @param seed seed deciding which calls fail, to replay the same sequence of errors.
+     */
+    public IngestionStandIn(long seed) {
+        mRandom = new Random(seed);
+        mServer.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                return IngestionStandIn.this.dispatch(request);
+            }
+        });
+    }
+
+    /**
+     * Start serving plain HTTP on a local port.
+     *
+     * @throws IOException if the server cannot be started.
+     */
+    public void start() throws IOException {
+        mServer.start();
+    }
+
+    /**
+     * Start serving HTTPS on a local port, with HTTP/2 available, using a self-signed certificate.
+     * Clients must trust the returned certificates, for example with
+     * {@code HttpsURLConnection.setDefaultSSLSocketFactory(certificates.sslSocketFactory())}.
+     *
+     * @return certificates to trust on the client side.
+     * @throws IOException if the server cannot be started.
+     */
+    public HandshakeCertificates startHttps() throws IOException {
+        String host = InetAddress.getByName("localhost").getCanonicalHostName();
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(host)
+                .build();
+        SSLSocketFactory serverSocketFactory = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build()
+                .sslSocketFactory();
+        mServer.useHttps(serverSocketFactory, false);
+        mServer.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        mServer.start();
+        return new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+    }
+
+    /**
+     * Stop the server.
+     *
+     * @throws IOException if the server cannot be stopped.
+     */
+    public void shutdown() throws IOException {
+        mServer.shutdown();
+    }
+
+    /**
+     * Get the log URL to give to the App Center ingestion, which appends {@link #APP_CENTER_PATH}.
+     *
+     * @return base URL.
+     */
+    public String getAppCenterLogUrl() {
+        String url = mServer.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    /**
+     * Get the log URL to give to the One Collector ingestion.
+     *
+     * @return URL.
+     */
+    public String getOneCollectorLogUrl() {
+        return mServer.url(ONE_COLLECTOR_PATH).toString();
+    }
+
+    /**
+     * Set the delay before answering each call.
+     *
+     * @param latency delay in milliseconds.
+     */
+    public void setLatency(long latency) {
+        mLatency = latency;
+    }
+
+    /**
+     * Set the probability of answering a call with a server error, retried by the SDK.
+     *
+     * @param errorRate probability between 0 and 1.
+     */
+    public void setErrorRate(double errorRate) {
+        mErrorRate = errorRate;
+    }
+
+    /**
+     * Set the probability of answering a call with {@link #TOO_MANY_REQUESTS}.
+     *
+     * @param throttleRate      probability between 0 and 1.
+     * @param retryAfterSeconds Retry-After header value in seconds.
+     */
+    public void setThrottleRate(double throttleRate, int retryAfterSeconds) {
+        mThrottleRate = throttleRate;
+        mRetryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Get the number of calls received on the App Center endpoint.
+     *
+     * @return request count.
+     */
+    public long getAppCenterRequestCount() {
+        return mAppCenterRequestCount.get();
+    }
+
+    /**
+     * Get the number of calls received on the One Collector endpoint.
+     *
+     * @return request count.
+     */
+    public long getOneCollectorRequestCount() {
+        return mOneCollectorRequestCount.get();
+    }
+
+    /**
+     * Get the number of calls answered with {@link #SERVER_ERROR}.
+     *
+     * @return error count.
+     */
+    public long getErrorCount() {
+        return mErrorCount.get();
+    }
+
+    /**
+     * Get the number of calls answered with {@link #TOO_MANY_REQUESTS}.
+     *
+     * @return throttled count.
+     */
+    public long getThrottledCount() {
+        return mThrottledCount.get();
+    }
+
+    /**
+     * Get the request body bytes received, as sent on the wire.
+     *
+     * @return byte count.
+     */
+    public long getBytesReceived() {
+        return mBytesReceived.get();
+    }
+
+    /**
+     * Reset all counters.
+     */
+    public void resetCounters() {
+        mAppCenterRequestCount.set(0);
+        mOneCollectorRequestCount.set(0);
+        mErrorCount.set(0);
+        mThrottledCount.set(0);
+        mBytesReceived.set(0);
+    }
+
+    private MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+
+        /* Drop the recorded request, we only keep counters. */
+        mServer.takeRequest(0, TimeUnit.MILLISECONDS);
+        String path = request.getPath();
+        if (!"POST".equals(request.getMethod()) || path == null) {
+            return new MockResponse().setResponseCode(405);
+        }
+        if (path.equals(APP_CENTER_PATH)) {
+            mAppCenterRequestCount.incrementAndGet();
+        } else if (path.startsWith(ONE_COLLECTOR_PATH)) {
+            mOneCollectorRequestCount.incrementAndGet();
+        } else {
+            return new MockResponse().setResponseCode(404);
+        }
+        mBytesReceived.addAndGet(request.getBodySize());
+        MockResponse response = new MockResponse().setHeadersDelay(mLatency, TimeUnit.MILLISECONDS);
+        double draw;
+        synchronized (mRandom) {
+            draw = mRandom.nextDouble();
+        }
+        if (draw < mThrottleRate) {
+            mThrottledCount.incrementAndGet();
+            return response.setResponseCode(TOO_MANY_REQUESTS).setHeader("Retry-After", String.valueOf(mRetryAfterSeconds));
+        }
+        if (draw < mThrottleRate + mErrorRate) {
+            mErrorCount.incrementAndGet();
+            return response.setResponseCode(SERVER_ERROR);
+        }
+        return response.setResponseCode(200).setBody("{}");
+    }
+}